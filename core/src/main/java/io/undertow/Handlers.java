@@ -42,6 +42,7 @@ import io.undertow.server.handlers.PredicateContextHandler;
 import io.undertow.server.handlers.PredicateHandler;
 import io.undertow.server.handlers.ProxyPeerAddressHandler;
 import io.undertow.server.handlers.RedirectHandler;
+import io.undertow.server.handlers.RequestBufferingHandler;
 import io.undertow.server.handlers.RequestDumpingHandler;
 import io.undertow.server.handlers.RequestLimit;
 import io.undertow.server.handlers.RequestLimitingHandler;
@@ -553,6 +554,18 @@ public class Handlers {
         return new LearningPushHandler(maxEntries, -1, next);
     }
 
+    /**
+     * Creates a handler that reads the full request before invoking the next handler. Requests that are larger
+     * than the in memory limit are written to a temporary file.
+     *
+     * @param maxBufferedInMemory The maximum number of bytes to hold in memory
+     * @param next The next handler
+     * @return A request buffering handler
+     */
+    public static RequestBufferingHandler requestBuffering(int maxBufferedInMemory, HttpHandler next) {
+        return new RequestBufferingHandler(next, maxBufferedInMemory);
+    }
+
     private Handlers() {
 
     }
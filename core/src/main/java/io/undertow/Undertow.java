@@ -48,7 +48,9 @@ import java.net.Inet4Address;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Convenience class used to build an Undertow server.
@@ -68,6 +70,7 @@ public final class Undertow {
     private final OptionMap workerOptions;
     private final OptionMap socketOptions;
     private final OptionMap serverOptions;
+    private final OptionMap sslOptions;
 
     private XnioWorker worker;
     private List<AcceptingChannel<? extends StreamConnection>> channels;
@@ -84,6 +87,7 @@ public final class Undertow {
         this.workerOptions = builder.workerOptions.getMap();
         this.socketOptions = builder.socketOptions.getMap();
         this.serverOptions = builder.serverOptions.getMap();
+        this.sslOptions = builder.sslOptions.getMap();
     }
 
     /**
@@ -119,6 +123,9 @@ public final class Undertow {
                     .getMap();
 
 
+            //listeners with the same key and trust managers share a SSL provider, and therefore a session cache
+            Map<ListenerConfig, XnioSsl> sslProviders = new LinkedHashMap<>();
+
             Pool<ByteBuffer> buffers = new ByteBufferSlicePool(directBuffers ? BufferAllocator.DIRECT_BYTE_BUFFER_ALLOCATOR : BufferAllocator.BYTE_BUFFER_ALLOCATOR, bufferSize, bufferSize * buffersPerRegion);
 
             for (ListenerConfig listener : listeners) {
@@ -166,11 +173,24 @@ public final class Undertow {
                             openListener = httpOpenListener;
                         }
                         ChannelListener<AcceptingChannel<StreamConnection>> acceptListener = ChannelListeners.openListenerAdapter(openListener);
-                        XnioSsl xnioSsl;
-                        if (listener.sslContext != null) {
-                            xnioSsl = new UndertowXnioSsl(xnio, OptionMap.create(Options.USE_DIRECT_BUFFERS, true), listener.sslContext);
-                        } else {
-                            xnioSsl = xnio.getSslProvider(listener.keyManagers, listener.trustManagers, OptionMap.create(Options.USE_DIRECT_BUFFERS, true));
+                        XnioSsl xnioSsl = null;
+                        for (Map.Entry<ListenerConfig, XnioSsl> entry : sslProviders.entrySet()) {
+                            if (entry.getKey().isSameSslConfig(listener)) {
+                                xnioSsl = entry.getValue();
+                                break;
+                            }
+                        }
+                        if (xnioSsl == null) {
+                            OptionMap sslOptions = OptionMap.builder()
+                                    .set(Options.USE_DIRECT_BUFFERS, true)
+                                    .addAll(this.sslOptions)
+                                    .getMap();
+                            if (listener.sslContext != null) {
+                                xnioSsl = new UndertowXnioSsl(xnio, sslOptions, listener.sslContext);
+                            } else {
+                                xnioSsl = xnio.getSslProvider(listener.keyManagers, listener.trustManagers, sslOptions);
+                            }
+                            sslProviders.put(listener, xnioSsl);
                         }
                         AcceptingChannel<SslConnection> sslServer = xnioSsl.createSslConnectionServer(worker, new InetSocketAddress(Inet4Address.getByName(listener.host), listener.port), (ChannelListener) acceptListener, socketOptions);
                         sslServer.resumeAccepts();
@@ -202,7 +222,7 @@ public final class Undertow {
         AJP
     }
 
-    private static class ListenerConfig {
+    static class ListenerConfig {
         final ListenerType type;
         final int port;
         final String host;
@@ -210,7 +230,7 @@ public final class Undertow {
         final TrustManager[] trustManagers;
         final SSLContext sslContext;
 
-        private ListenerConfig(final ListenerType type, final int port, final String host, KeyManager[] keyManagers, TrustManager[] trustManagers) {
+        ListenerConfig(final ListenerType type, final int port, final String host, KeyManager[] keyManagers, TrustManager[] trustManagers) {
             this.type = type;
             this.port = port;
             this.host = host;
@@ -219,7 +239,7 @@ public final class Undertow {
             this.sslContext = null;
         }
 
-        private ListenerConfig(final ListenerType type, final int port, final String host, SSLContext sslContext) {
+        ListenerConfig(final ListenerType type, final int port, final String host, SSLContext sslContext) {
             this.type = type;
             this.port = port;
             this.host = host;
@@ -227,6 +247,10 @@ public final class Undertow {
             this.trustManagers = null;
             this.sslContext = sslContext;
         }
+
+        boolean isSameSslConfig(final ListenerConfig other) {
+            return keyManagers == other.keyManagers && trustManagers == other.trustManagers && sslContext == other.sslContext;
+        }
     }
 
     public static final class Builder {
@@ -242,6 +266,7 @@ public final class Undertow {
         private final OptionMap.Builder workerOptions = OptionMap.builder();
         private final OptionMap.Builder socketOptions = OptionMap.builder();
         private final OptionMap.Builder serverOptions = OptionMap.builder();
+        private final OptionMap.Builder sslOptions = OptionMap.builder();
 
         private Builder() {
             ioThreads = Math.max(Runtime.getRuntime().availableProcessors(), 2);
@@ -348,6 +373,27 @@ public final class Undertow {
             workerOptions.set(option, value);
             return this;
         }
+
+        /**
+         * Sets the maximum number of SSL sessions that are cached for resumption by HTTPS listeners. HTTPS listeners
+         * that use the same key and trust managers, or the same SSL context, share a session cache.
+         *
+         * @param sessionCacheSize The cache size, or 0 for no limit
+         */
+        public Builder setSslSessionCacheSize(final int sessionCacheSize) {
+            sslOptions.set(Options.SSL_SERVER_SESSION_CACHE_SIZE, sessionCacheSize);
+            return this;
+        }
+
+        /**
+         * Sets the time that an SSL session can be resumed for by HTTPS listeners.
+         *
+         * @param sessionTimeout The timeout in seconds, or 0 for no limit
+         */
+        public Builder setSslSessionTimeout(final int sessionTimeout) {
+            sslOptions.set(Options.SSL_SERVER_SESSION_TIMEOUT, sessionTimeout);
+            return this;
+        }
     }
 
 }
@@ -25,6 +25,7 @@ import java.nio.channels.ClosedChannelException;
 import io.undertow.predicate.PredicateBuilder;
 import io.undertow.protocols.http2.HpackException;
 import io.undertow.server.handlers.builder.HandlerBuilder;
+import io.undertow.util.HttpString;
 import org.jboss.logging.Messages;
 import org.jboss.logging.annotations.Cause;
 import org.jboss.logging.annotations.Message;
@@ -392,4 +393,10 @@ public interface UndertowMessages {
 
     @Message(id = 121, value = "Session was rejected as the maximum number of sessions (%s) has been hit")
     IllegalStateException tooManySessions(int maxSessions);
+
+    @Message(id = 122, value = "Header %s cannot be part of a pre-encoded header block")
+    IllegalArgumentException headerNotAllowedInHeaderBlock(HttpString header);
+
+    @Message(id = 123, value = "Form value is a file that is held in memory, use getFileInputStream() instead")
+    IllegalStateException formValueIsInMemoryFile();
 }
@@ -0,0 +1,41 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.undertow.attribute;
+
+import io.undertow.server.HttpServerExchange;
+
+/**
+ * An exchange attribute that can render itself directly into a buffer, rather than creating an intermediate
+ * string. This is used when many attributes are combined into a single value, such as an access log line.
+ * <p/>
+ * Attributes that do not implement this interface are rendered via {@link #readAttribute(HttpServerExchange)}.
+ *
+ * @author Stuart Douglas
+ * @see ExchangeAttributes#appendAttribute(ExchangeAttribute, HttpServerExchange, StringBuilder)
+ */
+public interface AppendableExchangeAttribute extends ExchangeAttribute {
+
+    /**
+     * Appends the attribute to the given buffer. If the attribute is not present nothing is appended.
+     *
+     * @param exchange The exchange
+     * @param buffer   The buffer to append to
+     */
+    void appendAttribute(final HttpServerExchange exchange, final StringBuilder buffer);
+
+}
@@ -25,7 +25,7 @@ import io.undertow.server.HttpServerExchange;
  *
  * @author Filipe Ferraz
  */
-public class BytesSentAttribute implements ExchangeAttribute {
+public class BytesSentAttribute implements AppendableExchangeAttribute {
 
     public static final String BYTES_SENT_SHORT_UPPER = "%B";
     public static final String BYTES_SENT_SHORT_LOWER = "%b";
@@ -47,6 +47,16 @@ public class BytesSentAttribute implements ExchangeAttribute {
         }
     }
 
+    @Override
+    public void appendAttribute(final HttpServerExchange exchange, final StringBuilder buffer) {
+        long bytesSent = exchange.getResponseBytesSent();
+        if (bytesSent == 0 && attribute.equals(BYTES_SENT_SHORT_LOWER)) {
+            buffer.append('-');
+        } else {
+            buffer.append(bytesSent);
+        }
+    }
+
     @Override
     public void writeAttribute(final HttpServerExchange exchange, final String newValue) throws ReadOnlyAttributeException {
         throw new ReadOnlyAttributeException("Bytes sent", newValue);
@@ -25,7 +25,7 @@ import io.undertow.server.HttpServerExchange;
  *
  * @author Stuart Douglas
  */
-public class CompositeExchangeAttribute implements ExchangeAttribute {
+public class CompositeExchangeAttribute implements AppendableExchangeAttribute {
 
     private final ExchangeAttribute[] attributes;
 
@@ -38,13 +38,15 @@ public class CompositeExchangeAttribute implements ExchangeAttribute {
     @Override
     public String readAttribute(HttpServerExchange exchange) {
         final StringBuilder sb = new StringBuilder();
+        appendAttribute(exchange, sb);
+        return sb.toString();
+    }
+
+    @Override
+    public void appendAttribute(HttpServerExchange exchange, StringBuilder buffer) {
         for (int i = 0; i < attributes.length; ++i) {
-            final String val = attributes[i].readAttribute(exchange);
-            if(val != null) {
-                sb.append(val);
-            }
+            ExchangeAttributes.appendAttribute(attributes[i], exchange, buffer);
         }
-        return sb.toString();
     }
 
     @Override
@@ -25,7 +25,7 @@ import io.undertow.server.HttpServerExchange;
  *
  * @author Stuart Douglas
  */
-public class ConstantExchangeAttribute implements ExchangeAttribute {
+public class ConstantExchangeAttribute implements AppendableExchangeAttribute {
 
     private final String value;
 
@@ -38,8 +38,19 @@ public class ConstantExchangeAttribute implements ExchangeAttribute {
         return value;
     }
 
+    @Override
+    public void appendAttribute(final HttpServerExchange exchange, final StringBuilder buffer) {
+        if (value != null) {
+            buffer.append(value);
+        }
+    }
+
     @Override
     public void writeAttribute(final HttpServerExchange exchange, final String newValue) throws ReadOnlyAttributeException {
         throw new ReadOnlyAttributeException("constant", newValue);
     }
+
+    public String getValue() {
+        return value;
+    }
 }
@@ -28,20 +28,33 @@ import io.undertow.util.DateUtils;
  *
  * @author Stuart Douglas
  */
-public class DateTimeAttribute implements ExchangeAttribute {
+public class DateTimeAttribute implements AppendableExchangeAttribute {
 
     public static final String DATE_TIME_SHORT = "%t";
     public static final String DATE_TIME = "%{DATE_TIME}";
 
     public static final ExchangeAttribute INSTANCE = new DateTimeAttribute();
 
+    private volatile CachedDate cachedDate;
+
     private DateTimeAttribute() {
 
     }
 
     @Override
     public String readAttribute(final HttpServerExchange exchange) {
-        return DateUtils.toCommonLogFormat(new Date());
+        final long second = System.currentTimeMillis() / 1000;
+        CachedDate cached = this.cachedDate;
+        if (cached == null || cached.second != second) {
+            //the common log format only has second precision, so we only need to format once per second
+            this.cachedDate = cached = new CachedDate(second, DateUtils.toCommonLogFormat(new Date(second * 1000)));
+        }
+        return cached.value;
+    }
+
+    @Override
+    public void appendAttribute(final HttpServerExchange exchange, final StringBuilder buffer) {
+        buffer.append(readAttribute(exchange));
     }
 
     @Override
@@ -49,6 +62,16 @@ public class DateTimeAttribute implements ExchangeAttribute {
         throw new ReadOnlyAttributeException("Date time", newValue);
     }
 
+    private static final class CachedDate {
+        final long second;
+        final String value;
+
+        private CachedDate(final long second, final String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+
     public static final class Builder implements ExchangeAttributeBuilder {
 
         @Override
@@ -39,6 +39,25 @@ public class ExchangeAttributes {
         return new ExchangeAttributeParser(classLoader, Arrays.asList(wrappers));
     }
 
+    /**
+     * Appends the value of the attribute to the given buffer, without creating an intermediate string if the attribute
+     * supports it. If the attribute is not present nothing is appended.
+     *
+     * @param attribute The attribute
+     * @param exchange  The exchange
+     * @param buffer    The buffer to append to
+     */
+    public static void appendAttribute(final ExchangeAttribute attribute, final HttpServerExchange exchange, final StringBuilder buffer) {
+        if (attribute instanceof AppendableExchangeAttribute) {
+            ((AppendableExchangeAttribute) attribute).appendAttribute(exchange, buffer);
+        } else {
+            final String value = attribute.readAttribute(exchange);
+            if (value != null) {
+                buffer.append(value);
+            }
+        }
+    }
+
     public static ExchangeAttribute cookie(final String cookieName) {
         return new CookieAttribute(cookieName);
     }
@@ -45,6 +45,10 @@ public class RequestHeaderAttribute implements ExchangeAttribute {
         exchange.getRequestHeaders().put(requestHeader, newValue);
     }
 
+    public HttpString getRequestHeader() {
+        return requestHeader;
+    }
+
     public static final class Builder implements ExchangeAttributeBuilder {
 
         @Override
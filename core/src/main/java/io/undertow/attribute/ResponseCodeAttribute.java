@@ -25,7 +25,7 @@ import io.undertow.server.HttpServerExchange;
  *
  * @author Stuart Douglas
  */
-public class ResponseCodeAttribute implements ExchangeAttribute {
+public class ResponseCodeAttribute implements AppendableExchangeAttribute {
 
     public static final String RESPONSE_CODE_SHORT = "%s";
     public static final String RESPONSE_CODE = "%{RESPONSE_CODE}";
@@ -41,6 +41,11 @@ public class ResponseCodeAttribute implements ExchangeAttribute {
         return Integer.toString(exchange.getResponseCode());
     }
 
+    @Override
+    public void appendAttribute(final HttpServerExchange exchange, final StringBuilder buffer) {
+        buffer.append(exchange.getResponseCode());
+    }
+
     @Override
     public void writeAttribute(final HttpServerExchange exchange, final String newValue) throws ReadOnlyAttributeException {
         exchange.setResponseCode(Integer.parseInt(newValue));
@@ -15,7 +15,7 @@ public class SubstituteEmptyWrapper implements ExchangeAttributeWrapper {
 
     @Override
     public ExchangeAttribute wrap(final ExchangeAttribute attribute) {
-        return new ExchangeAttribute() {
+        return new AppendableExchangeAttribute() {
             @Override
             public String readAttribute(HttpServerExchange exchange) {
                 String val = attribute.readAttribute(exchange);
@@ -25,6 +25,15 @@ public class SubstituteEmptyWrapper implements ExchangeAttributeWrapper {
                 return val;
             }
 
+            @Override
+            public void appendAttribute(HttpServerExchange exchange, StringBuilder buffer) {
+                final int start = buffer.length();
+                ExchangeAttributes.appendAttribute(attribute, exchange, buffer);
+                if(buffer.length() == start) {
+                    buffer.append(substitute);
+                }
+            }
+
             @Override
             public void writeAttribute(HttpServerExchange exchange, String newValue) throws ReadOnlyAttributeException {
                 attribute.writeAttribute(exchange, newValue);
@@ -59,6 +59,7 @@ import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.Locale;
 
 import static io.undertow.client.UndertowClientMessages.MESSAGES;
@@ -93,6 +94,10 @@ class HttpClientConnection extends AbstractAttachable implements Closeable, Clie
     private final Deque<HttpClientExchange> pendingQueue = new ArrayDeque<>();
     private HttpClientExchange currentRequest;
     private HttpResponseBuilder pendingResponse;
+    /**
+     * Cache of header values that have been seen on this connection, shared by all responses
+     */
+    private final HashMap<HttpString, String> responseHeaderValuesCache = new HashMap<>();
 
     private final OptionMap options;
     private final StreamConnection connection;
@@ -233,7 +238,7 @@ class HttpClientConnection extends AbstractAttachable implements Closeable, Clie
 
     private void initiateRequest(HttpClientExchange httpClientExchange) {
         currentRequest = httpClientExchange;
-        pendingResponse = new HttpResponseBuilder();
+        pendingResponse = new HttpResponseBuilder(responseHeaderValuesCache);
         ClientRequest request = httpClientExchange.getRequest();
 
         String connectionString = request.getRequestHeaders().getFirst(CONNECTION);
@@ -453,7 +458,7 @@ class HttpClientConnection extends AbstractAttachable implements Closeable, Clie
                 }
 
                 if (builder.getStatusCode() == StatusCodes.CONTINUE) {
-                    pendingResponse = new HttpResponseBuilder();
+                    pendingResponse = new HttpResponseBuilder(responseHeaderValuesCache);
                     currentRequest.setContinueResponse(response);
                 } else {
                     prepareResponseChannel(response, currentRequest);
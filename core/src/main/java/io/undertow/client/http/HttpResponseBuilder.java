@@ -18,6 +18,8 @@
 
 package io.undertow.client.http;
 
+import java.util.Map;
+
 import io.undertow.client.ClientResponse;
 import io.undertow.util.HeaderMap;
 import io.undertow.util.HttpString;
@@ -29,13 +31,21 @@ import io.undertow.util.HttpString;
  */
 final class HttpResponseBuilder {
 
-    private final ResponseParseState parseState = new ResponseParseState();
+    private final ResponseParseState parseState;
 
     private int statusCode;
     private HttpString protocol;
     private String reasonPhrase;
     private final HeaderMap responseHeaders = new HeaderMap();
 
+    HttpResponseBuilder() {
+        this(null);
+    }
+
+    HttpResponseBuilder(final Map<HttpString, String> headerValuesCache) {
+        this.parseState = new ResponseParseState(headerValuesCache);
+    }
+
     public ResponseParseState getParseState() {
         return parseState;
     }
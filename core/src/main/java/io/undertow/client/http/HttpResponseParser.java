@@ -26,11 +26,16 @@ import io.undertow.util.Protocols;
 
 import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import static io.undertow.util.Headers.ACCEPT_RANGES_STRING;
 import static io.undertow.util.Headers.AGE_STRING;
+import static io.undertow.util.Headers.ALLOW_STRING;
+import static io.undertow.util.Headers.AUTHENTICATION_INFO_STRING;
 import static io.undertow.util.Headers.CACHE_CONTROL_STRING;
 import static io.undertow.util.Headers.CONNECTION_STRING;
 import static io.undertow.util.Headers.CONTENT_DISPOSITION_STRING;
@@ -50,16 +55,24 @@ import static io.undertow.util.Headers.PRAGMA_STRING;
 import static io.undertow.util.Headers.PROXY_AUTHENTICATE_STRING;
 import static io.undertow.util.Headers.REFRESH_STRING;
 import static io.undertow.util.Headers.RETRY_AFTER_STRING;
+import static io.undertow.util.Headers.SEC_WEB_SOCKET_ACCEPT_STRING;
+import static io.undertow.util.Headers.SEC_WEB_SOCKET_EXTENSIONS_STRING;
+import static io.undertow.util.Headers.SEC_WEB_SOCKET_PROTOCOL_STRING;
 import static io.undertow.util.Headers.SERVER_STRING;
 import static io.undertow.util.Headers.SET_COOKIE2_STRING;
 import static io.undertow.util.Headers.SET_COOKIE_STRING;
 import static io.undertow.util.Headers.STRICT_TRANSPORT_SECURITY_STRING;
 import static io.undertow.util.Headers.TRAILER_STRING;
 import static io.undertow.util.Headers.TRANSFER_ENCODING_STRING;
+import static io.undertow.util.Headers.UPGRADE_STRING;
 import static io.undertow.util.Headers.VARY_STRING;
 import static io.undertow.util.Headers.VIA_STRING;
 import static io.undertow.util.Headers.WARNING_STRING;
 import static io.undertow.util.Headers.WWW_AUTHENTICATE_STRING;
+import static io.undertow.util.Headers.X_FORWARDED_FOR_STRING;
+import static io.undertow.util.Headers.X_FORWARDED_HOST_STRING;
+import static io.undertow.util.Headers.X_FORWARDED_PORT_STRING;
+import static io.undertow.util.Headers.X_FORWARDED_PROTO_STRING;
 import static io.undertow.util.Protocols.HTTP_0_9_STRING;
 import static io.undertow.util.Protocols.HTTP_1_0_STRING;
 import static io.undertow.util.Protocols.HTTP_1_1_STRING;
@@ -74,6 +87,8 @@ import static io.undertow.util.Protocols.HTTP_1_1_STRING;
         headers = {
                 ACCEPT_RANGES_STRING,
                 AGE_STRING,
+                ALLOW_STRING,
+                AUTHENTICATION_INFO_STRING,
                 CACHE_CONTROL_STRING,
                 CONNECTION_STRING,
                 CONTENT_DISPOSITION_STRING,
@@ -93,21 +108,49 @@ import static io.undertow.util.Protocols.HTTP_1_1_STRING;
                 PROXY_AUTHENTICATE_STRING,
                 REFRESH_STRING,
                 RETRY_AFTER_STRING,
+                SEC_WEB_SOCKET_ACCEPT_STRING,
+                SEC_WEB_SOCKET_EXTENSIONS_STRING,
+                SEC_WEB_SOCKET_PROTOCOL_STRING,
                 SERVER_STRING,
                 SET_COOKIE_STRING,
                 SET_COOKIE2_STRING,
                 STRICT_TRANSPORT_SECURITY_STRING,
                 TRAILER_STRING,
                 TRANSFER_ENCODING_STRING,
+                UPGRADE_STRING,
                 VARY_STRING,
                 VIA_STRING,
                 WARNING_STRING,
-                WWW_AUTHENTICATE_STRING
+                WWW_AUTHENTICATE_STRING,
+                X_FORWARDED_FOR_STRING,
+                X_FORWARDED_HOST_STRING,
+                X_FORWARDED_PORT_STRING,
+                X_FORWARDED_PROTO_STRING
         })
 abstract class HttpResponseParser {
 
     public static final HttpResponseParser INSTANCE;
 
+    /**
+     * Headers that generally only have a small number of distinct values. The last value of each of these headers is
+     * cached per connection, and if the next response has the same value the cached string is reused rather than
+     * building a new one.
+     */
+    private static final Set<HttpString> CACHED_VALUE_HEADERS = new HashSet<>(Arrays.asList(
+            Headers.ACCEPT_RANGES,
+            Headers.CACHE_CONTROL,
+            Headers.CONNECTION,
+            Headers.CONTENT_ENCODING,
+            Headers.CONTENT_LANGUAGE,
+            Headers.CONTENT_TYPE,
+            Headers.PRAGMA,
+            Headers.SERVER,
+            Headers.STRICT_TRANSPORT_SECURITY,
+            Headers.TRANSFER_ENCODING,
+            Headers.VARY,
+            Headers.VIA,
+            Headers.X_FORWARDED_PROTO));
+
     static {
         try {
             final Class<?> cls = Class.forName(HttpResponseParser.class.getName() + "$$generated", false, HttpResponseParser.class.getClassLoader());
@@ -242,6 +285,15 @@ abstract class HttpResponseParser {
             stringBuilder = new StringBuilder();
             state.parseState = 0;
         }
+        Map<HttpString, String> headerValuesCache = state.headerValuesCache;
+        if (headerValuesCache != null && stringBuilder.length() == 0 && state.parseState == NORMAL) {
+            String existing = headerValuesCache.get(state.nextHeader);
+            if (existing != null) {
+                if (handleCachedHeader(existing, buffer, state, builder)) {
+                    return;
+                }
+            }
+        }
 
         int parseState = state.parseState;
         while (buffer.hasRemaining()) {
@@ -289,6 +341,9 @@ abstract class HttpResponseParser {
 
                         //TODO: we need to decode this according to RFC-2047 if we have seen a =? symbol
                         builder.getResponseHeaders().add(nextStandardHeader, headerValue);
+                        if (headerValuesCache != null && CACHED_VALUE_HEADERS.contains(nextStandardHeader)) {
+                            headerValuesCache.put(nextStandardHeader, headerValue);
+                        }
 
                         state.nextHeader = null;
 
@@ -314,6 +369,49 @@ abstract class HttpResponseParser {
         state.parseState = parseState;
     }
 
+    /**
+     * Attempts to match the header value against the last value that was seen for this header on the connection. If
+     * it matches the cached string is used and the whole header line is consumed, otherwise nothing is consumed.
+     *
+     * @return <code>true</code> if the cached value was used
+     */
+    private boolean handleCachedHeader(String existing, ByteBuffer buffer, ResponseParseState state, HttpResponseBuilder builder) {
+        int pos = buffer.position();
+        while (pos < buffer.limit() && buffer.get(pos) == ' ') {
+            pos++;
+        }
+        if (existing.length() + 3 + pos > buffer.limit()) {
+            return false;
+        }
+        int i = 0;
+        while (i < existing.length()) {
+            byte b = buffer.get(pos + i);
+            if (b != existing.charAt(i)) {
+                return false;
+            }
+            ++i;
+        }
+        if (buffer.get(pos + i++) != '\r') {
+            return false;
+        }
+        if (buffer.get(pos + i++) != '\n') {
+            return false;
+        }
+        int next = buffer.get(pos + i);
+        if (next == '\t' || next == ' ') {
+            //continuation
+            return false;
+        }
+        buffer.position(pos + i);
+        builder.getResponseHeaders().add(state.nextHeader, existing);
+
+        state.nextHeader = null;
+
+        state.state = ResponseParseState.HEADER;
+        state.parseState = 0;
+        return true;
+    }
+
     protected void handleAfterReasonPhrase(ByteBuffer buffer, ResponseParseState state, HttpResponseBuilder builder) {
         boolean newLine = state.leftOver == '\n';
         while (buffer.hasRemaining()) {
@@ -18,6 +18,8 @@
 
 package io.undertow.client.http;
 
+import java.util.Map;
+
 import io.undertow.util.HttpString;
 
 /**
@@ -80,9 +82,20 @@ class ResponseParseState {
      */
     HttpString nextHeader;
 
+    /**
+     * Values of low cardinality headers seen on this connection, used to avoid allocating a new string
+     * if a backend keeps sending the same value. May be null.
+     */
+    final Map<HttpString, String> headerValuesCache;
+
     public ResponseParseState() {
+        this(null);
+    }
+
+    ResponseParseState(final Map<HttpString, String> headerValuesCache) {
         this.parseState = 0;
         this.pos = 0;
+        this.headerValuesCache = headerValuesCache;
     }
 
     public boolean isComplete() {
@@ -18,78 +18,165 @@
 
 package io.undertow.conduits;
 
+import io.undertow.util.ByteRange;
 import org.xnio.IoUtils;
 import org.xnio.channels.StreamSourceChannel;
 import org.xnio.conduits.AbstractStreamSinkConduit;
 import org.xnio.conduits.ConduitWritableByteChannel;
+import org.xnio.conduits.Conduits;
 import org.xnio.conduits.StreamSinkConduit;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.List;
 
 /**
+ * Conduit that only writes out the parts of the response that fall within the requested ranges.
+ * <p/>
+ * If there is more than one range the ranges must be sorted and must not overlap, and the multipart framing
+ * is written between them, so the result is a multipart/byteranges response body.
+ * <p/>
+ * File transfers only transfer the parts of the file that are in range, the rest of the file is skipped without
+ * being read.
+ *
  * @author Stuart Douglas
  */
 public class RangeStreamSinkConduit extends AbstractStreamSinkConduit<StreamSinkConduit> {
 
-    private final long start, end;
+    private final long[] starts;
+    private final long[] ends;
+    private final ByteRange.MultipartByteRanges multipart;
     private final long originalResponseLength;
 
+    /**
+     * The number of bytes of the original response that have been consumed
+     */
     private long written;
+    /**
+     * The current range
+     */
+    private int range;
+    /**
+     * The next piece of multipart framing to write, once all parts have been written this is the trailer
+     */
+    private int nextFraming;
+    private ByteBuffer pendingFraming;
+    private boolean terminateRequested;
 
     public RangeStreamSinkConduit(StreamSinkConduit next, long start, long end, long originalResponseLength) {
+        this(next, Collections.singletonList(new ByteRange.Range(start, end)), null, originalResponseLength);
+    }
+
+    /**
+     * @param next                   The next conduit
+     * @param ranges                 The resolved ranges, in ascending order and not overlapping
+     * @param multipart              The multipart framing, or null if there is a single range
+     * @param originalResponseLength The length of the full response
+     */
+    public RangeStreamSinkConduit(StreamSinkConduit next, List<ByteRange.Range> ranges, ByteRange.MultipartByteRanges multipart, long originalResponseLength) {
         super(next);
-        this.start = start;
-        this.end = end;
+        this.starts = new long[ranges.size()];
+        this.ends = new long[ranges.size()];
+        for (int i = 0; i < starts.length; ++i) {
+            starts[i] = ranges.get(i).getStart();
+            ends[i] = ranges.get(i).getEnd();
+        }
+        this.multipart = multipart;
         this.originalResponseLength = originalResponseLength;
     }
 
-    @Override
-    public int write(ByteBuffer src) throws IOException {
-        boolean currentInclude = written >= start && written <= end;
-        long bytesRemaining = written < start ? start - written : written <= end ? end - written + 1 : Long.MAX_VALUE;
-        if (currentInclude) {
-            int old = src.limit();
-            src.limit((int) Math.min(src.position() + bytesRemaining, src.limit()));
-            int written;
-            int toConsume = 0;
-            try {
-                written = super.write(src);
-                this.written += written;
-            } finally {
-                if (!src.hasRemaining()) {
-                    //we wrote everything out
-                    src.limit(old);
-                    if (src.hasRemaining()) {
-                        toConsume = src.remaining();
-                        //but there was still some data that fell outside the range, so we discard it
-                        this.written += toConsume;
-                        src.position(src.limit());
+    /**
+     * Writes out any multipart framing that is due at the current position
+     *
+     * @return <code>true</code> if all framing has been written
+     */
+    private boolean writeFraming() throws IOException {
+        if (multipart == null) {
+            return true;
+        }
+        for (;;) {
+            if (pendingFraming != null) {
+                while (pendingFraming.hasRemaining()) {
+                    if (next.write(pendingFraming) == 0) {
+                        return false;
                     }
-                } else {
-                    src.limit(old);
                 }
+                pendingFraming = null;
             }
-            return written + toConsume;
-        } else {
-            if (src.remaining() <= bytesRemaining) {
+            if (nextFraming < starts.length && written >= starts[nextFraming]) {
+                pendingFraming = ByteBuffer.wrap(multipart.getPartHeader(nextFraming++));
+            } else if (nextFraming == starts.length && written > ends[ends.length - 1]) {
+                pendingFraming = ByteBuffer.wrap(multipart.getTrailer());
+                nextFraming++;
+            } else {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int total = 0;
+        for (;;) {
+            if (!writeFraming() || !src.hasRemaining()) {
+                return total;
+            }
+            if (range == starts.length) {
+                //past the last range, discard the rest
                 int rem = src.remaining();
-                this.written += rem;
+                written += rem;
                 src.position(src.limit());
-                return rem;
+                return total + rem;
+            }
+            if (written < starts[range]) {
+                int skip = (int) Math.min(src.remaining(), starts[range] - written);
+                written += skip;
+                src.position(src.position() + skip);
+                total += skip;
+                continue;
+            }
+            final long bytesRemaining = ends[range] - written + 1;
+            final int old = src.limit();
+            if (src.remaining() > bytesRemaining) {
+                src.limit((int) (src.position() + bytesRemaining));
+            }
+            final int res;
+            try {
+                res = next.write(src);
+            } finally {
+                src.limit(old);
+            }
+            written += res;
+            total += res;
+            if (written > ends[range]) {
+                range++;
             } else {
-                this.written += bytesRemaining;
-                src.position((int) (src.position() + bytesRemaining));
-                return (int) bytesRemaining + write(src);
+                //the next conduit could not take everything
+                return total;
             }
         }
     }
 
     @Override
     public long write(ByteBuffer[] srcs, int offs, int len) throws IOException {
+        if (writeFraming() && range < starts.length && written >= starts[range]) {
+            //if all the data is inside the current range we can pass it straight through as a gathering write
+            long rem = 0;
+            for (int i = offs; i < offs + len; ++i) {
+                rem += srcs[i].remaining();
+            }
+            if (rem <= ends[range] - written + 1) {
+                long res = next.write(srcs, offs, len);
+                written += res;
+                if (written > ends[range]) {
+                    range++;
+                }
+                return res;
+            }
+        }
         long ret = 0;
-        //todo: a more efficent impl
         for (int i = offs; i < offs + len; ++i) {
             ByteBuffer buf = srcs[i];
             if (buf.remaining() > 0) {
@@ -100,7 +187,16 @@ public class RangeStreamSinkConduit extends AbstractStreamSinkConduit<StreamSink
             }
         }
         return ret;
+    }
 
+    @Override
+    public int writeFinal(ByteBuffer src) throws IOException {
+        return Conduits.writeFinalBasic(this, src);
+    }
+
+    @Override
+    public long writeFinal(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        return Conduits.writeFinalBasic(this, srcs, offset, length);
     }
 
     @Override
@@ -110,6 +206,53 @@ public class RangeStreamSinkConduit extends AbstractStreamSinkConduit<StreamSink
 
     @Override
     public long transferFrom(FileChannel src, long position, long count) throws IOException {
-        return src.transferTo(position, count, new ConduitWritableByteChannel(this));
+        if (!writeFraming() || count == 0) {
+            return 0;
+        }
+        if (range == starts.length) {
+            written += count;
+            return count;
+        }
+        if (written < starts[range]) {
+            //skip over the data before the range, it never needs to be read
+            long skip = Math.min(count, starts[range] - written);
+            written += skip;
+            return skip;
+        }
+        long res = next.transferFrom(src, position, Math.min(count, ends[range] - written + 1));
+        written += res;
+        if (written > ends[range]) {
+            range++;
+        }
+        return res;
+    }
+
+    @Override
+    public boolean flush() throws IOException {
+        if (!writeFraming()) {
+            return false;
+        }
+        if (terminateRequested) {
+            terminateRequested = false;
+            next.terminateWrites();
+        }
+        return next.flush();
+    }
+
+    @Override
+    public void terminateWrites() throws IOException {
+        if (writeFraming()) {
+            next.terminateWrites();
+        } else {
+            //the trailer still needs to be written, terminate the next conduit once it has been flushed
+            terminateRequested = true;
+        }
+    }
+
+    @Override
+    public void truncateWrites() throws IOException {
+        pendingFraming = null;
+        terminateRequested = false;
+        next.truncateWrites();
     }
 }
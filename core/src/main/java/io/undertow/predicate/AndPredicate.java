@@ -40,4 +40,8 @@ class AndPredicate implements Predicate {
         }
         return true;
     }
+
+    Predicate[] getPredicates() {
+        return predicates;
+    }
 }
@@ -60,6 +60,10 @@ class EqualsPredicate implements Predicate {
         return true;
     }
 
+    ExchangeAttribute[] getAttributes() {
+        return attributes;
+    }
+
     public static class Builder implements PredicateBuilder {
 
         @Override
@@ -52,6 +52,10 @@ class MethodPredicate implements Predicate {
     }
 
 
+    HttpString[] getMethods() {
+        return methods;
+    }
+
     public static class Builder implements PredicateBuilder {
 
         @Override
@@ -35,4 +35,8 @@ class NotPredicate implements Predicate {
     public boolean resolve(final HttpServerExchange value) {
         return !predicate.resolve(value);
     }
+
+    Predicate getPredicate() {
+        return predicate;
+    }
 }
@@ -40,4 +40,8 @@ class OrPredicate implements Predicate {
         }
         return false;
     }
+
+    Predicate[] getPredicates() {
+        return predicates;
+    }
 }
@@ -31,17 +31,21 @@ import io.undertow.util.PathMatcher;
 class PathMatchPredicate implements Predicate {
 
     private final PathMatcher<Boolean> pathMatcher;
+    private final String[] paths;
 
     public PathMatchPredicate(final String... paths) {
         PathMatcher<Boolean> matcher = new PathMatcher<>();
-        for(String path : paths) {
+        String[] fullPaths = new String[paths.length];
+        for(int i = 0; i < paths.length; ++i) {
+            String path = paths[i];
             if(!path.startsWith("/")) {
-                matcher.addExactPath("/" + path, Boolean.TRUE);
-            } else {
-                matcher.addExactPath(path, Boolean.TRUE);
+                path = "/" + path;
             }
+            matcher.addExactPath(path, Boolean.TRUE);
+            fullPaths[i] = path;
         }
         this.pathMatcher = matcher;
+        this.paths = fullPaths;
     }
 
     @Override
@@ -51,6 +55,10 @@ class PathMatchPredicate implements Predicate {
         return result.getValue() == Boolean.TRUE;
     }
 
+    String[] getPaths() {
+        return paths;
+    }
+
     public static class Builder implements PredicateBuilder {
 
         @Override
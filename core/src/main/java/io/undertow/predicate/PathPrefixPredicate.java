@@ -31,17 +31,21 @@ import io.undertow.util.PathMatcher;
 class PathPrefixPredicate implements Predicate {
 
     private final PathMatcher<Boolean> pathMatcher;
+    private final String[] paths;
 
     public PathPrefixPredicate(final String... paths) {
         PathMatcher<Boolean> matcher = new PathMatcher<>();
-        for(String path : paths) {
+        String[] fullPaths = new String[paths.length];
+        for(int i = 0; i < paths.length; ++i) {
+            String path = paths[i];
             if(!path.startsWith("/")) {
-                matcher.addPrefixPath("/" + path, Boolean.TRUE);
-            } else {
-                matcher.addPrefixPath(path, Boolean.TRUE);
+                path = "/" + path;
             }
+            matcher.addPrefixPath(path, Boolean.TRUE);
+            fullPaths[i] = path;
         }
         this.pathMatcher = matcher;
+        this.paths = fullPaths;
     }
 
     @Override
@@ -59,6 +63,10 @@ class PathPrefixPredicate implements Predicate {
         return matches;
     }
 
+    String[] getPaths() {
+        return paths;
+    }
+
     public static class Builder implements PredicateBuilder {
 
         @Override
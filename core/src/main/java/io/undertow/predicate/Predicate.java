@@ -42,7 +42,7 @@ public interface Predicate {
      * used in a situation where this information may be required by later handlers.
      *
      */
-    AttachmentKey<Map<String, Object>> PREDICATE_CONTEXT = AttachmentKey.create(Map.class);
+    AttachmentKey<Map<String, Object>> PREDICATE_CONTEXT = AttachmentKey.createIndexed(Map.class);
 
     boolean resolve(final HttpServerExchange value);
 
@@ -0,0 +1,404 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.predicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.undertow.attribute.ConstantExchangeAttribute;
+import io.undertow.attribute.ExchangeAttribute;
+import io.undertow.attribute.RequestHeaderAttribute;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+
+/**
+ * A compiled index over an ordered list of predicates, that allows the next predicate that may match a request
+ * to be found without evaluating every predicate in turn.
+ * <p/>
+ * Each predicate is classified by its discriminating attribute. Path and path prefix predicates are stored in a
+ * character trie, method predicates in a map keyed by method, and predicates that compare a request header
+ * to a constant value in a map keyed by header value. Everything else is evaluated for every request.
+ * <p/>
+ * The index is only ever used to exclude predicates that cannot possibly match, the candidate predicates are still
+ * resolved normally. This means that rule order and any side effects of predicate evaluation (such as
+ * populating the {@link Predicate#PREDICATE_CONTEXT}) are the same as if every predicate was evaluated.
+ * <p/>
+ * The index also records if any of the predicates may store information in the predicate context, so the context
+ * only needs to be allocated if it can actually be used.
+ *
+ * @author Stuart Douglas
+ */
+final class PredicateIndex {
+
+    private static final int[] EMPTY = {};
+
+    private static final String PACKAGE_PREFIX = Predicate.class.getName().substring(0, Predicate.class.getName().lastIndexOf('.') + 1);
+
+    private final int size;
+
+    /**
+     * If any of the predicates may write to the {@link Predicate#PREDICATE_CONTEXT}
+     */
+    private final boolean capturesContext;
+
+    /**
+     * Predicates that could not be classified, these are always candidates
+     */
+    private final int[] generic;
+
+    /**
+     * Every path based predicate, used if the relative path is not in a form the trie can handle
+     */
+    private final int[] allPaths;
+    private final PathNode root;
+
+    private final Map<HttpString, int[]> methods;
+    private final int[] allMethods;
+
+    private final HttpString[] headerNames;
+    private final Map<String, int[]>[] headerValues;
+
+    @SuppressWarnings("unchecked")
+    PredicateIndex(final Predicate[] predicates) {
+        this.size = predicates.length;
+        final Builder builder = new Builder();
+        boolean capturesContext = false;
+        for (int i = 0; i < predicates.length; ++i) {
+            if (!builder.classify(predicates[i], i)) {
+                builder.generic.add(i);
+            }
+            capturesContext |= capturesContext(predicates[i]);
+        }
+        this.capturesContext = capturesContext;
+        this.generic = toArray(builder.generic);
+        this.allPaths = toArray(builder.allPaths);
+        this.root = builder.root.compile();
+        this.methods = compile(builder.methods);
+        this.allMethods = toArray(builder.allMethods);
+        this.headerNames = builder.headers.keySet().toArray(new HttpString[builder.headers.size()]);
+        this.headerValues = new Map[headerNames.length];
+        for (int i = 0; i < headerNames.length; ++i) {
+            headerValues[i] = compile(builder.headers.get(headerNames[i]));
+        }
+    }
+
+    /**
+     * @return <code>true</code> if any of the predicates may write to the predicate context
+     */
+    boolean isCapturesContext() {
+        return capturesContext;
+    }
+
+    /**
+     * Returns <code>true</code> if the predicate may write to the predicate context. Predicates that are not
+     * part of Undertow are assumed to use the context.
+     */
+    private static boolean capturesContext(final Predicate predicate) {
+        if (predicate instanceof PathPrefixPredicate
+                || predicate instanceof PathTemplatePredicate
+                || predicate instanceof RegularExpressionPredicate) {
+            return true;
+        } else if (predicate instanceof AndPredicate) {
+            return capturesContext(((AndPredicate) predicate).getPredicates());
+        } else if (predicate instanceof OrPredicate) {
+            return capturesContext(((OrPredicate) predicate).getPredicates());
+        } else if (predicate instanceof NotPredicate) {
+            return capturesContext(((NotPredicate) predicate).getPredicate());
+        }
+        return !predicate.getClass().getName().startsWith(PACKAGE_PREFIX);
+    }
+
+    private static boolean capturesContext(final Predicate[] predicates) {
+        for (Predicate p : predicates) {
+            if (capturesContext(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the position of the first predicate at or after the given position that may match the exchange.
+     *
+     * @param exchange The exchange
+     * @param from     The position to start from
+     * @return The position of the next candidate predicate, or the number of indexed predicates if there are no more
+     *         candidates. Positions past the end of the index are always candidates.
+     */
+    int nextCandidate(final HttpServerExchange exchange, final int from) {
+        int best = firstAtLeast(generic, from, Math.max(from, size));
+        if (best == from) {
+            return best;
+        }
+        if (allPaths.length != 0) {
+            best = nextPathCandidate(exchange.getRelativePath(), from, best);
+        }
+        if (allMethods.length != 0) {
+            final int[] rules = methods.get(exchange.getRequestMethod());
+            if (rules != null) {
+                best = firstAtLeast(rules, from, best);
+            }
+        }
+        for (int i = 0; i < headerNames.length; ++i) {
+            final String value = exchange.getRequestHeaders().getFirst(headerNames[i]);
+            if (value != null) {
+                final int[] rules = headerValues[i].get(value);
+                if (rules != null) {
+                    best = firstAtLeast(rules, from, best);
+                }
+            }
+        }
+        return best;
+    }
+
+    private int nextPathCandidate(final String path, final int from, int best) {
+        final int length = path.length();
+        if (length == 0 || path.charAt(0) != '/') {
+            //the path matchers normalize this, we just treat all path predicates as candidates
+            return firstAtLeast(allPaths, from, best);
+        }
+        //exact matches ignore trailing slashes
+        int end = length;
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            --end;
+        }
+        PathNode node = root;
+        int i = 1;
+        for (;;) {
+            if (i == length || path.charAt(i) == '/') {
+                best = firstAtLeast(node.prefix, from, best);
+            }
+            if (i == end) {
+                best = firstAtLeast(node.exact, from, best);
+            }
+            if (i == length) {
+                return best;
+            }
+            node = node.child(path.charAt(i++));
+            if (node == null) {
+                return best;
+            }
+        }
+    }
+
+    /**
+     * Returns the first value in the sorted array that is at least <code>from</code>, if it is less than
+     * <code>best</code>, otherwise returns <code>best</code>.
+     */
+    private static int firstAtLeast(final int[] sorted, final int from, final int best) {
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < from) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (low < sorted.length && sorted[low] < best) {
+            return sorted[low];
+        }
+        return best;
+    }
+
+    private static int[] toArray(final List<Integer> list) {
+        if (list.isEmpty()) {
+            return EMPTY;
+        }
+        int[] ret = new int[list.size()];
+        for (int i = 0; i < ret.length; ++i) {
+            ret[i] = list.get(i);
+        }
+        return ret;
+    }
+
+    private static <K> Map<K, int[]> compile(final Map<K, List<Integer>> map) {
+        final Map<K, int[]> ret = new HashMap<>();
+        for (Map.Entry<K, List<Integer>> entry : map.entrySet()) {
+            ret.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        return ret;
+    }
+
+    private static void add(final List<Integer> list, final int index) {
+        //a predicate may be added to the same list more than once, e.g. method[{GET, GET}]
+        if (list.isEmpty() || list.get(list.size() - 1) != index) {
+            list.add(index);
+        }
+    }
+
+    private static final class Builder {
+
+        final List<Integer> generic = new ArrayList<>();
+        final List<Integer> allPaths = new ArrayList<>();
+        final PathNodeBuilder root = new PathNodeBuilder();
+        final Map<HttpString, List<Integer>> methods = new HashMap<>();
+        final List<Integer> allMethods = new ArrayList<>();
+        final Map<HttpString, Map<String, List<Integer>>> headers = new LinkedHashMap<>();
+
+        /**
+         * Adds the predicate to the index
+         *
+         * @return <code>true</code> if the predicate could be classified
+         */
+        boolean classify(final Predicate predicate, final int index) {
+            if (predicate instanceof PathPrefixPredicate) {
+                for (String path : ((PathPrefixPredicate) predicate).getPaths()) {
+                    String normalized = normalize(path);
+                    if (normalized.equals("/")) {
+                        //matches everything
+                        return false;
+                    }
+                }
+                for (String path : ((PathPrefixPredicate) predicate).getPaths()) {
+                    add(root.get(normalize(path)).prefix, index);
+                }
+                add(allPaths, index);
+                return true;
+            } else if (predicate instanceof PathMatchPredicate) {
+                for (String path : ((PathMatchPredicate) predicate).getPaths()) {
+                    add(root.get(normalize(path)).exact, index);
+                }
+                add(allPaths, index);
+                return true;
+            } else if (predicate instanceof MethodPredicate) {
+                for (HttpString method : ((MethodPredicate) predicate).getMethods()) {
+                    List<Integer> list = methods.get(method);
+                    if (list == null) {
+                        methods.put(method, list = new ArrayList<>());
+                    }
+                    add(list, index);
+                }
+                add(allMethods, index);
+                return true;
+            } else if (predicate instanceof EqualsPredicate) {
+                return classifyEquals(((EqualsPredicate) predicate).getAttributes(), index);
+            } else if (predicate instanceof AndPredicate) {
+                //all the predicates must match, so we only need to index the first one that can be classified
+                for (Predicate p : ((AndPredicate) predicate).getPredicates()) {
+                    if (classify(p, index)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean classifyEquals(final ExchangeAttribute[] attributes, final int index) {
+            if (attributes.length != 2) {
+                return false;
+            }
+            RequestHeaderAttribute header;
+            ConstantExchangeAttribute constant;
+            if (attributes[0] instanceof RequestHeaderAttribute && attributes[1] instanceof ConstantExchangeAttribute) {
+                header = (RequestHeaderAttribute) attributes[0];
+                constant = (ConstantExchangeAttribute) attributes[1];
+            } else if (attributes[1] instanceof RequestHeaderAttribute && attributes[0] instanceof ConstantExchangeAttribute) {
+                header = (RequestHeaderAttribute) attributes[1];
+                constant = (ConstantExchangeAttribute) attributes[0];
+            } else {
+                return false;
+            }
+            if (constant.getValue() == null) {
+                return false;
+            }
+            Map<String, List<Integer>> values = headers.get(header.getRequestHeader());
+            if (values == null) {
+                headers.put(header.getRequestHeader(), values = new HashMap<>());
+            }
+            List<Integer> list = values.get(constant.getValue());
+            if (list == null) {
+                values.put(constant.getValue(), list = new ArrayList<>());
+            }
+            add(list, index);
+            return true;
+        }
+
+        /**
+         * Normalizes the path in the same way as {@link io.undertow.util.PathMatcher}
+         */
+        private static String normalize(final String path) {
+            int end = path.length();
+            while (end > 1 && path.charAt(end - 1) == '/') {
+                --end;
+            }
+            return path.substring(0, end);
+        }
+    }
+
+    private static final class PathNodeBuilder {
+        final Map<Character, PathNodeBuilder> children = new HashMap<>();
+        final List<Integer> prefix = new ArrayList<>();
+        final List<Integer> exact = new ArrayList<>();
+
+        /**
+         * Gets the node for the given path, relative to the leading slash
+         */
+        PathNodeBuilder get(final String path) {
+            PathNodeBuilder node = this;
+            for (int i = 1; i < path.length(); ++i) {
+                Character c = path.charAt(i);
+                PathNodeBuilder next = node.children.get(c);
+                if (next == null) {
+                    node.children.put(c, next = new PathNodeBuilder());
+                }
+                node = next;
+            }
+            return node;
+        }
+
+        PathNode compile() {
+            char[] chars = new char[children.size()];
+            int pos = 0;
+            for (Character c : children.keySet()) {
+                chars[pos++] = c;
+            }
+            Arrays.sort(chars);
+            PathNode[] nodes = new PathNode[chars.length];
+            for (int i = 0; i < chars.length; ++i) {
+                nodes[i] = children.get(chars[i]).compile();
+            }
+            return new PathNode(chars, nodes, toArray(prefix), toArray(exact));
+        }
+    }
+
+    private static final class PathNode {
+        private final char[] chars;
+        private final PathNode[] children;
+        final int[] prefix;
+        final int[] exact;
+
+        private PathNode(final char[] chars, final PathNode[] children, final int[] prefix, final int[] exact) {
+            this.chars = chars;
+            this.children = children;
+            this.prefix = prefix;
+            this.exact = exact;
+        }
+
+        PathNode child(final char c) {
+            int index = Arrays.binarySearch(chars, c);
+            return index < 0 ? null : children[index];
+        }
+    }
+}
@@ -24,6 +24,8 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.server.handlers.builder.PredicatedHandler;
 import io.undertow.util.AttachmentKey;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TreeMap;
 
 /**
@@ -34,7 +36,16 @@ import java.util.TreeMap;
  */
 public class PredicatesHandler implements HttpHandler {
 
-    private volatile Holder[] handlers = new Holder[0];
+    /**
+     * The handlers that have been added, guarded by this
+     */
+    private final List<Holder> holders = new ArrayList<>();
+
+    /**
+     * The handlers and the index over their predicates. This is built the first time a request is handled after
+     * a handler is added, so adding a large number of handlers only builds the index once.
+     */
+    private volatile Compiled compiled;
     private volatile HttpHandler next;
 
     //non-static, so multiple handlers can co-exist
@@ -46,16 +57,24 @@ public class PredicatesHandler implements HttpHandler {
 
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
+        Compiled compiled = this.compiled;
+        if (compiled == null) {
+            compiled = compile();
+        }
+        final PredicateIndex index = compiled.index;
+        final Holder[] handlers = compiled.handlers;
         final int length = handlers.length;
         Integer current = exchange.getAttachment(CURRENT_POSITION);
         int pos;
         if (current == null) {
             pos = 0;
-            exchange.putAttachment(Predicate.PREDICATE_CONTEXT, new TreeMap<String, Object>());
+            if (index.isCapturesContext()) {
+                exchange.putAttachment(Predicate.PREDICATE_CONTEXT, new TreeMap<String, Object>());
+            }
         } else {
             pos = current;
         }
-        for (; pos < length; ++pos) {
+        for (pos = index.nextCandidate(exchange, pos); pos < length; pos = index.nextCandidate(exchange, pos + 1)) {
             final Holder handler = handlers[pos];
             if (handler.predicate.resolve(exchange)) {
                 exchange.putAttachment(CURRENT_POSITION, pos + 1);
@@ -74,15 +93,25 @@ public class PredicatesHandler implements HttpHandler {
      * @param predicate
      * @param handlerWrapper
      */
-    public PredicatesHandler addPredicatedHandler(final Predicate predicate, final HandlerWrapper handlerWrapper) {
-        Holder[] old = handlers;
-        Holder[] handlers = new Holder[old.length + 1];
-        System.arraycopy(old, 0, handlers, 0, old.length);
-        handlers[old.length] = new Holder(predicate, handlerWrapper.wrap(this));
-        this.handlers = handlers;
+    public synchronized PredicatesHandler addPredicatedHandler(final Predicate predicate, final HandlerWrapper handlerWrapper) {
+        holders.add(new Holder(predicate, handlerWrapper.wrap(this)));
+        compiled = null;
         return this;
     }
 
+    private synchronized Compiled compile() {
+        Compiled compiled = this.compiled;
+        if (compiled == null) {
+            final Holder[] handlers = holders.toArray(new Holder[holders.size()]);
+            final Predicate[] predicates = new Predicate[handlers.length];
+            for (int i = 0; i < handlers.length; ++i) {
+                predicates[i] = handlers[i].predicate;
+            }
+            this.compiled = compiled = new Compiled(handlers, new PredicateIndex(predicates));
+        }
+        return compiled;
+    }
+
     public PredicatesHandler addPredicatedHandler(final PredicatedHandler handler) {
         return addPredicatedHandler(handler.getPredicate(), handler.getHandler());
     }
@@ -95,6 +124,16 @@ public class PredicatesHandler implements HttpHandler {
         return next;
     }
 
+    private static final class Compiled {
+        final Holder[] handlers;
+        final PredicateIndex index;
+
+        private Compiled(Holder[] handlers, PredicateIndex index) {
+            this.handlers = handlers;
+            this.index = index;
+        }
+    }
+
     private static final class Holder {
         final Predicate predicate;
         final HttpHandler handler;
@@ -27,6 +27,7 @@ import org.xnio.IoFuture;
 import org.xnio.IoUtils;
 import org.xnio.Option;
 import org.xnio.OptionMap;
+import org.xnio.Options;
 import org.xnio.Pool;
 import org.xnio.StreamConnection;
 import org.xnio.Xnio;
@@ -45,6 +46,7 @@ import org.xnio.ssl.XnioSsl;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSessionContext;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
@@ -105,7 +107,13 @@ public class UndertowXnioSsl extends XnioSsl {
 
     /**
      * Construct a new instance.
-     *  @param xnio the XNIO instance to associate with
+     * <p/>
+     * The {@link Options#SSL_SERVER_SESSION_CACHE_SIZE}, {@link Options#SSL_SERVER_SESSION_TIMEOUT},
+     * {@link Options#SSL_CLIENT_SESSION_CACHE_SIZE} and {@link Options#SSL_CLIENT_SESSION_TIMEOUT} options are applied
+     * to the session contexts of the SSL context. As the session cache belongs to the SSL context, all instances that
+     * share a context also share cached sessions, so a client can resume its session on any of them.
+     *
+     * @param xnio the XNIO instance to associate with
      * @param optionMap the options for this provider
      * @param bufferPool
      * @param sslContext the SSL context to use for this instance
@@ -114,6 +122,20 @@ public class UndertowXnioSsl extends XnioSsl {
         super(xnio, sslContext, optionMap);
         this.bufferPool = bufferPool;
         this.sslContext = sslContext;
+        configureSessionContext(sslContext.getServerSessionContext(), optionMap.get(Options.SSL_SERVER_SESSION_CACHE_SIZE, -1), optionMap.get(Options.SSL_SERVER_SESSION_TIMEOUT, -1));
+        configureSessionContext(sslContext.getClientSessionContext(), optionMap.get(Options.SSL_CLIENT_SESSION_CACHE_SIZE, -1), optionMap.get(Options.SSL_CLIENT_SESSION_TIMEOUT, -1));
+    }
+
+    private static void configureSessionContext(final SSLSessionContext sessionContext, final int cacheSize, final int timeout) {
+        if (sessionContext == null) {
+            return;
+        }
+        if (cacheSize >= 0) {
+            sessionContext.setSessionCacheSize(cacheSize);
+        }
+        if (timeout >= 0) {
+            sessionContext.setSessionTimeout(timeout);
+        }
     }
 
     /**
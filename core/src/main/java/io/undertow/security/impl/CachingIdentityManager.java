@@ -0,0 +1,186 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.undertow.security.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.undertow.security.idm.Account;
+import io.undertow.security.idm.Credential;
+import io.undertow.security.idm.IdentityManager;
+import io.undertow.security.idm.PasswordCredential;
+import io.undertow.server.handlers.cache.LRUCache;
+
+/**
+ * An {@link IdentityManager} that caches the result of successful password verifications.
+ * <p/>
+ * This is intended for use with mechanisms such as BASIC, where the client sends the same credentials with every
+ * request, and the underlying identity manager is expensive to call (e.g. it uses a slow password hash or a
+ * remote directory).
+ * <p/>
+ * The password itself is never stored. Instead a salted SHA-256 hash of the ID and password is stored
+ * along with the verified account, and a request only hits the cache if the hash of its credential matches.
+ * Failed verifications are never cached. Entries are removed after the configured time to live, or can be removed
+ * explicitly via {@link #invalidate(String)} if an account is changed.
+ * <p/>
+ * All other credential types are passed straight through to the underlying identity manager.
+ *
+ * @author Stuart Douglas
+ */
+public class CachingIdentityManager implements IdentityManager {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final IdentityManager delegate;
+    private final LRUCache<String, CachedAccount> cache;
+    private final byte[] salt;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Incremented every time a cached result is invalidated. A verification that raced with an invalidation does not
+     * leave its possibly out of date result in the cache.
+     */
+    private final AtomicInteger invalidations = new AtomicInteger();
+
+    /**
+     * @param delegate   The identity manager to delegate to
+     * @param maxEntries The maximum number of accounts to cache
+     * @param timeToLive The time in milliseconds that a verification result is cached for
+     */
+    public CachingIdentityManager(final IdentityManager delegate, final int maxEntries, final int timeToLive) {
+        this.delegate = delegate;
+        this.cache = new LRUCache<>(maxEntries, timeToLive);
+        this.salt = new byte[16];
+        new SecureRandom().nextBytes(salt);
+    }
+
+    @Override
+    public Account verify(final Account account) {
+        return delegate.verify(account);
+    }
+
+    @Override
+    public Account verify(final String id, final Credential credential) {
+        if (!(credential instanceof PasswordCredential)) {
+            return delegate.verify(id, credential);
+        }
+        final byte[] hash = hash(id, ((PasswordCredential) credential).getPassword());
+        final CachedAccount cached = cache.get(id);
+        if (cached != null && MessageDigest.isEqual(cached.hash, hash)) {
+            hits.incrementAndGet();
+            return cached.account;
+        }
+        misses.incrementAndGet();
+        final int generation = invalidations.get();
+        final Account account = delegate.verify(id, credential);
+        if (account != null) {
+            cache.remove(id);
+            cache.add(id, new CachedAccount(hash, account));
+            if (invalidations.get() != generation) {
+                //the account was invalidated while we were verifying it, so the result may already be out of date
+                cache.remove(id);
+            }
+        }
+        return account;
+    }
+
+    @Override
+    public Account verify(final Credential credential) {
+        return delegate.verify(credential);
+    }
+
+    /**
+     * Removes any cached verification result for the given ID. This should be called if the account's credentials
+     * or roles have been changed.
+     *
+     * @param id The account ID
+     */
+    public void invalidate(final String id) {
+        //the generation is incremented before the entry is removed, so a verification either sees the new
+        //generation or added its entry before the removal
+        invalidations.incrementAndGet();
+        cache.remove(id);
+    }
+
+    /**
+     * Removes all cached verification results.
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.clear();
+    }
+
+    /**
+     * @return The number of password verifications that were satisfied from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of password verifications that were passed to the underlying identity manager
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public IdentityManager getDelegate() {
+        return delegate;
+    }
+
+    private byte[] hash(final String id, final char[] password) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        digest.update(salt);
+        digest.update(id.getBytes(UTF_8));
+        digest.update((byte) 0);
+        final ByteBuffer encoded = UTF_8.encode(CharBuffer.wrap(password));
+        try {
+            digest.update(encoded.duplicate());
+        } finally {
+            if (encoded.hasArray()) {
+                Arrays.fill(encoded.array(), (byte) 0);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static final class CachedAccount {
+        final byte[] hash;
+        final Account account;
+
+        private CachedAccount(final byte[] hash, final Account account) {
+            this.hash = hash;
+            this.account = account;
+        }
+    }
+}
@@ -62,6 +62,36 @@ public interface ConnectorStatistics {
      */
     long getMaxProcessingTime();
 
+    /**
+     *
+     * @return The number of SSL handshakes that created a new session
+     */
+    long getFullHandshakeCount();
+
+    /**
+     *
+     * A handshake is counted as resumed if it reuses the ID of a session that was established by an earlier
+     * handshake on this connector. Resumption of a session that was established on another listener that shares the
+     * session cache, or whose ID is no longer among the most recent sessions tracked by the connector, is counted as a
+     * full handshake.
+     *
+     * @return The number of SSL handshakes that resumed an existing session
+     */
+    long getResumedHandshakeCount();
+
+    /**
+     *
+     * @return The number of request bytes that have been buffered in memory by a {@link io.undertow.server.handlers.RequestBufferingHandler}
+     */
+    long getBufferedRequestBytes();
+
+    /**
+     *
+     * @return The number of request bytes that have been written to disk by a {@link io.undertow.server.handlers.RequestBufferingHandler}
+     * because they did not fit in memory
+     */
+    long getSpilledRequestBytes();
+
     /**
      * Resets all values to zero
      */
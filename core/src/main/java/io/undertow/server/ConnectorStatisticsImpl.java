@@ -19,8 +19,16 @@
 package io.undertow.server;
 
 import io.undertow.conduits.ByteActivityCallback;
+import io.undertow.util.AttachmentKey;
 import io.undertow.util.StatusCodes;
+import org.xnio.ChannelListener;
+import org.xnio.StreamConnection;
+import org.xnio.ssl.SslConnection;
 
+import javax.net.ssl.SSLSession;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
@@ -28,12 +36,31 @@ import java.util.concurrent.atomic.AtomicLongFieldUpdater;
  */
 public class ConnectorStatisticsImpl implements ConnectorStatistics {
 
+    /**
+     * Attachment key that allows handlers to update the statistics of the connector that received the request
+     */
+    public static final AttachmentKey<ConnectorStatisticsImpl> ATTACHMENT_KEY = AttachmentKey.createIndexed(ConnectorStatisticsImpl.class);
+
     private static final AtomicLongFieldUpdater<ConnectorStatisticsImpl> requestCountUpdater = AtomicLongFieldUpdater.newUpdater(ConnectorStatisticsImpl.class, "requestCount");
     private static final AtomicLongFieldUpdater<ConnectorStatisticsImpl> bytesSentUpdater = AtomicLongFieldUpdater.newUpdater(ConnectorStatisticsImpl.class, "bytesSent");
     private static final AtomicLongFieldUpdater<ConnectorStatisticsImpl> bytesReceivedUpdater = AtomicLongFieldUpdater.newUpdater(ConnectorStatisticsImpl.class, "bytesReceived");
     private static final AtomicLongFieldUpdater<ConnectorStatisticsImpl> errorCountUpdater = AtomicLongFieldUpdater.newUpdater(ConnectorStatisticsImpl.class, "errorCount");
     private static final AtomicLongFieldUpdater<ConnectorStatisticsImpl> processingTimeUpdater = AtomicLongFieldUpdater.newUpdater(ConnectorStatisticsImpl.class, "processingTime");
     private static final AtomicLongFieldUpdater<ConnectorStatisticsImpl> maxProcessingTimeUpdater = AtomicLongFieldUpdater.newUpdater(ConnectorStatisticsImpl.class, "maxProcessingTime");
+    private static final AtomicLongFieldUpdater<ConnectorStatisticsImpl> fullHandshakeCountUpdater = AtomicLongFieldUpdater.newUpdater(ConnectorStatisticsImpl.class, "fullHandshakeCount");
+    private static final AtomicLongFieldUpdater<ConnectorStatisticsImpl> resumedHandshakeCountUpdater = AtomicLongFieldUpdater.newUpdater(ConnectorStatisticsImpl.class, "resumedHandshakeCount");
+    private static final AtomicLongFieldUpdater<ConnectorStatisticsImpl> bufferedRequestBytesUpdater = AtomicLongFieldUpdater.newUpdater(ConnectorStatisticsImpl.class, "bufferedRequestBytes");
+    private static final AtomicLongFieldUpdater<ConnectorStatisticsImpl> spilledRequestBytesUpdater = AtomicLongFieldUpdater.newUpdater(ConnectorStatisticsImpl.class, "spilledRequestBytes");
+
+    /**
+     * The cipher suite of a session that has not completed a handshake
+     */
+    private static final String NULL_CIPHER_SUITE = "SSL_NULL_WITH_NULL_NULL";
+
+    /**
+     * The maximum number of session IDs that are remembered in order to detect resumed handshakes
+     */
+    static final int MAX_TRACKED_SESSIONS = 10240;
 
     private volatile long requestCount;
     private volatile long bytesSent;
@@ -41,6 +68,20 @@ public class ConnectorStatisticsImpl implements ConnectorStatistics {
     private volatile long errorCount;
     private volatile long processingTime;
     private volatile long maxProcessingTime;
+    private volatile long fullHandshakeCount;
+    private volatile long resumedHandshakeCount;
+    private volatile long bufferedRequestBytes;
+    private volatile long spilledRequestBytes;
+
+    /**
+     * The IDs of the SSL sessions that have been established on this connector, least recently used first
+     */
+    private final Map<ByteBuffer, Boolean> sessionIds = new LinkedHashMap<ByteBuffer, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<ByteBuffer, Boolean> eldest) {
+            return size() > MAX_TRACKED_SESSIONS;
+        }
+    };
 
     private final ExchangeCompletionListener completionListener = new ExchangeCompletionListener() {
         @Override
@@ -99,6 +140,26 @@ public class ConnectorStatisticsImpl implements ConnectorStatistics {
         return maxProcessingTimeUpdater.get(this);
     }
 
+    @Override
+    public long getFullHandshakeCount() {
+        return fullHandshakeCountUpdater.get(this);
+    }
+
+    @Override
+    public long getResumedHandshakeCount() {
+        return resumedHandshakeCountUpdater.get(this);
+    }
+
+    @Override
+    public long getBufferedRequestBytes() {
+        return bufferedRequestBytesUpdater.get(this);
+    }
+
+    @Override
+    public long getSpilledRequestBytes() {
+        return spilledRequestBytesUpdater.get(this);
+    }
+
     @Override
     public void reset() {
         requestCountUpdater.set(this, 0);
@@ -107,6 +168,10 @@ public class ConnectorStatisticsImpl implements ConnectorStatistics {
         errorCountUpdater.set(this, 0);
         maxProcessingTimeUpdater.set(this, 0);
         processingTimeUpdater.set(this, 0);
+        fullHandshakeCountUpdater.set(this, 0);
+        resumedHandshakeCountUpdater.set(this, 0);
+        bufferedRequestBytesUpdater.set(this, 0);
+        spilledRequestBytesUpdater.set(this, 0);
     }
 
     public void requestFinished(long bytesSent, long bytesReceived, boolean error) {
@@ -125,11 +190,64 @@ public class ConnectorStatisticsImpl implements ConnectorStatistics {
         bytesReceivedUpdater.addAndGet(this, bytes);
     }
 
+    public void updateBufferedRequestBytes(long inMemory, long spilled) {
+        bufferedRequestBytesUpdater.addAndGet(this, inMemory);
+        spilledRequestBytesUpdater.addAndGet(this, spilled);
+    }
+
     public void setup(HttpServerExchange exchange) {
         requestCountUpdater.incrementAndGet(this);
         exchange.addExchangeCompleteListener(completionListener);
+        exchange.putAttachment(ATTACHMENT_KEY, this);
     }
 
+    /**
+     * Records the type of the initial SSL handshake of the connection. If the handshake has already completed (e.g.
+     * because ALPN was used to select the protocol) it is recorded immediately, otherwise it is recorded when the
+     * handshake completes. Connections that do not use SSL are ignored.
+     *
+     * @param channel The connection
+     */
+    public void trackHandshake(final StreamConnection channel) {
+        if (!(channel instanceof SslConnection)) {
+            return;
+        }
+        final SslConnection connection = (SslConnection) channel;
+        if (!handshakeComplete(connection.getSslSession())) {
+            connection.getHandshakeSetter().set(handshakeListener);
+        }
+    }
+
+    boolean handshakeComplete(final SSLSession session) {
+        if (session == null || NULL_CIPHER_SUITE.equals(session.getCipherSuite())) {
+            return false;
+        }
+        //a handshake is resumed if it reuses the ID of a session that a previous handshake on this connector established
+        final byte[] id = session.getId();
+        boolean resumed = false;
+        if (id != null && id.length > 0) {
+            final ByteBuffer key = ByteBuffer.wrap(id.clone());
+            synchronized (sessionIds) {
+                resumed = sessionIds.put(key, Boolean.TRUE) != null;
+            }
+        }
+        if (resumed) {
+            resumedHandshakeCountUpdater.incrementAndGet(this);
+        } else {
+            fullHandshakeCountUpdater.incrementAndGet(this);
+        }
+        return true;
+    }
+
+    private final ChannelListener<SslConnection> handshakeListener = new ChannelListener<SslConnection>() {
+        @Override
+        public void handleEvent(final SslConnection channel) {
+            //we only track the initial handshake
+            channel.getHandshakeSetter().set(null);
+            handshakeComplete(channel.getSslSession());
+        }
+    };
+
     public ByteActivityCallback sentAccumulator() {
         return new BytesSentAccumulator();
     }
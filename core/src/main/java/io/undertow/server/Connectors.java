@@ -21,6 +21,7 @@ package io.undertow.server;
 import io.undertow.UndertowLogger;
 import io.undertow.server.handlers.Cookie;
 import io.undertow.util.DateUtils;
+import io.undertow.util.HeaderBlock;
 import io.undertow.util.Headers;
 import io.undertow.util.StatusCodes;
 import io.undertow.util.URLUtils;
@@ -58,6 +59,20 @@ public class Connectors {
         }
     }
 
+    /**
+     * Merges the pre-encoded response header block into the header map. This is used by connectors that do not
+     * write HTTP/1.x headers directly.
+     *
+     * @param exchange The server exchange
+     * @see io.undertow.util.HeaderBlock
+     */
+    public static void flattenResponseHeaderBlock(final HttpServerExchange exchange) {
+        HeaderBlock block = exchange.getResponseHeaderBlock();
+        if (block != null) {
+            block.mergeInto(exchange.getResponseHeaders());
+        }
+    }
+
     /**
      * Attached buffered data to the exchange. The will generally be used to allow data to be re-read.
      *
@@ -299,4 +314,18 @@ public class Connectors {
     public static StreamSourceChannel getExistingRequestChannel(final HttpServerExchange exchange) {
         return exchange.requestChannel;
     }
+
+    /**
+     * Allows the request channel to be obtained again. This is used by the
+     * {@link io.undertow.server.handlers.RequestBufferingHandler} once it has read the request and made it available to
+     * later handlers via {@link #ungetRequestBytes(HttpServerExchange, Pooled[])}.
+     * <p/>
+     * This should only be called once the request has been fully read and the data attached to the exchange, otherwise
+     * the rest of the request will be lost. It is not intended for general use.
+     *
+     * @param exchange The exchange
+     */
+    public static void resetRequestChannel(final HttpServerExchange exchange) {
+        exchange.requestChannel = null;
+    }
 }
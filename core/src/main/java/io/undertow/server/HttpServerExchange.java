@@ -35,13 +35,16 @@ import io.undertow.util.AbstractAttachable;
 import io.undertow.util.AttachmentKey;
 import io.undertow.util.ConduitFactory;
 import io.undertow.util.Cookies;
+import io.undertow.util.HeaderBlock;
 import io.undertow.util.HeaderMap;
 import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
 import io.undertow.util.Methods;
 import io.undertow.util.NetworkUtils;
+import io.undertow.util.ParameterMap;
 import io.undertow.util.Protocols;
 import io.undertow.util.StatusCodes;
+import io.undertow.util.URLUtils;
 import org.jboss.logging.Logger;
 import org.xnio.Buffers;
 import org.xnio.ChannelExceptionHandler;
@@ -98,7 +101,7 @@ public final class HttpServerExchange extends AbstractAttachable {
     /**
      * The attachment key that buffered request data is attached under.
      */
-    static final AttachmentKey<Pooled<ByteBuffer>[]> BUFFERED_REQUEST_DATA = AttachmentKey.create(Pooled[].class);
+    static final AttachmentKey<Pooled<ByteBuffer>[]> BUFFERED_REQUEST_DATA = AttachmentKey.createIndexed(Pooled[].class);
 
     private final ServerConnection connection;
     private final HeaderMap requestHeaders;
@@ -111,9 +114,26 @@ public final class HttpServerExchange extends AbstractAttachable {
     private Map<String, Deque<String>> queryParameters;
     private Map<String, Deque<String>> pathParameters;
 
+    /**
+     * Raw parameter strings that have not been parsed yet. The parameter maps are only built if they are actually
+     * requested, as for many requests (e.g. static resources and proxied requests) they are never looked at.
+     */
+    private String unparsedQueryParameters;
+    private String unparsedPathParameters;
+
+    /**
+     * The charset used to decode the unparsed parameters, or null if they should not be decoded
+     */
+    private String parameterCharset;
+
     private Map<String, Cookie> requestCookies;
     private Map<String, Cookie> responseCookies;
 
+    /**
+     * Pre-encoded response headers that are written in addition to the response header map
+     */
+    private HeaderBlock responseHeaderBlock;
+
     /**
      * The actual response channel. May be null if it has not been created yet.
      */
@@ -977,6 +997,32 @@ public final class HttpServerExchange extends AbstractAttachable {
         return responseHeaders;
     }
 
+    /**
+     * Gets the pre-encoded response header block. These headers are not part of the response header map, and
+     * are only merged with it when the response is committed.
+     *
+     * @return the response header block, or <code>null</code> if none has been set
+     */
+    public HeaderBlock getResponseHeaderBlock() {
+        return responseHeaderBlock;
+    }
+
+    /**
+     * Sets a pre-encoded block of headers that will be sent with the response. Any header in the block that is also
+     * present in the response header map when the response is committed is ignored, so the header map always takes
+     * precedence.
+     *
+     * @param responseHeaderBlock the header block, or <code>null</code> to remove the current block
+     * @return this exchange
+     */
+    public HttpServerExchange setResponseHeaderBlock(final HeaderBlock responseHeaderBlock) {
+        if (allAreSet(state, FLAG_RESPONSE_SENT)) {
+            throw UndertowMessages.MESSAGES.responseAlreadyStarted();
+        }
+        this.responseHeaderBlock = responseHeaderBlock;
+        return this;
+    }
+
     /**
      * @return The content length of the response, or <code>-1</code> if it has not been set
      */
@@ -1009,23 +1055,41 @@ public final class HttpServerExchange extends AbstractAttachable {
      */
     public Map<String, Deque<String>> getQueryParameters() {
         if (queryParameters == null) {
-            queryParameters = new TreeMap<>();
+            ParameterMap params = new ParameterMap();
+            if (unparsedQueryParameters != null) {
+                URLUtils.parseParameters(unparsedQueryParameters, params, parameterCharset);
+                unparsedQueryParameters = null;
+            }
+            queryParameters = params;
         }
         return queryParameters;
     }
 
     public HttpServerExchange addQueryParam(final String name, final String param) {
-        if (queryParameters == null) {
-            queryParameters = new TreeMap<>();
-        }
-        Deque<String> list = queryParameters.get(name);
+        final Map<String, Deque<String>> params = getQueryParameters();
+        Deque<String> list = params.get(name);
         if (list == null) {
-            queryParameters.put(name, list = new ArrayDeque<>(2));
+            params.put(name, list = new ArrayDeque<>(2));
         }
         list.add(param);
         return this;
     }
 
+    /**
+     * Sets the raw query parameter string. This is not parsed until the query parameters are first requested.
+     * <p>
+     * This is intended for use by protocol implementations, and must be called before any query parameters are added.
+     *
+     * @param queryParameters The raw, non-decoded query parameters
+     * @param charset         The charset to use to decode the parameters, or null if they should not be decoded
+     */
+    public HttpServerExchange setUnparsedQueryParameters(final String queryParameters, final String charset) {
+        this.queryParameters = null;
+        this.unparsedQueryParameters = queryParameters;
+        this.parameterCharset = charset;
+        return this;
+    }
+
 
     /**
      * Returns a mutable map of path parameters
@@ -1034,23 +1098,41 @@ public final class HttpServerExchange extends AbstractAttachable {
      */
     public Map<String, Deque<String>> getPathParameters() {
         if (pathParameters == null) {
-            pathParameters = new TreeMap<>();
+            ParameterMap params = new ParameterMap();
+            if (unparsedPathParameters != null) {
+                URLUtils.parseParameters(unparsedPathParameters, params, parameterCharset);
+                unparsedPathParameters = null;
+            }
+            pathParameters = params;
         }
         return pathParameters;
     }
 
     public HttpServerExchange addPathParam(final String name, final String param) {
-        if (pathParameters == null) {
-            pathParameters = new TreeMap<>();
-        }
-        Deque<String> list = pathParameters.get(name);
+        final Map<String, Deque<String>> params = getPathParameters();
+        Deque<String> list = params.get(name);
         if (list == null) {
-            pathParameters.put(name, list = new ArrayDeque<>(2));
+            params.put(name, list = new ArrayDeque<>(2));
         }
         list.add(param);
         return this;
     }
 
+    /**
+     * Sets the raw path parameter string. This is not parsed until the path parameters are first requested.
+     * <p>
+     * This is intended for use by protocol implementations, and must be called before any path parameters are added.
+     *
+     * @param pathParameters The raw, non-decoded path parameters
+     * @param charset        The charset to use to decode the parameters, or null if they should not be decoded
+     */
+    public HttpServerExchange setUnparsedPathParameters(final String pathParameters, final String charset) {
+        this.pathParameters = null;
+        this.unparsedPathParameters = pathParameters;
+        this.parameterCharset = charset;
+        return this;
+    }
+
     /**
      * @return A mutable map of request cookies
      */
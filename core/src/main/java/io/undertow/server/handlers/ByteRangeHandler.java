@@ -34,6 +34,7 @@ import org.xnio.conduits.StreamSinkConduit;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -42,10 +43,11 @@ import java.util.Set;
  * of a fixed content length i.e. any resource where the content-length header has been set.
  *
  * Note that this is not necessarily the most efficient way to handle range requests, as the full content
- * will be generated and then discarded.
+ * will be generated and then discarded. Content that is sent from a file is the exception, only the parts of the
+ * file that are in range are transferred.
  *
- * At present this handler can only handle simple (i.e. single range) requests. If multiple ranges are requested the
- * Range header will be ignored.
+ * If multiple ranges are requested they are sorted and any overlapping ranges are coalesced, and the response is
+ * sent as multipart/byteranges.
  *
  * @author Stuart Douglas
  */
@@ -80,7 +82,7 @@ public class ByteRangeHandler implements HttpHandler {
             return;
         }
         final ByteRange range = ByteRange.parse(exchange.getRequestHeaders().getFirst(Headers.RANGE));
-        if (range == null || range.getRanges() > 1) {
+        if (range == null) {
             if (sendAcceptRanges) {
                 exchange.addResponseCommitListener(ACCEPT_RANGE_LISTENER);
             }
@@ -98,36 +100,27 @@ public class ByteRangeHandler implements HttpHandler {
                         return factory.create();
                     }
                     long responseLength = Long.parseLong(length);
-                    long start = range.getStart(0);
-                    long end = range.getEnd(0);
-                    if(start == -1 ) {
-                        //suffix range
-                        long toWrite = end;
-                        if(toWrite >= 0) {
-                            exchange.setResponseContentLength(toWrite);
-                        } else {
-                            //ignore the range request
-                            return factory.create();
-                        }
-                        start = responseLength - end;
-                        end = responseLength;
-                    } else if(end == -1) {
-                        //prefix range
-                        long toWrite = responseLength - start;
-                        if(toWrite >= 0) {
-                            exchange.setResponseContentLength(toWrite);
-                        } else {
-                            //ignore the range request
-                            return factory.create();
-                        }
-                        end = responseLength;
-                    } else {
-                        long toWrite = end - start + 1;
-                        exchange.setResponseContentLength(toWrite);
+                    final List<ByteRange.Range> ranges = range.resolve(responseLength);
+                    if (ranges == null) {
+                        //ignore the range request
+                        return factory.create();
+                    }
+                    if (ranges.size() == 1) {
+                        final ByteRange.Range single = ranges.get(0);
+                        exchange.setResponseCode(StatusCodes.PARTIAL_CONTENT);
+                        exchange.setResponseContentLength(single.getEnd() - single.getStart() + 1);
+                        exchange.getResponseHeaders().put(Headers.CONTENT_RANGE, ByteRange.contentRange(single, responseLength));
+                        return new RangeStreamSinkConduit(factory.create(), ranges, null, responseLength);
+                    }
+                    final ByteRange.MultipartByteRanges multipart = ByteRange.MultipartByteRanges.create(ranges, exchange.getResponseHeaders().getFirst(Headers.CONTENT_TYPE), responseLength);
+                    if (multipart == null) {
+                        //the multipart response would be larger than the full response
+                        return factory.create();
                     }
                     exchange.setResponseCode(StatusCodes.PARTIAL_CONTENT);
-                    exchange.getResponseHeaders().put(Headers.CONTENT_RANGE, start + "-" + end + "/" + responseLength);
-                    return new RangeStreamSinkConduit(factory.create(), start, end, responseLength);
+                    exchange.setResponseContentLength(multipart.getContentLength());
+                    exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, multipart.getContentType());
+                    return new RangeStreamSinkConduit(factory.create(), ranges, multipart, responseLength);
                 }
             });
             next.handleRequest(exchange);
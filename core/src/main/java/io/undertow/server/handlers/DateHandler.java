@@ -18,8 +18,6 @@
 
 package io.undertow.server.handlers;
 
-import java.util.Date;
-
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.DateUtils;
@@ -57,7 +55,7 @@ public class DateHandler implements HttpHandler {
             exchange.getResponseHeaders().put(Headers.DATE, cachedDateString);
         } else {
             long realTime = System.currentTimeMillis();
-            String dateString = DateUtils.toDateString(new Date(realTime));
+            String dateString = DateUtils.toDateString(realTime);
             cachedDateString = dateString;
             nextUpdateTime = time + 1000000000;
             exchange.getResponseHeaders().put(Headers.DATE, dateString);
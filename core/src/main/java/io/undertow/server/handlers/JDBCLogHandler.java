@@ -36,10 +36,31 @@ import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
-
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handler that logs requests to a database table.
+ * <p/>
+ * Log records are queued and written by a task on the log write executor, using JDBC batches of up to
+ * {@link #setBatchSize(int) batch size} rows. If a {@link #setFlushInterval(long) flush interval} is set records are
+ * held back until a full batch is available or the interval has elapsed, and the prepared statement is kept open
+ * between flushes. The queue is bounded, if it is full new records are dropped, and once it is more than half full
+ * only one in {@link #setSampleRate(int) sample rate} records is queued.
+ */
 public class JDBCLogHandler implements HttpHandler, Runnable {
 
+    private static final int DEFAULT_MAX_QUEUE_SIZE = 10000;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    /**
+     * the maximum number of messages written in a single run of the write task
+     */
+    private static final int MAX_MESSAGES_PER_RUN = 1000;
+
     private final HttpHandler next;
     private final String formatString;
     private final ExchangeCompletionListener exchangeCompletionListener = new JDBCLogCompletionListener();
@@ -48,6 +69,36 @@ public class JDBCLogHandler implements HttpHandler, Runnable {
     private final Executor logWriteExecutor;
 
     private final Deque<JDBCLogAttribute> pendingMessages;
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private volatile int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+    private volatile int sampleRate = 1;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    private volatile long flushInterval = 0;
+
+    @SuppressWarnings("unused")
+    private volatile int flushScheduled = 0;
+    private static final AtomicIntegerFieldUpdater<JDBCLogHandler> flushScheduledUpdater = AtomicIntegerFieldUpdater.newUpdater(JDBCLogHandler.class, "flushScheduled");
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled = 0;
+            scheduleWrite();
+        }
+    };
+
+    private final AtomicLong writtenMessages = new AtomicLong();
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final AtomicLong sampledOutMessages = new AtomicLong();
+    private final AtomicLong failedMessages = new AtomicLong();
+
+    /**
+     * The connection and statement used by the write task, only accessed while the state is 2
+     */
+    private Connection connection;
+    private PreparedStatement statement;
+    private String statementSql;
 
     //0 = not running
     //1 = queued
@@ -55,6 +106,12 @@ public class JDBCLogHandler implements HttpHandler, Runnable {
     @SuppressWarnings("unused")
     private volatile int state = 0;
 
+    /**
+     * The number of threads waiting in {@link #flush()} or {@link #close()} for the write task to finish. Only
+     * modified while holding the monitor of this handler.
+     */
+    private volatile int waiters = 0;
+
     private static final AtomicIntegerFieldUpdater<JDBCLogHandler> stateUpdater = AtomicIntegerFieldUpdater.newUpdater(JDBCLogHandler.class, "state");
 
     protected boolean useLongContentLength = false;
@@ -138,7 +195,29 @@ public class JDBCLogHandler implements HttpHandler, Runnable {
             jdbcLogAttribute.userAgent = exchange.getRequestHeaders().getFirst(Headers.USER_AGENT);
         }
 
+        final int maxQueueSize = this.maxQueueSize;
+        final int queued = pendingCount.get();
+        if (queued >= maxQueueSize) {
+            droppedMessages.incrementAndGet();
+            return;
+        }
+        final int sampleRate = this.sampleRate;
+        if (sampleRate > 1 && queued > maxQueueSize / 2 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            sampledOutMessages.incrementAndGet();
+            return;
+        }
+        pendingCount.incrementAndGet();
         this.pendingMessages.add(jdbcLogAttribute);
+
+        final long flushInterval = this.flushInterval;
+        if (flushInterval <= 0 || queued + 1 >= batchSize) {
+            scheduleWrite();
+        } else if (flushScheduledUpdater.compareAndSet(this, 0, 1)) {
+            exchange.getIoThread().executeAfter(flushTask, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void scheduleWrite() {
         int state = stateUpdater.get(this);
         if (state == 0) {
             if (stateUpdater.compareAndSet(this, 0, 1)) {
@@ -159,12 +238,13 @@ public class JDBCLogHandler implements HttpHandler, Runnable {
         List<JDBCLogAttribute> messages = new ArrayList<>();
         JDBCLogAttribute msg = null;
 
-        //only grab at most 1000 messages at a time
-        for (int i = 0; i < 1000; ++i) {
+        //only grab at most MAX_MESSAGES_PER_RUN messages at a time
+        for (int i = 0; i < MAX_MESSAGES_PER_RUN; ++i) {
             msg = pendingMessages.poll();
             if (msg == null) {
                 break;
             }
+            pendingCount.decrementAndGet();
             messages.add(msg);
         }
         try {
@@ -172,99 +252,189 @@ public class JDBCLogHandler implements HttpHandler, Runnable {
                 writeMessage(messages);
             }
         } finally {
+            final boolean more = !pendingMessages.isEmpty();
+            if (!more && flushInterval <= 0) {
+                //nothing else to write, give the connection back
+                closeConnection();
+            }
             stateUpdater.set(this, 0);
             //check to see if there is still more messages
             //if so then run this again
-            if (!pendingMessages.isEmpty()) {
+            if (more) {
                 if (stateUpdater.compareAndSet(this, 0, 1)) {
                     logWriteExecutor.execute(this);
                 }
             }
+            notifyWaiters();
+        }
+    }
+
+    private void notifyWaiters() {
+        if (waiters > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
         }
     }
 
     private void writeMessage(List<JDBCLogAttribute> messages) {
-        PreparedStatement ps = null;
-        Connection conn = null;
+        final int batchSize = Math.max(this.batchSize, 1);
+        for (int start = 0; start < messages.size(); start += batchSize) {
+            final List<JDBCLogAttribute> batch = messages.subList(start, Math.min(start + batchSize, messages.size()));
+            try {
+                writeBatch(batch);
+            } catch (SQLException e) {
+                //the connection may have gone stale, try once more with a new one
+                UndertowLogger.ROOT_LOGGER.debug("Exception writing JDBC log batch, retrying", e);
+                closeConnection();
+                try {
+                    writeBatch(batch);
+                } catch (SQLException ex) {
+                    closeConnection();
+                    failedMessages.addAndGet(batch.size());
+                    UndertowLogger.ROOT_LOGGER.errorWritingJDBCLog(ex);
+                }
+            }
+        }
+    }
+
+    private void writeBatch(List<JDBCLogAttribute> batch) throws SQLException {
+        final PreparedStatement ps = getStatement();
         try {
-            conn = dataSource.getConnection();
-            conn.setAutoCommit(true);
-            ps = prepareStatement(conn);
-            for (JDBCLogAttribute jdbcLogAttribute : messages) {
-                int numberOfTries = 2;
-                while (numberOfTries > 0) {
-                    try {
-                        ps.clearParameters();
-                        ps.setString(1, jdbcLogAttribute.remoteHost);
-                        ps.setString(2, jdbcLogAttribute.user);
-                        ps.setTimestamp(3, jdbcLogAttribute.timestamp);
-                        ps.setString(4, jdbcLogAttribute.query);
-                        ps.setInt(5, jdbcLogAttribute.status);
-                        if (useLongContentLength) {
-                            ps.setLong(6, jdbcLogAttribute.bytes);
-                        } else {
-                            if (jdbcLogAttribute.bytes > Integer.MAX_VALUE)
-                                jdbcLogAttribute.bytes = -1;
-                            ps.setInt(6, (int) jdbcLogAttribute.bytes);
-                        }
-                        ps.setString(7, jdbcLogAttribute.virtualHost);
-                        ps.setString(8, jdbcLogAttribute.method);
-                        ps.setString(9, jdbcLogAttribute.referer);
-                        ps.setString(10, jdbcLogAttribute.userAgent);
-
-                        ps.executeUpdate();
-                        numberOfTries = 0;
-                    } catch (SQLException e) {
-                        UndertowLogger.ROOT_LOGGER.error(e);
-                    }
-                    numberOfTries--;
+            for (JDBCLogAttribute jdbcLogAttribute : batch) {
+                ps.setString(1, jdbcLogAttribute.remoteHost);
+                ps.setString(2, jdbcLogAttribute.user);
+                ps.setTimestamp(3, jdbcLogAttribute.timestamp);
+                ps.setString(4, jdbcLogAttribute.query);
+                ps.setInt(5, jdbcLogAttribute.status);
+                if (useLongContentLength) {
+                    ps.setLong(6, jdbcLogAttribute.bytes);
+                } else {
+                    if (jdbcLogAttribute.bytes > Integer.MAX_VALUE)
+                        jdbcLogAttribute.bytes = -1;
+                    ps.setInt(6, (int) jdbcLogAttribute.bytes);
                 }
+                ps.setString(7, jdbcLogAttribute.virtualHost);
+                ps.setString(8, jdbcLogAttribute.method);
+                ps.setString(9, jdbcLogAttribute.referer);
+                ps.setString(10, jdbcLogAttribute.userAgent);
+                ps.addBatch();
             }
-            ps.close();
+            ps.executeBatch();
+            connection.commit();
+            writtenMessages.addAndGet(batch.size());
         } catch (SQLException e) {
-            UndertowLogger.ROOT_LOGGER.errorWritingJDBCLog(e);
-        } finally {
-            if (ps != null) {
-                try {
-                    ps.close();
-                } catch (SQLException e) {
-                    UndertowLogger.ROOT_LOGGER.debug("Exception closing prepared statement", e);
-                }
+            try {
+                ps.clearBatch();
+                connection.rollback();
+            } catch (SQLException ex) {
+                UndertowLogger.ROOT_LOGGER.debug("Exception rolling back JDBC log batch", ex);
             }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the insert statement, opening a new connection and statement if there is no open one or the table
+     * or field names have changed.
+     */
+    private PreparedStatement getStatement() throws SQLException {
+        final String sql = createInsertSql();
+        if (statement != null && sql.equals(statementSql)) {
+            return statement;
+        }
+        closeConnection();
+        Connection conn = dataSource.getConnection();
+        try {
+            conn.setAutoCommit(false);
+            statement = conn.prepareStatement(sql);
+            statementSql = sql;
+            connection = conn;
+            conn = null;
+        } finally {
             if (conn != null) {
-                try {
-                    conn.close();
-                } catch (SQLException e) {
-                    UndertowLogger.ROOT_LOGGER.debug("Exception closing connection", e);
+                conn.close();
+            }
+        }
+        return statement;
+    }
+
+    private void closeConnection() {
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                UndertowLogger.ROOT_LOGGER.debug("Exception closing prepared statement", e);
+            }
+            statement = null;
+            statementSql = null;
+        }
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                UndertowLogger.ROOT_LOGGER.debug("Exception closing connection", e);
+            }
+            connection = null;
+        }
+    }
+
+    /**
+     * Writes all queued records without waiting for the flush interval, and blocks until they have been written.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        scheduleWrite();
+        synchronized (this) {
+            ++waiters;
+            try {
+                while (!pendingMessages.isEmpty() || state != 0) {
+                    wait();
                 }
+            } finally {
+                --waiters;
             }
         }
     }
 
     /**
-     * For tests only. Blocks the current thread until all messages are written
-     * Just does a busy wait.
-     * <p/>
-     * DO NOT USE THIS OUTSIDE OF A TEST
+     * Closes the database connection that is kept open between flushes when a flush interval is set. A new
+     * connection is opened by the next flush. If the write task is running this waits for it to finish.
      */
-    void awaitWrittenForTest() throws InterruptedException {
-        while (!pendingMessages.isEmpty()) {
-            Thread.sleep(10);
+    public void close() {
+        synchronized (this) {
+            ++waiters;
+            try {
+                while (!stateUpdater.compareAndSet(this, 0, 2)) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                --waiters;
+            }
+        }
+        try {
+            closeConnection();
+        } finally {
+            stateUpdater.set(this, 0);
+            notifyWaiters();
         }
-        while (state != 0) {
-            Thread.sleep(10);
+        if (!pendingMessages.isEmpty()) {
+            scheduleWrite();
         }
     }
 
-    private PreparedStatement prepareStatement(Connection conn) throws SQLException {
-        return conn.prepareStatement
-                ("INSERT INTO " + tableName + " ("
-                        + remoteHostField + ", " + userField + ", "
-                        + timestampField + ", " + queryField + ", "
-                        + statusField + ", " + bytesField + ", "
-                        + virtualHostField + ", " + methodField + ", "
-                        + refererField + ", " + userAgentField
-                        + ") VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    private String createInsertSql() {
+        return "INSERT INTO " + tableName + " ("
+                + remoteHostField + ", " + userField + ", "
+                + timestampField + ", " + queryField + ", "
+                + statusField + ", " + bytesField + ", "
+                + virtualHostField + ", " + methodField + ", "
+                + refererField + ", " + userAgentField
+                + ") VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     }
 
     private class JDBCLogAttribute {
@@ -281,6 +451,89 @@ public class JDBCLogHandler implements HttpHandler, Runnable {
         protected Timestamp timestamp = new Timestamp(System.currentTimeMillis());
     }
 
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * Sets the maximum number of log records that can be waiting to be written, further records are dropped.
+     *
+     * @param maxQueueSize The maximum queue size
+     */
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Sets the sample rate that is used once the queue is more than half full. Only one in this many records is
+     * queued, so the log still shows the shape of the traffic during a spike.
+     *
+     * @param sampleRate The sample rate, 1 disables sampling
+     */
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize The maximum number of rows inserted with a single JDBC batch
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Sets the flush interval. If this is larger than zero records are only written once a full batch is queued, or
+     * the interval has passed since the first queued record. If it is zero records are written as soon as possible.
+     * <p/>
+     * While a flush interval is set the database connection is kept open between flushes, and is only released by
+     * {@link #close()}. If it is zero the connection is closed as soon as the queue is empty.
+     *
+     * @param flushInterval The flush interval in milliseconds
+     */
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * @return The number of records that have been written to the database
+     */
+    public long getWrittenMessages() {
+        return writtenMessages.get();
+    }
+
+    /**
+     * @return The number of records that were dropped because the queue was full
+     */
+    public long getDroppedMessages() {
+        return droppedMessages.get();
+    }
+
+    /**
+     * @return The number of records that were not queued because of sampling
+     */
+    public long getSampledOutMessages() {
+        return sampledOutMessages.get();
+    }
+
+    /**
+     * @return The number of records that could not be written because of a database error
+     */
+    public long getFailedMessages() {
+        return failedMessages.get();
+    }
+
     public boolean isUseLongContentLength() {
         return useLongContentLength;
     }
@@ -0,0 +1,399 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers;
+
+import io.undertow.UndertowLogger;
+import io.undertow.server.ConnectorStatisticsImpl;
+import io.undertow.server.Connectors;
+import io.undertow.server.ExchangeCompletionListener;
+import io.undertow.server.HandlerWrapper;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.builder.HandlerBuilder;
+import io.undertow.util.ImmediatePooled;
+import io.undertow.util.SameThreadExecutor;
+import io.undertow.util.StatusCodes;
+import org.xnio.ChannelListener;
+import org.xnio.FileAccess;
+import org.xnio.IoUtils;
+import org.xnio.Pooled;
+import org.xnio.channels.StreamSourceChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Handler that reads the full request before invoking the next handler.
+ * <p/>
+ * The request is read asynchronously in the IO thread, so a client that uploads slowly does not tie up a worker thread.
+ * Data is held in pooled buffers until the in memory limit is reached, anything after that is written to a temporary
+ * file. Writing to the file blocks, so once the limit is reached the rest of the request is read in the worker thread
+ * pool, or in the executor given to this handler. Once the request has been fully read the next handler is invoked,
+ * and reads from the request channel are served from the buffered data.
+ * <p/>
+ * If connector statistics are enabled the number of bytes buffered in memory and on disk are recorded in
+ * {@link io.undertow.server.ConnectorStatistics}.
+ *
+ * @author Stuart Douglas
+ */
+public class RequestBufferingHandler implements HttpHandler {
+
+    private final HttpHandler next;
+    private final int maxBufferedInMemory;
+    private final long maxRequestSize;
+    private final File tempFileLocation;
+    private final Executor executor;
+
+    /**
+     * @param next                The next handler
+     * @param maxBufferedInMemory The maximum number of bytes to hold in memory before writing the request to disk
+     */
+    public RequestBufferingHandler(HttpHandler next, int maxBufferedInMemory) {
+        this(next, maxBufferedInMemory, -1, new File(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param next                The next handler
+     * @param maxBufferedInMemory The maximum number of bytes to hold in memory before writing the request to disk
+     * @param maxRequestSize      The maximum size of a request, larger requests are rejected with a 413. -1 means unlimited
+     * @param tempFileLocation    The directory to write temporary files to
+     */
+    public RequestBufferingHandler(HttpHandler next, int maxBufferedInMemory, long maxRequestSize, File tempFileLocation) {
+        this(next, maxBufferedInMemory, maxRequestSize, tempFileLocation, null);
+    }
+
+    /**
+     * @param next                The next handler
+     * @param maxBufferedInMemory The maximum number of bytes to hold in memory before writing the request to disk
+     * @param maxRequestSize      The maximum size of a request, larger requests are rejected with a 413. -1 means unlimited
+     * @param tempFileLocation    The directory to write temporary files to
+     * @param executor            The executor used to write requests to disk, or null to use the worker thread pool
+     */
+    public RequestBufferingHandler(HttpHandler next, int maxBufferedInMemory, long maxRequestSize, File tempFileLocation, Executor executor) {
+        this.next = next;
+        this.maxBufferedInMemory = maxBufferedInMemory;
+        this.maxRequestSize = maxRequestSize;
+        this.tempFileLocation = tempFileLocation;
+        this.executor = executor;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        if (exchange.isRequestComplete() || !exchange.isRequestChannelAvailable()) {
+            next.handleRequest(exchange);
+            return;
+        }
+        if (maxRequestSize > 0 && exchange.getRequestContentLength() > maxRequestSize) {
+            exchange.setResponseCode(StatusCodes.REQUEST_ENTITY_TOO_LARGE);
+            exchange.endExchange();
+            return;
+        }
+        final RequestBuffer buffer = new RequestBuffer(exchange, exchange.getRequestChannel());
+        exchange.addExchangeCompleteListener(buffer);
+        buffer.run();
+    }
+
+    public int getMaxBufferedInMemory() {
+        return maxBufferedInMemory;
+    }
+
+    public long getMaxRequestSize() {
+        return maxRequestSize;
+    }
+
+    public File getTempFileLocation() {
+        return tempFileLocation;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    private final class RequestBuffer implements ChannelListener<StreamSourceChannel>, Runnable, ExchangeCompletionListener {
+
+        private final HttpServerExchange exchange;
+        private final StreamSourceChannel channel;
+        private final List<Pooled<ByteBuffer>> buffers = new ArrayList<>();
+        private Pooled<ByteBuffer> current;
+        private File file;
+        private FileChannel fileChannel;
+        private long bufferedInMemory;
+        private long spilled;
+        private long total;
+        private boolean eof;
+        /**
+         * true once the request no longer fits in memory. From then on the request is read in the executor, as
+         * writing it to disk blocks.
+         */
+        private volatile boolean spilling;
+        /**
+         * true once the buffered data has been handed over to the exchange
+         */
+        private boolean done;
+        /**
+         * true once the exchange has completed before the buffered data was handed over
+         */
+        private boolean discarded;
+
+        private RequestBuffer(HttpServerExchange exchange, StreamSourceChannel channel) {
+            this.exchange = exchange;
+            this.channel = channel;
+        }
+
+        @Override
+        public void handleEvent(StreamSourceChannel channel) {
+            if (spilling) {
+                channel.suspendReads();
+                exchange.dispatch(executor, this);
+            } else {
+                run();
+            }
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (discarded) {
+                    return;
+                }
+                try {
+                    if (!read()) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    UndertowLogger.REQUEST_IO_LOGGER.ioException(e);
+                    IoUtils.safeClose(channel);
+                    exchange.endExchange();
+                    return;
+                }
+            }
+            exchange.dispatch(SameThreadExecutor.INSTANCE, next);
+        }
+
+        /**
+         * Reads all available data from the channel
+         *
+         * @return <code>true</code> if the request has been fully read and the buffered data handed over to the exchange
+         */
+        private boolean read() throws IOException {
+            for (;;) {
+                if (current == null) {
+                    current = exchange.getConnection().getBufferPool().allocate();
+                }
+                final ByteBuffer buf = current.getResource();
+                if (!eof && buf.hasRemaining()) {
+                    int res = channel.read(buf);
+                    if (res == 0) {
+                        channel.getReadSetter().set(this);
+                        channel.resumeReads();
+                        return false;
+                    } else if (res == -1) {
+                        eof = true;
+                        channel.getReadSetter().set(null);
+                        channel.suspendReads();
+                    } else {
+                        total += res;
+                        if (maxRequestSize > 0 && total > maxRequestSize) {
+                            channel.getReadSetter().set(null);
+                            channel.suspendReads();
+                            exchange.setResponseCode(StatusCodes.REQUEST_ENTITY_TOO_LARGE);
+                            exchange.endExchange();
+                            return false;
+                        }
+                        continue;
+                    }
+                }
+                //the buffer is full, or the request has been fully read
+                if (!spilling && bufferedInMemory + buf.position() > maxBufferedInMemory) {
+                    //we need to delegate to a thread pool
+                    //as we write to disk with blocking operations
+                    spilling = true;
+                    channel.suspendReads();
+                    exchange.dispatch(executor, this);
+                    return false;
+                }
+                buf.flip();
+                if (buf.hasRemaining()) {
+                    store(buf);
+                }
+                if (eof) {
+                    complete();
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Stores a buffer, either by keeping it in memory or writing it to the temp file
+         */
+        private void store(ByteBuffer buf) throws IOException {
+            if (!spilling) {
+                bufferedInMemory += buf.remaining();
+                buffers.add(current);
+                current = null;
+            } else {
+                if (fileChannel == null) {
+                    file = File.createTempFile("undertow", "request", tempFileLocation);
+                    fileChannel = exchange.getConnection().getWorker().getXnio().openFile(file, FileAccess.READ_WRITE);
+                }
+                spilled += buf.remaining();
+                while (buf.hasRemaining()) {
+                    fileChannel.write(buf);
+                }
+                buf.clear();
+            }
+        }
+
+        private void complete() throws IOException {
+            if (current != null) {
+                current.free();
+                current = null;
+            }
+            if (fileChannel != null) {
+                //the file is mapped rather than read back into memory, the mapping remains valid after the file is removed
+                long position = 0;
+                while (position < spilled) {
+                    long length = Math.min(Integer.MAX_VALUE, spilled - position);
+                    buffers.add(new ImmediatePooled<ByteBuffer>(fileChannel.map(FileChannel.MapMode.READ_ONLY, position, length)));
+                    position += length;
+                }
+                deleteFile();
+            }
+            done = true;
+            if (!buffers.isEmpty()) {
+                Connectors.ungetRequestBytes(exchange, buffers.toArray(new Pooled[buffers.size()]));
+            }
+            Connectors.resetRequestChannel(exchange);
+            ConnectorStatisticsImpl statistics = exchange.getAttachment(ConnectorStatisticsImpl.ATTACHMENT_KEY);
+            if (statistics != null) {
+                statistics.updateBufferedRequestBytes(bufferedInMemory, spilled);
+            }
+        }
+
+        private void deleteFile() {
+            IoUtils.safeClose(fileChannel);
+            fileChannel = null;
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+
+        /**
+         * Frees the buffered data if the exchange completed before it was handed over
+         */
+        private synchronized void discard() {
+            if (done || discarded) {
+                return;
+            }
+            discarded = true;
+            for (Pooled<ByteBuffer> pooled : buffers) {
+                pooled.free();
+            }
+            if (current != null) {
+                current.free();
+                current = null;
+            }
+            if (fileChannel != null) {
+                deleteFile();
+            }
+        }
+
+        @Override
+        public void exchangeEvent(HttpServerExchange exchange, NextListener nextListener) {
+            try {
+                if (spilling) {
+                    //removing the file blocks, and a write may still be in progress in the executor
+                    final Runnable task = new Runnable() {
+                        @Override
+                        public void run() {
+                            discard();
+                        }
+                    };
+                    if (executor == null) {
+                        exchange.getConnection().getWorker().execute(task);
+                    } else {
+                        executor.execute(task);
+                    }
+                } else {
+                    discard();
+                }
+            } finally {
+                nextListener.proceed();
+            }
+        }
+    }
+
+    public static class Builder implements HandlerBuilder {
+
+        @Override
+        public String name() {
+            return "request-buffering";
+        }
+
+        @Override
+        public Map<String, Class<?>> parameters() {
+            Map<String, Class<?>> ret = new HashMap<>();
+            ret.put("max-buffered-in-memory", Integer.class);
+            ret.put("max-request-size", Long.class);
+            return ret;
+        }
+
+        @Override
+        public Set<String> requiredParameters() {
+            return Collections.singleton("max-buffered-in-memory");
+        }
+
+        @Override
+        public String defaultParameter() {
+            return "max-buffered-in-memory";
+        }
+
+        @Override
+        public HandlerWrapper build(Map<String, Object> config) {
+            Long maxRequestSize = (Long) config.get("max-request-size");
+            return new Wrapper((Integer) config.get("max-buffered-in-memory"), maxRequestSize == null ? -1 : maxRequestSize);
+        }
+
+    }
+
+    private static class Wrapper implements HandlerWrapper {
+
+        private final int maxBufferedInMemory;
+        private final long maxRequestSize;
+
+        private Wrapper(int maxBufferedInMemory, long maxRequestSize) {
+            this.maxBufferedInMemory = maxBufferedInMemory;
+            this.maxRequestSize = maxRequestSize;
+        }
+
+        @Override
+        public HttpHandler wrap(HttpHandler handler) {
+            return new RequestBufferingHandler(handler, maxBufferedInMemory, maxRequestSize, new File(System.getProperty("java.io.tmpdir")));
+        }
+    }
+}
@@ -88,6 +88,18 @@ import io.undertow.server.handlers.builder.HandlerBuilder;
  */
 public class AccessLogHandler implements HttpHandler {
 
+    /**
+     * Log messages larger than this will not have their buffer retained by the thread
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 2048;
+
+    private static final ThreadLocal<StringBuilder> MESSAGE_BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
     private final HttpHandler next;
     private final AccessLogReceiver accessLogReceiver;
     private final String formatString;
@@ -121,7 +133,13 @@ public class AccessLogHandler implements HttpHandler {
         @Override
         public void exchangeEvent(final HttpServerExchange exchange, final NextListener nextListener) {
             try {
-                accessLogReceiver.logMessage(tokens.readAttribute(exchange));
+                StringBuilder buffer = MESSAGE_BUFFER.get();
+                buffer.setLength(0);
+                ExchangeAttributes.appendAttribute(tokens, exchange, buffer);
+                accessLogReceiver.logMessage(buffer.toString());
+                if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                    MESSAGE_BUFFER.remove();
+                }
             } finally {
                 nextListener.proceed();
             }
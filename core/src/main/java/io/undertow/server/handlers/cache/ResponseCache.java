@@ -61,7 +61,7 @@ import static io.undertow.util.Methods.HEAD;
  */
 public class ResponseCache {
 
-    public static final AttachmentKey<ResponseCache> ATTACHMENT_KEY = AttachmentKey.create(ResponseCache.class);
+    public static final AttachmentKey<ResponseCache> ATTACHMENT_KEY = AttachmentKey.createIndexed(ResponseCache.class);
 
     private final DirectBufferCache cache;
     private final HttpServerExchange exchange;
@@ -18,7 +18,12 @@
 
 package io.undertow.server.handlers.form;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Iterator;
@@ -92,6 +97,20 @@ public final class FormData implements Iterable<String> {
         }
     }
 
+    /**
+     * Adds a file upload that is held in memory rather than in a temp file
+     */
+    public void add(String name, byte[] value, String fileName, final HeaderMap headers) {
+        Deque<FormValue> values = this.values.get(name);
+        if (values == null) {
+            this.values.put(name, values = new ArrayDeque<>(1));
+        }
+        values.add(new FormValueImpl(value, fileName, headers));
+        if (++valueCount > maxValues) {
+            throw UndertowMessages.MESSAGES.tooManyParameters(maxValues);
+        }
+    }
+
     public void put(String name, String value, final HeaderMap headers) {
         Deque<FormValue> values = new ArrayDeque<>(1);
         Deque<FormValue> old = this.values.put(name, values);
@@ -160,10 +179,30 @@ public final class FormData implements Iterable<String> {
 
         /**
          * @return The temp file that the file data was saved to
-         * @throws IllegalStateException if this is not a file
+         * @throws IllegalStateException if this is not a file, or the file is held in memory
          */
         File getFile();
 
+        /**
+         * Returns true if this is a file that was small enough to be held in memory rather than saved to a temp file.
+         *
+         * @return <code>true</code> if the file data is held in memory
+         * @see MultiPartParserDefinition#setFileSizeThreshold(long)
+         */
+        boolean isFileInMemory();
+
+        /**
+         * @return A stream of the file data, regardless of where it is held
+         * @throws IllegalStateException if this is not a file
+         */
+        InputStream getFileInputStream() throws IOException;
+
+        /**
+         * @return The size of the file data
+         * @throws IllegalStateException if this is not a file
+         */
+        long getFileSize();
+
         /**
          * @return The filename specified in the disposition header.
          */
@@ -183,12 +222,14 @@ public final class FormData implements Iterable<String> {
         private final String value;
         private final String fileName;
         private final File file;
+        private final byte[] fileContents;
         private final HeaderMap headers;
 
         FormValueImpl(String value, HeaderMap headers) {
             this.value = value;
             this.headers = headers;
             this.file = null;
+            this.fileContents = null;
             this.fileName = null;
         }
 
@@ -196,6 +237,15 @@ public final class FormData implements Iterable<String> {
             this.file = file;
             this.headers = headers;
             this.fileName = fileName;
+            this.fileContents = null;
+            this.value = null;
+        }
+
+        FormValueImpl(byte[] fileContents, final String fileName, HeaderMap headers) {
+            this.fileContents = fileContents;
+            this.headers = headers;
+            this.fileName = fileName;
+            this.file = null;
             this.value = null;
         }
 
@@ -210,17 +260,41 @@ public final class FormData implements Iterable<String> {
 
         @Override
         public boolean isFile() {
-            return file != null;
+            return file != null || fileContents != null;
         }
 
         @Override
         public File getFile() {
+            if (fileContents != null) {
+                throw UndertowMessages.MESSAGES.formValueIsInMemoryFile();
+            }
             if (file == null) {
                 throw UndertowMessages.MESSAGES.formValueIsAString();
             }
             return file;
         }
 
+        @Override
+        public boolean isFileInMemory() {
+            return fileContents != null;
+        }
+
+        @Override
+        public InputStream getFileInputStream() throws IOException {
+            if (fileContents != null) {
+                return new ByteArrayInputStream(fileContents);
+            }
+            return new BufferedInputStream(new FileInputStream(getFile()));
+        }
+
+        @Override
+        public long getFileSize() {
+            if (fileContents != null) {
+                return fileContents.length;
+            }
+            return getFile().length();
+        }
+
         @Override
         public HeaderMap getHeaders() {
             return headers;
@@ -37,7 +37,7 @@ public interface FormDataParser extends Closeable {
     /**
      * When the form data is parsed it will be attached under this key.
      */
-    AttachmentKey<FormData> FORM_DATA = AttachmentKey.create(FormData.class);
+    AttachmentKey<FormData> FORM_DATA = AttachmentKey.createIndexed(FormData.class);
 
     /**
      * Parse the form data asynchronously. If all the data cannot be read immediately then a read listener will be
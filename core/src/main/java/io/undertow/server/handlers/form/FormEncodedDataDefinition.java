@@ -95,6 +95,13 @@ public class FormEncodedDataDefinition implements FormParserFactory.ParserDefini
         private String charset;
         private HttpHandler handler;
 
+        /**
+         * If the whole request fits in a single buffer it is read into this buffer and decoded in one pass, without
+         * going through the state machine below.
+         */
+        private Pooled<ByteBuffer> fastPathBuffer;
+        private boolean fastPathChecked = false;
+
         //0= parsing name
         //1=parsing name, decode required
         //2=parsing value
@@ -124,6 +131,10 @@ public class FormEncodedDataDefinition implements FormParserFactory.ParserDefini
         }
 
         private void doParse(final StreamSourceChannel channel) throws IOException {
+            if (fastPathBuffer != null || (!fastPathChecked && startFastPath())) {
+                doParseFastPath(channel);
+                return;
+            }
             int c = 0;
             final Pooled<ByteBuffer> pooled = exchange.getConnection().getBufferPool().allocate();
             try {
@@ -215,6 +226,128 @@ public class FormEncodedDataDefinition implements FormParserFactory.ParserDefini
         }
 
 
+        private boolean startFastPath() {
+            fastPathChecked = true;
+            final long length = exchange.getRequestContentLength();
+            if (length <= 0) {
+                return false;
+            }
+            final Pooled<ByteBuffer> pooled = exchange.getConnection().getBufferPool().allocate();
+            final ByteBuffer buffer = pooled.getResource();
+            if (length > buffer.capacity()) {
+                pooled.free();
+                return false;
+            }
+            buffer.clear();
+            buffer.limit((int) length);
+            fastPathBuffer = pooled;
+            return true;
+        }
+
+        private void doParseFastPath(final StreamSourceChannel channel) throws IOException {
+            final ByteBuffer buffer = fastPathBuffer.getResource();
+            try {
+                int c;
+                do {
+                    c = channel.read(buffer);
+                } while (c > 0 && buffer.hasRemaining());
+                if (c == -1 || !buffer.hasRemaining()) {
+                    buffer.flip();
+                    try {
+                        decodeBuffer(buffer);
+                    } finally {
+                        freeFastPathBuffer();
+                    }
+                    state = 4;
+                    exchange.putAttachment(FORM_DATA, data);
+                }
+            } catch (IOException | RuntimeException e) {
+                freeFastPathBuffer();
+                throw e;
+            }
+        }
+
+        private void freeFastPathBuffer() {
+            if (fastPathBuffer != null) {
+                fastPathBuffer.free();
+                fastPathBuffer = null;
+            }
+        }
+
+        /**
+         * Decodes a complete request body. This produces the same results as the state machine in {@link #doParse(StreamSourceChannel)},
+         * however names and values are decoded straight from the buffer rather than copied into a builder first.
+         */
+        private void decodeBuffer(final ByteBuffer buffer) throws IOException {
+            final int end = buffer.limit();
+            int start = buffer.position();
+            int equals = -1;
+            boolean decodeName = false;
+            boolean decodeValue = false;
+            for (int i = start; i < end; ++i) {
+                byte n = buffer.get(i);
+                if (n == '&') {
+                    if (equals == -1) {
+                        data.add(decode(buffer, start, i, decodeName), "");
+                    } else {
+                        data.add(decode(buffer, start, equals, decodeName), decode(buffer, equals + 1, i, decodeValue));
+                    }
+                    start = i + 1;
+                    equals = -1;
+                    decodeName = false;
+                    decodeValue = false;
+                } else if (n == '=' && equals == -1) {
+                    equals = i;
+                } else if (n == '%' || n == '+' || n < 0) {
+                    if (equals == -1) {
+                        decodeName = true;
+                    } else {
+                        decodeValue = true;
+                    }
+                }
+            }
+            if (equals != -1) {
+                data.add(decode(buffer, start, equals, decodeName), decode(buffer, equals + 1, end, decodeValue));
+            } else if (end > start) {
+                data.add(decode(buffer, start, end, decodeName), "");
+            }
+        }
+
+        private String decode(final ByteBuffer buffer, final int start, final int end, final boolean decode) throws IOException {
+            if (!decode) {
+                //plain ASCII, each byte is a single char
+                final char[] chars = new char[end - start];
+                for (int i = start; i < end; ++i) {
+                    chars[i - start] = (char) buffer.get(i);
+                }
+                return new String(chars);
+            }
+            final byte[] bytes = new byte[end - start];
+            int pos = 0;
+            for (int i = start; i < end; ++i) {
+                byte n = buffer.get(i);
+                if (n == '+') {
+                    bytes[pos++] = ' ';
+                } else if (n == '%') {
+                    int high = i + 2 < end ? Character.digit(buffer.get(i + 1), 16) : -1;
+                    int low = i + 2 < end ? Character.digit(buffer.get(i + 2), 16) : -1;
+                    if (high == -1 || low == -1) {
+                        //invalid escape, let URLDecoder report it in the same way as the streaming parser
+                        final char[] chars = new char[end - start];
+                        for (int j = start; j < end; ++j) {
+                            chars[j - start] = (char) buffer.get(j);
+                        }
+                        return URLDecoder.decode(new String(chars), charset);
+                    }
+                    bytes[pos++] = (byte) ((high << 4) + low);
+                    i += 2;
+                } else {
+                    bytes[pos++] = n;
+                }
+            }
+            return new String(bytes, 0, pos, charset);
+        }
+
         @Override
         public void parse(HttpHandler handler) throws Exception {
             if (exchange.getAttachment(FORM_DATA) != null) {
@@ -259,7 +392,7 @@ public class FormEncodedDataDefinition implements FormParserFactory.ParserDefini
 
         @Override
         public void close() throws IOException {
-
+            freeFastPathBuffer();
         }
 
         @Override
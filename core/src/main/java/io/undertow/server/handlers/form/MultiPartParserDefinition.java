@@ -48,6 +48,16 @@ import java.util.List;
 import java.util.concurrent.Executor;
 
 /**
+ * Parser definition for multipart form data.
+ * <p/>
+ * By default non file parts are held in memory and file parts are written to a temp file. If a
+ * {@link #setFileSizeThreshold(long) file size threshold} is set file parts are held in memory until they exceed the
+ * threshold.
+ * <p/>
+ * Handlers that want to process uploads without any buffering can use
+ * {@link #parseStreaming(HttpServerExchange, MultipartParser.PartHandler, HttpHandler)} instead, which passes part
+ * headers and data to a callback as they arrive.
+ *
  * @author Stuart Douglas
  */
 public class MultiPartParserDefinition implements FormParserFactory.ParserDefinition {
@@ -62,6 +72,8 @@ public class MultiPartParserDefinition implements FormParserFactory.ParserDefini
 
     private long maxIndividualFileSize = -1;
 
+    private long fileSizeThreshold = 0;
+
     public MultiPartParserDefinition() {
         tempFileLocation = new File(System.getProperty("java.io.tmpdir"));
     }
@@ -72,14 +84,9 @@ public class MultiPartParserDefinition implements FormParserFactory.ParserDefini
 
     @Override
     public FormDataParser create(final HttpServerExchange exchange) {
-        String mimeType = exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE);
-        if (mimeType != null && mimeType.startsWith(MULTIPART_FORM_DATA)) {
-            String boundary = Headers.extractTokenFromHeader(mimeType, "boundary");
-            if (boundary == null) {
-                UndertowLogger.REQUEST_LOGGER.debugf("Could not find boundary in multipart request with ContentType: %s, multipart data will not be available", mimeType);
-                return null;
-            }
-            final MultiPartUploadHandler parser = new MultiPartUploadHandler(exchange, boundary, maxIndividualFileSize, defaultEncoding);
+        String boundary = getBoundary(exchange);
+        if (boundary != null) {
+            final MultiPartUploadHandler parser = new MultiPartUploadHandler(exchange, boundary, maxIndividualFileSize, fileSizeThreshold, defaultEncoding);
             exchange.addExchangeCompleteListener(new ExchangeCompletionListener() {
                 @Override
                 public void exchangeEvent(final HttpServerExchange exchange, final NextListener nextListener) {
@@ -93,6 +100,45 @@ public class MultiPartParserDefinition implements FormParserFactory.ParserDefini
         return null;
     }
 
+    /**
+     * Parses a multipart request without buffering it. Part headers and data are passed to the part handler as they
+     * are read, and once the request has been fully read the next handler is invoked.
+     * <p/>
+     * The request is read asynchronously, and the part handler is invoked from the IO thread, so it must not block.
+     * The buffers passed to {@link MultipartParser.PartHandler#data(ByteBuffer)} are only valid for the duration of
+     * the call. If the request cannot be read or parsed the exchange is ended with a 500 response.
+     *
+     * @param exchange    The exchange
+     * @param partHandler The handler that the parts are passed to
+     * @param next        The handler to invoke once all parts have been parsed
+     * @return <code>false</code> if this is not a multipart request
+     */
+    public boolean parseStreaming(final HttpServerExchange exchange, final MultipartParser.PartHandler partHandler, final HttpHandler next) throws IOException {
+        final String boundary = getBoundary(exchange);
+        if (boundary == null) {
+            return false;
+        }
+        final StreamSourceChannel requestChannel = exchange.getRequestChannel();
+        if (requestChannel == null) {
+            throw new IOException(UndertowMessages.MESSAGES.requestChannelAlreadyProvided());
+        }
+        final MultipartParser.ParseState parser = MultipartParser.beginParse(exchange.getConnection().getBufferPool(), partHandler, boundary.getBytes(), exchange.getRequestCharset());
+        exchange.dispatch(SameThreadExecutor.INSTANCE, new StreamingParseTask(exchange, requestChannel, parser, next));
+        return true;
+    }
+
+    private static String getBoundary(final HttpServerExchange exchange) {
+        String mimeType = exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE);
+        if (mimeType != null && mimeType.startsWith(MULTIPART_FORM_DATA)) {
+            String boundary = Headers.extractTokenFromHeader(mimeType, "boundary");
+            if (boundary == null) {
+                UndertowLogger.REQUEST_LOGGER.debugf("Could not find boundary in multipart request with ContentType: %s, multipart data will not be available", mimeType);
+            }
+            return boundary;
+        }
+        return null;
+    }
+
     public Executor getExecutor() {
         return executor;
     }
@@ -128,6 +174,22 @@ public class MultiPartParserDefinition implements FormParserFactory.ParserDefini
         this.maxIndividualFileSize = maxIndividualFileSize;
     }
 
+    public long getFileSizeThreshold() {
+        return fileSizeThreshold;
+    }
+
+    /**
+     * Sets the size below which uploaded files are held in memory instead of being written to a temp file. Files held
+     * in memory must be read using {@link FormData.FormValue#getFileInputStream()}, as there is no file to return from
+     * {@link FormData.FormValue#getFile()}.
+     *
+     * @param fileSizeThreshold The threshold in bytes, or 0 to always use a temp file
+     */
+    public MultiPartParserDefinition setFileSizeThreshold(final long fileSizeThreshold) {
+        this.fileSizeThreshold = fileSizeThreshold;
+        return this;
+    }
+
     private final class MultiPartUploadHandler implements FormDataParser, MultipartParser.PartHandler {
 
         private final HttpServerExchange exchange;
@@ -135,6 +197,7 @@ public class MultiPartParserDefinition implements FormParserFactory.ParserDefini
         private final String boundary;
         private final List<File> createdFiles = new ArrayList<>();
         private final long maxIndividualFileSize;
+        private final long fileSizeThreshold;
         private String defaultEncoding;
 
         private final ByteArrayOutputStream contentBytes = new ByteArrayOutputStream();
@@ -148,10 +211,11 @@ public class MultiPartParserDefinition implements FormParserFactory.ParserDefini
         private final MultipartParser.ParseState parser;
 
 
-        private MultiPartUploadHandler(final HttpServerExchange exchange, final String boundary, final long maxIndividualFileSize, final String defaultEncoding) {
+        private MultiPartUploadHandler(final HttpServerExchange exchange, final String boundary, final long maxIndividualFileSize, final long fileSizeThreshold, final String defaultEncoding) {
             this.exchange = exchange;
             this.boundary = boundary;
             this.maxIndividualFileSize = maxIndividualFileSize;
+            this.fileSizeThreshold = fileSizeThreshold;
             this.defaultEncoding = defaultEncoding;
             this.data = new FormData(exchange.getConnection().getUndertowOptions().get(UndertowOptions.MAX_PARAMETERS, 1000));
             this.parser = MultipartParser.beginParse(exchange.getConnection().getBufferPool(), this, boundary.getBytes(), exchange.getRequestCharset());
@@ -216,16 +280,15 @@ public class MultiPartParserDefinition implements FormParserFactory.ParserDefini
         public void beginPart(final HeaderMap headers) {
             this.currentFileSize = 0;
             this.headers = headers;
+            this.fileName = null;
             final String disposition = headers.getFirst(Headers.CONTENT_DISPOSITION);
             if (disposition != null) {
                 if (disposition.startsWith("form-data")) {
                     currentName = Headers.extractQuotedValueFromHeader(disposition, "name");
                     fileName = Headers.extractQuotedValueFromHeader(disposition, "filename");
-                    if (fileName != null) {
+                    if (fileName != null && fileSizeThreshold <= 0) {
                         try {
-                            file = File.createTempFile("undertow", "upload", tempFileLocation);
-                            createdFiles.add(file);
-                            fileChannel = exchange.getConnection().getWorker().getXnio().openFile(file, FileAccess.READ_WRITE);
+                            createTempFile();
                         } catch (IOException e) {
                             throw new RuntimeException(e);
                         }
@@ -234,18 +297,40 @@ public class MultiPartParserDefinition implements FormParserFactory.ParserDefini
             }
         }
 
+        private void createTempFile() throws IOException {
+            file = File.createTempFile("undertow", "upload", tempFileLocation);
+            createdFiles.add(file);
+            fileChannel = exchange.getConnection().getWorker().getXnio().openFile(file, FileAccess.READ_WRITE);
+        }
+
         @Override
         public void data(final ByteBuffer buffer) throws IOException {
             this.currentFileSize += buffer.remaining();
             if (this.maxIndividualFileSize > 0 && this.currentFileSize > this.maxIndividualFileSize) {
                 throw UndertowMessages.MESSAGES.maxFileSizeExceeded(this.maxIndividualFileSize);
             }
+            if (file == null && fileName != null && currentFileSize > fileSizeThreshold) {
+                //the part has grown too large to keep in memory, move what we have so far to a temp file
+                createTempFile();
+                ByteBuffer existing = ByteBuffer.wrap(contentBytes.toByteArray());
+                while (existing.hasRemaining()) {
+                    fileChannel.write(existing);
+                }
+                contentBytes.reset();
+            }
             if (file == null) {
-                while (buffer.hasRemaining()) {
-                    contentBytes.write(buffer.get());
+                if (buffer.hasArray()) {
+                    contentBytes.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                    buffer.position(buffer.limit());
+                } else {
+                    while (buffer.hasRemaining()) {
+                        contentBytes.write(buffer.get());
+                    }
                 }
             } else {
-                fileChannel.write(buffer);
+                while (buffer.hasRemaining()) {
+                    fileChannel.write(buffer);
+                }
             }
         }
 
@@ -260,6 +345,9 @@ public class MultiPartParserDefinition implements FormParserFactory.ParserDefini
                 } catch (IOException e) {
                     throw new RuntimeException(e);
                 }
+            } else if (fileName != null) {
+                data.add(currentName, contentBytes.toByteArray(), fileName, headers);
+                contentBytes.reset();
             } else {
 
 
@@ -375,6 +463,63 @@ public class MultiPartParserDefinition implements FormParserFactory.ParserDefini
         }
      }
 
+    private static final class StreamingParseTask implements Runnable, ChannelListener<StreamSourceChannel> {
 
+        private final HttpServerExchange exchange;
+        private final StreamSourceChannel requestChannel;
+        private final MultipartParser.ParseState parser;
+        private final HttpHandler next;
+
+        private StreamingParseTask(final HttpServerExchange exchange, final StreamSourceChannel requestChannel, final MultipartParser.ParseState parser, final HttpHandler next) {
+            this.exchange = exchange;
+            this.requestChannel = requestChannel;
+            this.parser = parser;
+            this.next = next;
+        }
+
+        @Override
+        public void run() {
+            handleEvent(requestChannel);
+        }
+
+        @Override
+        public void handleEvent(final StreamSourceChannel channel) {
+            final Pooled<ByteBuffer> pooled = exchange.getConnection().getBufferPool().allocate();
+            try {
+                final ByteBuffer buffer = pooled.getResource();
+                while (true) {
+                    buffer.clear();
+                    int c = channel.read(buffer);
+                    if (c == 0) {
+                        channel.getReadSetter().set(this);
+                        channel.resumeReads();
+                        return;
+                    } else if (c == -1) {
+                        channel.getReadSetter().set(null);
+                        channel.suspendReads();
+                        if (parser.isComplete()) {
+                            exchange.dispatch(SameThreadExecutor.INSTANCE, next);
+                        } else {
+                            UndertowLogger.REQUEST_IO_LOGGER.ioException(UndertowMessages.MESSAGES.connectionTerminatedReadingMultiPartData());
+                            exchange.setResponseCode(StatusCodes.INTERNAL_SERVER_ERROR);
+                            exchange.endExchange();
+                        }
+                        return;
+                    } else {
+                        buffer.flip();
+                        parser.parse(buffer);
+                    }
+                }
+            } catch (Throwable e) {
+                UndertowLogger.REQUEST_IO_LOGGER.debug("Exception parsing data", e);
+                channel.getReadSetter().set(null);
+                channel.suspendReads();
+                exchange.setResponseCode(StatusCodes.INTERNAL_SERVER_ERROR);
+                exchange.endExchange();
+            } finally {
+                pooled.free();
+            }
+        }
+    }
 
 }
@@ -0,0 +1,198 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers.proxy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.undertow.UndertowLogger;
+
+/**
+ * A circuit breaker for a single backend host.
+ * <p/>
+ * The outcome of every request sent to the host is recorded over a fixed window. A request counts as failed if the
+ * backend returned a 5xx response, the connection failed, or it took longer than the slow request threshold. Once at
+ * least {@code minimumRequests} requests have completed in the current window and the ratio of failed requests reaches
+ * {@code failureRatio} the breaker opens, and the host is treated as a problem host. The breaker can also be configured
+ * to open after a number of consecutive failures, which ejects an outlier host quickly without waiting for the window
+ * to fill up.
+ * <p/>
+ * While the breaker is open a single probe request is let through every {@code openTime} milliseconds. If a request
+ * succeeds the breaker closes again and a new window is started.
+ * <p/>
+ * Every time the breaker opens or closes its generation changes. Callers should obtain the generation with
+ * {@link #getGeneration()} when a request is started and pass it to {@link #requestComplete(int, boolean, long)}, so
+ * the outcome of a request that was started before the breaker last changed state is ignored. Otherwise a slow request
+ * that was sent before the breaker opened could close it again.
+ * <p/>
+ * This class is thread safe.
+ *
+ * @author Stuart Douglas
+ */
+public final class CircuitBreaker {
+
+    private final double failureRatio;
+    private final int minimumRequests;
+    private final long slowRequestThreshold;
+    private final long window;
+    private final long openTime;
+    private final int consecutiveFailures;
+
+    private volatile boolean open;
+    private volatile int generation;
+    private final AtomicLong nextProbe = new AtomicLong();
+
+    private volatile long windowStart = System.currentTimeMillis();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger consecutive = new AtomicInteger();
+
+    /**
+     * @param failureRatio         The ratio of failed requests (between 0 and 1) at which the breaker opens
+     * @param minimumRequests      The minimum number of requests in a window before the breaker can open
+     * @param slowRequestThreshold The time in milliseconds after which a request is counted as failed, or -1 to only count errors
+     * @param window               The length of the window in milliseconds
+     * @param openTime             The time in milliseconds the breaker stays open before a probe request is allowed
+     */
+    public CircuitBreaker(double failureRatio, int minimumRequests, long slowRequestThreshold, long window, long openTime) {
+        this(failureRatio, minimumRequests, slowRequestThreshold, window, openTime, 0);
+    }
+
+    /**
+     * @param failureRatio         The ratio of failed requests (between 0 and 1) at which the breaker opens, or 0 to only open on consecutive failures
+     * @param minimumRequests      The minimum number of requests in a window before the breaker can open
+     * @param slowRequestThreshold The time in milliseconds after which a request is counted as failed, or -1 to only count errors
+     * @param window               The length of the window in milliseconds
+     * @param openTime             The time in milliseconds the breaker stays open before a probe request is allowed
+     * @param consecutiveFailures  The number of consecutive failures after which the breaker opens, or 0 to disable
+     */
+    public CircuitBreaker(double failureRatio, int minimumRequests, long slowRequestThreshold, long window, long openTime, int consecutiveFailures) {
+        if (failureRatio < 0 || failureRatio > 1 || (failureRatio == 0 && consecutiveFailures <= 0)) {
+            throw new IllegalArgumentException("failureRatio");
+        }
+        this.failureRatio = failureRatio;
+        this.minimumRequests = Math.max(minimumRequests, 1);
+        this.slowRequestThreshold = slowRequestThreshold;
+        this.window = window;
+        this.openTime = openTime;
+        this.consecutiveFailures = Math.max(consecutiveFailures, 0);
+    }
+
+    /**
+     * Returns true if a request could currently be sent to the host. Unlike {@link #allowRequest()} this does not claim
+     * the probe request, so it can be used when choosing between hosts.
+     *
+     * @return <code>true</code> if the breaker is closed or a probe request is due
+     */
+    public boolean isAllowed() {
+        return !open || System.currentTimeMillis() >= nextProbe.get();
+    }
+
+    /**
+     * Returns true if a request may be sent to the host. If the breaker is open this will return true for at most one
+     * caller every {@code openTime} milliseconds, that caller is expected to send a probe request. This should only be
+     * called once a request is actually going to be sent to the host.
+     *
+     * @return <code>true</code> if a request may be sent
+     */
+    public boolean allowRequest() {
+        if (!open) {
+            return true;
+        }
+        final long time = System.currentTimeMillis();
+        final long next = nextProbe.get();
+        return time >= next && nextProbe.compareAndSet(next, time + openTime);
+    }
+
+    /**
+     * @return <code>true</code> if the breaker is currently open
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * @return The current generation, which changes every time the breaker opens or closes
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Records the outcome of a request against the current generation.
+     *
+     * @param failed <code>true</code> if the request failed
+     * @param time   The time the request took in milliseconds
+     */
+    public void requestComplete(boolean failed, long time) {
+        requestComplete(generation, failed, time);
+    }
+
+    /**
+     * Records the outcome of a request. The outcome is ignored if the breaker has opened or closed since the
+     * request was started.
+     *
+     * @param generation The generation of the breaker when the request was started
+     * @param failed     <code>true</code> if the request failed
+     * @param time       The time the request took in milliseconds
+     */
+    public void requestComplete(int generation, boolean failed, long time) {
+        if (generation != this.generation) {
+            return;
+        }
+        if (slowRequestThreshold > 0 && time >= slowRequestThreshold) {
+            failed = true;
+        }
+        final long currentTime = System.currentTimeMillis();
+        if (open) {
+            if (!failed) {
+                resetWindow(currentTime);
+                consecutive.set(0);
+                generation++;
+                open = false;
+                UndertowLogger.PROXY_REQUEST_LOGGER.debugf("Circuit breaker %s closed", this);
+            }
+            return;
+        }
+        if (currentTime - windowStart >= window) {
+            //this is racy, but losing a few samples at the window boundary does not matter
+            resetWindow(currentTime);
+        }
+        final int total = requests.incrementAndGet();
+        if (!failed) {
+            consecutive.set(0);
+            return;
+        }
+        final int failedCount = failures.incrementAndGet();
+        final int consecutiveCount = consecutive.incrementAndGet();
+        if ((failureRatio > 0 && total >= minimumRequests && failedCount >= failureRatio * total)
+                || (consecutiveFailures > 0 && consecutiveCount >= consecutiveFailures)) {
+            nextProbe.set(currentTime + openTime);
+            generation++;
+            open = true;
+            UndertowLogger.PROXY_REQUEST_LOGGER.debugf("Circuit breaker %s opened after %s failures in %s requests", this, failedCount, total);
+        }
+    }
+
+    private void resetWindow(long currentTime) {
+        windowStart = currentTime;
+        requests.set(0);
+        failures.set(0);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers.proxy;
+
+import java.util.Arrays;
+
+/**
+ * An immutable consistent hash ring.
+ * <p/>
+ * Every member is placed on the ring at a number of points derived from its key. A hash is mapped to the first point
+ * at or after it, walking clockwise. Adding or removing a member only moves the hashes that map to that member's
+ * points, all other hashes keep their member.
+ * <p/>
+ * Each point is stored as a single long, with the hash in the upper 48 bits and the member index in the lower 16 bits,
+ * so the ring is a single sorted array.
+ *
+ * @author Stuart Douglas
+ */
+final class HashRing<T> {
+
+    static final int POINTS_PER_MEMBER = 160;
+
+    private static final int MAX_MEMBERS = 1 << 16;
+    private static final long INDEX_MASK = MAX_MEMBERS - 1;
+
+    private final T[] members;
+    private final long[] points;
+
+    HashRing(T[] members, String[] keys) {
+        if (members.length > MAX_MEMBERS) {
+            throw new IllegalArgumentException("members");
+        }
+        this.members = members;
+        this.points = new long[members.length * POINTS_PER_MEMBER];
+        int pos = 0;
+        for (int i = 0; i < members.length; ++i) {
+            for (int j = 0; j < POINTS_PER_MEMBER; ++j) {
+                points[pos++] = (hash(keys[i] + '#' + j) & ~INDEX_MASK) | i;
+            }
+        }
+        Arrays.sort(points);
+    }
+
+    /**
+     * @return The number of points on the ring
+     */
+    int size() {
+        return points.length;
+    }
+
+    /**
+     * @param hash The hash
+     * @return The position of the first point at or after the hash
+     */
+    int find(long hash) {
+        final long key = hash & ~INDEX_MASK;
+        int pos = Arrays.binarySearch(points, key);
+        if (pos < 0) {
+            pos = -pos - 1;
+        }
+        return pos == points.length ? 0 : pos;
+    }
+
+    /**
+     * @return The number of members on the ring
+     */
+    int memberCount() {
+        return members.length;
+    }
+
+    /**
+     * @param position The position on the ring, wraps around if it is larger than the ring
+     * @return The index of the member at the given position
+     */
+    int memberIndex(int position) {
+        return (int) (points[position % points.length] & INDEX_MASK);
+    }
+
+    /**
+     * @param index The member index, as returned by {@link #memberIndex(int)}
+     * @return The member
+     */
+    T member(int index) {
+        return members[index];
+    }
+
+    /**
+     * @param position The position on the ring, wraps around if it is larger than the ring
+     * @return The member at the given position
+     */
+    T get(int position) {
+        return members[memberIndex(position)];
+    }
+
+    /**
+     * A 64 bit FNV-1a hash, followed by the murmur3 finalizer to spread similar keys over the whole ring.
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); ++i) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers.proxy;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import io.undertow.client.ClientCallback;
+import io.undertow.client.ClientConnection;
+import io.undertow.client.ClientExchange;
+import io.undertow.client.ClientRequest;
+import io.undertow.client.UndertowClient;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import org.xnio.ChannelExceptionHandler;
+import org.xnio.ChannelListener;
+import org.xnio.ChannelListeners;
+import org.xnio.IoUtils;
+import org.xnio.OptionMap;
+import org.xnio.Pool;
+import org.xnio.XnioExecutor;
+import org.xnio.XnioIoThread;
+import org.xnio.channels.StreamSinkChannel;
+import org.xnio.channels.StreamSourceChannel;
+import org.xnio.ssl.XnioSsl;
+
+/**
+ * Task that actively checks the health of a load balancer host, by sending a <code>GET</code> request to a health
+ * check path over a dedicated connection. A 2xx or 3xx response is considered healthy.
+ * <p/>
+ * The task is run at a fixed interval on a single IO thread, and all callbacks happen on that thread. If a previous
+ * check is still in progress the run is skipped.
+ *
+ * @author Stuart Douglas
+ */
+final class HostHealthCheckTask implements Runnable {
+
+    interface Listener {
+
+        /**
+         * Called on the IO thread when a health check completes.
+         *
+         * @param healthy <code>true</code> if the host responded with a healthy response
+         */
+        void healthCheckComplete(boolean healthy);
+    }
+
+    private final URI uri;
+    private final ClientRequest request;
+    private final XnioIoThread ioThread;
+    private final Pool<ByteBuffer> bufferPool;
+    private final UndertowClient client;
+    private final XnioSsl ssl;
+    private final OptionMap options;
+    private final long timeout;
+    private final Listener listener;
+
+    /**
+     * only accessed from the IO thread
+     */
+    private boolean active;
+
+    /**
+     * set once the task has been cancelled, after which a check that is still in progress is not reported
+     */
+    private volatile boolean cancelled;
+
+    volatile XnioExecutor.Key cancelKey;
+
+    HostHealthCheckTask(URI uri, String path, XnioIoThread ioThread, Pool<ByteBuffer> bufferPool, UndertowClient client, XnioSsl ssl, OptionMap options, long timeout, Listener listener) {
+        this.uri = uri;
+        this.ioThread = ioThread;
+        this.bufferPool = bufferPool;
+        this.client = client;
+        this.ssl = ssl;
+        this.options = options;
+        this.timeout = timeout;
+        this.listener = listener;
+        final ClientRequest request = new ClientRequest();
+        request.setMethod(Methods.GET);
+        request.setPath(path);
+        request.getRequestHeaders().put(Headers.HOST, uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort());
+        request.getRequestHeaders().put(Headers.USER_AGENT, "Undertow health check");
+        this.request = request;
+    }
+
+    @Override
+    public void run() {
+        if (active || cancelled) {
+            return;
+        }
+        active = true;
+        final Check check = new Check();
+        check.timeoutKey = ioThread.executeAfter(new Runnable() {
+            @Override
+            public void run() {
+                check.done(false);
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        client.connect(new ClientCallback<ClientConnection>() {
+            @Override
+            public void completed(final ClientConnection connection) {
+                if (check.done) {
+                    IoUtils.safeClose(connection);
+                    return;
+                }
+                check.connection = connection;
+                connection.sendRequest(request, new ClientCallback<ClientExchange>() {
+                    @Override
+                    public void completed(final ClientExchange result) {
+                        result.setResponseListener(check);
+                        try {
+                            result.getRequestChannel().shutdownWrites();
+                            if (!result.getRequestChannel().flush()) {
+                                result.getRequestChannel().getWriteSetter().set(ChannelListeners.flushingChannelListener(null, new ChannelExceptionHandler<StreamSinkChannel>() {
+                                    @Override
+                                    public void handleException(StreamSinkChannel channel, IOException exception) {
+                                        check.done(false);
+                                    }
+                                }));
+                                result.getRequestChannel().resumeWrites();
+                            }
+                        } catch (IOException e) {
+                            check.done(false);
+                        }
+                    }
+
+                    @Override
+                    public void failed(IOException e) {
+                        check.done(false);
+                    }
+                });
+            }
+
+            @Override
+            public void failed(IOException e) {
+                check.done(false);
+            }
+        }, uri, ioThread, ssl, bufferPool, options);
+    }
+
+    /**
+     * Stops the task. This may be called from any thread.
+     */
+    void cancel() {
+        cancelled = true;
+        final XnioExecutor.Key key = cancelKey;
+        if (key != null) {
+            key.remove();
+        }
+    }
+
+    private final class Check implements ClientCallback<ClientExchange> {
+
+        private boolean done;
+        private ClientConnection connection;
+        private XnioExecutor.Key timeoutKey;
+
+        @Override
+        public void completed(final ClientExchange result) {
+            final int code = result.getResponse().getResponseCode();
+            final ChannelListener<StreamSourceChannel> drainListener = ChannelListeners.drainListener(Long.MAX_VALUE, new ChannelListener<StreamSourceChannel>() {
+                @Override
+                public void handleEvent(StreamSourceChannel channel) {
+                    done(code >= 200 && code < 400);
+                }
+            }, new ChannelExceptionHandler<StreamSourceChannel>() {
+                @Override
+                public void handleException(StreamSourceChannel channel, IOException exception) {
+                    done(false);
+                }
+            });
+            final StreamSourceChannel responseChannel = result.getResponseChannel();
+            responseChannel.getReadSetter().set(drainListener);
+            responseChannel.resumeReads();
+            drainListener.handleEvent(responseChannel);
+        }
+
+        @Override
+        public void failed(IOException e) {
+            done(false);
+        }
+
+        void done(boolean healthy) {
+            if (done) {
+                return;
+            }
+            done = true;
+            active = false;
+            if (timeoutKey != null) {
+                timeoutKey.remove();
+            }
+            IoUtils.safeClose(connection);
+            if (!cancelled) {
+                listener.healthCheckComplete(healthy);
+            }
+        }
+    }
+}
@@ -19,21 +19,27 @@
 package io.undertow.server.handlers.proxy;
 
 import io.undertow.UndertowLogger;
+import io.undertow.attribute.ExchangeAttribute;
 import io.undertow.client.ClientConnection;
 import io.undertow.client.UndertowClient;
+import io.undertow.server.ExchangeCompletionListener;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.ServerConnection;
 import io.undertow.server.handlers.Cookie;
 import io.undertow.util.AttachmentKey;
 import io.undertow.util.CopyOnWriteMap;
 import org.xnio.OptionMap;
+import org.xnio.Pool;
+import org.xnio.XnioIoThread;
 import org.xnio.ssl.XnioSsl;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -56,6 +62,11 @@ public class LoadBalancingProxyClient implements ProxyClient {
      */
     private final AttachmentKey<ExclusiveConnectionHolder> exclusiveConnectionKey = AttachmentKey.create(ExclusiveConnectionHolder.class);
 
+    /**
+     * The host a request was routed to by hash, so a retried request is only counted once.
+     */
+    private final AttachmentKey<Host> hashedHostKey = AttachmentKey.create(Host.class);
+
 
     /**
      * Time in seconds between retries for problem servers
@@ -70,6 +81,64 @@ public class LoadBalancingProxyClient implements ProxyClient {
     private volatile int connectionsPerThread = 10;
     private volatile int maxQueueSize = 0;
 
+    /**
+     * The ratio of failed requests at which a host's circuit breaker opens, 0 disables circuit breaking
+     */
+    private volatile double circuitBreakerFailureRatio = 0;
+    private volatile int circuitBreakerMinimumRequests;
+    private volatile long circuitBreakerSlowRequestThreshold;
+    private volatile long circuitBreakerWindow;
+    private volatile long circuitBreakerOpenTime;
+    private volatile int circuitBreakerConsecutiveFailures;
+
+    /**
+     * The path that is used for active health checks, null if health checks are disabled
+     */
+    private volatile String healthCheckPath;
+    private volatile int healthCheckInterval;
+    private volatile int unhealthyThreshold;
+    private volatile int healthyThreshold;
+
+    /**
+     * The IO thread and buffer pool health checks run on, or null if health checks have not been started yet. Guarded
+     * by this.
+     */
+    private XnioIoThread healthCheckThread;
+    private Pool<ByteBuffer> healthCheckBufferPool;
+
+    /**
+     * Set if health checks are enabled but have not been started with {@link #startHealthChecks(XnioIoThread, Pool)}.
+     * In that case they are started on the IO thread of the first request that is proxied.
+     */
+    private volatile boolean healthChecksPending;
+
+    /**
+     * The time in milliseconds over which the traffic share of a new or recovered host is increased, 0 to disable
+     */
+    private volatile int slowStartTime;
+
+    /**
+     * The minimum share of traffic a host receives while it is warming up
+     */
+    private static final double MIN_SLOW_START_FACTOR = 0.1;
+
+    /**
+     * The attribute that requests are hashed on to select a host, null to use round robin
+     */
+    private volatile ExchangeAttribute affinityAttribute;
+
+    /**
+     * The maximum load of a host selected by hash, relative to the average load. 0 means the load is not bounded.
+     */
+    private volatile double hashLoadFactor = 1.25;
+
+    private volatile HashRing<Host> hashRing;
+
+    /**
+     * The number of requests in progress that were routed by hash, used to bound the load on each host
+     */
+    private final AtomicInteger hashedRequests = new AtomicInteger();
+
     /**
      * The hosts list.
      */
@@ -140,6 +209,191 @@ public class LoadBalancingProxyClient implements ProxyClient {
         return this;
     }
 
+    /**
+     * Enables a per host circuit breaker, that treats a host as a problem host while it is failing or responding slowly.
+     * This applies to existing hosts as well as hosts added later.
+     *
+     * @param failureRatio         The ratio of failed requests (between 0 and 1) at which the breaker opens, or 0 to disable circuit breaking
+     * @param minimumRequests      The minimum number of requests in a window before the breaker can open
+     * @param slowRequestThreshold The time in milliseconds after which a request is counted as failed, or -1 to only count errors
+     * @param window               The length of the window in milliseconds
+     * @param openTime             The time in milliseconds the breaker stays open before a probe request is allowed
+     * @return this
+     * @see CircuitBreaker
+     */
+    public LoadBalancingProxyClient setCircuitBreaker(double failureRatio, int minimumRequests, long slowRequestThreshold, long window, long openTime) {
+        return setCircuitBreaker(failureRatio, minimumRequests, slowRequestThreshold, window, openTime, 0);
+    }
+
+    /**
+     * Enables a per host circuit breaker that also ejects a host after a number of consecutive failed requests.
+     *
+     * @param failureRatio         The ratio of failed requests (between 0 and 1) at which the breaker opens, or 0 to only open on consecutive failures
+     * @param minimumRequests      The minimum number of requests in a window before the breaker can open
+     * @param slowRequestThreshold The time in milliseconds after which a request is counted as failed, or -1 to only count errors
+     * @param window               The length of the window in milliseconds
+     * @param openTime             The time in milliseconds the breaker stays open before a probe request is allowed
+     * @param consecutiveFailures  The number of consecutive failures after which a host is ejected, or 0 to disable
+     * @return this
+     * @see #setCircuitBreaker(double, int, long, long, long)
+     */
+    public synchronized LoadBalancingProxyClient setCircuitBreaker(double failureRatio, int minimumRequests, long slowRequestThreshold, long window, long openTime, int consecutiveFailures) {
+        this.circuitBreakerFailureRatio = failureRatio;
+        this.circuitBreakerMinimumRequests = minimumRequests;
+        this.circuitBreakerSlowRequestThreshold = slowRequestThreshold;
+        this.circuitBreakerWindow = window;
+        this.circuitBreakerOpenTime = openTime;
+        this.circuitBreakerConsecutiveFailures = consecutiveFailures;
+        for (Host host : hosts) {
+            host.connectionPool.setCircuitBreaker(createCircuitBreaker());
+        }
+        return this;
+    }
+
+    private CircuitBreaker createCircuitBreaker() {
+        if (circuitBreakerFailureRatio <= 0 && circuitBreakerConsecutiveFailures <= 0) {
+            return null;
+        }
+        return new CircuitBreaker(circuitBreakerFailureRatio, circuitBreakerMinimumRequests, circuitBreakerSlowRequestThreshold, circuitBreakerWindow, circuitBreakerOpenTime, circuitBreakerConsecutiveFailures);
+    }
+
+    /**
+     * Enables active health checks. Every host is sent a <code>GET</code> request for the given path at a fixed
+     * interval. A host that fails {@code unhealthyThreshold} checks in a row is treated as a problem host until it
+     * passes {@code healthyThreshold} checks in a row. A check that takes longer than the interval counts as failed.
+     * <p/>
+     * The checks run on the IO thread passed to {@link #startHealthChecks(XnioIoThread, Pool)}. If that has not been
+     * called they are started on the IO thread of the first request that is proxied.
+     * <p/>
+     * Calling this again cancels the running checks and restarts them with the new settings, and all hosts are
+     * considered healthy again until they fail the new check.
+     *
+     * @param path               The health check path, or null to disable health checks
+     * @param interval           The health check interval in milliseconds
+     * @param unhealthyThreshold The number of failed checks after which a host is marked unhealthy
+     * @param healthyThreshold   The number of successful checks after which an unhealthy host is marked healthy
+     * @return this
+     */
+    public synchronized LoadBalancingProxyClient setHealthCheck(String path, int interval, int unhealthyThreshold, int healthyThreshold) {
+        for (Host host : hosts) {
+            host.stopHealthCheck();
+        }
+        this.healthCheckPath = path;
+        this.healthCheckInterval = interval;
+        this.unhealthyThreshold = Math.max(unhealthyThreshold, 1);
+        this.healthyThreshold = Math.max(healthyThreshold, 1);
+        if (path == null) {
+            healthChecksPending = false;
+        } else if (healthCheckThread == null) {
+            healthChecksPending = true;
+        } else {
+            for (Host host : hosts) {
+                host.startHealthCheck(healthCheckThread, healthCheckBufferPool);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Starts the health checks configured with {@link #setHealthCheck(String, int, int, int)}. All checks, including
+     * those of hosts that are added later, run on the given IO thread. If health checks are already running on a
+     * different thread they are moved to the given thread.
+     *
+     * @param ioThread   The IO thread to run the health checks on
+     * @param bufferPool The buffer pool used by health check connections
+     * @return this
+     */
+    public synchronized LoadBalancingProxyClient startHealthChecks(XnioIoThread ioThread, Pool<ByteBuffer> bufferPool) {
+        if (healthCheckThread != null) {
+            for (Host host : hosts) {
+                host.stopHealthCheck();
+            }
+        }
+        this.healthCheckThread = ioThread;
+        this.healthCheckBufferPool = bufferPool;
+        healthChecksPending = false;
+        if (healthCheckPath != null) {
+            for (Host host : hosts) {
+                host.startHealthCheck(ioThread, bufferPool);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Cancels all health checks and closes the connections to all hosts.
+     */
+    public synchronized void close() {
+        healthChecksPending = false;
+        healthCheckThread = null;
+        healthCheckBufferPool = null;
+        for (Host host : hosts) {
+            host.stopHealthCheck();
+            host.connectionPool.close();
+        }
+    }
+
+    public int getSlowStartTime() {
+        return slowStartTime;
+    }
+
+    /**
+     * Sets the slow start time. A host that has just been added, or has recovered from being a problem host,
+     * only receives a share of the traffic that increases linearly over this time, so a freshly started server
+     * is not flooded with requests before it has warmed up.
+     *
+     * @param slowStartTime The slow start time in milliseconds, or 0 to disable slow start
+     * @return this
+     */
+    public LoadBalancingProxyClient setSlowStartTime(int slowStartTime) {
+        this.slowStartTime = slowStartTime;
+        return this;
+    }
+
+    public ExchangeAttribute getAffinityAttribute() {
+        return affinityAttribute;
+    }
+
+    /**
+     * Enables request affinity. The value of the attribute (for example the request path, or a tenant header) is
+     * hashed onto a consistent hash ring of the hosts, so requests with the same value go to the same host, and only
+     * a small fraction of values move when hosts are added or removed. This keeps the caches of the backend servers hot.
+     * <p/>
+     * Requests where the attribute is empty, and requests with a sticky session, are routed as normal.
+     *
+     * @param affinityAttribute The attribute to hash, or null to disable affinity
+     * @return this
+     */
+    public LoadBalancingProxyClient setAffinityAttribute(ExchangeAttribute affinityAttribute) {
+        this.affinityAttribute = affinityAttribute;
+        return this;
+    }
+
+    public double getHashLoadFactor() {
+        return hashLoadFactor;
+    }
+
+    /**
+     * Sets the bound on the load of a host selected by hash. A host is skipped in favour of the next host on the ring
+     * if it already has more than this factor times the average number of in progress requests.
+     *
+     * @param hashLoadFactor The load factor, which should be larger than 1, or 0 for no bound
+     * @return this
+     */
+    public LoadBalancingProxyClient setHashLoadFactor(double hashLoadFactor) {
+        this.hashLoadFactor = hashLoadFactor;
+        return this;
+    }
+
+    private void rebuildHashRing() {
+        final Host[] hosts = this.hosts;
+        final String[] keys = new String[hosts.length];
+        for (int i = 0; i < hosts.length; ++i) {
+            keys[i] = hosts[i].uri.toString();
+        }
+        this.hashRing = new HashRing<>(hosts, keys);
+    }
+
     public synchronized LoadBalancingProxyClient addHost(final URI host) {
         return addHost(host, null, null);
     }
@@ -164,6 +418,14 @@ public class LoadBalancingProxyClient implements ProxyClient {
         if (jvmRoute != null) {
             this.routes.put(jvmRoute, h);
         }
+        if (healthCheckPath != null) {
+            if (healthCheckThread == null) {
+                healthChecksPending = true;
+            } else {
+                h.startHealthCheck(healthCheckThread, healthCheckBufferPool);
+            }
+        }
+        rebuildHashRing();
         return this;
     }
 
@@ -183,6 +445,14 @@ public class LoadBalancingProxyClient implements ProxyClient {
         if (jvmRoute != null) {
             this.routes.put(jvmRoute, h);
         }
+        if (healthCheckPath != null) {
+            if (healthCheckThread == null) {
+                healthChecksPending = true;
+            } else {
+                h.startHealthCheck(healthCheckThread, healthCheckBufferPool);
+            }
+        }
+        rebuildHashRing();
         return this;
     }
 
@@ -204,7 +474,9 @@ public class LoadBalancingProxyClient implements ProxyClient {
         System.arraycopy(existing, 0, newHosts, 0, found);
         System.arraycopy(existing, found + 1, newHosts, found, existing.length - found - 1);
         this.hosts = newHosts;
+        rebuildHashRing();
         removedHost.connectionPool.close();
+        removedHost.stopHealthCheck();
         if (removedHost.jvmRoute != null) {
             routes.remove(removedHost.jvmRoute);
         }
@@ -224,6 +496,9 @@ public class LoadBalancingProxyClient implements ProxyClient {
             callback.completed(exchange, holder.connection);
             return;
         }
+        if (healthChecksPending) {
+            startPendingHealthChecks(exchange.getIoThread(), exchange.getConnection().getBufferPool());
+        }
 
         final Host host = selectHost(exchange);
         if (host == null) {
@@ -279,6 +554,12 @@ public class LoadBalancingProxyClient implements ProxyClient {
         }
     }
 
+    private synchronized void startPendingHealthChecks(XnioIoThread ioThread, Pool<ByteBuffer> bufferPool) {
+        if (healthChecksPending) {
+            startHealthChecks(ioThread, bufferPool);
+        }
+    }
+
     protected Host selectHost(HttpServerExchange exchange) {
         Host[] hosts = this.hosts;
         if (hosts.length == 0) {
@@ -288,16 +569,32 @@ public class LoadBalancingProxyClient implements ProxyClient {
         if (sticky != null) {
             return sticky;
         }
+        final ExchangeAttribute affinityAttribute = this.affinityAttribute;
+        if (affinityAttribute != null) {
+            final String value = affinityAttribute.readAttribute(exchange);
+            if (value != null && !value.isEmpty()) {
+                final Host hashed = selectHashedHost(exchange, value);
+                if (hashed != null) {
+                    return hashed;
+                }
+            }
+        }
         int host = currentHost.incrementAndGet() % hosts.length;
 
         final int startHost = host; //if the all hosts have problems we come back to this one
         Host full = null;
         Host problem = null;
+        Host warming = null;
         do {
             Host selected = hosts[host];
             ProxyConnectionPool.AvailabilityType available = selected.connectionPool.available();
             if (available == AVAILABLE) {
-                return selected;
+                final double factor = selected.getSlowStartFactor();
+                if (factor >= 1 || ThreadLocalRandom.current().nextDouble() < factor) {
+                    return selected;
+                } else if (warming == null) {
+                    warming = selected;
+                }
             } else if (available == FULL && full == null) {
                 full = selected;
             } else if ((available == PROBLEM || available == FULL_QUEUE) && problem == null) {
@@ -305,6 +602,9 @@ public class LoadBalancingProxyClient implements ProxyClient {
             }
             host = (host + 1) % hosts.length;
         } while (host != startHost);
+        if (warming != null) {
+            return warming;
+        }
         if (full != null) {
             return full;
         }
@@ -315,6 +615,66 @@ public class LoadBalancingProxyClient implements ProxyClient {
         return null;
     }
 
+    /**
+     * Selects the host for an affinity value, by walking the hash ring from the value's hash to the first host that
+     * is available and is not over its load bound.
+     */
+    private Host selectHashedHost(HttpServerExchange exchange, String value) {
+        final HashRing<Host> ring = this.hashRing;
+        if (ring == null || ring.size() == 0) {
+            return null;
+        }
+        final double loadFactor = hashLoadFactor;
+        final int hostCount = ring.size() / HashRing.POINTS_PER_MEMBER;
+        final int limit = loadFactor > 0 ? (int) Math.ceil(loadFactor * (hashedRequests.get() + 1) / hostCount) : Integer.MAX_VALUE;
+        final int start = ring.find(HashRing.hash(value));
+        //every host has many points on the ring, so only the first point of each host is checked
+        final boolean[] visited = new boolean[ring.memberCount()];
+        int remaining = visited.length;
+        Host overloaded = null;
+        for (int i = 0; i < ring.size() && remaining > 0; ++i) {
+            final int index = ring.memberIndex(start + i);
+            if (visited[index]) {
+                continue;
+            }
+            visited[index] = true;
+            --remaining;
+            final Host selected = ring.member(index);
+            final ProxyConnectionPool.AvailabilityType available = selected.connectionPool.available();
+            if (available == AVAILABLE || available == FULL) {
+                if (selected.hashedRequests.get() < limit) {
+                    return trackHashedRequest(exchange, selected);
+                } else if (overloaded == null) {
+                    overloaded = selected;
+                }
+            }
+        }
+        if (overloaded != null) {
+            return trackHashedRequest(exchange, overloaded);
+        }
+        return null;
+    }
+
+    private Host trackHashedRequest(HttpServerExchange exchange, final Host host) {
+        host.hashedRequests.incrementAndGet();
+        final Host previous = exchange.putAttachment(hashedHostKey, host);
+        if (previous != null) {
+            //the request is being retried, move it to the new host
+            previous.hashedRequests.decrementAndGet();
+            return host;
+        }
+        hashedRequests.incrementAndGet();
+        exchange.addExchangeCompleteListener(new ExchangeCompletionListener() {
+            @Override
+            public void exchangeEvent(HttpServerExchange exchange, NextListener nextListener) {
+                exchange.getAttachment(hashedHostKey).hashedRequests.decrementAndGet();
+                hashedRequests.decrementAndGet();
+                nextListener.proceed();
+            }
+        });
+        return host;
+    }
+
     protected Host findStickyHost(HttpServerExchange exchange) {
         Map<String, Cookie> cookies = exchange.getRequestCookies();
         for (String cookieName : sessionCookieNames) {
@@ -336,17 +696,113 @@ public class LoadBalancingProxyClient implements ProxyClient {
         return null;
     }
 
-    protected final class Host extends ConnectionPoolErrorHandler.SimpleConnectionPoolErrorHandler implements ConnectionPoolManager {
+    protected final class Host extends ConnectionPoolErrorHandler.SimpleConnectionPoolErrorHandler implements ConnectionPoolManager, HostHealthCheckTask.Listener {
         final ProxyConnectionPool connectionPool;
         final String jvmRoute;
         final URI uri;
         final XnioSsl ssl;
+        final OptionMap options;
+
+        /**
+         * The number of requests in progress that were routed to this host by hash
+         */
+        final AtomicInteger hashedRequests = new AtomicInteger();
+
+        /**
+         * The time the host last became available, used for slow start
+         */
+        private volatile long availableSince = System.currentTimeMillis();
+
+        private volatile boolean healthy = true;
+        private volatile HostHealthCheckTask healthCheckTask;
+
+        /**
+         * health check counters, only accessed from the health check IO thread while the check is running
+         */
+        private int healthCheckSuccesses;
+        private int healthCheckFailures;
 
         private Host(String jvmRoute, InetSocketAddress bindAddress, URI uri, XnioSsl ssl, OptionMap options) {
             this.connectionPool = new ProxyConnectionPool(this, bindAddress, uri, ssl, client, options);
+            this.connectionPool.setCircuitBreaker(createCircuitBreaker());
             this.jvmRoute = jvmRoute;
             this.uri = uri;
             this.ssl = ssl;
+            this.options = options;
+        }
+
+        void startHealthCheck(XnioIoThread ioThread, Pool<ByteBuffer> bufferPool) {
+            final String path = healthCheckPath;
+            if (path == null || healthCheckTask != null) {
+                return;
+            }
+            final int interval = healthCheckInterval;
+            final HostHealthCheckTask task = new HostHealthCheckTask(uri, path, ioThread, bufferPool, client, ssl, options, interval, this);
+            healthCheckTask = task;
+            task.cancelKey = ioThread.executeAtInterval(task, interval, TimeUnit.MILLISECONDS);
+        }
+
+        void stopHealthCheck() {
+            final HostHealthCheckTask task = healthCheckTask;
+            if (task != null) {
+                task.cancel();
+                healthCheckTask = null;
+                //the task will not run again, so the counters can be reset from this thread
+                healthCheckSuccesses = 0;
+                healthCheckFailures = 0;
+                if (!healthy) {
+                    availableSince = System.currentTimeMillis();
+                    healthy = true;
+                }
+            }
+        }
+
+        @Override
+        public void healthCheckComplete(boolean success) {
+            if (success) {
+                healthCheckFailures = 0;
+                if (!healthy && ++healthCheckSuccesses >= healthyThreshold) {
+                    UndertowLogger.PROXY_REQUEST_LOGGER.debugf("Host %s passed health check and is available again", uri);
+                    availableSince = System.currentTimeMillis();
+                    healthy = true;
+                }
+            } else {
+                healthCheckSuccesses = 0;
+                if (healthy && ++healthCheckFailures >= unhealthyThreshold) {
+                    UndertowLogger.PROXY_REQUEST_LOGGER.debugf("Host %s failed health check", uri);
+                    healthy = false;
+                }
+            }
+        }
+
+        /**
+         * @return The share of traffic this host should currently receive, between {@link #MIN_SLOW_START_FACTOR} and 1
+         */
+        double getSlowStartFactor() {
+            final int slowStartTime = LoadBalancingProxyClient.this.slowStartTime;
+            if (slowStartTime <= 0) {
+                return 1;
+            }
+            final long elapsed = System.currentTimeMillis() - availableSince;
+            if (elapsed >= slowStartTime) {
+                return 1;
+            }
+            return Math.max((double) elapsed / slowStartTime, MIN_SLOW_START_FACTOR);
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return healthy && super.isAvailable();
+        }
+
+        @Override
+        public boolean clearError() {
+            final boolean wasAvailable = super.isAvailable();
+            final boolean result = super.clearError();
+            if (!wasAvailable) {
+                availableSince = System.currentTimeMillis();
+            }
+            return result;
         }
 
         @Override
@@ -29,6 +29,7 @@ public class ProxyConnection {
 
     private final ClientConnection connection;
     private final String targetPath;
+    private volatile boolean failed;
 
     public ProxyConnection(ClientConnection connection, String targetPath) {
         this.connection = connection;
@@ -42,4 +43,19 @@ public class ProxyConnection {
     public String getTargetPath() {
         return targetPath;
     }
+
+    /**
+     * @return <code>true</code> if a request sent over this connection failed
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Marks a request sent over this connection as failed, so it is counted as an error by the connection pool even
+     * if the request is then successfully retried on another connection.
+     */
+    public void setFailed() {
+        this.failed = true;
+    }
 }
@@ -70,6 +70,11 @@ public class ProxyConnectionPool implements Closeable {
      */
     private volatile boolean closed;
 
+    /**
+     * The circuit breaker for this host, or null if circuit breaking is disabled.
+     */
+    private volatile CircuitBreaker circuitBreaker;
+
     private final int maxConnections;
     private final int maxCachedConnections;
     private final int sMaxConnections;
@@ -110,6 +115,19 @@ public class ProxyConnectionPool implements Closeable {
         return bindAddress;
     }
 
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Sets the circuit breaker for this host. While the breaker is open the host is reported as a problem host.
+     *
+     * @param circuitBreaker The circuit breaker, or null to disable circuit breaking
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
     public void close() {
         this.closed = true;
         for (HostThreadData data : hostThreadData.values()) {
@@ -199,6 +217,9 @@ public class ProxyConnectionPool implements Closeable {
         if (!exclusive) {
             data.connections++;
         }
+        final CircuitBreaker circuitBreaker = this.circuitBreaker;
+        final int generation = circuitBreaker == null ? 0 : circuitBreaker.getGeneration();
+        final long start = circuitBreaker == null ? 0 : System.currentTimeMillis();
         client.connect(new ClientCallback<ClientConnection>() {
             @Override
             public void completed(final ClientConnection result) {
@@ -220,6 +241,9 @@ public class ProxyConnectionPool implements Closeable {
                     data.connections--;
                 }
                 UndertowLogger.REQUEST_LOGGER.debug("Failed to connect", e);
+                if (circuitBreaker != null) {
+                    circuitBreaker.requestComplete(generation, true, System.currentTimeMillis() - start);
+                }
                 if (!connectionPoolManager.handleError()) {
                     redistributeQueued(getData());
                     scheduleFailedHostRetry(exchange);
@@ -248,9 +272,16 @@ public class ProxyConnectionPool implements Closeable {
     }
 
     private void connectionReady(final ConnectionHolder result, final ProxyCallback<ProxyConnection> callback, final HttpServerExchange exchange, final boolean exclusive) {
+        final ProxyConnection proxyConnection = new ProxyConnection(result.clientConnection, uri.getPath() == null ? "/" : uri.getPath());
+        final CircuitBreaker circuitBreaker = this.circuitBreaker;
+        final int generation = circuitBreaker == null ? 0 : circuitBreaker.getGeneration();
+        final long start = circuitBreaker == null ? 0 : System.currentTimeMillis();
         exchange.addExchangeCompleteListener(new ExchangeCompletionListener() {
             @Override
             public void exchangeEvent(HttpServerExchange exchange, NextListener nextListener) {
+                if (circuitBreaker != null) {
+                    circuitBreaker.requestComplete(generation, proxyConnection.isFailed() || exchange.getResponseCode() >= 500, System.currentTimeMillis() - start);
+                }
                 if (!exclusive) {
                     returnConnection(result);
                 }
@@ -258,7 +289,7 @@ public class ProxyConnectionPool implements Closeable {
             }
         });
 
-        callback.completed(exchange, new ProxyConnection(result.clientConnection, uri.getPath() == null ? "/" : uri.getPath()));
+        callback.completed(exchange, proxyConnection);
     }
 
     public AvailabilityType available() {
@@ -268,6 +299,10 @@ public class ProxyConnectionPool implements Closeable {
         if (!connectionPoolManager.isAvailable()) {
             return AvailabilityType.PROBLEM;
         }
+        final CircuitBreaker circuitBreaker = this.circuitBreaker;
+        if (circuitBreaker != null && !circuitBreaker.isAllowed()) {
+            return AvailabilityType.PROBLEM;
+        }
         HostThreadData data = getData();
         if (data.connections < maxConnections) {
             return AvailabilityType.AVAILABLE;
@@ -403,6 +438,12 @@ public class ProxyConnectionPool implements Closeable {
      * @param exclusive - Is connection for the exclusive use of one client?
      */
     public void connect(ProxyClient.ProxyTarget proxyTarget, HttpServerExchange exchange, ProxyCallback<ProxyConnection> callback, final long timeout, final TimeUnit timeUnit, boolean exclusive) {
+        final CircuitBreaker circuitBreaker = this.circuitBreaker;
+        if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+            //the breaker is open, and another request has already claimed the probe
+            callback.queuedRequestFailed(exchange);
+            return;
+        }
         HostThreadData data = getData();
         ConnectionHolder connectionHolder = data.availableConnections.poll();
         while (connectionHolder != null && !connectionHolder.clientConnection.isOpen()) {
@@ -31,8 +31,10 @@ import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.nio.channels.Channel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -69,6 +71,7 @@ import io.undertow.util.HeaderMap;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
 import io.undertow.util.SameThreadExecutor;
 import io.undertow.util.StatusCodes;
 import io.undertow.util.Transfer;
@@ -103,6 +106,17 @@ public final class ProxyHandler implements HttpHandler {
     private static final AttachmentKey<HttpServerExchange> EXCHANGE = AttachmentKey.create(HttpServerExchange.class);
     private static final AttachmentKey<XnioExecutor.Key> TIMEOUT_KEY = AttachmentKey.create(XnioExecutor.Key.class);
 
+    /**
+     * The maximum number of buffers used at once when copying request and response bodies. Large bodies are read with
+     * a single scattering read and written with a single gathering write across these buffers.
+     */
+    private static final int BODY_TRANSFER_BUFFERS = 4;
+
+    /**
+     * Methods that can safely be sent to a different backend if the first attempt fails.
+     */
+    private static final Set<HttpString> IDEMPOTENT_METHODS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(Methods.GET, Methods.HEAD, Methods.OPTIONS, Methods.TRACE, Methods.PUT, Methods.DELETE)));
+
     /**
      * Map of additional headers to add to the request.
      */
@@ -112,6 +126,7 @@ public final class ProxyHandler implements HttpHandler {
 
     private final boolean rewriteHostHeader;
     private final boolean reuseXForwarded;
+    private final int maxConnectionRetries;
 
     public ProxyHandler(ProxyClient proxyClient, int maxRequestTime, HttpHandler next) {
         this(proxyClient, maxRequestTime, next, false, false);
@@ -126,11 +141,26 @@ public final class ProxyHandler implements HttpHandler {
    * @param reuseXForwarded should any existing X-Forwarded-For header be used or should it be overwritten.
    */
     public ProxyHandler(ProxyClient proxyClient, int maxRequestTime, HttpHandler next, boolean rewriteHostHeader, boolean reuseXForwarded) {
+        this(proxyClient, maxRequestTime, next, rewriteHostHeader, reuseXForwarded, 0);
+    }
+
+  /**
+   *
+   * @param proxyClient the client to use to make the proxy call
+   * @param maxRequestTime the maximum amount of time to allow the request to be processed
+   * @param next the next handler in line
+   * @param rewriteHostHeader should the HOST header be rewritten to use the target host of the call.
+   * @param reuseXForwarded should any existing X-Forwarded-For header be used or should it be overwritten.
+   * @param maxConnectionRetries the number of times a request is retried on another backend. Requests are only retried
+   *                             after a connection has been established if they are idempotent and have no request body.
+   */
+    public ProxyHandler(ProxyClient proxyClient, int maxRequestTime, HttpHandler next, boolean rewriteHostHeader, boolean reuseXForwarded, int maxConnectionRetries) {
         this.proxyClient = proxyClient;
         this.maxRequestTime = maxRequestTime;
         this.next = next;
         this.rewriteHostHeader = rewriteHostHeader;
         this.reuseXForwarded = reuseXForwarded;
+        this.maxConnectionRetries = maxConnectionRetries;
     }
 
 
@@ -145,9 +175,8 @@ public final class ProxyHandler implements HttpHandler {
             next.handleRequest(exchange);
             return;
         }
-        final int maxRetryAttempts = 0; // TODO make this configurable, or just take from the error policy?
         final long timeout = maxRequestTime > 0 ? System.currentTimeMillis() + maxRequestTime : 0;
-        final ProxyClientHandler clientHandler = new ProxyClientHandler(exchange, target, timeout, maxRetryAttempts);
+        final ProxyClientHandler clientHandler = new ProxyClientHandler(exchange, target, timeout, maxConnectionRetries);
         if (timeout > 0) {
             final XnioExecutor.Key key = exchange.getIoThread().executeAfter(new Runnable() {
                 @Override
@@ -238,6 +267,33 @@ public final class ProxyHandler implements HttpHandler {
         return proxyClient;
     }
 
+    public int getMaxConnectionRetries() {
+        return maxConnectionRetries;
+    }
+
+    /**
+     * Returns true if the request can be sent again after it has already been sent to a backend. This is only
+     * the case for idempotent requests that are known to have no request body, as the body is not buffered. A request
+     * with an unknown length is not replayable, even if it turns out to be empty.
+     * <p/>
+     * This must be called before the request is first sent, as once the request channel has been read the request
+     * will always be complete.
+     */
+    static boolean isReplayable(final HttpServerExchange exchange) {
+        if (!IDEMPOTENT_METHODS.contains(exchange.getRequestMethod())) {
+            return false;
+        }
+        if (exchange.getRequestHeaders().contains(Headers.TRANSFER_ENCODING)) {
+            return false;
+        }
+        final long contentLength = exchange.getRequestContentLength();
+        if (contentLength == 0) {
+            return true;
+        }
+        //without a content length the request is only known to be empty if the protocol has already terminated it
+        return contentLength == -1 && exchange.isRequestComplete();
+    }
+
     private final class ProxyClientHandler implements ProxyCallback<ProxyConnection>, Runnable {
 
         private int tries;
@@ -245,6 +301,7 @@ public final class ProxyHandler implements HttpHandler {
         private final long timeout;
         private final int maxRetryAttempts;
         private final HttpServerExchange exchange;
+        private final boolean replayable;
         private ProxyClient.ProxyTarget target;
 
         ProxyClientHandler(HttpServerExchange exchange, ProxyClient.ProxyTarget target, long timeout, int maxRetryAttempts) {
@@ -252,6 +309,7 @@ public final class ProxyHandler implements HttpHandler {
             this.timeout = timeout;
             this.maxRetryAttempts = maxRetryAttempts;
             this.target = target;
+            this.replayable = isReplayable(exchange);
         }
 
         @Override
@@ -262,7 +320,7 @@ public final class ProxyHandler implements HttpHandler {
         @Override
         public void completed(final HttpServerExchange exchange, final ProxyConnection connection) {
             exchange.putAttachment(CONNECTION, connection);
-            exchange.dispatch(SameThreadExecutor.INSTANCE, new ProxyAction(connection, exchange, requestHeaders, rewriteHostHeader, reuseXForwarded));
+            exchange.dispatch(SameThreadExecutor.INSTANCE, new ProxyAction(connection, exchange, requestHeaders, rewriteHostHeader, reuseXForwarded, this));
         }
 
         @Override
@@ -285,6 +343,40 @@ public final class ProxyHandler implements HttpHandler {
             }
         }
 
+        /**
+         * Called when a request fails after the connection to the backend was established. If the response has
+         * not been started and the request can be safely re-sent it is retried on another connection.
+         *
+         * @return <code>true</code> if the request is being retried
+         */
+        boolean retryRequest(final HttpServerExchange exchange, final ProxyConnection connection) {
+            connection.setFailed();
+            if (exchange.isResponseStarted() || tries >= maxRetryAttempts || !replayable) {
+                return false;
+            }
+            final long time = System.currentTimeMillis();
+            if (timeout > 0 && time > timeout) {
+                return false;
+            }
+            target = proxyClient.findTarget(exchange);
+            if (target == null) {
+                return false;
+            }
+            tries++;
+            exchange.removeAttachment(CONNECTION);
+            final long remaining = timeout > 0 ? timeout - time : -1;
+            proxyClient.getConnection(target, exchange, this, remaining, TimeUnit.MILLISECONDS);
+            return true;
+        }
+
+        /**
+         * Returns true if this is not the first attempt at sending a request that is known to have no body. The
+         * request channel may already have been consumed by an earlier attempt, so the body is not transferred.
+         */
+        boolean isReplay() {
+            return tries > 0 && replayable;
+        }
+
         @Override
         public void queuedRequestFailed(HttpServerExchange exchange) {
             failed(exchange);
@@ -325,14 +417,16 @@ public final class ProxyHandler implements HttpHandler {
         private final Map<HttpString, ExchangeAttribute> requestHeaders;
         private final boolean rewriteHostHeader;
         private final boolean reuseXForwarded;
+        private final ProxyClientHandler clientHandler;
 
         public ProxyAction(final ProxyConnection clientConnection, final HttpServerExchange exchange, Map<HttpString, ExchangeAttribute> requestHeaders,
-                           boolean rewriteHostHeader, boolean reuseXForwarded) {
+                           boolean rewriteHostHeader, boolean reuseXForwarded, ProxyClientHandler clientHandler) {
             this.clientConnection = clientConnection;
             this.exchange = exchange;
             this.requestHeaders = requestHeaders;
             this.rewriteHostHeader = rewriteHostHeader;
             this.reuseXForwarded = reuseXForwarded;
+            this.clientHandler = clientHandler;
         }
 
         @Override
@@ -510,7 +604,7 @@ public final class ProxyHandler implements HttpHandler {
                                             path = path.substring(0, i);
                                         }
 
-                                        exchange.dispatch(SameThreadExecutor.INSTANCE, new ProxyAction(new ProxyConnection(pushedRequest.getConnection(), path), exchange, requestHeaders, rewriteHostHeader, reuseXForwarded));
+                                        exchange.dispatch(SameThreadExecutor.INSTANCE, new ProxyAction(new ProxyConnection(pushedRequest.getConnection(), path), exchange, requestHeaders, rewriteHostHeader, reuseXForwarded, null));
                                     }
                                 });
                                 return true;
@@ -519,7 +613,12 @@ public final class ProxyHandler implements HttpHandler {
                     }
 
 
-                    result.setResponseListener(new ResponseCallback(exchange));
+                    result.setResponseListener(new ResponseCallback(exchange, clientConnection, clientHandler));
+                    if (clientHandler != null && clientHandler.isReplay()) {
+                        //the request is known to have no body, just end the request
+                        new HTTPTrailerChannelListener(exchange, result).handleEvent(result.getRequestChannel());
+                        return;
+                    }
                     final IoExceptionHandler handler = new IoExceptionHandler(exchange, clientConnection.getConnection());
                     if(requiresContinueResponse) {
                         try {
@@ -527,7 +626,7 @@ public final class ProxyHandler implements HttpHandler {
                                 result.getRequestChannel().getWriteSetter().set(ChannelListeners.flushingChannelListener(new ChannelListener<StreamSinkChannel>() {
                                     @Override
                                     public void handleEvent(StreamSinkChannel channel) {
-                                        Transfer.initiateTransfer(exchange.getRequestChannel(), result.getRequestChannel(), ChannelListeners.closingChannelListener(), new HTTPTrailerChannelListener(exchange, result), handler, handler, exchange.getConnection().getBufferPool());
+                                        Transfer.initiateTransfer(exchange.getRequestChannel(), result.getRequestChannel(), ChannelListeners.closingChannelListener(), new HTTPTrailerChannelListener(exchange, result), handler, handler, exchange.getConnection().getBufferPool(), BODY_TRANSFER_BUFFERS);
 
                                     }
                                 }, handler));
@@ -538,13 +637,16 @@ public final class ProxyHandler implements HttpHandler {
                             handler.handleException(result.getRequestChannel(), e);
                         }
                     }
-                    Transfer.initiateTransfer(exchange.getRequestChannel(), result.getRequestChannel(), ChannelListeners.closingChannelListener(), new HTTPTrailerChannelListener(exchange, result), handler, handler, exchange.getConnection().getBufferPool());
+                    Transfer.initiateTransfer(exchange.getRequestChannel(), result.getRequestChannel(), ChannelListeners.closingChannelListener(), new HTTPTrailerChannelListener(exchange, result), handler, handler, exchange.getConnection().getBufferPool(), BODY_TRANSFER_BUFFERS);
 
                 }
 
                 @Override
                 public void failed(IOException e) {
                     UndertowLogger.PROXY_REQUEST_LOGGER.proxyRequestFailed(exchange.getRequestURI(), e);
+                    if (clientHandler != null && clientHandler.retryRequest(exchange, clientConnection)) {
+                        return;
+                    }
                     if (!exchange.isResponseStarted()) {
                         exchange.setResponseCode(StatusCodes.SERVICE_UNAVAILABLE);
                         exchange.endExchange();
@@ -561,9 +663,13 @@ public final class ProxyHandler implements HttpHandler {
     private static final class ResponseCallback implements ClientCallback<ClientExchange> {
 
         private final HttpServerExchange exchange;
+        private final ProxyConnection clientConnection;
+        private final ProxyClientHandler clientHandler;
 
-        private ResponseCallback(HttpServerExchange exchange) {
+        private ResponseCallback(HttpServerExchange exchange, ProxyConnection clientConnection, ProxyClientHandler clientHandler) {
             this.exchange = exchange;
+            this.clientConnection = clientConnection;
+            this.clientHandler = clientHandler;
         }
 
         @Override
@@ -593,12 +699,15 @@ public final class ProxyHandler implements HttpHandler {
                 });
             }
             final IoExceptionHandler handler = new IoExceptionHandler(exchange, result.getConnection());
-            Transfer.initiateTransfer(result.getResponseChannel(), exchange.getResponseChannel(), ChannelListeners.closingChannelListener(), new HTTPTrailerChannelListener(result, exchange), handler, handler, exchange.getConnection().getBufferPool());
+            Transfer.initiateTransfer(result.getResponseChannel(), exchange.getResponseChannel(), ChannelListeners.closingChannelListener(), new HTTPTrailerChannelListener(result, exchange), handler, handler, exchange.getConnection().getBufferPool(), BODY_TRANSFER_BUFFERS);
         }
 
         @Override
         public void failed(IOException e) {
             UndertowLogger.PROXY_REQUEST_LOGGER.proxyRequestFailed(exchange.getRequestURI(), e);
+            if (clientHandler != null && clientHandler.retryRequest(exchange, clientConnection)) {
+                return;
+            }
             if (!exchange.isResponseStarted()) {
                 exchange.setResponseCode(StatusCodes.INTERNAL_SERVER_ERROR);
                 exchange.endExchange();
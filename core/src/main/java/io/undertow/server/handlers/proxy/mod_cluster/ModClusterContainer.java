@@ -50,6 +50,9 @@ class ModClusterContainer {
     // The configured balancers
     private final ConcurrentMap<String, Balancer> balancers = new CopyOnWriteMap<>();
 
+    // Snapshot of the balancers with sticky sessions enabled, rebuilt when a balancer is added or removed
+    private volatile Balancer[] stickySessionBalancers = {};
+
     // The available nodes
     private final ConcurrentMap<String, Node> nodes = new CopyOnWriteMap<>();
 
@@ -124,21 +127,19 @@ class ModClusterContainer {
         if (entry == null) {
             return null;
         }
-        for (final Balancer balancer : balancers.values()) {
+        for (final Balancer balancer : stickySessionBalancers) {
             final Map<String, Cookie> cookies = exchange.getRequestCookies();
-            if (balancer.isStickySession()) {
-                if (cookies.containsKey(balancer.getStickySessionCookie())) {
-                    final String jvmRoute = getJVMRoute(cookies.get(balancer.getStickySessionCookie()).getValue());
-                    if (jvmRoute != null) {
-                        return new ModClusterProxyTarget.ExistingSessionTarget(jvmRoute, entry.getValue(), this, balancer.isStickySessionForce());
-                    }
+            if (cookies.containsKey(balancer.getStickySessionCookie())) {
+                final String jvmRoute = getJVMRoute(cookies.get(balancer.getStickySessionCookie()).getValue());
+                if (jvmRoute != null) {
+                    return new ModClusterProxyTarget.ExistingSessionTarget(jvmRoute, entry.getValue(), this, balancer.isStickySessionForce());
                 }
-                if (exchange.getPathParameters().containsKey(balancer.getStickySessionPath())) {
-                    final String id = exchange.getPathParameters().get(balancer.getStickySessionPath()).getFirst();
-                    final String jvmRoute = getJVMRoute(id);
-                    if (jvmRoute != null) {
-                        return new ModClusterProxyTarget.ExistingSessionTarget(jvmRoute, entry.getValue(), this, balancer.isStickySessionForce());
-                    }
+            }
+            if (exchange.getPathParameters().containsKey(balancer.getStickySessionPath())) {
+                final String id = exchange.getPathParameters().get(balancer.getStickySessionPath()).getFirst();
+                final String jvmRoute = getJVMRoute(id);
+                if (jvmRoute != null) {
+                    return new ModClusterProxyTarget.ExistingSessionTarget(jvmRoute, entry.getValue(), this, balancer.isStickySessionForce());
                 }
             }
         }
@@ -178,6 +179,7 @@ class ModClusterContainer {
             // TODO compare balancer configs, if they are not equal log a warning?
             balancer = balancerConfig.build();
             balancers.put(balancerRef, balancer);
+            rebuildStickySessionBalancers();
         }
         final Node node = new Node(config, balancer, ioThread, bufferPool, this);
         nodes.put(jvmRoute, node);
@@ -193,6 +195,17 @@ class ModClusterContainer {
         return true;
     }
 
+    private void rebuildStickySessionBalancers() {
+        assert Thread.holdsLock(this);
+        final List<Balancer> sticky = new ArrayList<>();
+        for (final Balancer balancer : balancers.values()) {
+            if (balancer.isStickySession()) {
+                sticky.add(balancer);
+            }
+        }
+        stickySessionBalancers = sticky.toArray(new Balancer[sticky.size()]);
+    }
+
     /**
      * Management command enabling all contexts on the given node.
      *
@@ -288,6 +301,7 @@ class ModClusterContainer {
                 }
             }
             balancers.remove(balancerName);
+            rebuildStickySessionBalancers();
         }
         if (nodes.size() == 0) {
             // In case there are no nodes registered unschedule the task
@@ -380,7 +394,7 @@ class ModClusterContainer {
      * @return the context, {@code null} if not found
      */
     Context findNewNode(final VirtualHost.HostEntry entry) {
-        return electNode(entry.getContexts(), false, null);
+        return electNode(entry.getContextArray(), false, null);
     }
 
     /**
@@ -404,7 +418,7 @@ class ModClusterContainer {
         } else {
             failOverDomain = domain;
         }
-        final Collection<Context> contexts = entry.getContexts();
+        final Context[] contexts = entry.getContextArray();
         if (failOverDomain != null) {
             final Context context = electNode(contexts, true, failOverDomain);
             if (context != null) {
@@ -464,55 +478,59 @@ class ModClusterContainer {
         return route;
     }
 
-    static Context electNode(final Iterable<Context> contexts, final boolean existingSession, final String domain) {
+    /**
+     * Elects a node using smooth weighted round robin, where the weight of a node is the load factor it reported.
+     * Over any window of elections every node is elected in proportion to its weight, and the elections of a node
+     * are spread evenly over the window instead of happening in bursts. Nodes in hot standby are only elected if
+     * there is no other candidate, in which case the one that was elected least often since the last load update wins.
+     *
+     * @param contexts        the candidate contexts
+     * @param existingSession whether the request belongs to an existing session
+     * @param domain          the failover domain the node has to be in, or {@code null} for any domain
+     * @return the elected context, {@code null} if there is no available candidate
+     */
+    static Context electNode(final Context[] contexts, final boolean existingSession, final String domain) {
         Context elected = null;
         Node candidate = null;
-        boolean candidateHotStandby = false;
+        int candidateWeight = 0;
+        int totalWeight = 0;
+        Context standby = null;
+        Node standbyCandidate = null;
         for (Context context : contexts) {
             // Skip disabled contexts
-            if (context.checkAvailable(existingSession)) {
-                final Node node = context.getNode();
-                final boolean hotStandby = node.isHotStandby();
-                // Check that we only failover in the domain
-                if (domain != null && !domain.equals(node.getNodeConfig().getDomain())) {
-                    continue;
-                }
-                if (candidate != null) {
-                    // Check if the nodes are in hot-standby
-                    if (candidateHotStandby) {
-                        if (hotStandby) {
-                            if (candidate.getElectedDiff() > node.getElectedDiff()) {
-                                candidate = node;
-                                elected = context;
-                            }
-                        } else {
-                            candidate = node;
-                            elected = context;
-                            candidateHotStandby = hotStandby;
-                        }
-                    } else if (hotStandby) {
-                        continue;
-                    } else {
-                        // Normal election process
-                        final int lbStatus1 = candidate.getLoadStatus();
-                        final int lbStatus2 = node.getLoadStatus();
-                        if (lbStatus1 > lbStatus2) {
-                            candidate = node;
-                            elected = context;
-                            candidateHotStandby = false;
-                        }
-                    }
-                } else {
-                    candidate = node;
-                    elected = context;
-                    candidateHotStandby = hotStandby;
+            if (!context.checkAvailable(existingSession)) {
+                continue;
+            }
+            final Node node = context.getNode();
+            // Check that we only failover in the domain
+            if (domain != null && !domain.equals(node.getNodeConfig().getDomain())) {
+                continue;
+            }
+            if (node.isHotStandby()) {
+                if (standbyCandidate == null || standbyCandidate.getElectedDiff() > node.getElectedDiff()) {
+                    standbyCandidate = node;
+                    standby = context;
                 }
+                continue;
+            }
+            final NodeLbStatus lbStatus = node.getLbStatus();
+            final int weight = lbStatus.getWeight();
+            final int current = lbStatus.addCurrentWeight(weight);
+            totalWeight += weight;
+            if (candidate == null || current > candidateWeight) {
+                candidate = node;
+                candidateWeight = current;
+                elected = context;
             }
         }
         if (candidate != null) {
-            candidate.elected(); // We have a winner!
+            candidate.elected(totalWeight); // We have a winner!
+            return elected;
+        }
+        if (standbyCandidate != null) {
+            standbyCandidate.elected();
         }
-        return elected;
+        return standby;
     }
 
     void scheduleHealthCheck(final Node node, XnioIoThread ioThread) {
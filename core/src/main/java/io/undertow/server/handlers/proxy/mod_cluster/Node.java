@@ -145,6 +145,9 @@ class Node {
         }
     }
 
+    /**
+     * @return the number of times this node was elected, this wraps around after {@link Integer#MAX_VALUE} elections
+     */
     public int getElected() {
         return lbStatus.getElected();
     }
@@ -185,6 +188,19 @@ class Node {
         lbStatus.elected();
     }
 
+    /**
+     * This node won a weighted election.
+     *
+     * @param totalWeight the sum of the weights of all candidates
+     */
+    void elected(int totalWeight) {
+        lbStatus.elected(totalWeight);
+    }
+
+    NodeLbStatus getLbStatus() {
+        return lbStatus;
+    }
+
     List<VHostMapping> getVHosts() {
         return Collections.unmodifiableList(vHosts);
     }
@@ -425,6 +441,7 @@ class Node {
     protected void resetState() {
         state = ERROR;
         lbStatus.updateLoad(0);
+        lbStatus.resetCurrentWeight();
     }
 
     protected boolean isInErrorState() {
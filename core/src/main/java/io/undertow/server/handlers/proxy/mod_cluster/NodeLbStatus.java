@@ -18,37 +18,57 @@
 
 package io.undertow.server.handlers.proxy.mod_cluster;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * The load-balancing information of a node.
+ * <p/>
+ * This class does not use any locks, as it is read for every node on every election. The elected counter is allowed
+ * to wrap around, the difference between two values of the counter is still correct as long as less than
+ * {@link Integer#MAX_VALUE} elections happen between two updates.
+ * <p/>
+ * The current weight is used for smooth weighted round robin. Every election adds the weight of each candidate to its
+ * current weight, and subtracts the total weight of all candidates from the winner. All updates are atomic additions,
+ * so concurrent elections do not need a lock and the sum of the current weights is preserved.
  *
  * @author Emanuel Muckenhuber
  */
 // move this back to Node
 class NodeLbStatus {
 
+    private static final AtomicIntegerFieldUpdater<NodeLbStatus> electedUpdater = AtomicIntegerFieldUpdater.newUpdater(NodeLbStatus.class, "elected");
+    private static final AtomicIntegerFieldUpdater<NodeLbStatus> currentWeightUpdater = AtomicIntegerFieldUpdater.newUpdater(NodeLbStatus.class, "currentWeight");
+
     private volatile int oldelected;
     private volatile int lbfactor;
     private volatile int lbstatus;
     private volatile int elected;
+    private volatile int currentWeight;
 
     public int getLbFactor() {
         return lbfactor;
     }
 
+    /**
+     * Returns the number of times the node was elected. This wraps around to {@link Integer#MIN_VALUE} after
+     * {@link Integer#MAX_VALUE} elections.
+     *
+     * @return the election counter
+     */
     public int getElected() {
         return elected;
     }
 
-    synchronized int getElectedDiff() {
+    int getElectedDiff() {
         return elected - oldelected;
     }
 
     /**
-     * Update the load balancing status.
+     * Update the load balancing status. This is only called from the update load task.
      *
      * @return
      */
-    synchronized boolean update() {
+    boolean update() {
         int elected = this.elected;
         int oldelected = this.oldelected;
         int lbfactor = this.lbfactor;
@@ -59,13 +79,40 @@ class NodeLbStatus {
         return elected != oldelected; // ping if they are equal
     }
 
-    synchronized void elected() {
-        if (elected == Integer.MAX_VALUE) {
-            oldelected = (elected - oldelected);
-            elected = 1;
-        } else {
-            elected++;
-        }
+    void elected() {
+        electedUpdater.incrementAndGet(this);
+    }
+
+    /**
+     * @return the weight of the node in an election, a node that has not reported a load yet has a weight of 1
+     */
+    int getWeight() {
+        final int lbfactor = this.lbfactor;
+        return lbfactor > 0 ? lbfactor : 1;
+    }
+
+    /**
+     * Adds the weight of the node to its current weight, as the first step of an election.
+     *
+     * @param weight the weight of the node
+     * @return the new current weight
+     */
+    int addCurrentWeight(int weight) {
+        return currentWeightUpdater.addAndGet(this, weight);
+    }
+
+    /**
+     * The node won an election.
+     *
+     * @param totalWeight the sum of the weights of all candidates in the election
+     */
+    void elected(int totalWeight) {
+        currentWeightUpdater.addAndGet(this, -totalWeight);
+        electedUpdater.incrementAndGet(this);
+    }
+
+    void resetCurrentWeight() {
+        currentWeight = 0;
     }
 
     void updateLoad(int load) {
@@ -77,7 +124,7 @@ class NodeLbStatus {
      *
      * @return
      */
-    synchronized int getLbStatus() {
+    int getLbStatus() {
         int lbfactor = this.lbfactor;
         if (lbfactor > 0) {
             return (((elected - oldelected) * 1000) / lbfactor) + lbstatus;
@@ -21,6 +21,8 @@ package io.undertow.server.handlers.proxy.mod_cluster;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentMap;
@@ -31,6 +33,10 @@ import io.undertow.util.PathMatcher;
 
 /**
  * The virtual host handler.
+ * <p/>
+ * The registered contexts are held in an immutable {@code Table}, which is rebuilt whenever a context path is added
+ * or removed. A request only reads the table once, so it always sees a consistent set of paths and path lengths
+ * without taking a lock.
  *
  * @author Emanuel Muckenhuber
  */
@@ -40,12 +46,8 @@ public class VirtualHost {
     private static final String STRING_PATH_SEPARATOR = "/";
 
     private final HostEntry defaultHandler = new HostEntry(STRING_PATH_SEPARATOR);
-    private final ConcurrentMap<String, HostEntry> contexts = new CopyOnWriteMap<>();
 
-    /**
-     * lengths of all registered contexts
-     */
-    private volatile int[] lengths = {};
+    private volatile Table table = new Table(Collections.<String, HostEntry>emptyMap());
 
     protected VirtualHost() {
         //
@@ -59,7 +61,9 @@ public class VirtualHost {
      */
     PathMatcher.PathMatch<HostEntry> match(String path){
         int length = path.length();
-        final int[] lengths = this.lengths;
+        final Table table = this.table;
+        final Map<String, HostEntry> contexts = table.entries;
+        final int[] lengths = table.lengths;
         for (int i = 0; i < lengths.length; ++i) {
             int pathLength = lengths[i];
             if (pathLength == length) {
@@ -91,21 +95,21 @@ public class VirtualHost {
 
         final String normalizedPath = this.normalizeSlashes(path);
         if (STRING_PATH_SEPARATOR.equals(normalizedPath)) {
-            defaultHandler.contexts.put(jvmRoute, context);
+            defaultHandler.addContext(jvmRoute, context);
             return;
         }
 
-        boolean rebuild = false;
-        HostEntry hostEntry = contexts.get(normalizedPath);
+        HostEntry hostEntry = table.entries.get(normalizedPath);
         if (hostEntry == null) {
-            rebuild = true;
             hostEntry = new HostEntry(normalizedPath);
-            contexts.put(normalizedPath, hostEntry);
-        }
-        assert !hostEntry.contexts.containsKey(jvmRoute);
-        hostEntry.contexts.put(jvmRoute, context);
-        if (rebuild) {
-            buildLengths();
+            final Map<String, HostEntry> entries = new HashMap<>(table.entries);
+            entries.put(normalizedPath, hostEntry);
+            assert !hostEntry.contexts.containsKey(jvmRoute);
+            hostEntry.addContext(jvmRoute, context);
+            table = new Table(entries);
+        } else {
+            assert !hostEntry.contexts.containsKey(jvmRoute);
+            hostEntry.addContext(jvmRoute, context);
         }
     }
 
@@ -116,41 +120,52 @@ public class VirtualHost {
 
         final String normalizedPath = this.normalizeSlashes(path);
         if (STRING_PATH_SEPARATOR.equals(normalizedPath)) {
-            defaultHandler.contexts.remove(jvmRoute, context);
+            defaultHandler.removeContext(jvmRoute, context);
         }
 
-        final HostEntry hostEntry = contexts.get(normalizedPath);
+        final HostEntry hostEntry = table.entries.get(normalizedPath);
         if (hostEntry != null) {
-            if (hostEntry.contexts.remove(jvmRoute, context)) {
+            if (hostEntry.removeContext(jvmRoute, context)) {
                 if (hostEntry.contexts.isEmpty()) {
-                    contexts.remove(normalizedPath);
-                    buildLengths();
+                    final Map<String, HostEntry> entries = new HashMap<>(table.entries);
+                    entries.remove(normalizedPath);
+                    table = new Table(entries);
                 }
             }
         }
     }
 
     boolean isEmpty() {
-        return contexts.isEmpty() && defaultHandler.contexts.isEmpty();
+        return table.entries.isEmpty() && defaultHandler.contexts.isEmpty();
     }
 
-    private void buildLengths() {
-        final Set<Integer> lengths = new TreeSet<>(new Comparator<Integer>() {
-            @Override
-            public int compare(Integer o1, Integer o2) {
-                return -o1.compareTo(o2);
-            }
-        });
-        for (String p : contexts.keySet()) {
-            lengths.add(p.length());
-        }
+    /**
+     * An immutable index of the context paths of a virtual host, and the distinct lengths of these paths from longest
+     * to shortest, so the longest matching prefix is found with one map lookup per length.
+     */
+    private static final class Table {
 
-        int[] lengthArray = new int[lengths.size()];
-        int pos = 0;
-        for (int i : lengths) {
-            lengthArray[pos++] = i;
+        private final Map<String, HostEntry> entries;
+        private final int[] lengths;
+
+        private Table(final Map<String, HostEntry> entries) {
+            this.entries = entries;
+            final Set<Integer> lengths = new TreeSet<>(new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return -o1.compareTo(o2);
+                }
+            });
+            for (String p : entries.keySet()) {
+                lengths.add(p.length());
+            }
+            int[] lengthArray = new int[lengths.size()];
+            int pos = 0;
+            for (int i : lengths) {
+                lengthArray[pos++] = i;
+            }
+            this.lengths = lengthArray;
         }
-        this.lengths = lengthArray;
     }
 
 
@@ -192,6 +207,12 @@ public class VirtualHost {
         private final ConcurrentMap<String, Context> contexts = new CopyOnWriteMap<>();
         private final String contextPath;
 
+        /**
+         * Snapshot of the registered contexts, rebuilt when a context is added or removed so an election can iterate
+         * over an array without allocating.
+         */
+        private volatile Context[] contextArray = {};
+
         HostEntry(String contextPath) {
             this.contextPath = contextPath;
         }
@@ -219,6 +240,28 @@ public class VirtualHost {
             return Collections.unmodifiableCollection(contexts.values());
         }
 
+        /**
+         * Get all registered contexts. The returned array must not be modified.
+         *
+         * @return
+         */
+        Context[] getContextArray() {
+            return contextArray;
+        }
+
+        private void addContext(final String jvmRoute, final Context context) {
+            contexts.put(jvmRoute, context);
+            contextArray = contexts.values().toArray(new Context[contexts.size()]);
+        }
+
+        private boolean removeContext(final String jvmRoute, final Context context) {
+            if (contexts.remove(jvmRoute, context)) {
+                contextArray = contexts.values().toArray(new Context[contexts.size()]);
+                return true;
+            }
+            return false;
+        }
+
     }
 
 
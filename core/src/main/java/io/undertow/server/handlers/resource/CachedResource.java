@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -37,9 +38,13 @@ import io.undertow.util.ETag;
 import io.undertow.util.MimeMappings;
 
 /**
+ * A resource that is cached by a {@link CachingResourceManager}. If the resource data is in the buffer cache
+ * it is served directly from the cache, including range requests, which are served from slices of the cached
+ * buffers.
+ *
  * @author Stuart Douglas
  */
-public class CachedResource implements Resource {
+public class CachedResource implements Resource, RangeAwareResource {
 
     private final CacheKey cacheKey;
     private final CachingResourceManager cachingResourceManager;
@@ -186,6 +191,60 @@ public class CachedResource implements Resource {
         }
     }
 
+    @Override
+    public void serveRange(final Sender sender, final HttpServerExchange exchange, final long start, final long end, final IoCallback completionCallback) {
+        final DirectBufferCache dataCache = cachingResourceManager.getDataCache();
+        if (dataCache == null) {
+            ((RangeAwareResource) underlyingResource).serveRange(sender, exchange, start, end, completionCallback);
+            return;
+        }
+        final DirectBufferCache.CacheEntry existing = dataCache.get(cacheKey);
+        if (existing == null || !existing.enabled() || !existing.reference()) {
+            ((RangeAwareResource) underlyingResource).serveRange(sender, exchange, start, end, completionCallback);
+            return;
+        }
+        //serve the range from slices of the cached buffers
+        final ByteBuffer[] buffers;
+        boolean ok = false;
+        try {
+            LimitedBufferSlicePool.PooledByteBuffer[] pooled = existing.buffers();
+            final List<ByteBuffer> slices = new ArrayList<>(pooled.length);
+            long pos = 0;
+            for (LimitedBufferSlicePool.PooledByteBuffer buffer : pooled) {
+                final ByteBuffer data = buffer.getResource().duplicate();
+                final long bufferStart = pos;
+                final long bufferEnd = pos + data.remaining();
+                pos = bufferEnd;
+                if (bufferEnd <= start) {
+                    continue;
+                }
+                if (bufferStart > end) {
+                    break;
+                }
+                if (start > bufferStart) {
+                    data.position(data.position() + (int) (start - bufferStart));
+                }
+                if (end + 1 < bufferEnd) {
+                    data.limit(data.limit() - (int) (bufferEnd - end - 1));
+                }
+                slices.add(data);
+            }
+            buffers = slices.toArray(new ByteBuffer[slices.size()]);
+            ok = true;
+        } finally {
+            if (!ok) {
+                existing.dereference();
+            }
+        }
+        sender.send(buffers, new DereferenceCallback(existing, completionCallback));
+    }
+
+    @Override
+    public boolean isRangeSupported() {
+        //if the data is not cached we need to be able to fall back to the underlying resource
+        return underlyingResource instanceof RangeAwareResource && ((RangeAwareResource) underlyingResource).isRangeSupported();
+    }
+
     @Override
     public Long getContentLength() {
         //we always use the underlying size unless the data is cached in the buffer cache
@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers.resource;
+
+import java.util.Collection;
+
+import io.undertow.server.handlers.cache.LRUCache;
+import io.undertow.util.ETag;
+
+/**
+ * Cache of rendered directory listings, keyed by request path.
+ * <p/>
+ * A cached listing is only used if the last modified date of the directory has not changed. As the last modified
+ * date of a directory does not change when a file in the directory is modified, this cache should be registered as
+ * a {@link ResourceChangeListener} if the resource manager supports it, otherwise the maximum age limits how out
+ * of date a listing can be.
+ *
+ * @author Stuart Douglas
+ */
+public class DirectoryListingCache implements ResourceChangeListener {
+
+    private final LRUCache<String, Listing> cache;
+
+    /**
+     * Incremented every time the cache is cleared. A listing that was rendered before a clear is not added to the
+     * cache afterwards.
+     */
+    private volatile int generation;
+
+    /**
+     * @param maxEntries The maximum number of listings to cache
+     * @param maxAge     The maximum time in milliseconds to cache a listing for, or -1 for no limit
+     */
+    public DirectoryListingCache(final int maxEntries, final int maxAge) {
+        this.cache = new LRUCache<>(maxEntries, maxAge);
+    }
+
+    Listing get(final String path, final long lastModified) {
+        final Listing listing = cache.get(path);
+        if (listing == null) {
+            return null;
+        }
+        if (listing.lastModified != lastModified) {
+            cache.remove(path);
+            return null;
+        }
+        return listing;
+    }
+
+    /**
+     * @return The current generation, which must be read before the directory is listed
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    void add(final String path, final Listing listing, final int generation) {
+        cache.add(path, listing);
+        if (this.generation != generation) {
+            //the cache was cleared while the listing was being rendered, so it may already be out of date
+            cache.remove(path);
+        }
+    }
+
+    public synchronized void clear() {
+        //the generation is incremented before the cache is cleared, so a listing is either added before the clear
+        //or sees the new generation
+        generation++;
+        cache.clear();
+    }
+
+    @Override
+    public void handleChanges(final Collection<ResourceChangeEvent> changes) {
+        //changes are rare, so we just clear everything rather than working out which listings are affected
+        clear();
+    }
+
+    static final class Listing {
+        final byte[] data;
+        final ETag etag;
+        final long lastModified;
+
+        Listing(final byte[] data, final ETag etag, final long lastModified) {
+            this.data = data;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -18,14 +18,17 @@
 
 package io.undertow.server.handlers.resource;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 
 import io.undertow.UndertowLogger;
 import io.undertow.server.HttpServerExchange;
@@ -45,6 +48,12 @@ import org.xnio.channels.Channels;
 public class DirectoryUtils {
 
     private static final Charset US_ASCII = Charset.forName("US-ASCII");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Listings with more entries than this are streamed rather than rendered in memory, if they are not being cached
+     */
+    private static final int STREAMING_THRESHOLD = 1000;
 
     /**
      * Serve static resource for the directory listing
@@ -92,10 +101,20 @@ public class DirectoryUtils {
     }
 
     public static StringBuilder renderDirectoryListing(String path, Resource resource) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            renderDirectoryListing(path, resource, resource.list(), builder);
+        } catch (IOException e) {
+            //cannot happen when appending to a StringBuilder
+            throw new IllegalStateException(e);
+        }
+        return builder;
+    }
+
+    private static void renderDirectoryListing(String path, Resource resource, List<Resource> entries, Appendable builder) throws IOException {
         if (!path.endsWith("/")){
             path += "/";
         }
-        StringBuilder builder = new StringBuilder();
         builder.append("<html>\n<head>\n<script src='").append(path).append("?js'></script>\n")
                 .append("<link rel='stylesheet' type='text/css' href='").append(path).append("?css' />\n</head>\n");
         builder.append("<body onresize='growit()' onload='growit()'>\n<table id='thetable'>\n<thead>\n");
@@ -133,7 +152,7 @@ public class DirectoryUtils {
             builder.append(format.format(resource.getLastModified())).append("</td><td>--</td></tr>\n");
         }
 
-        for (Resource entry : resource.list()) {
+        for (Resource entry : entries) {
             builder.append("<tr class='").append((++i & 1) == 1 ? "odd" : "even").append("'><td><a class='icon ");
             builder.append(entry.isDirectory() ? "dir" : "file");
             builder.append("' href='").append(path).append(entry.getName()).append("'>").append(entry.getName()).append("</a></td><td>");
@@ -146,12 +165,26 @@ public class DirectoryUtils {
             builder.append("</td></tr>\n");
         }
         builder.append("</tbody>\n</table>\n</body>\n</html>");
-
-        return builder;
-
     }
 
     public static void renderDirectoryListing(HttpServerExchange exchange, Resource resource) {
+        renderDirectoryListing(exchange, resource, null);
+    }
+
+    /**
+     * Renders a directory listing. Listings are sent with a strong ETag, and conditional requests are answered with
+     * a 304 if the listing has not changed.
+     * <p/>
+     * If a cache is provided the rendered listing is cached until the directory changes. Otherwise large listings are
+     * streamed to the client as they are rendered, rather than being built up in memory first. As the ETag is a hash
+     * of the whole listing, streamed listings are sent without one. This method may block, so must not be called from
+     * an IO thread.
+     *
+     * @param exchange The exchange
+     * @param resource The directory
+     * @param cache    The listing cache, may be null
+     */
+    public static void renderDirectoryListing(HttpServerExchange exchange, Resource resource, DirectoryListingCache cache) {
         String requestPath = exchange.getRequestPath();
         if (! requestPath.endsWith("/")) {
             exchange.setResponseCode(StatusCodes.FOUND);
@@ -160,17 +193,38 @@ public class DirectoryUtils {
             return;
         }
 
-        StringBuilder builder = renderDirectoryListing(requestPath, resource);
-
         try {
-            ByteBuffer output = ByteBuffer.wrap(builder.toString().getBytes("UTF-8"));
+            final Date lastModified = cache == null ? null : resource.getLastModified();
+            DirectoryListingCache.Listing listing = null;
+            if (lastModified != null) {
+                listing = cache.get(requestPath, lastModified.getTime());
+            }
+            if (listing == null) {
+                final int generation = cache == null ? 0 : cache.getGeneration();
+                final List<Resource> entries = resource.list();
+                if (cache == null && entries.size() > STREAMING_THRESHOLD) {
+                    streamDirectoryListing(exchange, requestPath, resource, entries);
+                    return;
+                }
+                StringBuilder builder = new StringBuilder();
+                renderDirectoryListing(requestPath, resource, entries, builder);
+                final byte[] data = builder.toString().getBytes(UTF_8);
+                listing = new DirectoryListingCache.Listing(data, new ETag(false, md5(data)), lastModified == null ? -1 : lastModified.getTime());
+                if (lastModified != null) {
+                    cache.add(requestPath, listing, generation);
+                }
+            }
+            if (!ETagUtils.handleIfNoneMatch(exchange, listing.etag, false)) {
+                exchange.setResponseCode(StatusCodes.NOT_MODIFIED);
+                exchange.endExchange();
+                return;
+            }
             exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/html; charset=UTF-8");
-            exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, String.valueOf(output.limit()));
+            exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, String.valueOf(listing.data.length));
             exchange.getResponseHeaders().put(Headers.LAST_MODIFIED, DateUtils.toDateString(new Date()));
             exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, "must-revalidate");
-            Channels.writeBlocking(exchange.getResponseChannel(), output);
-        } catch (UnsupportedEncodingException e) {
-            throw new IllegalStateException(e);
+            exchange.getResponseHeaders().put(Headers.ETAG, listing.etag.toString());
+            Channels.writeBlocking(exchange.getResponseChannel(), ByteBuffer.wrap(listing.data));
         } catch (IOException e) {
             UndertowLogger.REQUEST_IO_LOGGER.ioException(e);
             exchange.setResponseCode(StatusCodes.INTERNAL_SERVER_ERROR);
@@ -179,8 +233,21 @@ public class DirectoryUtils {
         exchange.endExchange();
     }
 
+    private static void streamDirectoryListing(HttpServerExchange exchange, String requestPath, Resource resource, List<Resource> entries) throws IOException {
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/html; charset=UTF-8");
+        exchange.getResponseHeaders().put(Headers.LAST_MODIFIED, DateUtils.toDateString(new Date()));
+        exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, "must-revalidate");
+        if (!exchange.isBlocking()) {
+            exchange.startBlocking();
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getOutputStream(), UTF_8))) {
+            renderDirectoryListing(requestPath, resource, entries, writer);
+        }
+        exchange.endExchange();
+    }
+
 
-    private static StringBuilder formatSize(StringBuilder builder, Long size) {
+    private static Appendable formatSize(Appendable builder, Long size) throws IOException {
         if(size == null) {
             builder.append("???");
             return builder;
@@ -196,12 +263,12 @@ public class DirectoryUtils {
         long bottom =  top % 100;
         top /= 100;
 
-        builder.append(top);
+        builder.append(String.valueOf(top));
         if (bottom > 0) {
-            builder.append(".").append(bottom / 10);
+            builder.append(".").append(String.valueOf(bottom / 10));
             bottom %= 10;
             if (bottom > 0) {
-                builder.append(bottom);
+                builder.append(String.valueOf(bottom));
             }
 
         }
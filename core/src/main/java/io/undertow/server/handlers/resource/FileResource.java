@@ -52,10 +52,21 @@ public class FileResource implements RangeAwareResource {
     private final String path;
     private final FileResourceManager manager;
 
+    /**
+     * The file metadata, read once when the resource is created. This is only used if the resource manager caches
+     * resources, otherwise it is null and the file system is queried every time.
+     */
+    private final Metadata metadata;
+
     public FileResource(final File file, final FileResourceManager manager, String path) {
+        this(file, manager, path, false);
+    }
+
+    FileResource(final File file, final FileResourceManager manager, String path, boolean cacheMetadata) {
         this.file = file;
         this.path = path;
         this.manager = manager;
+        this.metadata = cacheMetadata ? new Metadata(file) : null;
     }
 
     @Override
@@ -65,11 +76,17 @@ public class FileResource implements RangeAwareResource {
 
     @Override
     public Date getLastModified() {
+        if (metadata != null) {
+            return new Date(metadata.lastModified);
+        }
         return new Date(file.lastModified());
     }
 
     @Override
     public String getLastModifiedString() {
+        if (metadata != null) {
+            return metadata.lastModifiedString;
+        }
         final Date lastModified = getLastModified();
         if (lastModified == null) {
             return null;
@@ -89,6 +106,9 @@ public class FileResource implements RangeAwareResource {
 
     @Override
     public boolean isDirectory() {
+        if (metadata != null) {
+            return metadata.directory;
+        }
         return file.isDirectory();
     }
 
@@ -247,7 +267,7 @@ public class FileResource implements RangeAwareResource {
             }
         }
 
-        BaseFileTask task = manager.getTransferMinSize() > file.length() || range ? new ServerTask() : new TransferTask();
+        BaseFileTask task = manager.getTransferMinSize() > getContentLength() || range ? new ServerTask() : new TransferTask();
         if (exchange.isInIoThread()) {
             exchange.dispatch(task);
         } else {
@@ -257,6 +277,9 @@ public class FileResource implements RangeAwareResource {
 
     @Override
     public Long getContentLength() {
+        if (metadata != null) {
+            return metadata.length;
+        }
         return file.length();
     }
 
@@ -288,4 +311,18 @@ public class FileResource implements RangeAwareResource {
     public boolean isRangeSupported() {
         return true;
     }
+
+    private static final class Metadata {
+        final boolean directory;
+        final long length;
+        final long lastModified;
+        final String lastModifiedString;
+
+        Metadata(final File file) {
+            this.directory = file.isDirectory();
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+            this.lastModifiedString = DateUtils.toDateString(lastModified);
+        }
+    }
 }
@@ -30,6 +30,7 @@ import java.util.TreeSet;
 
 import io.undertow.UndertowLogger;
 import io.undertow.UndertowMessages;
+import io.undertow.server.handlers.cache.LRUCache;
 import org.xnio.FileChangeCallback;
 import org.xnio.FileChangeEvent;
 import org.xnio.FileSystemWatcher;
@@ -38,9 +39,20 @@ import org.xnio.Xnio;
 
 /**
  * Serves files from the file system.
+ * <p/>
+ * Resolving a path requires several file system calls, to check that the file exists and that it is not reached
+ * through a symbolic link that is not allowed. If a {@link #setMetadataCache(int, int) metadata cache} is configured
+ * the result of the lookup is cached, including the size and last modified time of the file. Paths that do not exist
+ * are also cached, so repeated requests for missing files do not hit the file system. The cache is cleared whenever
+ * the file system watcher reports a change under the base directory.
  */
 public class FileResourceManager implements ResourceManager {
 
+    /**
+     * Marker for paths that do not resolve to a resource
+     */
+    private static final Object NOT_FOUND = new Object();
+
     private final List<ResourceChangeListener> listeners = new ArrayList<>();
 
     private FileSystemWatcher fileSystemWatcher;
@@ -68,6 +80,17 @@ public class FileResourceManager implements ResourceManager {
      */
     private final TreeSet<String> safePaths = new TreeSet<String>();
 
+    /**
+     * Cache of resolved resources, or {@link #NOT_FOUND}, keyed by path. Null if metadata caching is disabled.
+     */
+    private volatile LRUCache<String, Object> metadataCache;
+
+    /**
+     * Incremented every time the metadata cache is cleared. A lookup that raced with a clear does not leave its
+     * possibly stale result in the cache.
+     */
+    private volatile int cacheGeneration;
+
     public FileResourceManager(final File base, long transferMinSize) {
         this(base, transferMinSize, true, false, null);
     }
@@ -118,6 +141,25 @@ public class FileResourceManager implements ResourceManager {
             basePath = basePath + '/';
         }
         this.base = basePath;
+        clearMetadataCache();
+        return this;
+    }
+
+    /**
+     * Enables caching of resolved resources and their metadata. A file system watcher is started to clear the cache
+     * when files under the base directory change, the maximum age is a fallback for file systems where changes are
+     * not reported.
+     *
+     * @param maxEntries The maximum number of paths to cache, or 0 to disable the cache
+     * @param maxAge     The maximum time in milliseconds to cache a path for, or -1 for no limit
+     */
+    public synchronized FileResourceManager setMetadataCache(final int maxEntries, final int maxAge) {
+        if (maxEntries <= 0) {
+            metadataCache = null;
+        } else {
+            metadataCache = new LRUCache<>(maxEntries, maxAge);
+            startWatcher();
+        }
         return this;
     }
 
@@ -129,16 +171,48 @@ public class FileResourceManager implements ResourceManager {
         } else {
             path = p;
         }
+        final LRUCache<String, Object> cache = metadataCache;
+        if (cache != null) {
+            final Object cached = cache.get(path);
+            if (cached == NOT_FOUND) {
+                return null;
+            } else if (cached != null) {
+                return (Resource) cached;
+            }
+        }
+        final int generation = cacheGeneration;
+        final Resource resource = lookupResource(path, cache != null);
+        if (cache != null) {
+            cache.add(path, resource == null ? NOT_FOUND : resource);
+            if (cacheGeneration != generation) {
+                //the cache was cleared while we were looking up the resource, so the result may already be out of date
+                cache.remove(path);
+            }
+        }
+        return resource;
+    }
+
+    private synchronized void clearMetadataCache() {
+        //the generation is incremented before the cache is cleared, so a lookup either sees the new generation or
+        //added its entry before the clear
+        cacheGeneration++;
+        final LRUCache<String, Object> cache = metadataCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private Resource lookupResource(final String path, final boolean cacheMetadata) {
         try {
             File file = new File(base, path);
             if (file.exists()) {
                 boolean isSymlinkPath = isSymlinkPath(base, file);
                 if (isSymlinkPath) {
                     if (this.followLinks && isSymlinkSafe(file)) {
-                        return getFileResource(file, path);
+                        return getFileResource(file, path, cacheMetadata);
                     }
                 } else {
-                    return getFileResource(file, path);
+                    return getFileResource(file, path, cacheMetadata);
                 }
             }
             return null;
@@ -156,12 +230,19 @@ public class FileResourceManager implements ResourceManager {
     @Override
     public synchronized void registerResourceChangeListener(ResourceChangeListener listener) {
         listeners.add(listener);
+        startWatcher();
+    }
+
+    private void startWatcher() {
         if (fileSystemWatcher == null) {
             fileSystemWatcher = Xnio.getInstance().createFileSystemWatcher("Watcher for " + base, OptionMap.EMPTY);
             fileSystemWatcher.watchPath(new File(base), new FileChangeCallback() {
                 @Override
                 public void handleChanges(Collection<FileChangeEvent> changes) {
                     synchronized (FileResourceManager.this) {
+                        //changes are rare, so we just clear everything. This also takes care of paths that reach
+                        //the changed file through a symlink or a non canonical path
+                        clearMetadataCache();
                         final List<ResourceChangeEvent> events = new ArrayList<>();
                         for (FileChangeEvent change : changes) {
                             if (change.getFile().getAbsolutePath().startsWith(base)) {
@@ -274,15 +355,15 @@ public class FileResourceManager implements ResourceManager {
     /**
      * Apply security check for case insensitive file systems.
      */
-    private FileResource getFileResource(final File file, final String path) throws IOException {
+    private FileResource getFileResource(final File file, final String path, final boolean cacheMetadata) throws IOException {
         if (this.caseSensitive) {
             if (isFileSameCase(file)) {
-                return new FileResource(file, this, path);
+                return new FileResource(file, this, path, cacheMetadata);
             } else {
                 return null;
             }
         } else {
-            return new FileResource(file, this, path);
+            return new FileResource(file, this, path, cacheMetadata);
         }
     }
 }
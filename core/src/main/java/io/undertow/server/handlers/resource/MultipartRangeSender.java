@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers.resource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.ByteRange;
+
+/**
+ * Sends a multipart/byteranges response for a range aware resource. The multipart framing and each range are
+ * sent in turn, with each range being served by {@link RangeAwareResource#serveRange}.
+ * <p/>
+ * The response headers, including the content type and length from {@link ByteRange.MultipartByteRanges},
+ * must have already been set.
+ *
+ * @author Stuart Douglas
+ */
+public final class MultipartRangeSender implements IoCallback {
+
+    private final RangeAwareResource resource;
+    private final List<ByteRange.Range> ranges;
+    private final ByteRange.MultipartByteRanges multipart;
+    private final IoCallback completionCallback;
+    private int step;
+
+    private MultipartRangeSender(final RangeAwareResource resource, final List<ByteRange.Range> ranges, final ByteRange.MultipartByteRanges multipart, final IoCallback completionCallback) {
+        this.resource = resource;
+        this.ranges = ranges;
+        this.multipart = multipart;
+        this.completionCallback = completionCallback;
+    }
+
+    /**
+     * @param resource           The resource
+     * @param sender             The sender to use
+     * @param exchange           The exchange
+     * @param ranges             The resolved ranges
+     * @param multipart          The multipart framing for the ranges
+     * @param completionCallback The callback to invoke once the whole response has been sent
+     */
+    public static void serve(final RangeAwareResource resource, final Sender sender, final HttpServerExchange exchange, final List<ByteRange.Range> ranges, final ByteRange.MultipartByteRanges multipart, final IoCallback completionCallback) {
+        new MultipartRangeSender(resource, ranges, multipart, completionCallback).onComplete(exchange, sender);
+    }
+
+    @Override
+    public void onComplete(final HttpServerExchange exchange, final Sender sender) {
+        final int current = step++;
+        final int part = current / 2;
+        if (part == ranges.size()) {
+            sender.send(ByteBuffer.wrap(multipart.getTrailer()), completionCallback);
+        } else if (current % 2 == 0) {
+            sender.send(ByteBuffer.wrap(multipart.getPartHeader(part)), this);
+        } else {
+            final ByteRange.Range range = ranges.get(part);
+            resource.serveRange(sender, exchange, range.getStart(), range.getEnd(), this);
+        }
+    }
+
+    @Override
+    public void onException(final HttpServerExchange exchange, final Sender sender, final IOException exception) {
+        completionCallback.onException(exchange, sender, exception);
+    }
+}
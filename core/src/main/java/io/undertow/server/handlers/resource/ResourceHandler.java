@@ -97,6 +97,8 @@ public class ResourceHandler implements HttpHandler {
 
     private volatile ContentEncodedResourceManager contentEncodedResourceManager;
 
+    private volatile DirectoryListingCache directoryListingCache;
+
     /**
      * Handler that is called if no resource is found
      */
@@ -153,7 +155,7 @@ public class ResourceHandler implements HttpHandler {
             exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, "public, max-age=" + cacheTime);
             if (System.currentTimeMillis() > lastExpiryDate) {
                 long date = System.currentTimeMillis();
-                lastExpiryHeader = DateUtils.toDateString(new Date(date));
+                lastExpiryHeader = DateUtils.toDateString(date);
                 lastExpiryDate = date;
             }
             exchange.getResponseHeaders().put(Headers.EXPIRES, lastExpiryHeader);
@@ -201,7 +203,7 @@ public class ResourceHandler implements HttpHandler {
                     }
                     if (indexResource == null) {
                         if (directoryListingEnabled) {
-                            DirectoryUtils.renderDirectoryListing(exchange, resource);
+                            DirectoryUtils.renderDirectoryListing(exchange, resource, directoryListingCache);
                             return;
                         } else {
                             exchange.setResponseCode(StatusCodes.FORBIDDEN);
@@ -237,43 +239,12 @@ public class ResourceHandler implements HttpHandler {
                 if (contentLength != null) {
                     exchange.setResponseContentLength(contentLength);
                 }
-                ByteRange range = null;
-                long start = -1, end = -1;
+                List<ByteRange.Range> ranges = null;
                 if(resource instanceof RangeAwareResource && ((RangeAwareResource)resource).isRangeSupported() && contentLength != null && contentEncodedResourceManager == null) {
                     //TODO: figure out what to do with the content encoded resource manager
-                    range = ByteRange.parse(exchange.getRequestHeaders().getFirst(Headers.RANGE));
-                    if(range != null && range.getRanges() == 1) {
-                        start = range.getStart(0);
-                        end = range.getEnd(0);
-                        if(start == -1 ) {
-                            //suffix range
-                            long toWrite = end;
-                            if(toWrite >= 0) {
-                                exchange.setResponseContentLength(toWrite);
-                            } else {
-                                //ignore the range request
-                                range = null;
-                            }
-                            start = contentLength - end;
-                            end = contentLength;
-                        } else if(end == -1) {
-                            //prefix range
-                            long toWrite = contentLength - start;
-                            if(toWrite >= 0) {
-                                exchange.setResponseContentLength(toWrite);
-                            } else {
-                                //ignore the range request
-                                range = null;
-                            }
-                            end = contentLength;
-                        } else {
-                            long toWrite = end - start + 1;
-                            exchange.setResponseContentLength(toWrite);
-                        }
-                        if(range != null) {
-                            exchange.setResponseCode(StatusCodes.PARTIAL_CONTENT);
-                            exchange.getResponseHeaders().put(Headers.CONTENT_RANGE, range.getStart(0) + "-" + range.getEnd(0) + "/" + contentLength);
-                        }
+                    ByteRange range = ByteRange.parse(exchange.getRequestHeaders().getFirst(Headers.RANGE));
+                    if(range != null) {
+                        ranges = range.resolve(contentLength);
                     }
                 }
                 //we are going to proceed. Set the appropriate headers
@@ -292,6 +263,25 @@ public class ResourceHandler implements HttpHandler {
                 if (etag != null) {
                     exchange.getResponseHeaders().put(Headers.ETAG, etag.toString());
                 }
+                ByteRange.MultipartByteRanges multipart = null;
+                if (ranges != null && ranges.size() > 1) {
+                    multipart = ByteRange.MultipartByteRanges.create(ranges, exchange.getResponseHeaders().getFirst(Headers.CONTENT_TYPE), contentLength);
+                    if (multipart == null) {
+                        //the multipart response would be larger than the resource, send the full resource instead
+                        ranges = null;
+                    }
+                }
+                if (ranges != null) {
+                    exchange.setResponseCode(StatusCodes.PARTIAL_CONTENT);
+                    if (ranges.size() == 1) {
+                        final ByteRange.Range single = ranges.get(0);
+                        exchange.setResponseContentLength(single.getEnd() - single.getStart() + 1);
+                        exchange.getResponseHeaders().put(Headers.CONTENT_RANGE, ByteRange.contentRange(single, contentLength));
+                    } else {
+                        exchange.setResponseContentLength(multipart.getContentLength());
+                        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, multipart.getContentType());
+                    }
+                }
 
                 if (contentEncodedResourceManager != null) {
                     try {
@@ -314,8 +304,10 @@ public class ResourceHandler implements HttpHandler {
 
                 if (!sendContent) {
                     exchange.endExchange();
-                } else if(range != null) {
-                    ((RangeAwareResource)resource).serveRange(exchange.getResponseSender(), exchange, start, end, IoCallback.END_EXCHANGE);
+                } else if(multipart != null) {
+                    MultipartRangeSender.serve((RangeAwareResource) resource, exchange.getResponseSender(), exchange, ranges, multipart, IoCallback.END_EXCHANGE);
+                } else if(ranges != null) {
+                    ((RangeAwareResource)resource).serveRange(exchange.getResponseSender(), exchange, ranges.get(0).getStart(), ranges.get(0).getEnd(), IoCallback.END_EXCHANGE);
                 } else {
                     resource.serve(exchange.getResponseSender(), exchange, IoCallback.END_EXCHANGE);
                 }
@@ -404,11 +396,51 @@ public class ResourceHandler implements HttpHandler {
         return resourceManager;
     }
 
-    public ResourceHandler setResourceManager(final ResourceManager resourceManager) {
+    public synchronized ResourceHandler setResourceManager(final ResourceManager resourceManager) {
+        final DirectoryListingCache listingCache = this.directoryListingCache;
+        if (listingCache != null) {
+            removeChangeListener(this.resourceManager, listingCache);
+            addChangeListener(resourceManager, listingCache);
+        }
         this.resourceManager = resourceManager;
         return this;
     }
 
+    /**
+     * Enables caching of rendered directory listings. If the resource manager supports change notifications the
+     * cache is cleared when resources change, otherwise the maximum age limits how long a listing can be out of date
+     * for, as modifying a file does not change the last modified date of its directory.
+     *
+     * @param maxEntries The maximum number of listings to cache, or 0 to disable the cache
+     * @param maxAge     The maximum time in milliseconds to cache a listing for, or -1 for no limit
+     */
+    public synchronized ResourceHandler setDirectoryListingCache(final int maxEntries, final int maxAge) {
+        final DirectoryListingCache old = this.directoryListingCache;
+        if (old != null) {
+            removeChangeListener(resourceManager, old);
+        }
+        if (maxEntries <= 0) {
+            this.directoryListingCache = null;
+        } else {
+            final DirectoryListingCache listingCache = new DirectoryListingCache(maxEntries, maxAge);
+            addChangeListener(resourceManager, listingCache);
+            this.directoryListingCache = listingCache;
+        }
+        return this;
+    }
+
+    private static void addChangeListener(final ResourceManager resourceManager, final ResourceChangeListener listener) {
+        if (resourceManager != null && resourceManager.isResourceChangeListenerSupported()) {
+            resourceManager.registerResourceChangeListener(listener);
+        }
+    }
+
+    private static void removeChangeListener(final ResourceManager resourceManager, final ResourceChangeListener listener) {
+        if (resourceManager != null && resourceManager.isResourceChangeListenerSupported()) {
+            resourceManager.removeResourceChangeListener(listener);
+        }
+    }
+
     public Integer getCacheTime() {
         return cacheTime;
     }
@@ -162,6 +162,7 @@ final class AjpServerResponseConduit extends AbstractFramedStreamSinkConduit {
 
             //merge the cookies into the header map
             Connectors.flattenCookies(exchange);
+            Connectors.flattenResponseHeaderBlock(exchange);
 
             Pooled<ByteBuffer> pooled = pool.allocate();
             ByteBuffer buffer = pooled.getResource();
@@ -62,7 +62,9 @@ import static io.undertow.util.Headers.PROXY_AUTHORIZATION_STRING;
 import static io.undertow.util.Headers.RANGE_STRING;
 import static io.undertow.util.Headers.REFERER_STRING;
 import static io.undertow.util.Headers.REFRESH_STRING;
+import static io.undertow.util.Headers.SEC_WEB_SOCKET_EXTENSIONS_STRING;
 import static io.undertow.util.Headers.SEC_WEB_SOCKET_KEY_STRING;
+import static io.undertow.util.Headers.SEC_WEB_SOCKET_PROTOCOL_STRING;
 import static io.undertow.util.Headers.SEC_WEB_SOCKET_VERSION_STRING;
 import static io.undertow.util.Headers.SERVER_STRING;
 import static io.undertow.util.Headers.SSL_CIPHER_STRING;
@@ -70,12 +72,17 @@ import static io.undertow.util.Headers.SSL_CIPHER_USEKEYSIZE_STRING;
 import static io.undertow.util.Headers.SSL_CLIENT_CERT_STRING;
 import static io.undertow.util.Headers.SSL_SESSION_ID_STRING;
 import static io.undertow.util.Headers.STRICT_TRANSPORT_SECURITY_STRING;
+import static io.undertow.util.Headers.TE_STRING;
 import static io.undertow.util.Headers.TRAILER_STRING;
 import static io.undertow.util.Headers.TRANSFER_ENCODING_STRING;
 import static io.undertow.util.Headers.UPGRADE_STRING;
 import static io.undertow.util.Headers.USER_AGENT_STRING;
 import static io.undertow.util.Headers.VIA_STRING;
 import static io.undertow.util.Headers.WARNING_STRING;
+import static io.undertow.util.Headers.X_FORWARDED_FOR_STRING;
+import static io.undertow.util.Headers.X_FORWARDED_HOST_STRING;
+import static io.undertow.util.Headers.X_FORWARDED_PORT_STRING;
+import static io.undertow.util.Headers.X_FORWARDED_PROTO_STRING;
 import static io.undertow.util.Methods.CONNECT_STRING;
 import static io.undertow.util.Methods.DELETE_STRING;
 import static io.undertow.util.Methods.GET_STRING;
@@ -138,7 +145,9 @@ import static io.undertow.util.Protocols.HTTP_2_0_STRING;
                 RANGE_STRING,
                 REFERER_STRING,
                 REFRESH_STRING,
+                SEC_WEB_SOCKET_EXTENSIONS_STRING,
                 SEC_WEB_SOCKET_KEY_STRING,
+                SEC_WEB_SOCKET_PROTOCOL_STRING,
                 SEC_WEB_SOCKET_VERSION_STRING,
                 SERVER_STRING,
                 SSL_CLIENT_CERT_STRING,
@@ -146,12 +155,17 @@ import static io.undertow.util.Protocols.HTTP_2_0_STRING;
                 SSL_SESSION_ID_STRING,
                 SSL_CIPHER_USEKEYSIZE_STRING,
                 STRICT_TRANSPORT_SECURITY_STRING,
+                TE_STRING,
                 TRAILER_STRING,
                 TRANSFER_ENCODING_STRING,
                 UPGRADE_STRING,
                 USER_AGENT_STRING,
                 VIA_STRING,
-                WARNING_STRING
+                WARNING_STRING,
+                X_FORWARDED_FOR_STRING,
+                X_FORWARDED_HOST_STRING,
+                X_FORWARDED_PORT_STRING,
+                X_FORWARDED_PROTO_STRING
         })
 public abstract class HttpRequestParser {
 
@@ -456,73 +470,58 @@ public abstract class HttpRequestParser {
     @SuppressWarnings("unused")
     final void handleQueryParameters(ByteBuffer buffer, ParseState state, HttpServerExchange exchange) {
         StringBuilder stringBuilder = state.stringBuilder;
-        int queryParamPos = state.pos;
         int mapCount = state.mapCount;
-        boolean urlDecodeRequired = state.urlDecodeRequired;
-        String nextQueryParam = state.nextQueryParam;
 
-        //so this is a bit funky, because it not only deals with parsing, but
-        //also deals with URL decoding the query parameters as well, while also
-        //maintaining a non-decoded version to use as the query string
-        //In most cases these string will be the same, and as we do not want to
-        //build up two separate strings we don't use encodedStringBuilder unless
-        //we encounter an encoded character
+        //the query parameters are not decoded here, we just keep the raw query string
+        //and let the exchange parse it if the parameters are actually requested
+        //we still count the parameters and check the escapes, so requests with too many or
+        //malformed parameters are rejected before they are dispatched
 
         while (buffer.hasRemaining()) {
             char next = (char) (buffer.get() & 0xFF);
             if (next == ' ' || next == '\t') {
                 final String queryString = stringBuilder.toString();
-                exchange.setQueryString(queryString);
-                if (nextQueryParam == null) {
-                    if (queryParamPos != stringBuilder.length()) {
-                        exchange.addQueryParam(decode(stringBuilder.substring(queryParamPos), urlDecodeRequired, state, true), "");
-                    }
-                } else {
-                    exchange.addQueryParam(nextQueryParam, decode(stringBuilder.substring(queryParamPos), urlDecodeRequired, state, true));
+                if (state.urlDecodeRequired) {
+                    validateEscapes(queryString);
                 }
+                exchange.setQueryString(queryString);
+                exchange.setUnparsedQueryParameters(queryString, decode ? charset : null);
                 state.state = ParseState.VERSION;
                 state.stringBuilder.setLength(0);
                 state.pos = 0;
-                state.nextQueryParam = null;
                 state.urlDecodeRequired = false;
                 state.mapCount = 0;
                 return;
             } else if (next == '\r' || next == '\n') {
                 throw UndertowMessages.MESSAGES.failedToParsePath();
             } else {
-                if (decode && (next == '+' || next == '%' || next > 127)) {
-                    urlDecodeRequired = true;
-                } else if (next == '=' && nextQueryParam == null) {
-                    nextQueryParam = decode(stringBuilder.substring(queryParamPos), urlDecodeRequired, state, true);
-                    urlDecodeRequired = false;
-                    queryParamPos = stringBuilder.length() + 1;
-                } else if (next == '&' && nextQueryParam == null) {
-                    if (mapCount++ > maxParameters) {
-                        throw UndertowMessages.MESSAGES.tooManyQueryParameters(maxParameters);
-                    }
-                    if (queryParamPos != stringBuilder.length()) {
-                        exchange.addQueryParam(decode(stringBuilder.substring(queryParamPos), urlDecodeRequired, state, true), "");
-                    }
-                    urlDecodeRequired = false;
-                    queryParamPos = stringBuilder.length() + 1;
-                } else if (next == '&') {
-                    if (mapCount++ > maxParameters) {
-                        throw UndertowMessages.MESSAGES.tooManyQueryParameters(maxParameters);
-                    }
-                    exchange.addQueryParam(nextQueryParam, decode(stringBuilder.substring(queryParamPos), urlDecodeRequired, state, true));
-                    urlDecodeRequired = false;
-                    queryParamPos = stringBuilder.length() + 1;
-                    nextQueryParam = null;
+                if (next == '&' && mapCount++ > maxParameters) {
+                    throw UndertowMessages.MESSAGES.tooManyQueryParameters(maxParameters);
+                } else if (next == '%' && decode) {
+                    state.urlDecodeRequired = true;
                 }
                 stringBuilder.append(next);
-
             }
 
         }
-        state.pos = queryParamPos;
-        state.nextQueryParam = nextQueryParam;
-        state.urlDecodeRequired = urlDecodeRequired;
-        state.mapCount = 0;
+        state.mapCount = mapCount;
+    }
+
+    /**
+     * Checks that every escape in a parameter string is a '%' followed by two hex digits, without actually decoding
+     * the string. This means that malformed parameters still result in a bad request, even though the parameters
+     * are only decoded if they are requested.
+     */
+    private void validateEscapes(final String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; ++i) {
+            if (value.charAt(i) == '%') {
+                if (i + 2 >= length || Character.digit(value.charAt(i + 1), 16) == -1 || Character.digit(value.charAt(i + 2), 16) == -1) {
+                    throw UndertowMessages.MESSAGES.failedToDecodeURL(value, charset);
+                }
+                i += 2;
+            }
+        }
     }
 
     private String decode(final String value, boolean urlDecodeRequired, ParseState state, final boolean allowEncodedSlash) {
@@ -536,32 +535,21 @@ public abstract class HttpRequestParser {
 
     final void handlePathParameters(ByteBuffer buffer, ParseState state, HttpServerExchange exchange) {
         StringBuilder stringBuilder = state.stringBuilder;
-        int queryParamPos = state.pos;
         int mapCount = state.mapCount;
-        boolean urlDecodeRequired = state.urlDecodeRequired;
-        String nextQueryParam = state.nextQueryParam;
 
-        //so this is a bit funky, because it not only deals with parsing, but
-        //also deals with URL decoding the query parameters as well, while also
-        //maintaining a non-decoded version to use as the query string
-        //In most cases these string will be the same, and as we do not want to
-        //build up two separate strings we don't use encodedStringBuilder unless
-        //we encounter an encoded character
+        //as with query parameters the path parameters are parsed lazily by the exchange
 
         while (buffer.hasRemaining()) {
             char next = (char) (buffer.get() & 0xFF);
             if (next == ' ' || next == '\t' || next == '?') {
-                if (nextQueryParam == null) {
-                    if (queryParamPos != stringBuilder.length()) {
-                        exchange.addPathParam(decode(stringBuilder.substring(queryParamPos), urlDecodeRequired, state, true), "");
-                    }
-                } else {
-                    exchange.addPathParam(nextQueryParam, decode(stringBuilder.substring(queryParamPos), urlDecodeRequired, state, true));
+                final String pathParameters = stringBuilder.toString();
+                if (state.urlDecodeRequired) {
+                    validateEscapes(pathParameters);
                 }
-                exchange.setRequestURI(exchange.getRequestURI() + ';' + stringBuilder.toString(), state.parseState > HOST_DONE);
+                exchange.setUnparsedPathParameters(pathParameters, decode ? charset : null);
+                exchange.setRequestURI(exchange.getRequestURI() + ';' + pathParameters, state.parseState > HOST_DONE);
                 state.stringBuilder.setLength(0);
                 state.pos = 0;
-                state.nextQueryParam = null;
                 state.mapCount = 0;
                 state.urlDecodeRequired = false;
                 if (next == '?') {
@@ -574,39 +562,16 @@ public abstract class HttpRequestParser {
             } else if (next == '\r' || next == '\n') {
                 throw UndertowMessages.MESSAGES.failedToParsePath();
             } else {
-                if (decode && (next == '+' || next == '%' || next > 127)) {
-                    urlDecodeRequired = true;
-                }
-                if (next == '=' && nextQueryParam == null) {
-                    nextQueryParam = decode(stringBuilder.substring(queryParamPos), urlDecodeRequired, state, true);
-                    urlDecodeRequired = false;
-                    queryParamPos = stringBuilder.length() + 1;
-                } else if (next == '&' && nextQueryParam == null) {
-                    if (mapCount++ > maxParameters) {
-                        throw UndertowMessages.MESSAGES.tooManyQueryParameters(maxParameters);
-                    }
-                    exchange.addPathParam(decode(stringBuilder.substring(queryParamPos), urlDecodeRequired, state, true), "");
-                    urlDecodeRequired = false;
-                    queryParamPos = stringBuilder.length() + 1;
-                } else if (next == '&') {
-                    if (mapCount++ > maxParameters) {
-                        throw UndertowMessages.MESSAGES.tooManyQueryParameters(maxParameters);
-                    }
-
-                    exchange.addPathParam(nextQueryParam, decode(stringBuilder.substring(queryParamPos), urlDecodeRequired, state, true));
-                    urlDecodeRequired = false;
-                    queryParamPos = stringBuilder.length() + 1;
-                    nextQueryParam = null;
+                if (next == '&' && mapCount++ > maxParameters) {
+                    throw UndertowMessages.MESSAGES.tooManyQueryParameters(maxParameters);
+                } else if (next == '%' && decode) {
+                    state.urlDecodeRequired = true;
                 }
                 stringBuilder.append(next);
-
             }
 
         }
-        state.pos = queryParamPos;
-        state.nextQueryParam = nextQueryParam;
-        state.mapCount = 0;
-        state.urlDecodeRequired = urlDecodeRequired;
+        state.mapCount = mapCount;
     }
 
 
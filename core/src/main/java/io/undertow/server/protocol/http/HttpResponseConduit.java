@@ -22,13 +22,16 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 
 import io.undertow.server.Connectors;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.TruncatedResponseException;
+import io.undertow.util.HeaderBlock;
 import io.undertow.util.HeaderMap;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.HttpString;
+import io.undertow.util.Protocols;
 import io.undertow.util.StatusCodes;
 
 import org.xnio.Buffers;
@@ -77,6 +80,13 @@ final class HttpResponseConduit extends AbstractStreamSinkConduit<StreamSinkCond
     private static final int STATE_HDR_FINAL_LF = 9; // Final LF
     private static final int STATE_BUF_FLUSH = 10; // flush the buffer and go to writing body
 
+    /**
+     * Pre-encoded status lines, indexed by status code
+     */
+    private static final int STATUS_LINE_LIMIT = 600;
+    private static final byte[][] HTTP_1_0_STATUS_LINES = createStatusLines(Protocols.HTTP_1_0_STRING);
+    private static final byte[][] HTTP_1_1_STATUS_LINES = createStatusLines(Protocols.HTTP_1_1_STRING);
+
     private static final int MASK_STATE = 0x0000000F;
     private static final int FLAG_SHUTDOWN = 0x00000010;
 
@@ -163,22 +173,44 @@ final class HttpResponseConduit extends AbstractStreamSinkConduit<StreamSinkCond
 
 
         assert buffer.remaining() >= 0x100;
-        exchange.getProtocol().appendTo(buffer);
-        buffer.put((byte) ' ');
         int code = exchange.getResponseCode();
         assert 999 >= code && code >= 100;
-        buffer.put((byte) (code / 100 + '0'));
-        buffer.put((byte) (code / 10 % 10 + '0'));
-        buffer.put((byte) (code % 10 + '0'));
-        buffer.put((byte) ' ');
-        String string = StatusCodes.getReason(code);
-        writeString(buffer, string);
-        buffer.put((byte) '\r').put((byte) '\n');
+        HttpString protocol = exchange.getProtocol();
+        byte[] statusLine = null;
+        if (code < STATUS_LINE_LIMIT) {
+            if (protocol == Protocols.HTTP_1_1) {
+                statusLine = HTTP_1_1_STATUS_LINES[code];
+            } else if (protocol == Protocols.HTTP_1_0) {
+                statusLine = HTTP_1_0_STATUS_LINES[code];
+            }
+        }
+        if (statusLine != null) {
+            buffer.put(statusLine);
+        } else {
+            protocol.appendTo(buffer);
+            buffer.put((byte) ' ');
+            buffer.put((byte) (code / 100 + '0'));
+            buffer.put((byte) (code / 10 % 10 + '0'));
+            buffer.put((byte) (code % 10 + '0'));
+            buffer.put((byte) ' ');
+            writeString(buffer, StatusCodes.getReason(code));
+            buffer.put((byte) '\r').put((byte) '\n');
+        }
 
-        int remaining = buffer.remaining();
+        HeaderMap headers = exchange.getResponseHeaders();
+        HeaderBlock headerBlock = exchange.getResponseHeaderBlock();
+        if (headerBlock != null) {
+            //the header map takes precedence, if there is any overlap or the block does not fit we just merge them
+            if (headerBlock.length() <= buffer.remaining() - 2 && !headerBlock.conflictsWith(headers)) {
+                headerBlock.appendTo(buffer);
+            } else {
+                headerBlock.mergeInto(headers);
+            }
+        }
 
+        int remaining = buffer.remaining();
+        String string = null;
 
-        HeaderMap headers = exchange.getResponseHeaders();
         long fiCookie = headers.fastIterateNonEmpty();
         while (fiCookie != -1) {
             HeaderValues headerValues = headers.fiCurrent(fiCookie);
@@ -263,6 +295,14 @@ final class HttpResponseConduit extends AbstractStreamSinkConduit<StreamSinkCond
         }
     }
 
+    private static byte[][] createStatusLines(final String protocol) {
+        final byte[][] lines = new byte[STATUS_LINE_LIMIT][];
+        for (int code = 100; code < STATUS_LINE_LIMIT; ++code) {
+            lines[code] = (protocol + ' ' + code + ' ' + StatusCodes.getReason(code) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        }
+        return lines;
+    }
+
     private static void writeString(ByteBuffer buffer, String string) {
         int length = string.length();
         for (int charIndex = 0; charIndex < length; charIndex++) {
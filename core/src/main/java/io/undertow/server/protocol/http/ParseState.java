@@ -100,8 +100,6 @@ class ParseState {
      */
     HttpString nextHeader;
 
-    String nextQueryParam;
-
     int mapCount;
 
     final StringBuilder decodeBuffer = new StringBuilder();
@@ -135,7 +133,6 @@ class ParseState {
         this.urlDecodeRequired = false;
         this.stringBuilder.setLength(0);
         this.nextHeader = null;
-        this.nextQueryParam = null;
         this.mapCount = 0;
     }
 }
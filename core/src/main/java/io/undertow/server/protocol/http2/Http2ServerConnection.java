@@ -166,6 +166,7 @@ public class Http2ServerConnection extends ServerConnection {
                 DateUtils.addDateHeaderIfRequired(exchange);
                 headers.add(STATUS, exchange.getResponseCode());
                 Connectors.flattenCookies(exchange);
+                Connectors.flattenResponseHeaderBlock(exchange);
                 Http2HeadersStreamSinkChannel sink = new Http2HeadersStreamSinkChannel(channel, requestChannel.getStreamId(), headers);
                 return new StreamSinkChannelWrappingConduit(sink);
             }
@@ -301,6 +302,7 @@ public class Http2ServerConnection extends ServerConnection {
         DateUtils.addDateHeaderIfRequired(exchange);
         headers.add(STATUS, exchange.getResponseCode());
         Connectors.flattenCookies(exchange);
+        Connectors.flattenResponseHeaderBlock(exchange);
         return originalSinkConduit;
     }
 
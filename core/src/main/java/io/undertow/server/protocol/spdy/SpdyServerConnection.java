@@ -254,6 +254,7 @@ public class SpdyServerConnection extends ServerConnection {
         headers.put(VERSION, exchange.getProtocol().toString());
 
         Connectors.flattenCookies(exchange);
+        Connectors.flattenResponseHeaderBlock(exchange);
         return originalSinkConduit;
     }
 
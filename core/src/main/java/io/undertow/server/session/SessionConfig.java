@@ -33,7 +33,7 @@ import io.undertow.util.AttachmentKey;
  */
 public interface SessionConfig {
 
-    AttachmentKey<SessionConfig> ATTACHMENT_KEY = AttachmentKey.create(SessionConfig.class);
+    AttachmentKey<SessionConfig> ATTACHMENT_KEY = AttachmentKey.createIndexed(SessionConfig.class);
 
     /**
      * Attaches the session to the exchange. The method should attach the exchange under an attachment key,
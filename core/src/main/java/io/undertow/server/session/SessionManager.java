@@ -37,7 +37,7 @@ import java.util.Set;
  */
 public interface SessionManager {
 
-    AttachmentKey<SessionManager> ATTACHMENT_KEY = AttachmentKey.create(SessionManager.class);
+    AttachmentKey<SessionManager> ATTACHMENT_KEY = AttachmentKey.createIndexed(SessionManager.class);
 
     /**
      * Uniquely identifies this session manager
@@ -18,6 +18,7 @@
 
 package io.undertow.util;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
@@ -32,6 +33,17 @@ import io.undertow.UndertowMessages;
  */
 public abstract class AbstractAttachable implements Attachable {
 
+    private static final int MIN_SLOTS = 8;
+
+    /**
+     * Attachments for keys that have been assigned an index. This is sized lazily based on the highest index
+     * that has been stored, so in general it will be small.
+     */
+    private Object[] slots;
+
+    /**
+     * Attachments for keys that do not have an index.
+     */
     private Map<AttachmentKey<?>, Object> attachments;
 
     /**
@@ -39,10 +51,10 @@ public abstract class AbstractAttachable implements Attachable {
      */
     @Override
     public <T> T getAttachment(final AttachmentKey<T> key) {
-        if (key == null || attachments == null) {
+        if (key == null) {
             return null;
         }
-        return (T) attachments.get(key);
+        return (T) get(key);
     }
 
     /**
@@ -50,10 +62,10 @@ public abstract class AbstractAttachable implements Attachable {
      */
     @Override
     public <T> List<T> getAttachmentList(AttachmentKey<? extends List<T>> key) {
-        if (key == null || attachments == null) {
+        if (key == null) {
             return Collections.emptyList();
         }
-        List<T> list = (List<T>) attachments.get(key);
+        List<T> list = (List<T>) get(key);
         if (list == null) {
             return Collections.emptyList();
         }
@@ -68,10 +80,7 @@ public abstract class AbstractAttachable implements Attachable {
         if (key == null) {
             throw UndertowMessages.MESSAGES.argumentCannotBeNull("key");
         }
-        if(attachments == null) {
-            attachments = createAttachmentMap();
-        }
-        return (T) attachments.put(key, value);
+        return (T) put(key, value);
     }
 
     protected Map<AttachmentKey<?>, Object> createAttachmentMap() {
@@ -83,7 +92,20 @@ public abstract class AbstractAttachable implements Attachable {
      */
     @Override
     public <T> T removeAttachment(final AttachmentKey<T> key) {
-        if (key == null || attachments == null) {
+        if (key == null) {
+            return null;
+        }
+        final int index = key.index;
+        if (index >= 0) {
+            final Object[] slots = this.slots;
+            if (slots == null || index >= slots.length) {
+                return null;
+            }
+            final Object old = slots[index];
+            slots[index] = null;
+            return (T) old;
+        }
+        if (attachments == null) {
             return null;
         }
         return (T) attachments.remove(key);
@@ -95,14 +117,10 @@ public abstract class AbstractAttachable implements Attachable {
     @Override
     public <T> void addToAttachmentList(final AttachmentKey<AttachmentList<T>> key, final T value) {
         if (key != null) {
-            if(attachments == null) {
-                attachments = createAttachmentMap();
-            }
-            final Map<AttachmentKey<?>, Object> attachments = this.attachments;
-            final AttachmentList<T> list = (AttachmentList<T>) attachments.get(key);
+            final AttachmentList<T> list = (AttachmentList<T>) get(key);
             if (list == null) {
                 final AttachmentList<T> newList = new AttachmentList<>(((ListAttachmentKey<T>) key).getValueClass());
-                attachments.put(key, newList);
+                put(key, newList);
                 newList.add(value);
             } else {
                 list.add(value);
@@ -110,4 +128,46 @@ public abstract class AbstractAttachable implements Attachable {
         }
     }
 
+    private Object get(final AttachmentKey<?> key) {
+        final int index = key.index;
+        if (index >= 0) {
+            final Object[] slots = this.slots;
+            if (slots == null || index >= slots.length) {
+                return null;
+            }
+            return slots[index];
+        }
+        if (attachments == null) {
+            return null;
+        }
+        return attachments.get(key);
+    }
+
+    private Object put(final AttachmentKey<?> key, final Object value) {
+        final int index = key.index;
+        if (index >= 0) {
+            Object[] slots = this.slots;
+            if (slots == null) {
+                this.slots = slots = new Object[slotCount(index)];
+            } else if (index >= slots.length) {
+                this.slots = slots = Arrays.copyOf(slots, slotCount(index));
+            }
+            final Object old = slots[index];
+            slots[index] = value;
+            return old;
+        }
+        if (attachments == null) {
+            attachments = createAttachmentMap();
+        }
+        return attachments.put(key, value);
+    }
+
+    private static int slotCount(final int index) {
+        int count = MIN_SLOTS;
+        while (count <= index) {
+            count <<= 1;
+        }
+        return Math.min(count, AttachmentKey.MAX_INDEXED_KEYS);
+    }
+
 }
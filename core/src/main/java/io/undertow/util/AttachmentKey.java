@@ -18,6 +18,8 @@
 
 package io.undertow.util;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * @author Stuart Douglas
  */
@@ -29,7 +31,38 @@ package io.undertow.util;
  */
 public abstract class AttachmentKey<T> {
 
+    /**
+     * The number of keys that can be given a dense index. Attachments for these keys are stored in an array
+     * slot, rather than in a map. Only keys created with {@link #createIndexed(Class)} are given a slot, and once
+     * this limit has been reached they fall back to map storage.
+     */
+    static final int MAX_INDEXED_KEYS = 64;
+
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
+    /**
+     * The slot index of this key, or -1 if the key was not assigned a slot
+     */
+    final int index;
+
     AttachmentKey() {
+        index = -1;
+    }
+
+    AttachmentKey(final boolean indexed) {
+        index = indexed ? nextIndex() : -1;
+    }
+
+    private static int nextIndex() {
+        for (;;) {
+            int current = NEXT_INDEX.get();
+            if (current >= MAX_INDEXED_KEYS) {
+                return -1;
+            }
+            if (NEXT_INDEX.compareAndSet(current, current + 1)) {
+                return current;
+            }
+        }
     }
 
     /**
@@ -48,7 +81,21 @@ public abstract class AttachmentKey<T> {
      * @return the new instance
      */
     public static <T> AttachmentKey<T> create(final Class<? super T> valueClass) {
-        return new SimpleAttachmentKey(valueClass);
+        return new SimpleAttachmentKey(valueClass, false);
+    }
+
+    /**
+     * Construct a new simple attachment key that stores its values in an array slot rather than a map, which makes
+     * access cheaper. There are only a limited number of slots and they are never released, so this should only be
+     * used for static keys that are accessed on most requests. Keys that are created per instance should use
+     * {@link #create(Class)}.
+     *
+     * @param valueClass the value class
+     * @param <T>        the attachment type
+     * @return the new instance
+     */
+    public static <T> AttachmentKey<T> createIndexed(final Class<? super T> valueClass) {
+        return new SimpleAttachmentKey(valueClass, true);
     }
 
     /**
@@ -20,8 +20,12 @@ package io.undertow.util;
 
 import io.undertow.UndertowLogger;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Represents a byte range for a range request
@@ -31,6 +35,12 @@ import java.util.List;
  */
 public class ByteRange {
 
+    /**
+     * The maximum number of range segments in a request. Requests with more segments are served as if the range
+     * header was not present.
+     */
+    public static final int MAX_RANGES = 100;
+
     private final List<Range> ranges;
 
     public ByteRange(List<Range> ranges) {
@@ -60,8 +70,73 @@ public class ByteRange {
     }
 
     /**
-     * Attempts to parse a range request. If the range request is invalid it will just return null so that
-     * it may be ignored.
+     * Resolves the range segments against a resource of the given length. Suffix and open ended segments are
+     * converted to absolute positions, ends past the end of the resource are truncated, and segments that cannot
+     * be satisfied are dropped.
+     * <p/>
+     * If there is more than one satisfiable segment the result is sorted, and overlapping or adjacent segments are
+     * coalesced, so the result can be served in a single pass and no byte is sent twice. Note that if more than one
+     * range remains the multipart framing can still make the response larger than the resource, see
+     * {@link MultipartByteRanges#create(List, String, long)}.
+     *
+     * @param resourceContentLength The length of the resource
+     * @return The resolved ranges, with inclusive start and end positions, or null if no segment can be satisfied
+     */
+    public List<Range> resolve(long resourceContentLength) {
+        final List<Range> resolved = new ArrayList<>(ranges.size());
+        for (Range range : ranges) {
+            long start = range.getStart();
+            long end = range.getEnd();
+            if (start == -1) {
+                //suffix range, the last N bytes
+                if (end == 0 || resourceContentLength == 0) {
+                    continue;
+                }
+                start = Math.max(0, resourceContentLength - end);
+                end = resourceContentLength - 1;
+            } else if (start >= resourceContentLength) {
+                continue;
+            } else if (end == -1 || end >= resourceContentLength) {
+                end = resourceContentLength - 1;
+            }
+            resolved.add(new Range(start, end));
+        }
+        if (resolved.isEmpty()) {
+            return null;
+        }
+        if (resolved.size() == 1) {
+            return resolved;
+        }
+        Collections.sort(resolved, RANGE_START_COMPARATOR);
+        final List<Range> coalesced = new ArrayList<>(resolved.size());
+        Range current = resolved.get(0);
+        for (int i = 1; i < resolved.size(); ++i) {
+            Range next = resolved.get(i);
+            if (next.getStart() <= current.getEnd() + 1) {
+                current = new Range(current.getStart(), Math.max(current.getEnd(), next.getEnd()));
+            } else {
+                coalesced.add(current);
+                current = next;
+            }
+        }
+        coalesced.add(current);
+        return coalesced;
+    }
+
+    /**
+     * Creates the value of the Content-Range header for a resolved range
+     *
+     * @param range                 The resolved range
+     * @param resourceContentLength The length of the full resource
+     * @return The header value
+     */
+    public static String contentRange(Range range, long resourceContentLength) {
+        return "bytes " + range.getStart() + "-" + range.getEnd() + "/" + resourceContentLength;
+    }
+
+    /**
+     * Attempts to parse a range request. If the range request is invalid, or has more than {@link #MAX_RANGES}
+     * segments, it will just return null so that it may be ignored.
      *
      *
      * @param rangeHeader The range spec
@@ -76,6 +151,10 @@ public class ByteRange {
         }
         List<Range> ranges = new ArrayList<>();
         String[] parts = rangeHeader.substring(6).split(",");
+        if (parts.length > MAX_RANGES) {
+            UndertowLogger.REQUEST_LOGGER.debugf("Too many ranges in range spec %s", rangeHeader);
+            return null;
+        }
         for(String part : parts) {
             try {
                 int index = part.indexOf('-');
@@ -122,6 +201,96 @@ public class ByteRange {
         return new ByteRange(ranges);
     }
 
+    private static final Comparator<Range> RANGE_START_COMPARATOR = new Comparator<Range>() {
+        @Override
+        public int compare(Range o1, Range o2) {
+            return Long.compare(o1.getStart(), o2.getStart());
+        }
+    };
+
+    /**
+     * The framing of a multipart/byteranges response. The body of the response is made up of
+     * {@link #getPartHeader(int)} followed by the data for each range, followed by {@link #getTrailer()}.
+     */
+    public static class MultipartByteRanges {
+
+        private final String boundary;
+        private final byte[][] partHeaders;
+        private final byte[] trailer;
+        private final long contentLength;
+
+        /**
+         * @param ranges                The resolved ranges
+         * @param contentType           The content type of the resource, may be null
+         * @param resourceContentLength The length of the full resource
+         */
+        public MultipartByteRanges(List<Range> ranges, String contentType, long resourceContentLength) {
+            this.boundary = "UNDERTOW_RANGE_" + Long.toHexString(ThreadLocalRandom.current().nextLong()) + Long.toHexString(ThreadLocalRandom.current().nextLong());
+            this.partHeaders = new byte[ranges.size()][];
+            long length = 0;
+            for (int i = 0; i < ranges.size(); ++i) {
+                final Range range = ranges.get(i);
+                final StringBuilder sb = new StringBuilder();
+                if (i > 0) {
+                    sb.append("\r\n");
+                }
+                sb.append("--").append(boundary).append("\r\n");
+                if (contentType != null) {
+                    sb.append(Headers.CONTENT_TYPE_STRING).append(": ").append(contentType).append("\r\n");
+                }
+                sb.append(Headers.CONTENT_RANGE_STRING).append(": ").append(contentRange(range, resourceContentLength)).append("\r\n\r\n");
+                partHeaders[i] = sb.toString().getBytes(StandardCharsets.US_ASCII);
+                length += partHeaders[i].length + range.getEnd() - range.getStart() + 1;
+            }
+            this.trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+            this.contentLength = length + trailer.length;
+        }
+
+        /**
+         * Creates the framing for a multipart response, unless the response would be larger than the resource. A
+         * request for many small ranges would otherwise get a response that is mostly framing, so in that case the
+         * full resource should be sent with a 200 response instead.
+         *
+         * @param ranges                The resolved ranges
+         * @param contentType           The content type of the resource, may be null
+         * @param resourceContentLength The length of the full resource
+         * @return The framing, or null if the full resource should be sent
+         */
+        public static MultipartByteRanges create(List<Range> ranges, String contentType, long resourceContentLength) {
+            final MultipartByteRanges multipart = new MultipartByteRanges(ranges, contentType, resourceContentLength);
+            if (multipart.getContentLength() > resourceContentLength) {
+                return null;
+            }
+            return multipart;
+        }
+
+        /**
+         * @return The value of the Content-Type header for the response
+         */
+        public String getContentType() {
+            return "multipart/byteranges; boundary=" + boundary;
+        }
+
+        /**
+         * @return The total length of the response body
+         */
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        public int getParts() {
+            return partHeaders.length;
+        }
+
+        public byte[] getPartHeader(int part) {
+            return partHeaders[part];
+        }
+
+        public byte[] getTrailer() {
+            return trailer;
+        }
+    }
+
     public static class Range {
         private final long start, end;
 
@@ -21,69 +21,49 @@ package io.undertow.util;
 import io.undertow.UndertowOptions;
 import io.undertow.server.HttpServerExchange;
 
-import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Locale;
 import java.util.TimeZone;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Utility for parsing and generating dates
+ * <p/>
+ * Dates are formatted and parsed by hand rather than with {@link java.text.SimpleDateFormat}, which is both slow and
+ * not thread safe. All the HTTP date formats use GMT, so the conversion between epoch time and the calendar fields is
+ * a simple calculation.
  *
  * @author Stuart Douglas
  */
 public class DateUtils {
 
-    private static final Locale LOCALE_US = Locale.US;
+    private static final TimeZone LOCAL_ZONE = TimeZone.getDefault();
 
-    private static final TimeZone GMT_ZONE = TimeZone.getTimeZone("GMT");
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
 
-    private static final String RFC1123_PATTERN = "EEE, dd MMM yyyy HH:mm:ss z";
+    /**
+     * The range of times that can be formatted with a four digit year, from 0000-01-01T00:00:00 to
+     * 9999-12-31T23:59:59.999. Times outside of it, such as {@link Long#MAX_VALUE} for a date that never expires, are
+     * formatted as the nearest representable date.
+     */
+    private static final long MIN_FORMATTED_TIME = -62167219200000L;
+    private static final long MAX_FORMATTED_TIME = 253402300799999L;
+
+    private static final String[] DAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
 
-    private static final AtomicReference<String> cachedDateString = new AtomicReference<>();
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
 
     /**
-     * Thread local cache of this date format. This is technically a small memory leak, however
-     * in practice it is fine, as it will only be used by server threads.
-     * <p/>
-     * This is the most common date format, which is why we cache it.
+     * Returned by {@link #parseDateMillis(String)} if the date could not be parsed
      */
-    private static final ThreadLocal<SimpleDateFormat> RFC1123_PATTERN_FORMAT = new ThreadLocal<SimpleDateFormat>() {
-        @Override
-        protected SimpleDateFormat initialValue() {
-            SimpleDateFormat df = new SimpleDateFormat(RFC1123_PATTERN, LOCALE_US);
-            df.setTimeZone(GMT_ZONE);
-            return df;
-        }
-    };
+    public static final long INVALID_DATE = Long.MIN_VALUE;
 
     /**
-     * Invalidates the current date
+     * Per thread cache of the current date header. The date header only has second precision, so it only needs to be
+     * generated once per second per IO thread, and no cross thread invalidation is required.
      */
-    private static final Runnable INVALIDATE_TASK = new Runnable() {
-        @Override
-        public void run() {
-            cachedDateString.set(null);
-        }
-    };
-
-    private static final String RFC1036_PATTERN = "EEEEEEEEE, dd-MMM-yy HH:mm:ss z";
-
-    private static final String ASCITIME_PATTERN = "EEE MMM d HH:mm:ss yyyyy";
-
-    private static final String OLD_COOKIE_PATTERN = "EEE, dd-MMM-yyyy HH:mm:ss z";
-
-
-    private static final String COMMON_LOG_PATTERN = "dd/MMM/yyyy:HH:mm:ss Z";
-
-
-    private static final ThreadLocal<SimpleDateFormat> COMMON_LOG_PATTERN_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+    private static final ThreadLocal<CachedDate> CACHED_DATE = new ThreadLocal<CachedDate>() {
         @Override
-        protected SimpleDateFormat initialValue() {
-            SimpleDateFormat df = new SimpleDateFormat(COMMON_LOG_PATTERN, LOCALE_US);
-            return df;
+        protected CachedDate initialValue() {
+            return new CachedDate();
         }
     };
 
@@ -94,18 +74,51 @@ public class DateUtils {
      * @return The RFC-1123 formatted date
      */
     public static String toDateString(final Date date) {
-        return RFC1123_PATTERN_FORMAT.get().format(date);
+        return toDateString(date.getTime());
     }
 
+    /**
+     * Converts a time to a format suitable for use in a HTTP request
+     *
+     * @param time The time in milliseconds since the epoch
+     * @return The RFC-1123 formatted date
+     */
+    public static String toDateString(final long time) {
+        return formatHttpDate(time, ' ');
+    }
 
     public static String toOldCookieDateString(final Date date) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat(OLD_COOKIE_PATTERN, LOCALE_US);
-        dateFormat.setTimeZone(GMT_ZONE);
-        return dateFormat.format(date);
+        return formatHttpDate(date.getTime(), '-');
     }
 
     public static String toCommonLogFormat(final Date date) {
-        return COMMON_LOG_PATTERN_FORMAT.get().format(date);
+        final long time = date.getTime();
+        final int offset = LOCAL_ZONE.getOffset(time);
+        final long localTime = clamp(clamp(time) + offset);
+        final long days = floorDiv(localTime, MILLIS_PER_DAY);
+        final int millisOfDay = (int) (localTime - days * MILLIS_PER_DAY);
+        final int civil = civilFromDays(days);
+
+        //dd/MMM/yyyy:HH:mm:ss Z
+        final char[] buf = new char[26];
+        int pos = writeTwoDigits(buf, 0, civil & 0x1F);
+        buf[pos++] = '/';
+        pos = writeMonth(buf, pos, (civil >> 5) & 0xF);
+        buf[pos++] = '/';
+        pos = writeYear(buf, pos, civil >> 9);
+        buf[pos++] = ':';
+        pos = writeTime(buf, pos, millisOfDay);
+        buf[pos++] = ' ';
+        int offsetMinutes = offset / 60000;
+        if (offsetMinutes < 0) {
+            buf[pos++] = '-';
+            offsetMinutes = -offsetMinutes;
+        } else {
+            buf[pos++] = '+';
+        }
+        pos = writeTwoDigits(buf, pos, offsetMinutes / 60);
+        pos = writeTwoDigits(buf, pos, offsetMinutes % 60);
+        return new String(buf, 0, pos);
     }
 
     /**
@@ -115,6 +128,21 @@ public class DateUtils {
      * @return The parsed date, or null if parsing failed
      */
     public static Date parseDate(final String date) {
+        final long time = parseDateMillis(date);
+        if (time == INVALID_DATE) {
+            return null;
+        }
+        return new Date(time);
+    }
+
+    /**
+     * Attempts to parse a HTTP date. The RFC-1123, RFC-1036 and asctime formats are accepted, as is the old Netscape
+     * cookie format.
+     *
+     * @param date The date to parse
+     * @return The parsed date in milliseconds since the epoch, or {@link #INVALID_DATE} if parsing failed
+     */
+    public static long parseDateMillis(final String date) {
 
         /*
             IE9 sends a superflous lenght parameter after date in the
@@ -122,42 +150,109 @@ public class DateUtils {
             parsing.
 
          */
-
-        final int semicolonIndex = date.indexOf(';');
-        final String trimmedDate = semicolonIndex >= 0 ? date.substring(0, semicolonIndex) : date;
-
-        ParsePosition pp = new ParsePosition(0);
-        SimpleDateFormat dateFormat = RFC1123_PATTERN_FORMAT.get();
-        Date val = dateFormat.parse(trimmedDate, pp);
-        if (val != null && pp.getIndex() == trimmedDate.length()) {
-            return val;
+        int end = date.indexOf(';');
+        if (end < 0) {
+            end = date.length();
         }
-
-        pp = new ParsePosition(0);
-        dateFormat = new SimpleDateFormat(RFC1036_PATTERN, LOCALE_US);
-        dateFormat.setTimeZone(GMT_ZONE);
-        val = dateFormat.parse(trimmedDate, pp);
-        if (val != null && pp.getIndex() == trimmedDate.length()) {
-            return val;
+        while (end > 0 && date.charAt(end - 1) == ' ') {
+            --end;
         }
-
-        pp = new ParsePosition(0);
-        dateFormat = new SimpleDateFormat(ASCITIME_PATTERN, LOCALE_US);
-        dateFormat.setTimeZone(GMT_ZONE);
-        val = dateFormat.parse(trimmedDate, pp);
-        if (val != null && pp.getIndex() == trimmedDate.length()) {
-            return val;
+        int pos = 0;
+        while (pos < end && date.charAt(pos) == ' ') {
+            ++pos;
         }
 
-        pp = new ParsePosition(0);
-        dateFormat = new SimpleDateFormat(OLD_COOKIE_PATTERN, LOCALE_US);
-        dateFormat.setTimeZone(GMT_ZONE);
-        val = dateFormat.parse(trimmedDate, pp);
-        if (val != null && pp.getIndex() == trimmedDate.length()) {
-            return val;
+        //the day of the week, which is ignored
+        final int dayStart = pos;
+        while (pos < end && isLetter(date.charAt(pos))) {
+            ++pos;
+        }
+        if (pos - dayStart < 3 || pos == end) {
+            return INVALID_DATE;
         }
 
-        return null;
+        final int day;
+        final int month;
+        final int year;
+        final int time;
+        if (date.charAt(pos) == ',') {
+            //RFC-1123: Sun, 06 Nov 1994 08:49:37 GMT
+            //RFC-1036: Sunday, 06-Nov-94 08:49:37 GMT
+            //Old cookie: Sun, 06-Nov-1994 08:49:37 GMT
+            pos = skipSpaces(date, pos + 1, end);
+            day = parseNumber(date, pos, end, 1, 2);
+            if (day < 0) {
+                return INVALID_DATE;
+            }
+            pos += day >> 16;
+            if (pos == end) {
+                return INVALID_DATE;
+            }
+            final char separator = date.charAt(pos);
+            if (separator != ' ' && separator != '-') {
+                return INVALID_DATE;
+            }
+            month = parseMonth(date, pos + 1, end);
+            pos += 4;
+            if (month < 0 || pos >= end || date.charAt(pos) != separator) {
+                return INVALID_DATE;
+            }
+            ++pos;
+            int y = parseNumber(date, pos, end, 2, 4);
+            if (y < 0 || (y >> 16) == 3) {
+                return INVALID_DATE;
+            }
+            pos += y >> 16;
+            y &= 0xFFFF;
+            if (y < 100) {
+                y += y < 70 ? 2000 : 1900;
+            }
+            year = y;
+            if (pos == end || date.charAt(pos) != ' ') {
+                return INVALID_DATE;
+            }
+            time = parseTime(date, pos + 1, end);
+            if (time < 0) {
+                return INVALID_DATE;
+            }
+            pos = skipSpaces(date, pos + 9, end);
+            if (!isGmt(date, pos, end)) {
+                return INVALID_DATE;
+            }
+        } else {
+            //asctime: Sun Nov  6 08:49:37 1994
+            if (date.charAt(pos) != ' ') {
+                return INVALID_DATE;
+            }
+            month = parseMonth(date, pos + 1, end);
+            if (month < 0) {
+                return INVALID_DATE;
+            }
+            pos = skipSpaces(date, pos + 4, end);
+            day = parseNumber(date, pos, end, 1, 2);
+            if (day < 0) {
+                return INVALID_DATE;
+            }
+            pos += day >> 16;
+            if (pos == end || date.charAt(pos) != ' ') {
+                return INVALID_DATE;
+            }
+            time = parseTime(date, pos + 1, end);
+            if (time < 0) {
+                return INVALID_DATE;
+            }
+            pos = skipSpaces(date, pos + 9, end);
+            final int y = parseNumber(date, pos, end, 4, 4);
+            if (y < 0 || pos + 4 != end) {
+                return INVALID_DATE;
+            }
+            year = y & 0xFFFF;
+        }
+        final int dayOfMonth = day & 0xFFFF;
+        if (dayOfMonth < 1 || dayOfMonth > 31) {
+            return INVALID_DATE;
+        }
+        return daysFromCivil(year, month, dayOfMonth) * MILLIS_PER_DAY + time * 1000L;
     }
 
     /**
@@ -185,11 +280,26 @@ public class DateUtils {
         if (modifiedSince == null) {
             return true;
         }
-        Date modDate = parseDate(modifiedSince);
-        if (modDate == null) {
+        return handleIfModifiedSince(modifiedSince, lastModified.getTime());
+    }
+
+    /**
+     * Handles the if-modified-since header. returns true if the request should proceed, false otherwise
+     *
+     * @param modifiedSince the modified since date
+     * @param lastModified  The last modified time in milliseconds since the epoch
+     * @return
+     */
+    public static boolean handleIfModifiedSince(final String modifiedSince, final long lastModified) {
+        if (modifiedSince == null) {
+            return true;
+        }
+        long modDate = parseDateMillis(modifiedSince);
+        if (modDate == INVALID_DATE) {
             return true;
         }
-        return lastModified.getTime() > (modDate.getTime() + 999); //UNDERTOW-341 +999 as there is no millisecond part in the if-modified-since
+        //UNDERTOW-341 compare seconds, as there is no millisecond part in the if-modified-since
+        return floorDiv(lastModified, 1000) > floorDiv(modDate, 1000);
     }
 
     /**
@@ -200,7 +310,7 @@ public class DateUtils {
      * @return
      */
     public static boolean handleIfUnmodifiedSince(final HttpServerExchange exchange, final Date lastModified) {
-        return handleIfModifiedSince(exchange.getRequestHeaders().getFirst(Headers.IF_UNMODIFIED_SINCE), lastModified);
+        return handleIfUnmodifiedSince(exchange.getRequestHeaders().getFirst(Headers.IF_UNMODIFIED_SINCE), lastModified);
     }
 
     /**
@@ -217,33 +327,241 @@ public class DateUtils {
         if (modifiedSince == null) {
             return true;
         }
-        Date modDate = parseDate(modifiedSince);
-        if (modDate == null) {
+        return handleIfUnmodifiedSince(modifiedSince, lastModified.getTime());
+    }
+
+    /**
+     * Handles the if-unmodified-since header. returns true if the request should proceed, false otherwise
+     *
+     * @param modifiedSince the if unmodified since date
+     * @param lastModified  The last modified time in milliseconds since the epoch
+     * @return
+     */
+    public static boolean handleIfUnmodifiedSince(final String modifiedSince, final long lastModified) {
+        if (modifiedSince == null) {
+            return true;
+        }
+        long modDate = parseDateMillis(modifiedSince);
+        if (modDate == INVALID_DATE) {
             return true;
         }
-        return lastModified.getTime() < (modDate.getTime() + 999); //UNDERTOW-341 +999 as there is no millisecond part in the if-unmodified-since
+        //UNDERTOW-341 compare seconds, as there is no millisecond part in the if-unmodified-since
+        return floorDiv(lastModified, 1000) <= floorDiv(modDate, 1000);
     }
 
     public static void addDateHeaderIfRequired(HttpServerExchange exchange) {
         HeaderMap responseHeaders = exchange.getResponseHeaders();
         if (exchange.getConnection().getUndertowOptions().get(UndertowOptions.ALWAYS_SET_DATE, true) && !responseHeaders.contains(Headers.DATE)) {
-            String dateString = cachedDateString.get();
-            if (dateString != null) {
-                responseHeaders.put(Headers.DATE, dateString);
-            } else {
-                //set the time and register a timer to invalidate it
-                //note that this is racey, it does not matter if multiple threads do this
-                //the perf cost of synchronizing would be more than the perf cost of multiple threads running it
-                long realTime = System.currentTimeMillis();
-                long mod = realTime % 1000;
-                long toGo = 1000 - mod;
-                dateString = DateUtils.toDateString(new Date(realTime));
-                if (cachedDateString.compareAndSet(null, dateString)) {
-                    exchange.getConnection().getIoThread().executeAfter(INVALIDATE_TASK, toGo, TimeUnit.MILLISECONDS);
-                }
-                responseHeaders.put(Headers.DATE, dateString);
+            responseHeaders.put(Headers.DATE, getCurrentDateTime());
+        }
+    }
+
+    /**
+     * Returns the current time as a RFC-1123 formatted date. The result is cached per thread, and is only regenerated
+     * when the second changes.
+     *
+     * @return The current date
+     */
+    public static String getCurrentDateTime() {
+        final long second = System.currentTimeMillis() / 1000;
+        final CachedDate cached = CACHED_DATE.get();
+        if (cached.second != second) {
+            cached.value = toDateString(second * 1000);
+            cached.second = second;
+        }
+        return cached.value;
+    }
+
+    /**
+     * Formats a date in the RFC-1123 format, or the old cookie format if the separator is a dash.
+     */
+    private static String formatHttpDate(final long date, final char separator) {
+        final long time = clamp(date);
+        final long days = floorDiv(time, MILLIS_PER_DAY);
+        final int millisOfDay = (int) (time - days * MILLIS_PER_DAY);
+        final int civil = civilFromDays(days);
+
+        //EEE, dd MMM yyyy HH:mm:ss GMT
+        final char[] buf = new char[32];
+        final String dayName = DAYS[(int) floorMod(days + 3, 7)];
+        buf[0] = dayName.charAt(0);
+        buf[1] = dayName.charAt(1);
+        buf[2] = dayName.charAt(2);
+        buf[3] = ',';
+        buf[4] = ' ';
+        int pos = writeTwoDigits(buf, 5, civil & 0x1F);
+        buf[pos++] = separator;
+        pos = writeMonth(buf, pos, (civil >> 5) & 0xF);
+        buf[pos++] = separator;
+        pos = writeYear(buf, pos, civil >> 9);
+        buf[pos++] = ' ';
+        pos = writeTime(buf, pos, millisOfDay);
+        buf[pos++] = ' ';
+        buf[pos++] = 'G';
+        buf[pos++] = 'M';
+        buf[pos++] = 'T';
+        return new String(buf, 0, pos);
+    }
+
+    private static int writeTwoDigits(final char[] buf, final int pos, final int value) {
+        buf[pos] = (char) ('0' + value / 10);
+        buf[pos + 1] = (char) ('0' + value % 10);
+        return pos + 2;
+    }
+
+    private static int writeMonth(final char[] buf, final int pos, final int month) {
+        final String name = MONTHS[month - 1];
+        buf[pos] = name.charAt(0);
+        buf[pos + 1] = name.charAt(1);
+        buf[pos + 2] = name.charAt(2);
+        return pos + 3;
+    }
+
+    private static long clamp(final long time) {
+        return Math.max(MIN_FORMATTED_TIME, Math.min(MAX_FORMATTED_TIME, time));
+    }
+
+    private static int writeYear(final char[] buf, final int pos, final int year) {
+        assert year >= 0 && year <= 9999;
+        buf[pos] = (char) ('0' + year / 1000);
+        buf[pos + 1] = (char) ('0' + year / 100 % 10);
+        buf[pos + 2] = (char) ('0' + year / 10 % 10);
+        buf[pos + 3] = (char) ('0' + year % 10);
+        return pos + 4;
+    }
+
+    private static int writeTime(final char[] buf, int pos, final int millisOfDay) {
+        final int seconds = millisOfDay / 1000;
+        pos = writeTwoDigits(buf, pos, seconds / 3600);
+        buf[pos++] = ':';
+        pos = writeTwoDigits(buf, pos, seconds / 60 % 60);
+        buf[pos++] = ':';
+        return writeTwoDigits(buf, pos, seconds % 60);
+    }
+
+    /**
+     * Converts a day count since the epoch to a civil date.
+     *
+     * @return The date packed into an int, with the day of the month in bits 0-4, the month (1-12) in bits 5-8, and
+     * the year in the remaining bits
+     */
+    private static int civilFromDays(final long days) {
+        final long z = days + 719468;
+        final long era = floorDiv(z, 146097);
+        final long doe = z - era * 146097;
+        final long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        final long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        final long mp = (5 * doy + 2) / 153;
+        final int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        final int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        final int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        return (year << 9) | (month << 5) | day;
+    }
+
+    /**
+     * Converts a civil date to the number of days since the epoch. Out of range days roll over into the next month.
+     */
+    private static long daysFromCivil(int year, final int month, final int day) {
+        year -= month <= 2 ? 1 : 0;
+        final long era = floorDiv(year, 400);
+        final long yoe = year - era * 400;
+        final long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Parses a number of between min and max digits.
+     *
+     * @return The number in the low 16 bits and the number of digits in the high bits, or -1 if there is no number
+     */
+    private static int parseNumber(final String date, final int start, final int end, final int min, final int max) {
+        int value = 0;
+        int pos = start;
+        while (pos < end && pos - start < max) {
+            final char c = date.charAt(pos);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            ++pos;
+        }
+        if (pos - start < min) {
+            return -1;
+        }
+        return ((pos - start) << 16) | value;
+    }
+
+    /**
+     * Parses a HH:mm:ss time
+     *
+     * @return The seconds of the day, or -1 if the time is not valid
+     */
+    private static int parseTime(final String date, final int pos, final int end) {
+        if (pos + 8 > end || date.charAt(pos + 2) != ':' || date.charAt(pos + 5) != ':') {
+            return -1;
+        }
+        final int hours = parseNumber(date, pos, end, 2, 2);
+        final int minutes = parseNumber(date, pos + 3, end, 2, 2);
+        final int seconds = parseNumber(date, pos + 6, end, 2, 2);
+        if (hours < 0 || minutes < 0 || seconds < 0) {
+            return -1;
+        }
+        final int h = hours & 0xFFFF;
+        final int m = minutes & 0xFFFF;
+        final int s = seconds & 0xFFFF;
+        if (h > 23 || m > 59 || s > 59) {
+            return -1;
+        }
+        return h * 3600 + m * 60 + s;
+    }
+
+    /**
+     * @return The month (1-12), or -1 if there is no valid month name at the given position
+     */
+    private static int parseMonth(final String date, final int pos, final int end) {
+        if (pos + 3 > end) {
+            return -1;
+        }
+        for (int i = 0; i < MONTHS.length; ++i) {
+            if (date.regionMatches(true, pos, MONTHS[i], 0, 3)) {
+                return i + 1;
             }
         }
+        return -1;
+    }
+
+    private static boolean isGmt(final String date, final int pos, final int end) {
+        final int length = end - pos;
+        if (length == 3) {
+            return date.regionMatches(true, pos, "GMT", 0, 3) || date.regionMatches(true, pos, "UTC", 0, 3);
+        }
+        return length == 2 && date.regionMatches(true, pos, "UT", 0, 2);
+    }
+
+    private static boolean isLetter(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static int skipSpaces(final String date, int pos, final int end) {
+        while (pos < end && date.charAt(pos) == ' ') {
+            ++pos;
+        }
+        return pos;
+    }
+
+    private static long floorDiv(final long x, final long y) {
+        final long r = x / y;
+        return (x % y != 0 && ((x ^ y) < 0)) ? r - 1 : r;
+    }
+
+    private static long floorMod(final long x, final long y) {
+        return x - floorDiv(x, y) * y;
+    }
+
+    private static final class CachedDate {
+        long second = -1;
+        String value;
     }
 
     private DateUtils() {
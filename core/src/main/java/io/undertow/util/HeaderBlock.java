@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import io.undertow.UndertowMessages;
+
+/**
+ * An immutable block of response headers that has been serialized in HTTP/1.x wire format ahead of time.
+ * <p/>
+ * Header blocks are intended for headers that are the same on every response, such as <code>Server</code>
+ * or CORS headers. They are created once via {@link HeaderMap#toHeaderBlock()} and attached to an exchange
+ * with {@link io.undertow.server.HttpServerExchange#setResponseHeaderBlock(HeaderBlock)}. The HTTP/1.x connector
+ * copies the pre-encoded bytes directly into the output buffer, other connectors merge the headers into the
+ * response header map when the response is committed.
+ * <p/>
+ * Headers in the response header map always take precedence over headers in the block. Headers that affect
+ * message framing (<code>Content-Length</code>, <code>Transfer-Encoding</code> and <code>Connection</code>)
+ * cannot be part of a header block.
+ *
+ * @author Stuart Douglas
+ */
+public final class HeaderBlock {
+
+    private final HttpString[] names;
+    private final String[] values;
+    private final byte[] encoded;
+
+    HeaderBlock(final HeaderMap headers) {
+        int count = 0;
+        int length = 0;
+        for (HeaderValues header : headers) {
+            final HttpString name = header.getHeaderName();
+            if (name.equals(Headers.CONTENT_LENGTH) || name.equals(Headers.TRANSFER_ENCODING) || name.equals(Headers.CONNECTION)) {
+                throw UndertowMessages.MESSAGES.headerNotAllowedInHeaderBlock(name);
+            }
+            for (String value : header) {
+                ++count;
+                length += name.length() + value.length() + 4;
+            }
+        }
+        names = new HttpString[count];
+        values = new String[count];
+        encoded = new byte[length];
+        int pos = 0;
+        int i = 0;
+        for (HeaderValues header : headers) {
+            final HttpString name = header.getHeaderName();
+            for (String value : header) {
+                names[i] = name;
+                values[i++] = value;
+                name.copyTo(encoded, pos);
+                pos += name.length();
+                encoded[pos++] = ':';
+                encoded[pos++] = ' ';
+                for (int j = 0; j < value.length(); ++j) {
+                    encoded[pos++] = (byte) value.charAt(j);
+                }
+                encoded[pos++] = '\r';
+                encoded[pos++] = '\n';
+            }
+        }
+    }
+
+    /**
+     * @return The length of the encoded header block in bytes
+     */
+    public int length() {
+        return encoded.length;
+    }
+
+    /**
+     * Writes the encoded header block to the buffer. The caller must make sure there is enough space remaining.
+     *
+     * @param buffer The buffer
+     */
+    public void appendTo(final ByteBuffer buffer) {
+        buffer.put(encoded);
+    }
+
+    /**
+     * @param headers The header map
+     * @return <code>true</code> if the header map contains any of the headers in this block
+     */
+    public boolean conflictsWith(final HeaderMap headers) {
+        for (int i = 0; i < names.length; ++i) {
+            if (headers.contains(names[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the headers in this block to the header map, skipping any header that is already present in the map.
+     *
+     * @param headers The header map
+     */
+    public void mergeInto(final HeaderMap headers) {
+        int i = 0;
+        while (i < names.length) {
+            final HttpString name = names[i];
+            final boolean present = headers.contains(name);
+            do {
+                if (!present) {
+                    headers.add(name, values[i]);
+                }
+                ++i;
+            } while (i < names.length && names[i] == name);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(encoded, 0, encoded.length, StandardCharsets.ISO_8859_1);
+    }
+}
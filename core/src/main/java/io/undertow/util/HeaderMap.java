@@ -826,6 +826,19 @@ public final class HeaderMap implements Iterable<HeaderValues> {
         return false;
     }
 
+    // encode
+
+    /**
+     * Creates an immutable, pre-encoded copy of the headers in this map. Later changes to this map are not
+     * reflected in the returned block.
+     *
+     * @return A header block containing the headers in this map
+     * @see HeaderBlock
+     */
+    public HeaderBlock toHeaderBlock() {
+        return new HeaderBlock(this);
+    }
+
     // compare
 
     @Override
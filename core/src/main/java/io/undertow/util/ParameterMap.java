@@ -0,0 +1,300 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A compact multi valued map used for query and path parameters.
+ * <p>
+ * Keys are held in a sorted array, so iteration order is the same as a {@link java.util.TreeMap} using
+ * natural ordering, however no per entry node objects are allocated. Request parameter maps are generally
+ * small, so a binary search over a flat array is cheaper than a tree or hash based map.
+ *
+ * @author Stuart Douglas
+ */
+public final class ParameterMap extends AbstractMap<String, Deque<String>> {
+
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private String[] keys;
+    private Deque<String>[] values;
+    private int size;
+    private int modCount;
+    private EntrySet entrySet;
+
+    public ParameterMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ParameterMap(int initialCapacity) {
+        keys = new String[initialCapacity];
+        values = new Deque[initialCapacity];
+    }
+
+    /**
+     * Adds a value to the given key, creating the value deque if required.
+     *
+     * @param key   The parameter name
+     * @param value The parameter value
+     */
+    public void add(final String key, final String value) {
+        int index = find(key);
+        Deque<String> deque;
+        if (index >= 0) {
+            deque = values[index];
+            if (deque == null) {
+                values[index] = deque = new ArrayDeque<>(2);
+            }
+        } else {
+            deque = new ArrayDeque<>(2);
+            insert(-(index + 1), key, deque);
+        }
+        deque.add(value);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return key instanceof String && find((String) key) >= 0;
+    }
+
+    @Override
+    public Deque<String> get(final Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int index = find((String) key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public Deque<String> put(final String key, final Deque<String> value) {
+        int index = find(key);
+        if (index >= 0) {
+            Deque<String> old = values[index];
+            values[index] = value;
+            return old;
+        }
+        insert(-(index + 1), key, value);
+        return null;
+    }
+
+    @Override
+    public Deque<String> remove(final Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int index = find((String) key);
+        if (index < 0) {
+            return null;
+        }
+        Deque<String> old = values[index];
+        removeAt(index);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Entry<String, Deque<String>>> entrySet() {
+        EntrySet es = entrySet;
+        if (es == null) {
+            entrySet = es = new EntrySet();
+        }
+        return es;
+    }
+
+    private int find(final String key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = keys[mid].compareTo(key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insert(final int index, final String key, final Deque<String> value) {
+        if (size == keys.length) {
+            int newLength = keys.length == 0 ? DEFAULT_CAPACITY : keys.length << 1;
+            keys = Arrays.copyOf(keys, newLength);
+            values = Arrays.copyOf(values, newLength);
+        }
+        if (index < size) {
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        modCount++;
+    }
+
+    private void removeAt(final int index) {
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(keys, index + 1, keys, index, moved);
+            System.arraycopy(values, index + 1, values, index, moved);
+        }
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        modCount++;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Deque<String>>> {
+
+        @Override
+        public Iterator<Entry<String, Deque<String>>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            ParameterMap.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Deque<String>>> {
+
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Entry<String, Deque<String>> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new ParameterEntry(keys[last]);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Entries look up their slot by key, so they remain valid if other entries are added or removed.
+     */
+    private final class ParameterEntry implements Map.Entry<String, Deque<String>> {
+
+        private final String key;
+
+        private ParameterEntry(final String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public Deque<String> getValue() {
+            return get(key);
+        }
+
+        @Override
+        public Deque<String> setValue(final Deque<String> value) {
+            return put(key, value);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            Deque<String> value = getValue();
+            return key.equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Deque<String> value = getValue();
+            return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+}
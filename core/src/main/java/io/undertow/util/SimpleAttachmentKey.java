@@ -24,7 +24,8 @@ package io.undertow.util;
 class SimpleAttachmentKey<T> extends AttachmentKey<T> {
     private final Class<T> valueClass;
 
-    SimpleAttachmentKey(final Class<T> valueClass) {
+    SimpleAttachmentKey(final Class<T> valueClass, final boolean indexed) {
+        super(indexed);
         this.valueClass = valueClass;
     }
 
@@ -19,6 +19,7 @@
 package io.undertow.util;
 
 import io.undertow.UndertowMessages;
+import org.xnio.Buffers;
 import org.xnio.ChannelExceptionHandler;
 import org.xnio.ChannelListener;
 import org.xnio.ChannelListeners;
@@ -116,6 +117,36 @@ public class Transfer {
         }
     }
 
+    /**
+     * Initiate a transfer between two stream channels that may use several buffers at once. Data is read into the
+     * buffers with a single scattering read and written out with a single gathering write, which reduces the number of
+     * read and write calls for large bodies. The transfer starts with a single buffer, and more buffers are allocated
+     * (up to {@code maxBuffers}) while reads keep filling every buffer that is available. All buffers are returned to
+     * the pool while the source has no data available.
+     *
+     * @param source the source channel
+     * @param sink the target channel
+     * @param sourceListener the source listener to set and call when the transfer is complete, or {@code null} to clear the listener at that time
+     * @param sinkListener the target listener to set and call when the transfer is complete, or {@code null} to clear the listener at that time
+     * @param readExceptionHandler the read exception handler to call if an error occurs during a read operation
+     * @param writeExceptionHandler the write exception handler to call if an error occurs during a write operation
+     * @param pool the pool from which the transfer buffers should be allocated
+     * @param maxBuffers the maximum number of buffers to use at once
+     */
+    public static <I extends StreamSourceChannel, O extends StreamSinkChannel> void initiateTransfer(final I source, final O sink, final ChannelListener<? super I> sourceListener, final ChannelListener<? super O> sinkListener, final ChannelExceptionHandler<? super I> readExceptionHandler, final ChannelExceptionHandler<? super O> writeExceptionHandler, Pool<ByteBuffer> pool, int maxBuffers) {
+        if (pool == null) {
+            throw UndertowMessages.MESSAGES.argumentCannotBeNull("pool");
+        }
+        if (maxBuffers <= 1) {
+            initiateTransfer(source, sink, sourceListener, sinkListener, readExceptionHandler, writeExceptionHandler, pool);
+            return;
+        }
+        final ScatteringTransferListener<I, O> listener = new ScatteringTransferListener<I, O>(pool, maxBuffers, source, sink, sourceListener, sinkListener, writeExceptionHandler, readExceptionHandler);
+        sink.getWriteSetter().set(listener);
+        source.getReadSetter().set(listener);
+        listener.handleEvent(source);
+    }
+
     private static <I extends StreamSourceChannel, O extends StreamSinkChannel> void done(I source, O sink, ChannelListener<? super I> sourceListener, ChannelListener<? super O> sinkListener) {
         Channels.setReadListener(source, sourceListener);
         if (sourceListener == null) {
@@ -261,4 +292,128 @@ public class Transfer {
         }
     }
 
+    static final class ScatteringTransferListener<I extends StreamSourceChannel, O extends StreamSinkChannel> implements ChannelListener<Channel> {
+        private final Pool<ByteBuffer> pool;
+        private final Pooled<ByteBuffer>[] pooledBuffers;
+        private final ByteBuffer[] buffers;
+        private final I source;
+        private final O sink;
+        private final ChannelListener<? super I> sourceListener;
+        private final ChannelListener<? super O> sinkListener;
+        private final ChannelExceptionHandler<? super O> writeExceptionHandler;
+        private final ChannelExceptionHandler<? super I> readExceptionHandler;
+
+        /**
+         * The number of buffers that are currently allocated
+         */
+        private int allocated;
+        /**
+         * The number of buffers to use for the next read
+         */
+        private int target = 1;
+        /**
+         * If the buffers have been flipped and contain data that has not been written yet
+         */
+        private boolean writing;
+        private boolean done = false;
+
+        @SuppressWarnings("unchecked")
+        ScatteringTransferListener(Pool<ByteBuffer> pool, int maxBuffers, final I source, final O sink, final ChannelListener<? super I> sourceListener, final ChannelListener<? super O> sinkListener, final ChannelExceptionHandler<? super O> writeExceptionHandler, final ChannelExceptionHandler<? super I> readExceptionHandler) {
+            this.pool = pool;
+            this.pooledBuffers = new Pooled[maxBuffers];
+            this.buffers = new ByteBuffer[maxBuffers];
+            this.source = source;
+            this.sink = sink;
+            this.sourceListener = sourceListener;
+            this.sinkListener = sinkListener;
+            this.writeExceptionHandler = writeExceptionHandler;
+            this.readExceptionHandler = readExceptionHandler;
+        }
+
+        public void handleEvent(final Channel channel) {
+            if (done) {
+                if (channel instanceof StreamSinkChannel) {
+                    ((StreamSinkChannel) channel).suspendWrites();
+                } else if (channel instanceof StreamSourceChannel) {
+                    ((StreamSourceChannel) channel).suspendReads();
+                }
+                return;
+            }
+            try {
+                for (;;) {
+                    if (writing) {
+                        try {
+                            while (Buffers.hasRemaining(buffers, 0, allocated)) {
+                                if (sink.write(buffers, 0, allocated) == 0) {
+                                    //the sink is full, wait till we can write again
+                                    source.suspendReads();
+                                    sink.resumeWrites();
+                                    return;
+                                }
+                            }
+                        } catch (IOException e) {
+                            done = true;
+                            ChannelListeners.invokeChannelExceptionHandler(sink, writeExceptionHandler, e);
+                            return;
+                        }
+                        writing = false;
+                        for (int i = 0; i < allocated; ++i) {
+                            buffers[i].clear();
+                        }
+                    }
+                    while (allocated < target) {
+                        final Pooled<ByteBuffer> pooled = pool.allocate();
+                        pooledBuffers[allocated] = pooled;
+                        buffers[allocated++] = pooled.getResource();
+                    }
+                    final long read;
+                    try {
+                        read = source.read(buffers, 0, allocated);
+                    } catch (IOException e) {
+                        done = true;
+                        ChannelListeners.invokeChannelExceptionHandler(source, readExceptionHandler, e);
+                        return;
+                    }
+                    if (read == 0) {
+                        //nothing to read, we don't hold onto the buffers while we wait
+                        freeBuffers();
+                        sink.suspendWrites();
+                        source.resumeReads();
+                        return;
+                    } else if (read == -1) {
+                        done = true;
+                        freeBuffers();
+                        done(source, sink, sourceListener, sinkListener);
+                        return;
+                    }
+                    if (!buffers[allocated - 1].hasRemaining() && target < buffers.length) {
+                        //we filled every buffer, use another one next time
+                        ++target;
+                    }
+                    for (int i = 0; i < allocated; ++i) {
+                        buffers[i].flip();
+                    }
+                    writing = true;
+                }
+            } finally {
+                if (done) {
+                    freeBuffers();
+                }
+            }
+        }
+
+        private void freeBuffers() {
+            for (int i = 0; i < allocated; ++i) {
+                pooledBuffers[i].free();
+                pooledBuffers[i] = null;
+                buffers[i] = null;
+            }
+            allocated = 0;
+        }
+
+        public String toString() {
+            return "Scattering transfer channel listener (" + source + " to " + sink + ") -> (" + sourceListener + " and " + sinkListener + ")";
+        }
+    }
+
 }
@@ -56,6 +56,56 @@ public class URLUtils {
         PATH_PARAM_PARSER.parse(string, exchange, charset, doDecode);
     }
 
+    /**
+     * Parses a raw query string or path parameter string into the given map. Parameters with an empty name
+     * are ignored, and parameters without an '=' are given an empty value.
+     * <p>
+     * This uses the same decoding rules as the HTTP request parser, so it can be used to lazily parse the
+     * parameters of a request that has already been parsed.
+     *
+     * @param string  The raw, non-decoded parameter string
+     * @param map     The map to add the parameters to
+     * @param charset The charset to decode with, or null if the parameters should not be decoded
+     */
+    public static void parseParameters(final String string, final ParameterMap map, final String charset) {
+        StringBuilder buffer = null;
+        int start = 0;
+        int equalPos = -1;
+        boolean decodeRequired = false;
+        final int length = string.length();
+        for (int i = 0; i <= length; ++i) {
+            char c = i == length ? '&' : string.charAt(i);
+            if (c == '&') {
+                if (decodeRequired && buffer == null) {
+                    buffer = new StringBuilder();
+                }
+                if (equalPos == -1) {
+                    if (start != i) {
+                        map.add(decodeParameter(string, start, i, charset, decodeRequired, buffer), "");
+                    }
+                } else {
+                    map.add(decodeParameter(string, start, equalPos, charset, decodeRequired, buffer),
+                            decodeParameter(string, equalPos + 1, i, charset, decodeRequired, buffer));
+                }
+                start = i + 1;
+                equalPos = -1;
+                decodeRequired = false;
+            } else if (charset != null && (c == '+' || c == '%' || c > 127)) {
+                decodeRequired = true;
+            } else if (c == '=' && equalPos == -1) {
+                equalPos = i;
+            }
+        }
+    }
+
+    private static String decodeParameter(final String string, final int start, final int end, final String charset, final boolean decodeRequired, final StringBuilder buffer) {
+        String value = string.substring(start, end);
+        if (decodeRequired) {
+            return decode(value, charset, true, buffer);
+        }
+        return value;
+    }
+
     /**
      * Decodes a URL. If the decoding fails for any reason then an IllegalArgumentException will be thrown.
      *
@@ -0,0 +1,59 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.undertow;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+
+/**
+ * @author Stuart Douglas
+ */
+public class UndertowListenerConfigTestCase {
+
+    @Test
+    public void testListenersWithSameKeyManagersShareSslConfig() {
+        KeyManager[] keyManagers = new KeyManager[0];
+        TrustManager[] trustManagers = new TrustManager[0];
+        Undertow.ListenerConfig first = new Undertow.ListenerConfig(Undertow.ListenerType.HTTPS, 8443, "localhost", keyManagers, trustManagers);
+        Undertow.ListenerConfig second = new Undertow.ListenerConfig(Undertow.ListenerType.HTTPS, 8444, "localhost", keyManagers, trustManagers);
+        Assert.assertTrue(first.isSameSslConfig(second));
+        Assert.assertTrue(second.isSameSslConfig(first));
+
+        Undertow.ListenerConfig otherKeys = new Undertow.ListenerConfig(Undertow.ListenerType.HTTPS, 8445, "localhost", new KeyManager[0], trustManagers);
+        Assert.assertFalse(first.isSameSslConfig(otherKeys));
+        Undertow.ListenerConfig otherTrust = new Undertow.ListenerConfig(Undertow.ListenerType.HTTPS, 8446, "localhost", keyManagers, new TrustManager[0]);
+        Assert.assertFalse(first.isSameSslConfig(otherTrust));
+    }
+
+    @Test
+    public void testListenersWithSameSslContextShareSslConfig() throws Exception {
+        SSLContext context = SSLContext.getInstance("TLS");
+        Undertow.ListenerConfig first = new Undertow.ListenerConfig(Undertow.ListenerType.HTTPS, 8443, "localhost", context);
+        Undertow.ListenerConfig second = new Undertow.ListenerConfig(Undertow.ListenerType.HTTPS, 8444, "localhost", context);
+        Assert.assertTrue(first.isSameSslConfig(second));
+
+        Undertow.ListenerConfig otherContext = new Undertow.ListenerConfig(Undertow.ListenerType.HTTPS, 8445, "localhost", SSLContext.getInstance("TLS"));
+        Assert.assertFalse(first.isSameSslConfig(otherContext));
+        Undertow.ListenerConfig managers = new Undertow.ListenerConfig(Undertow.ListenerType.HTTPS, 8446, "localhost", null, null);
+        Assert.assertFalse(first.isSameSslConfig(managers));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.client.http;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that header values are reused across responses on the same connection
+ *
+ * @author Stuart Douglas
+ */
+public class ResponseParserHeaderCacheTestCase {
+
+    private static final String FIRST = "HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nX-Forwarded-Proto: https\r\nDate: Tue, 01 Jan 2030 00:00:00 GMT\r\nConnection: keep-alive\r\n\r\n";
+    private static final String SECOND = "HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nX-Forwarded-Proto:  https\r\nDate: Tue, 01 Jan 2030 00:00:01 GMT\r\nConnection: keep-alive\r\n\r\n";
+
+    @Test
+    public void testCachedValuesReused() {
+        Map<HttpString, String> cache = new HashMap<>();
+        HttpResponseBuilder first = parse(FIRST, cache);
+        HttpResponseBuilder second = parse(SECOND, cache);
+
+        Assert.assertEquals("text/html", first.getResponseHeaders().getFirst(Headers.CONTENT_TYPE));
+        Assert.assertEquals("text/plain", second.getResponseHeaders().getFirst(Headers.CONTENT_TYPE));
+        Assert.assertEquals("Tue, 01 Jan 2030 00:00:01 GMT", second.getResponseHeaders().getFirst(Headers.DATE));
+        Assert.assertSame(first.getResponseHeaders().getFirst(Headers.X_FORWARDED_PROTO), second.getResponseHeaders().getFirst(Headers.X_FORWARDED_PROTO));
+        Assert.assertSame(first.getResponseHeaders().getFirst(Headers.CONNECTION), second.getResponseHeaders().getFirst(Headers.CONNECTION));
+        Assert.assertSame(Headers.X_FORWARDED_PROTO, second.getResponseHeaders().get(Headers.X_FORWARDED_PROTO).getHeaderName());
+        Assert.assertEquals(4, second.getResponseHeaders().size());
+        Assert.assertFalse(cache.containsKey(Headers.DATE));
+    }
+
+    @Test
+    public void testCachedValueOneCharacterAtATime() {
+        Map<HttpString, String> cache = new HashMap<>();
+        parse(FIRST, cache);
+        HttpResponseBuilder result = new HttpResponseBuilder(cache);
+        ResponseParseState context = result.getParseState();
+        ByteBuffer buffer = ByteBuffer.wrap(SECOND.getBytes());
+        buffer.limit(1);
+        while (!context.isComplete()) {
+            HttpResponseParser.INSTANCE.handle(buffer, context, result);
+            buffer.limit(buffer.limit() + 1);
+        }
+        Assert.assertEquals("https", result.getResponseHeaders().getFirst(Headers.X_FORWARDED_PROTO));
+        Assert.assertEquals("keep-alive", result.getResponseHeaders().getFirst(Headers.CONNECTION));
+        Assert.assertEquals(4, result.getResponseHeaders().size());
+    }
+
+    private static HttpResponseBuilder parse(String response, Map<HttpString, String> cache) {
+        HttpResponseBuilder result = new HttpResponseBuilder(cache);
+        ByteBuffer buffer = ByteBuffer.wrap(response.getBytes());
+        HttpResponseParser.INSTANCE.handle(buffer, result.getParseState(), result);
+        Assert.assertTrue(result.getParseState().isComplete());
+        Assert.assertEquals(200, result.getStatusCode());
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.predicate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.undertow.server.HandlerWrapper;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.AttachmentList;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that the predicate index selects the same rules, in the same order, as evaluating every predicate.
+ *
+ * @author Stuart Douglas
+ */
+public class PredicatesHandlerTestCase {
+
+    private static final AttachmentKey<AttachmentList<Integer>> MATCHED = AttachmentKey.createList(Integer.class);
+
+    private static final String[] RULES = {
+            "path[/a]",
+            "path-prefix[/a]",
+            "method[POST]",
+            "path-prefix[/a/b] and method[GET]",
+            "equals[%{i,Host}, 'example.com']",
+            "path-prefix[/]",
+            "path[{/c, /a/b/}]",
+            "path-suffix[.txt]",
+            "method[{GET, PUT}]",
+            "equals['other.com', %{i,Host}]",
+            "path-prefix[{/c/d, /a/b/c}]",
+            "not path[/a]",
+            "path-prefix[/ab]",
+    };
+
+    @Test
+    public void testIndexMatchesLinearEvaluation() throws Exception {
+        final List<Predicate> predicates = new ArrayList<>();
+        final PredicatesHandler handler = new PredicatesHandler(new HttpHandler() {
+            @Override
+            public void handleRequest(HttpServerExchange exchange) throws Exception {
+            }
+        });
+        for (int i = 0; i < RULES.length; ++i) {
+            final int rule = i;
+            Predicate predicate = PredicateParser.parse(RULES[i], getClass().getClassLoader());
+            predicates.add(predicate);
+            handler.addPredicatedHandler(predicate, new HandlerWrapper() {
+                @Override
+                public HttpHandler wrap(final HttpHandler next) {
+                    return new HttpHandler() {
+                        @Override
+                        public void handleRequest(HttpServerExchange exchange) throws Exception {
+                            exchange.addToAttachmentList(MATCHED, rule);
+                            next.handleRequest(exchange);
+                        }
+                    };
+                }
+            });
+        }
+
+        for (String path : new String[]{"/a", "/a/", "/ab", "/a/b", "/a/b/", "/a/b/c/d", "/c", "/c/d.txt", "/", "", "a", "/x//"}) {
+            for (String host : new String[]{null, "example.com", "other.com"}) {
+                for (String method : new String[]{"GET", "POST", "PUT", "DELETE"}) {
+                    HttpServerExchange exchange = new HttpServerExchange(null);
+                    exchange.setRelativePath(path);
+                    exchange.setRequestMethod(Methods.fromString(method));
+                    if (host != null) {
+                        exchange.getRequestHeaders().put(Headers.HOST, host);
+                    }
+                    List<Integer> expected = new ArrayList<>();
+                    for (int i = 0; i < predicates.size(); ++i) {
+                        if (predicates.get(i).resolve(exchange)) {
+                            expected.add(i);
+                        }
+                    }
+                    handler.handleRequest(exchange);
+                    Assert.assertEquals(path + " " + host + " " + method, expected, exchange.getAttachmentList(MATCHED));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPredicateContextOnlyCreatedWhenUsed() throws Exception {
+        final HttpHandler next = new HttpHandler() {
+            @Override
+            public void handleRequest(HttpServerExchange exchange) throws Exception {
+            }
+        };
+        final HandlerWrapper wrapper = new HandlerWrapper() {
+            @Override
+            public HttpHandler wrap(HttpHandler handler) {
+                return handler;
+            }
+        };
+        PredicatesHandler handler = new PredicatesHandler(next);
+        handler.addPredicatedHandler(PredicateParser.parse("method[POST] or not path[/a]", getClass().getClassLoader()), wrapper);
+        HttpServerExchange exchange = new HttpServerExchange(null);
+        exchange.setRelativePath("/a");
+        exchange.setRequestMethod(Methods.GET);
+        handler.handleRequest(exchange);
+        Assert.assertNull(exchange.getAttachment(Predicate.PREDICATE_CONTEXT));
+
+        handler.addPredicatedHandler(PredicateParser.parse("method[PUT] and regex['/(.*)']", getClass().getClassLoader()), wrapper);
+        exchange = new HttpServerExchange(null);
+        exchange.setRelativePath("/a");
+        exchange.setRequestMethod(Methods.GET);
+        handler.handleRequest(exchange);
+        Assert.assertNotNull(exchange.getAttachment(Predicate.PREDICATE_CONTEXT));
+    }
+}
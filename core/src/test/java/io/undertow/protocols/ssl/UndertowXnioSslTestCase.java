@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.undertow.protocols.ssl;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xnio.OptionMap;
+import org.xnio.Options;
+import org.xnio.Xnio;
+
+import javax.net.ssl.SSLContext;
+
+/**
+ * @author Stuart Douglas
+ */
+public class UndertowXnioSslTestCase {
+
+    @Test
+    public void testSessionCacheOptionsApplied() throws Exception {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, null, null);
+        OptionMap options = OptionMap.builder()
+                .set(Options.SSL_SERVER_SESSION_CACHE_SIZE, 123)
+                .set(Options.SSL_SERVER_SESSION_TIMEOUT, 456)
+                .set(Options.SSL_CLIENT_SESSION_CACHE_SIZE, 789)
+                .set(Options.SSL_CLIENT_SESSION_TIMEOUT, 1011)
+                .getMap();
+        new UndertowXnioSsl(Xnio.getInstance(), options, context);
+        Assert.assertEquals(123, context.getServerSessionContext().getSessionCacheSize());
+        Assert.assertEquals(456, context.getServerSessionContext().getSessionTimeout());
+        Assert.assertEquals(789, context.getClientSessionContext().getSessionCacheSize());
+        Assert.assertEquals(1011, context.getClientSessionContext().getSessionTimeout());
+    }
+
+    @Test
+    public void testSessionCacheUnchangedWithoutOptions() throws Exception {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, null, null);
+        int cacheSize = context.getServerSessionContext().getSessionCacheSize();
+        int timeout = context.getServerSessionContext().getSessionTimeout();
+        new UndertowXnioSsl(Xnio.getInstance(), OptionMap.EMPTY, context);
+        Assert.assertEquals(cacheSize, context.getServerSessionContext().getSessionCacheSize());
+        Assert.assertEquals(timeout, context.getServerSessionContext().getSessionTimeout());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.undertow.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.net.ssl.SSLSession;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * @author Stuart Douglas
+ */
+public class ConnectorStatisticsHandshakeTestCase {
+
+    @Test
+    public void testFullAndResumedHandshakes() {
+        ConnectorStatisticsImpl statistics = new ConnectorStatisticsImpl();
+        Assert.assertTrue(statistics.handshakeComplete(session(new byte[]{1, 2, 3}, "TLS_RSA_WITH_AES_128_CBC_SHA")));
+        Assert.assertTrue(statistics.handshakeComplete(session(new byte[]{4, 5, 6}, "TLS_RSA_WITH_AES_128_CBC_SHA")));
+        Assert.assertEquals(2, statistics.getFullHandshakeCount());
+        Assert.assertEquals(0, statistics.getResumedHandshakeCount());
+
+        //a new session object with the same ID is a resumption
+        Assert.assertTrue(statistics.handshakeComplete(session(new byte[]{1, 2, 3}, "TLS_RSA_WITH_AES_128_CBC_SHA")));
+        Assert.assertEquals(2, statistics.getFullHandshakeCount());
+        Assert.assertEquals(1, statistics.getResumedHandshakeCount());
+
+        //sessions without an ID cannot be resumed
+        Assert.assertTrue(statistics.handshakeComplete(session(new byte[0], "TLS_RSA_WITH_AES_128_CBC_SHA")));
+        Assert.assertTrue(statistics.handshakeComplete(session(new byte[0], "TLS_RSA_WITH_AES_128_CBC_SHA")));
+        Assert.assertEquals(4, statistics.getFullHandshakeCount());
+        Assert.assertEquals(1, statistics.getResumedHandshakeCount());
+    }
+
+    @Test
+    public void testIncompleteHandshakeNotCounted() {
+        ConnectorStatisticsImpl statistics = new ConnectorStatisticsImpl();
+        Assert.assertFalse(statistics.handshakeComplete(null));
+        Assert.assertFalse(statistics.handshakeComplete(session(new byte[]{1}, "SSL_NULL_WITH_NULL_NULL")));
+        Assert.assertEquals(0, statistics.getFullHandshakeCount());
+        Assert.assertEquals(0, statistics.getResumedHandshakeCount());
+    }
+
+    @Test
+    public void testOldestSessionsForgotten() {
+        ConnectorStatisticsImpl statistics = new ConnectorStatisticsImpl();
+        for (int i = 0; i <= ConnectorStatisticsImpl.MAX_TRACKED_SESSIONS; ++i) {
+            statistics.handshakeComplete(session(id(i), "TLS_RSA_WITH_AES_128_CBC_SHA"));
+        }
+        Assert.assertEquals(ConnectorStatisticsImpl.MAX_TRACKED_SESSIONS + 1, statistics.getFullHandshakeCount());
+        //the first session has been evicted, the most recent one is still tracked
+        statistics.handshakeComplete(session(id(ConnectorStatisticsImpl.MAX_TRACKED_SESSIONS), "TLS_RSA_WITH_AES_128_CBC_SHA"));
+        Assert.assertEquals(1, statistics.getResumedHandshakeCount());
+        statistics.handshakeComplete(session(id(0), "TLS_RSA_WITH_AES_128_CBC_SHA"));
+        Assert.assertEquals(1, statistics.getResumedHandshakeCount());
+        Assert.assertEquals(ConnectorStatisticsImpl.MAX_TRACKED_SESSIONS + 2, statistics.getFullHandshakeCount());
+    }
+
+    private static byte[] id(int i) {
+        return new byte[]{(byte) (i >> 24), (byte) (i >> 16), (byte) (i >> 8), (byte) i};
+    }
+
+    private static SSLSession session(final byte[] id, final String cipherSuite) {
+        return (SSLSession) Proxy.newProxyInstance(SSLSession.class.getClassLoader(), new Class[]{SSLSession.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("getId")) {
+                    return id;
+                } else if (method.getName().equals("getCipherSuite")) {
+                    return cipherSuite;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
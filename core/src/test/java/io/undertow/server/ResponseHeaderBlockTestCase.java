@@ -0,0 +1,111 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server;
+
+import java.io.IOException;
+
+import io.undertow.testutils.DefaultServer;
+import io.undertow.testutils.HttpClientUtils;
+import io.undertow.testutils.TestHttpClient;
+import io.undertow.util.HeaderBlock;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import io.undertow.util.StatusCodes;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * @author Stuart Douglas
+ */
+@RunWith(DefaultServer.class)
+public class ResponseHeaderBlockTestCase {
+
+    private static final HttpString MULTI = new HttpString("X-Multi");
+    private static final HttpString OVERRIDE = new HttpString("X-Override");
+
+    private static final HeaderBlock BLOCK = new HeaderMap()
+            .put(MULTI, "one")
+            .add(MULTI, "two")
+            .put(OVERRIDE, "block")
+            .put(Headers.CACHE_CONTROL, "no-cache")
+            .toHeaderBlock();
+
+    @BeforeClass
+    public static void setup() {
+        DefaultServer.setRootHandler(new HttpHandler() {
+            @Override
+            public void handleRequest(HttpServerExchange exchange) throws Exception {
+                exchange.setResponseHeaderBlock(BLOCK);
+                if (exchange.getQueryParameters().containsKey("override")) {
+                    exchange.getResponseHeaders().put(OVERRIDE, "map");
+                }
+                exchange.setResponseCode(StatusCodes.ACCEPTED);
+                exchange.getResponseSender().send("hello");
+            }
+        });
+    }
+
+    @Test
+    public void testHeaderBlockSent() throws IOException {
+        final TestHttpClient client = new TestHttpClient();
+        try {
+            HttpGet get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path");
+            HttpResponse result = client.execute(get);
+            Assert.assertEquals(StatusCodes.ACCEPTED, result.getStatusLine().getStatusCode());
+            Assert.assertEquals(StatusCodes.ACCEPTED_STRING, result.getStatusLine().getReasonPhrase());
+            Assert.assertEquals("hello", HttpClientUtils.readResponse(result));
+            Header[] multi = result.getHeaders(MULTI.toString());
+            Assert.assertEquals(2, multi.length);
+            Assert.assertEquals("one", multi[0].getValue());
+            Assert.assertEquals("two", multi[1].getValue());
+            Assert.assertEquals("no-cache", result.getFirstHeader(Headers.CACHE_CONTROL_STRING).getValue());
+            Assert.assertEquals("block", result.getFirstHeader(OVERRIDE.toString()).getValue());
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test
+    public void testHeaderMapTakesPrecedence() throws IOException {
+        final TestHttpClient client = new TestHttpClient();
+        try {
+            HttpGet get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path?override=true");
+            HttpResponse result = client.execute(get);
+            Assert.assertEquals(StatusCodes.ACCEPTED, result.getStatusLine().getStatusCode());
+            Assert.assertEquals("hello", HttpClientUtils.readResponse(result));
+            Header[] override = result.getHeaders(OVERRIDE.toString());
+            Assert.assertEquals(1, override.length);
+            Assert.assertEquals("map", override[0].getValue());
+            Assert.assertEquals(2, result.getHeaders(MULTI.toString()).length);
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFramingHeadersRejected() {
+        new HeaderMap().put(Headers.CONTENT_LENGTH, 10).toHeaderBlock();
+    }
+}
@@ -139,7 +139,7 @@ public class JDBCLogDatabaseTestCase {
             HttpGet get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path");
             HttpResponse result = client.execute(get);
             latchHandler.await();
-            logHandler.awaitWrittenForTest();
+            logHandler.flush();
             Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
             Assert.assertEquals("Hello", HttpClientUtils.readResponse(result));
         } finally {
@@ -206,7 +206,7 @@ public class JDBCLogDatabaseTestCase {
         }
 
         latchHandler.await();
-        logHandler.awaitWrittenForTest();
+        logHandler.flush();
 
         Connection conn = null;
         Statement statement = null;
@@ -229,4 +229,50 @@ public class JDBCLogDatabaseTestCase {
         }
     }
 
+    @Test
+    public void testBatchedLogMessagesToDatabase() throws IOException, InterruptedException, SQLException {
+
+        JDBCLogHandler logHandler = new JDBCLogHandler(HELLO_HANDLER, DefaultServer.getWorker(), "common", ds);
+        logHandler.setBatchSize(5);
+        logHandler.setFlushInterval(100);
+
+        CompletionLatchHandler latchHandler;
+        DefaultServer.setRootHandler(latchHandler = new CompletionLatchHandler(NUM_REQUESTS, logHandler));
+        TestHttpClient client = new TestHttpClient();
+        try {
+            for (int i = 0; i < NUM_REQUESTS; ++i) {
+                HttpGet get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path");
+                HttpResponse result = client.execute(get);
+                Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+                Assert.assertEquals("Hello", HttpClientUtils.readResponse(result));
+            }
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+        latchHandler.await();
+        logHandler.flush();
+        logHandler.close();
+
+        Assert.assertEquals(NUM_REQUESTS, logHandler.getWrittenMessages());
+        Assert.assertEquals(0, logHandler.getDroppedMessages());
+        Assert.assertEquals(0, logHandler.getFailedMessages());
+
+        Connection conn = null;
+        Statement statement = null;
+        try {
+            conn = ds.getConnection();
+            statement = conn.createStatement();
+            ResultSet resultDatabase = statement.executeQuery("SELECT COUNT(*) FROM PUBLIC.ACCESS;");
+            resultDatabase.next();
+            Assert.assertEquals(NUM_REQUESTS, resultDatabase.getInt(1));
+        } finally {
+            if (statement != null) {
+                statement.close();
+            }
+            if (conn != null) {
+                conn.close();
+            }
+        }
+    }
+
 }
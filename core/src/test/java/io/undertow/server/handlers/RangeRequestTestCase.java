@@ -22,6 +22,7 @@ import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.testutils.DefaultServer;
 import io.undertow.testutils.TestHttpClient;
+import io.undertow.util.ByteRange;
 import io.undertow.util.StatusCodes;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -39,13 +40,26 @@ import java.io.IOException;
 @RunWith(DefaultServer.class)
 public class RangeRequestTestCase {
 
+    private static final String LARGE;
+
+    static {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            sb.append("0123456789");
+        }
+        LARGE = sb.toString();
+    }
 
     @BeforeClass
     public static void setup() {
         DefaultServer.setRootHandler(new ByteRangeHandler(new HttpHandler() {
             @Override
             public void handleRequest(HttpServerExchange exchange) throws Exception {
-                exchange.getResponseSender().send("0123456789");
+                if (exchange.getRelativePath().equals("/large")) {
+                    exchange.getResponseSender().send(LARGE);
+                } else {
+                    exchange.getResponseSender().send("0123456789");
+                }
             }
         }, true));
     }
@@ -94,4 +108,69 @@ public class RangeRequestTestCase {
         }
     }
 
+    @Test
+    public void testMultipleRanges() throws IOException {
+        TestHttpClient client = new TestHttpClient();
+        try {
+            HttpGet get = new HttpGet(DefaultServer.getDefaultServerURL() + "/large");
+            get.addHeader("range", "bytes=5-6,0-1");
+            HttpResponse result = client.execute(get);
+            Assert.assertEquals(StatusCodes.PARTIAL_CONTENT, result.getStatusLine().getStatusCode());
+            String contentType = result.getFirstHeader("Content-Type").getValue();
+            Assert.assertTrue(contentType, contentType.startsWith("multipart/byteranges; boundary="));
+            String boundary = contentType.substring(contentType.indexOf('=') + 1);
+            String response = EntityUtils.toString(result.getEntity());
+            Assert.assertEquals("--" + boundary + "\r\n" +
+                    "Content-Range: bytes 0-1/1000\r\n\r\n" +
+                    "01\r\n" +
+                    "--" + boundary + "\r\n" +
+                    "Content-Range: bytes 5-6/1000\r\n\r\n" +
+                    "56\r\n" +
+                    "--" + boundary + "--\r\n", response);
+
+            get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path");
+            get.addHeader("range", "bytes=0-3,2-5");
+            result = client.execute(get);
+            Assert.assertEquals(StatusCodes.PARTIAL_CONTENT, result.getStatusLine().getStatusCode());
+            Assert.assertEquals("bytes 0-5/10", result.getFirstHeader("Content-Range").getValue());
+            Assert.assertEquals("012345", EntityUtils.toString(result.getEntity()));
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test
+    public void testMultipartLargerThanResponse() throws IOException {
+        TestHttpClient client = new TestHttpClient();
+        try {
+            //the multipart framing would be larger than the full response, so it is sent instead
+            HttpGet get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path");
+            get.addHeader("range", "bytes=5-6,0-1");
+            HttpResponse result = client.execute(get);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            Assert.assertNull(result.getFirstHeader("Content-Range"));
+            Assert.assertEquals("0123456789", EntityUtils.toString(result.getEntity()));
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test
+    public void testTooManyRanges() throws IOException {
+        TestHttpClient client = new TestHttpClient();
+        try {
+            StringBuilder range = new StringBuilder("bytes=0-0");
+            for (int i = 1; i <= ByteRange.MAX_RANGES; ++i) {
+                range.append(',').append(i * 2).append('-').append(i * 2);
+            }
+            HttpGet get = new HttpGet(DefaultServer.getDefaultServerURL() + "/large");
+            get.addHeader("range", range.toString());
+            HttpResponse result = client.execute(get);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            Assert.assertEquals(LARGE, EntityUtils.toString(result.getEntity()));
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
 }
@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.testutils.DefaultServer;
+import io.undertow.testutils.HttpClientUtils;
+import io.undertow.testutils.TestHttpClient;
+import io.undertow.util.HttpString;
+import io.undertow.util.StatusCodes;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Stuart Douglas
+ */
+@RunWith(DefaultServer.class)
+public class RequestBufferingHandlerTestCase {
+
+    private static final String MESSAGE = "My HTTP Request!";
+
+    private static final HttpString REQUEST_COMPLETE = new HttpString("request-complete");
+
+    private static final File TEMP_DIR = new File(System.getProperty("java.io.tmpdir"));
+
+    private static BlockingHandler blockingHandler;
+
+    @BeforeClass
+    public static void setup() {
+        blockingHandler = new BlockingHandler();
+        blockingHandler.setRootHandler(new HttpHandler() {
+            @Override
+            public void handleRequest(final HttpServerExchange exchange) throws Exception {
+                exchange.getResponseHeaders().put(REQUEST_COMPLETE, Boolean.toString(exchange.isRequestComplete()));
+                final InputStream inputStream = exchange.getInputStream();
+                final OutputStream outputStream = exchange.getOutputStream();
+                outputStream.write(HttpClientUtils.readResponse(inputStream).getBytes());
+                inputStream.close();
+                outputStream.close();
+            }
+        });
+    }
+
+    @Test
+    public void testRequestBuffered() throws IOException {
+        DefaultServer.setRootHandler(new RequestBufferingHandler(blockingHandler, 1000, 100000, TEMP_DIR));
+        TestHttpClient client = new TestHttpClient();
+        try {
+            //the larger requests do not fit in memory and are written to disk
+            for (int repetitions : new int[]{1, 10, 100, 1000}) {
+                String message = generateMessage(repetitions);
+                HttpPost post = new HttpPost(DefaultServer.getDefaultServerURL() + "/path");
+                post.setEntity(new StringEntity(message));
+                HttpResponse result = client.execute(post);
+                Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+                Assert.assertEquals("true", result.getFirstHeader(REQUEST_COMPLETE.toString()).getValue());
+                Assert.assertEquals(message, HttpClientUtils.readResponse(result));
+            }
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test
+    public void testChunkedRequestBuffered() throws IOException {
+        DefaultServer.setRootHandler(new RequestBufferingHandler(blockingHandler, 1000, 100000, TEMP_DIR));
+        TestHttpClient client = new TestHttpClient();
+        try {
+            for (int repetitions : new int[]{1, 1000}) {
+                String message = generateMessage(repetitions);
+                HttpPost post = new HttpPost(DefaultServer.getDefaultServerURL() + "/path");
+                StringEntity entity = new StringEntity(message);
+                entity.setChunked(true);
+                post.setEntity(entity);
+                HttpResponse result = client.execute(post);
+                Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+                Assert.assertEquals("true", result.getFirstHeader(REQUEST_COMPLETE.toString()).getValue());
+                Assert.assertEquals(message, HttpClientUtils.readResponse(result));
+            }
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test
+    public void testRequestWrittenToDiskInSuppliedExecutor() throws IOException {
+        final AtomicInteger executed = new AtomicInteger();
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executed.incrementAndGet();
+                DefaultServer.getWorker().execute(command);
+            }
+        };
+        DefaultServer.setRootHandler(new RequestBufferingHandler(blockingHandler, 1000, 100000, TEMP_DIR, executor));
+        TestHttpClient client = new TestHttpClient();
+        try {
+            String message = generateMessage(10);
+            HttpPost post = new HttpPost(DefaultServer.getDefaultServerURL() + "/path");
+            post.setEntity(new StringEntity(message));
+            HttpResponse result = client.execute(post);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            Assert.assertEquals(message, HttpClientUtils.readResponse(result));
+            Assert.assertEquals(0, executed.get());
+
+            //too large to fit in memory, so the rest of the request is read in the executor
+            message = generateMessage(1000);
+            post = new HttpPost(DefaultServer.getDefaultServerURL() + "/path");
+            post.setEntity(new StringEntity(message));
+            result = client.execute(post);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            Assert.assertEquals("true", result.getFirstHeader(REQUEST_COMPLETE.toString()).getValue());
+            Assert.assertEquals(message, HttpClientUtils.readResponse(result));
+            Assert.assertTrue(executed.get() > 0);
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    private static String generateMessage(int repetitions) {
+        final StringBuilder builder = new StringBuilder(repetitions * MESSAGE.length());
+        for (int i = 0; i < repetitions; ++i) {
+            builder.append(MESSAGE);
+        }
+        return builder.toString();
+    }
+}
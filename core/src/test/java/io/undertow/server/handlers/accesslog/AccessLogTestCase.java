@@ -81,4 +81,22 @@ public class AccessLogTestCase {
         }
     }
 
+    @Test
+    public void testEmptyValuesSubstituted() throws IOException, InterruptedException {
+        latch = new CountDownLatch(1);
+        DefaultServer.setRootHandler(new AccessLogHandler(HELLO_HANDLER, RECEIVER, "%l %u %m %U %s %b \"%{i,Referer}\" \"%{i,test-header}\"", AccessLogFileTestCase.class.getClassLoader()));
+        TestHttpClient client = new TestHttpClient();
+        try {
+            HttpGet get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path");
+            get.addHeader("test-header", "test-value");
+            HttpResponse result = client.execute(get);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            Assert.assertEquals("Hello", HttpClientUtils.readResponse(result));
+            latch.await(10, TimeUnit.SECONDS);
+            Assert.assertEquals("- - GET /path 200 5 \"-\" \"test-value\"", message);
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
 }
@@ -21,11 +21,15 @@ package io.undertow.server.handlers.file;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import io.undertow.Undertow;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.handlers.CanonicalPathHandler;
 import io.undertow.server.handlers.PathHandler;
+import io.undertow.server.handlers.cache.DirectBufferCache;
+import io.undertow.server.handlers.resource.CachingResourceManager;
 import io.undertow.server.handlers.resource.FileResourceManager;
 import io.undertow.server.handlers.resource.ResourceHandler;
 import io.undertow.testutils.DefaultServer;
@@ -131,6 +135,114 @@ public class FileHandlerTestCase {
         }
     }
 
+    @Test
+    public void testCachedDirectoryListing() throws IOException, URISyntaxException {
+        TestHttpClient client = new TestHttpClient();
+        File rootPath = new File(getClass().getResource("page.html").toURI()).getParentFile();
+        try {
+            DefaultServer.setRootHandler(new CanonicalPathHandler()
+                    .setNext(new PathHandler()
+                            .addPrefixPath("/path", new ResourceHandler()
+                                    .setResourceManager(new FileResourceManager(rootPath, 1))
+                                    .setDirectoryListingCache(10, -1)
+                                    .setWelcomeFiles()
+                                    .setDirectoryListingEnabled(true))));
+
+            HttpGet get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path/");
+            HttpResponse result = client.execute(get);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            String etag = result.getFirstHeader("ETag").getValue();
+            String response = HttpClientUtils.readResponse(result);
+            Assert.assertTrue(response, response.contains("page.html"));
+
+            get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path/");
+            result = client.execute(get);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            Assert.assertEquals(etag, result.getFirstHeader("ETag").getValue());
+            Assert.assertEquals(response, HttpClientUtils.readResponse(result));
+
+            get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path/");
+            get.addHeader("If-None-Match", etag);
+            result = client.execute(get);
+            Assert.assertEquals(StatusCodes.NOT_MODIFIED, result.getStatusLine().getStatusCode());
+            HttpClientUtils.readResponse(result);
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test
+    public void testMultipleRangeRequests() throws IOException, URISyntaxException {
+        TestHttpClient client = new TestHttpClient();
+        File rootPath = new File(getClass().getResource("page.html").toURI()).getParentFile();
+        try {
+            DefaultServer.setRootHandler(new CanonicalPathHandler()
+                    .setNext(new PathHandler()
+                            .addPrefixPath("/path", new ResourceHandler()
+                                    .setResourceManager(new FileResourceManager(rootPath, 1))
+                                    .setDirectoryListingEnabled(true))));
+
+            //overlapping ranges are coalesced into a single range
+            HttpGet get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path/page.html");
+            get.addHeader("range", "bytes=2-3,0-2");
+            HttpResponse result = client.execute(get);
+            Assert.assertEquals(StatusCodes.PARTIAL_CONTENT, result.getStatusLine().getStatusCode());
+            Assert.assertEquals("bytes 0-3/806", result.getFirstHeader("Content-Range").getValue());
+            Assert.assertEquals("<!--", HttpClientUtils.readResponse(result));
+
+            get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path/page.html");
+            get.addHeader("range", "bytes=-7,0-0");
+            result = client.execute(get);
+            Assert.assertEquals(StatusCodes.PARTIAL_CONTENT, result.getStatusLine().getStatusCode());
+            String contentType = result.getFirstHeader("Content-Type").getValue();
+            Assert.assertTrue(contentType, contentType.startsWith("multipart/byteranges; boundary="));
+            String boundary = contentType.substring(contentType.indexOf('=') + 1);
+            String response = HttpClientUtils.readResponse(result);
+            Assert.assertEquals("--" + boundary + "\r\n" +
+                    "Content-Type: text/html\r\n" +
+                    "Content-Range: bytes 0-0/806\r\n\r\n" +
+                    "<\r\n" +
+                    "--" + boundary + "\r\n" +
+                    "Content-Type: text/html\r\n" +
+                    "Content-Range: bytes 799-805/806\r\n\r\n" +
+                    "</html>\r\n" +
+                    "--" + boundary + "--\r\n", response);
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test
+    public void testRangeRequestsFromCache() throws IOException, URISyntaxException {
+        TestHttpClient client = new TestHttpClient();
+        File file = new File(getClass().getResource("page.html").toURI());
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        try {
+            DefaultServer.setRootHandler(new CanonicalPathHandler()
+                    .setNext(new PathHandler()
+                            .addPrefixPath("/path", new ResourceHandler()
+                                    .setResourceManager(new CachingResourceManager(100, 10000, new DirectBufferCache(100, 10, 10000), new FileResourceManager(file.getParentFile(), 1), -1)))));
+
+            //the first request populates the cache
+            HttpGet get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path/page.html");
+            HttpResponse result = client.execute(get);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            Assert.assertEquals(content, HttpClientUtils.readResponse(result));
+
+            for (int i = 0; i < 2; ++i) {
+                //range that crosses cache slice boundaries
+                get = new HttpGet(DefaultServer.getDefaultServerURL() + "/path/page.html");
+                get.addHeader("range", "bytes=95-304");
+                result = client.execute(get);
+                Assert.assertEquals(StatusCodes.PARTIAL_CONTENT, result.getStatusLine().getStatusCode());
+                Assert.assertEquals("bytes 95-304/806", result.getFirstHeader("Content-Range").getValue());
+                Assert.assertEquals(content.substring(95, 305), HttpClientUtils.readResponse(result));
+            }
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
     /*
     Starts simple file server, it is useful for testing directory browsing
      */
@@ -0,0 +1,97 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.undertow.server.handlers.resource.FileResourceManager;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceChangeEvent;
+import io.undertow.server.handlers.resource.ResourceChangeListener;
+import io.undertow.util.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Stuart Douglas
+ */
+public class FileResourceManagerCacheTestCase {
+
+    @Test
+    public void testResourcesAndMissingPathsAreCached() throws IOException, InterruptedException {
+        File base = Files.createTempDirectory("undertow-cache").toFile();
+        FileResourceManager manager = new FileResourceManager(base, 10485760).setMetadataCache(100, -1);
+        final CountDownLatch firstChange = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch missingChanged = new CountDownLatch(1);
+        manager.registerResourceChangeListener(new ResourceChangeListener() {
+            @Override
+            public void handleChanges(Collection<ResourceChangeEvent> changes) {
+                firstChange.countDown();
+                for (ResourceChangeEvent change : changes) {
+                    if (change.getResource().equals("missing.html")) {
+                        //listeners are invoked after the cache has been cleared
+                        missingChanged.countDown();
+                    }
+                }
+                try {
+                    //hold up the watcher, so later changes cannot clear the cache until we allow it
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        try {
+            write(new File(base, "page.html"), "hello");
+            Assert.assertTrue(firstChange.await(10, TimeUnit.SECONDS));
+            Resource resource = manager.getResource("/page.html");
+            Assert.assertNotNull(resource);
+            Assert.assertEquals(5L, (long) resource.getContentLength());
+            Assert.assertSame(resource, manager.getResource("/page.html"));
+
+            Assert.assertNull(manager.getResource("/missing.html"));
+            write(new File(base, "missing.html"), "found");
+            //the watcher is blocked, so the missing entry is still served from the cache
+            Assert.assertNull(manager.getResource("/missing.html"));
+
+            release.countDown();
+            Assert.assertTrue(missingChanged.await(10, TimeUnit.SECONDS));
+            resource = manager.getResource("/missing.html");
+            Assert.assertNotNull(resource);
+            Assert.assertEquals(5L, (long) resource.getContentLength());
+        } finally {
+            release.countDown();
+            manager.close();
+            FileUtils.deleteRecursive(base);
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes("UTF-8"));
+        }
+    }
+}
@@ -122,7 +122,18 @@ public class FormDataParserTestCase {
 
     }
 
+    @Test
+    public void testChunkedFormDataParsing() throws Exception {
+        //no content length, so the data is parsed as it arrives rather than in a single buffer
+        runTest(true, new BasicNameValuePair("name", "A Value"));
+        runTest(true, new BasicNameValuePair("name", "A Value"), new BasicNameValuePair("Single-value", null) , new BasicNameValuePair("A/name/with_special*chars", "A $ value&& with=SomeCharacters"));
+    }
+
     private void runTest(final NameValuePair... pairs) throws Exception {
+        runTest(false, pairs);
+    }
+
+    private void runTest(final boolean chunked, final NameValuePair... pairs) throws Exception {
         DefaultServer.setRootHandler(rootHandler);
         TestHttpClient client = new TestHttpClient();
         try {
@@ -131,7 +142,9 @@ public class FormDataParserTestCase {
             data.addAll(Arrays.asList(pairs));
             HttpPost post = new HttpPost(DefaultServer.getDefaultServerURL() + "/path");
             post.setHeader(Headers.CONTENT_TYPE_STRING, FormEncodedDataDefinition.APPLICATION_X_WWW_FORM_URLENCODED);
-            post.setEntity(new UrlEncodedFormEntity(data));
+            UrlEncodedFormEntity entity = new UrlEncodedFormEntity(data);
+            entity.setChunked(chunked);
+            post.setEntity(entity);
             HttpResponse result = client.execute(post);
             Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
             checkResult(data, result);
@@ -18,7 +18,10 @@
 
 package io.undertow.server.handlers.form;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 import io.undertow.server.HttpHandler;
@@ -26,6 +29,9 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.server.handlers.BlockingHandler;
 import io.undertow.testutils.DefaultServer;
 import io.undertow.util.FileUtils;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+import io.undertow.util.MultipartParser;
 import io.undertow.testutils.HttpClientUtils;
 import io.undertow.testutils.TestHttpClient;
 import io.undertow.util.StatusCodes;
@@ -127,4 +133,93 @@ public class MultipartFormDataParserTestCase {
             client.getConnectionManager().shutdown();
         }
     }
+
+    @Test
+    public void testFileUploadHeldInMemory() throws Exception {
+        DefaultServer.setRootHandler(new BlockingHandler(new HttpHandler() {
+            @Override
+            public void handleRequest(final HttpServerExchange exchange) throws Exception {
+                final FormDataParser parser = FormParserFactory.builder(false)
+                        .addParser(new MultiPartParserDefinition().setFileSizeThreshold(10000))
+                        .build().createParser(exchange);
+                try {
+                    FormData data = parser.parseBlocking();
+                    FormData.FormValue file = data.getFirst("file");
+                    if (file.isFile() && file.isFileInMemory() && FileUtils.readFile(file.getFileInputStream()).startsWith("file contents")) {
+                        exchange.setResponseCode(StatusCodes.OK);
+                    } else {
+                        exchange.setResponseCode(StatusCodes.INTERNAL_SERVER_ERROR);
+                    }
+                } finally {
+                    IoUtils.safeClose(parser);
+                }
+            }
+        }));
+        TestHttpClient client = new TestHttpClient();
+        try {
+            HttpPost post = new HttpPost(DefaultServer.getDefaultServerURL() + "/path");
+            MultipartEntity entity = new MultipartEntity(HttpMultipartMode.BROWSER_COMPATIBLE);
+
+            entity.addPart("formValue", new StringBody("myValue", "text/plain", Charset.forName("UTF-8")));
+            entity.addPart("file", new FileBody(new File(MultipartFormDataParserTestCase.class.getResource("uploadfile.txt").getFile())));
+
+            post.setEntity(entity);
+            HttpResponse result = client.execute(post);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            HttpClientUtils.readResponse(result);
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test
+    public void testStreamingFileUpload() throws Exception {
+        DefaultServer.setRootHandler(new HttpHandler() {
+            @Override
+            public void handleRequest(final HttpServerExchange exchange) throws Exception {
+                final StringBuilder parts = new StringBuilder();
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                new MultiPartParserDefinition().parseStreaming(exchange, new MultipartParser.PartHandler() {
+                    @Override
+                    public void beginPart(final HeaderMap headers) {
+                        parts.append(Headers.extractQuotedValueFromHeader(headers.getFirst(Headers.CONTENT_DISPOSITION), "name")).append(':');
+                    }
+
+                    @Override
+                    public void data(final ByteBuffer buffer) throws IOException {
+                        while (buffer.hasRemaining()) {
+                            out.write(buffer.get());
+                        }
+                    }
+
+                    @Override
+                    public void endPart() {
+                        parts.append(new String(out.toByteArray())).append(';');
+                        out.reset();
+                    }
+                }, new HttpHandler() {
+                    @Override
+                    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+                        exchange.getResponseSender().send(parts.toString());
+                    }
+                });
+            }
+        });
+        TestHttpClient client = new TestHttpClient();
+        try {
+            HttpPost post = new HttpPost(DefaultServer.getDefaultServerURL() + "/path");
+            MultipartEntity entity = new MultipartEntity(HttpMultipartMode.BROWSER_COMPATIBLE);
+
+            entity.addPart("formValue", new StringBody("myValue", "text/plain", Charset.forName("UTF-8")));
+            entity.addPart("file", new FileBody(new File(MultipartFormDataParserTestCase.class.getResource("uploadfile.txt").getFile())));
+
+            post.setEntity(entity);
+            HttpResponse result = client.execute(post);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            String response = HttpClientUtils.readResponse(result);
+            Assert.assertTrue(response, response.startsWith("formValue:myValue;file:file contents"));
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
 }
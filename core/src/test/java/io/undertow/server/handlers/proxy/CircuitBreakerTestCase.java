@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers.proxy;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Stuart Douglas
+ */
+public class CircuitBreakerTestCase {
+
+    @Test
+    public void testOpensAtFailureRatio() {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 4, -1, 60000, 60000);
+        breaker.requestComplete(true, 1);
+        breaker.requestComplete(true, 1);
+        //not enough requests yet
+        Assert.assertTrue(breaker.allowRequest());
+        breaker.requestComplete(false, 1);
+        Assert.assertTrue(breaker.allowRequest());
+        breaker.requestComplete(true, 1);
+        Assert.assertTrue(breaker.isOpen());
+        Assert.assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void testSlowRequestsCountAsFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 2, 100, 60000, 60000);
+        breaker.requestComplete(false, 200);
+        breaker.requestComplete(false, 50);
+        Assert.assertFalse(breaker.isOpen());
+        breaker.requestComplete(false, 100);
+        Assert.assertFalse(breaker.isOpen());
+
+        breaker = new CircuitBreaker(1, 2, 100, 60000, 60000);
+        breaker.requestComplete(false, 200);
+        breaker.requestComplete(false, 300);
+        Assert.assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    public void testSingleProbeAndClose() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, -1, 60000, 50);
+        breaker.requestComplete(true, 1);
+        Assert.assertFalse(breaker.allowRequest());
+        Thread.sleep(100);
+        Assert.assertTrue(breaker.allowRequest());
+        //only one probe is allowed through
+        Assert.assertFalse(breaker.allowRequest());
+        breaker.requestComplete(true, 1);
+        Assert.assertTrue(breaker.isOpen());
+        Thread.sleep(100);
+        Assert.assertTrue(breaker.allowRequest());
+        breaker.requestComplete(false, 1);
+        Assert.assertFalse(breaker.isOpen());
+        Assert.assertTrue(breaker.allowRequest());
+        Assert.assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testIsAllowedDoesNotClaimProbe() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, -1, 60000, 50);
+        breaker.requestComplete(true, 1);
+        Assert.assertFalse(breaker.isAllowed());
+        Thread.sleep(100);
+        Assert.assertTrue(breaker.isAllowed());
+        Assert.assertTrue(breaker.isAllowed());
+        Assert.assertTrue(breaker.allowRequest());
+        Assert.assertFalse(breaker.isAllowed());
+    }
+
+    @Test
+    public void testStaleOutcomesIgnored() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, -1, 60000, 50);
+        final int before = breaker.getGeneration();
+        breaker.requestComplete(true, 1);
+        Assert.assertTrue(breaker.isOpen());
+        //a request that was started before the breaker opened does not close it
+        breaker.requestComplete(before, false, 1);
+        Assert.assertTrue(breaker.isOpen());
+        Thread.sleep(100);
+        Assert.assertTrue(breaker.allowRequest());
+        breaker.requestComplete(breaker.getGeneration(), false, 1);
+        Assert.assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void testConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(0, 1, -1, 60000, 60000, 3);
+        breaker.requestComplete(true, 1);
+        breaker.requestComplete(true, 1);
+        breaker.requestComplete(false, 1);
+        breaker.requestComplete(true, 1);
+        breaker.requestComplete(true, 1);
+        Assert.assertFalse(breaker.isOpen());
+        breaker.requestComplete(true, 1);
+        Assert.assertTrue(breaker.isOpen());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRatio() {
+        new CircuitBreaker(0, 1, -1, 1000, 1000);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers.proxy;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Stuart Douglas
+ */
+public class HashRingTestCase {
+
+    private static final int KEYS = 10000;
+
+    @Test
+    public void testKeysSpreadEvenly() {
+        String[] hosts = {"http://a", "http://b", "http://c", "http://d"};
+        HashRing<String> ring = new HashRing<>(hosts, hosts);
+        int[] counts = new int[hosts.length];
+        for (int i = 0; i < KEYS; ++i) {
+            String host = ring.get(ring.find(HashRing.hash("/path/" + i)));
+            for (int j = 0; j < hosts.length; ++j) {
+                if (hosts[j].equals(host)) {
+                    counts[j]++;
+                }
+            }
+        }
+        for (int count : counts) {
+            Assert.assertTrue("Uneven distribution " + count, count > KEYS / hosts.length / 2 && count < KEYS / hosts.length * 2);
+        }
+    }
+
+    @Test
+    public void testMemberIndex() {
+        String[] hosts = {"http://a", "http://b", "http://c"};
+        HashRing<String> ring = new HashRing<>(hosts, hosts);
+        Assert.assertEquals(3, ring.memberCount());
+        for (int i = 0; i < ring.size() + 10; ++i) {
+            Assert.assertEquals(ring.get(i), ring.member(ring.memberIndex(i)));
+        }
+    }
+
+    @Test
+    public void testAddingHostOnlyMovesItsShare() {
+        String[] hosts = {"http://a", "http://b", "http://c", "http://d"};
+        String[] moreHosts = {"http://a", "http://b", "http://c", "http://d", "http://e"};
+        HashRing<String> ring = new HashRing<>(hosts, hosts);
+        HashRing<String> newRing = new HashRing<>(moreHosts, moreHosts);
+        int moved = 0;
+        for (int i = 0; i < KEYS; ++i) {
+            long hash = HashRing.hash("/path/" + i);
+            String before = ring.get(ring.find(hash));
+            String after = newRing.get(newRing.find(hash));
+            if (!before.equals(after)) {
+                Assert.assertEquals("http://e", after);
+                moved++;
+            }
+        }
+        //roughly a fifth of the keys should move to the new host
+        Assert.assertTrue("Moved " + moved, moved > KEYS / 10 && moved < KEYS * 3 / 10);
+    }
+}
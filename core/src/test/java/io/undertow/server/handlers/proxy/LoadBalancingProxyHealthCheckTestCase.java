@@ -0,0 +1,146 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers.proxy;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashSet;
+import java.util.Set;
+
+import io.undertow.Undertow;
+import io.undertow.server.handlers.ResponseCodeHandler;
+import io.undertow.testutils.DefaultServer;
+import io.undertow.testutils.HttpClientUtils;
+import io.undertow.testutils.ProxyIgnore;
+import io.undertow.testutils.TestHttpClient;
+import io.undertow.util.StatusCodes;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.xnio.Options;
+
+import static io.undertow.Handlers.path;
+
+/**
+ * Tests that a host failing its health check no longer receives requests
+ *
+ * @author Stuart Douglas
+ */
+@RunWith(DefaultServer.class)
+@ProxyIgnore
+public class LoadBalancingProxyHealthCheckTestCase {
+
+    private static Undertow server1;
+    private static Undertow server2;
+
+    private LoadBalancingProxyClient proxyClient;
+
+    @BeforeClass
+    public static void setup() throws URISyntaxException {
+        int port = DefaultServer.getHostPort("default");
+        server1 = Undertow.builder()
+                .addHttpListener(port + 1, DefaultServer.getHostAddress("default"))
+                .setSocketOption(Options.REUSE_ADDRESSES, true)
+                .setHandler(path()
+                        .addPrefixPath("/health", ResponseCodeHandler.HANDLE_200)
+                        .addPrefixPath("/name", new AbstractLoadBalancingProxyTestCase.StringSendHandler("server1")))
+                .build();
+
+        server2 = Undertow.builder()
+                .addHttpListener(port + 2, DefaultServer.getHostAddress("default"))
+                .setSocketOption(Options.REUSE_ADDRESSES, true)
+                .setHandler(path()
+                        .addPrefixPath("/health", new ResponseCodeHandler(StatusCodes.SERVICE_UNAVAILABLE))
+                        .addPrefixPath("/name", new AbstractLoadBalancingProxyTestCase.StringSendHandler("server2")))
+                .build();
+        server1.start();
+        server2.start();
+    }
+
+    private void setProxyClient() throws URISyntaxException {
+        int port = DefaultServer.getHostPort("default");
+        proxyClient = new LoadBalancingProxyClient()
+                .setConnectionsPerThread(1)
+                .setHealthCheck("/health", 100, 1, 1)
+                .addHost(new URI("http", null, DefaultServer.getHostAddress("default"), port + 1, null, null, null), "s1")
+                .addHost(new URI("http", null, DefaultServer.getHostAddress("default"), port + 2, null, null, null), "s2");
+        DefaultServer.setRootHandler(new ProxyHandler(proxyClient, 10000, ResponseCodeHandler.HANDLE_404));
+    }
+
+    @After
+    public void closeProxyClient() {
+        if (proxyClient != null) {
+            proxyClient.close();
+        }
+    }
+
+    @AfterClass
+    public static void teardown() {
+        server1.stop();
+        server2.stop();
+    }
+
+    @Test
+    public void testUnhealthyHostNotUsed() throws Exception {
+        setProxyClient();
+        //the first request starts the health checks
+        Assert.assertNotNull(request());
+        Thread.sleep(500);
+        for (int i = 0; i < 6; ++i) {
+            Assert.assertEquals("server1", request());
+        }
+    }
+
+    @Test
+    public void testExplicitStartAndDisable() throws Exception {
+        setProxyClient();
+        proxyClient.startHealthChecks(DefaultServer.getWorker().getIoThread(), DefaultServer.getBufferPool());
+        Thread.sleep(500);
+        for (int i = 0; i < 6; ++i) {
+            Assert.assertEquals("server1", request());
+        }
+        //disabling the health check cancels it, and the host is used again
+        proxyClient.setHealthCheck(null, 0, 0, 0);
+        Thread.sleep(500);
+        final Set<String> names = new HashSet<>();
+        for (int i = 0; i < 6; ++i) {
+            names.add(request());
+        }
+        Assert.assertTrue(names.contains("server1"));
+        Assert.assertTrue(names.contains("server2"));
+    }
+
+    private static String request() throws IOException {
+        TestHttpClient client = new TestHttpClient();
+        try {
+            HttpGet get = new HttpGet(DefaultServer.getDefaultServerURL() + "/name");
+            HttpResponse result = client.execute(get);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            return HttpClientUtils.readResponse(result);
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+}
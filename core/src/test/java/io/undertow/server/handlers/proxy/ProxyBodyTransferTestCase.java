@@ -0,0 +1,137 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers.proxy;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Arrays;
+
+import io.undertow.Undertow;
+import io.undertow.UndertowOptions;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.BlockingHandler;
+import io.undertow.server.handlers.ResponseCodeHandler;
+import io.undertow.testutils.DefaultServer;
+import io.undertow.testutils.HttpClientUtils;
+import io.undertow.testutils.HttpOneOnly;
+import io.undertow.testutils.ProxyIgnore;
+import io.undertow.testutils.TestHttpClient;
+import io.undertow.util.StatusCodes;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.xnio.OptionMap;
+import org.xnio.Options;
+
+/**
+ * Tests that large request and response bodies are copied intact through the proxy, using both fixed length and
+ * chunked framing.
+ *
+ * @author Stuart Douglas
+ */
+@RunWith(DefaultServer.class)
+@HttpOneOnly
+@ProxyIgnore
+public class ProxyBodyTransferTestCase {
+
+    private static final int BODY_SIZE = 1024 * 1024;
+
+    private static Undertow server;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        int port = DefaultServer.getHostPort("default") + 1;
+        server = Undertow.builder()
+                .addHttpListener(port, DefaultServer.getHostAddress("default"))
+                .setServerOption(UndertowOptions.ENABLE_SPDY, false)
+                .setSocketOption(Options.REUSE_ADDRESSES, true)
+                .setHandler(new BlockingHandler(new HttpHandler() {
+                    @Override
+                    public void handleRequest(HttpServerExchange exchange) throws Exception {
+                        //echo the request body
+                        InputStream in = exchange.getInputStream();
+                        OutputStream out = exchange.getOutputStream();
+                        byte[] buf = new byte[8192];
+                        int r;
+                        while ((r = in.read(buf)) > 0) {
+                            out.write(buf, 0, r);
+                        }
+                    }
+                }))
+                .build();
+        server.start();
+
+        DefaultServer.setRootHandler(new ProxyHandler(new LoadBalancingProxyClient()
+                .setConnectionsPerThread(1)
+                .addHost(new URI("http", null, DefaultServer.getHostAddress("default"), port, null, null, null), "s1", null, OptionMap.create(UndertowOptions.ENABLE_SPDY, false))
+                , 10000, ResponseCodeHandler.HANDLE_404));
+    }
+
+    @AfterClass
+    public static void teardown() {
+        server.stop();
+    }
+
+    @Test
+    public void testFixedLengthBody() throws Exception {
+        final byte[] body = createBody();
+        TestHttpClient client = new TestHttpClient();
+        try {
+            HttpPost post = new HttpPost(DefaultServer.getDefaultServerURL() + "/echo");
+            post.setEntity(new ByteArrayEntity(body));
+            HttpResponse result = client.execute(post);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            Assert.assertTrue(Arrays.equals(body, HttpClientUtils.readRawResponse(result)));
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test
+    public void testChunkedBody() throws Exception {
+        final byte[] body = createBody();
+        TestHttpClient client = new TestHttpClient();
+        try {
+            HttpPost post = new HttpPost(DefaultServer.getDefaultServerURL() + "/echo");
+            post.setEntity(new InputStreamEntity(new ByteArrayInputStream(body), -1));
+            HttpResponse result = client.execute(post);
+            Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+            Assert.assertTrue(Arrays.equals(body, HttpClientUtils.readRawResponse(result)));
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    private static byte[] createBody() {
+        byte[] body = new byte[BODY_SIZE];
+        for (int i = 0; i < body.length; ++i) {
+            body[i] = (byte) (i % 251);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers.proxy;
+
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.BlockingHandler;
+import io.undertow.server.handlers.ResponseCodeHandler;
+import io.undertow.testutils.DefaultServer;
+import io.undertow.testutils.HttpClientUtils;
+import io.undertow.testutils.HttpOneOnly;
+import io.undertow.testutils.ProxyIgnore;
+import io.undertow.testutils.TestHttpClient;
+import io.undertow.util.StatusCodes;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.xnio.IoUtils;
+import org.xnio.Options;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests that requests that fail after they have been sent to a backend are only retried if they can be replayed.
+ *
+ * @author Stuart Douglas
+ */
+@RunWith(DefaultServer.class)
+@HttpOneOnly
+@ProxyIgnore
+public class ProxyRetryTestCase {
+
+    private static final AtomicInteger failedRequests = new AtomicInteger();
+
+    private static Undertow failingServer;
+    private static Undertow server;
+
+    @BeforeClass
+    public static void setup() {
+        int port = DefaultServer.getHostPort("default");
+        final BlockingHandler failingHandler = new BlockingHandler();
+        failingHandler.setRootHandler(new HttpHandler() {
+            @Override
+            public void handleRequest(HttpServerExchange exchange) throws Exception {
+                //read the whole request, then drop the connection without sending a response
+                HttpClientUtils.readResponse(exchange.getInputStream());
+                failedRequests.incrementAndGet();
+                IoUtils.safeClose(exchange.getConnection());
+            }
+        });
+        failingServer = Undertow.builder()
+                .addHttpListener(port + 1, DefaultServer.getHostAddress("default"))
+                .setSocketOption(Options.REUSE_ADDRESSES, true)
+                .setHandler(failingHandler)
+                .build();
+        server = Undertow.builder()
+                .addHttpListener(port + 2, DefaultServer.getHostAddress("default"))
+                .setSocketOption(Options.REUSE_ADDRESSES, true)
+                .setHandler(new AbstractLoadBalancingProxyTestCase.StringSendHandler("server2"))
+                .build();
+        failingServer.start();
+        server.start();
+    }
+
+    @AfterClass
+    public static void teardown() {
+        failingServer.stop();
+        server.stop();
+    }
+
+    @Before
+    public void reset() {
+        failedRequests.set(0);
+    }
+
+    private static void setProxyHandler(int maxConnectionRetries) throws Exception {
+        int port = DefaultServer.getHostPort("default");
+        DefaultServer.setRootHandler(new ProxyHandler(new LoadBalancingProxyClient()
+                .setConnectionsPerThread(1)
+                .addHost(new URI("http", null, DefaultServer.getHostAddress("default"), port + 1, null, null, null))
+                .addHost(new URI("http", null, DefaultServer.getHostAddress("default"), port + 2, null, null, null))
+                , 10000, ResponseCodeHandler.HANDLE_404, false, false, maxConnectionRetries));
+    }
+
+    @Test
+    public void testRequestsWithoutBodyAreRetried() throws Exception {
+        setProxyHandler(1);
+        TestHttpClient client = new TestHttpClient();
+        try {
+            for (int i = 0; i < 4; ++i) {
+                for (HttpUriRequest request : new HttpUriRequest[]{
+                        new HttpGet(DefaultServer.getDefaultServerURL() + "/path"),
+                        new HttpDelete(DefaultServer.getDefaultServerURL() + "/path")}) {
+                    HttpResponse result = client.execute(request);
+                    Assert.assertEquals(StatusCodes.OK, result.getStatusLine().getStatusCode());
+                    Assert.assertEquals("server2", HttpClientUtils.readResponse(result));
+                }
+            }
+            //the requests were sent to the failing host and then retried on the other one
+            Assert.assertTrue(failedRequests.get() > 0);
+        } finally {
+            client.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test
+    public void testRequestsWithBodyAreNotRetried() throws Exception {
+        setProxyHandler(1);
+        Assert.assertEquals(1, countFailures(4, true));
+        Assert.assertEquals(4, failedRequests.get());
+    }
+
+    @Test
+    public void testNoRetriesWhenDisabled() throws Exception {
+        setProxyHandler(0);
+        Assert.assertEquals(1, countFailures(4, false));
+        Assert.assertEquals(4, failedRequests.get());
+    }
+
+    /**
+     * Sends pairs of PUT requests, as requests alternate between the two hosts one request of each pair is sent to the
+     * failing host.
+     *
+     * @return The number of failed requests per pair
+     */
+    private int countFailures(int pairs, boolean withBody) throws IOException {
+        int failures = 0;
+        for (int i = 0; i < pairs * 2; ++i) {
+            TestHttpClient client = new TestHttpClient();
+            try {
+                HttpPut put = new HttpPut(DefaultServer.getDefaultServerURL() + "/path");
+                if (withBody) {
+                    put.setEntity(new StringEntity("request body"));
+                }
+                HttpResponse result = client.execute(put);
+                if (result.getStatusLine().getStatusCode() == StatusCodes.OK) {
+                    Assert.assertEquals("server2", HttpClientUtils.readResponse(result));
+                } else {
+                    failures++;
+                }
+            } finally {
+                client.getConnectionManager().shutdown();
+            }
+        }
+        return failures / pairs;
+    }
+}
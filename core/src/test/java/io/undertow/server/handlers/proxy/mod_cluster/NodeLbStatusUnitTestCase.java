@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.server.handlers.proxy.mod_cluster;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Stuart Douglas
+ */
+public class NodeLbStatusUnitTestCase {
+
+    @Test
+    public void testLbStatusWeightedByLoadFactor() {
+        final NodeLbStatus heavy = new NodeLbStatus();
+        final NodeLbStatus light = new NodeLbStatus();
+        heavy.updateLoad(100);
+        light.updateLoad(25);
+        for (int i = 0; i < 10; ++i) {
+            heavy.elected();
+            light.elected();
+        }
+        Assert.assertEquals(10, heavy.getElectedDiff());
+        Assert.assertEquals(100, heavy.getLbStatus());
+        Assert.assertEquals(400, light.getLbStatus());
+
+        Assert.assertTrue(heavy.update());
+        Assert.assertEquals(0, heavy.getElectedDiff());
+        Assert.assertEquals(100, heavy.getLbStatus());
+        Assert.assertFalse(heavy.update());
+        Assert.assertEquals(0, heavy.getLbStatus());
+        Assert.assertEquals(10, heavy.getElected());
+    }
+
+    @Test
+    public void testSmoothWeightedRoundRobin() {
+        final NodeLbStatus[] nodes = {new NodeLbStatus(), new NodeLbStatus(), new NodeLbStatus()};
+        nodes[0].updateLoad(5);
+        nodes[1].updateLoad(1);
+        nodes[2].updateLoad(1);
+        final StringBuilder order = new StringBuilder();
+        for (int i = 0; i < 14; ++i) {
+            order.append(elect(nodes));
+        }
+        //the heavy node gets five out of every seven elections, spread out rather than in a row
+        Assert.assertEquals("00102000010200", order.toString());
+    }
+
+    /**
+     * Same election rule as {@link ModClusterContainer#electNode}, for nodes that are all available.
+     */
+    private static int elect(final NodeLbStatus[] nodes) {
+        int selected = -1;
+        int selectedWeight = 0;
+        int total = 0;
+        for (int i = 0; i < nodes.length; ++i) {
+            final int weight = nodes[i].getWeight();
+            final int current = nodes[i].addCurrentWeight(weight);
+            total += weight;
+            if (selected == -1 || current > selectedWeight) {
+                selected = i;
+                selectedWeight = current;
+            }
+        }
+        nodes[selected].elected(total);
+        return selected;
+    }
+
+    @Test
+    public void testConcurrentElections() throws InterruptedException {
+        final NodeLbStatus status = new NodeLbStatus();
+        status.updateLoad(1);
+        final int threads = 4;
+        final int elections = 10000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; ++i) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < elections; ++j) {
+                        status.elected();
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        Assert.assertEquals(threads * elections, status.getElectedDiff());
+    }
+}
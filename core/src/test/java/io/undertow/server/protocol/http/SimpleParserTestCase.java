@@ -198,6 +198,40 @@ public class SimpleParserTestCase {
 
     }
 
+    @Test
+    public void testQueryParamsNotDecodedWhenDisabled() {
+        byte[] in = "GET /somepath?a=b%20c&a=d+e HTTP/1.1\r\n\r\n".getBytes();
+
+        final ParseState context = new ParseState();
+        HttpServerExchange result = new HttpServerExchange(null);
+        HttpRequestParser.instance(OptionMap.create(UndertowOptions.DECODE_URL, false)).handle(ByteBuffer.wrap(in), context, result);
+        Assert.assertEquals("a=b%20c&a=d+e", result.getQueryString());
+        Assert.assertEquals("b%20c", result.getQueryParameters().get("a").getFirst());
+        Assert.assertEquals("d+e", result.getQueryParameters().get("a").getLast());
+
+        result = new HttpServerExchange(null);
+        HttpRequestParser.instance(OptionMap.EMPTY).handle(ByteBuffer.wrap(in), new ParseState(), result);
+        result.addQueryParam("a", "f");
+        Assert.assertEquals(3, result.getQueryParameters().get("a").size());
+        Assert.assertEquals("b c", result.getQueryParameters().get("a").getFirst());
+        Assert.assertEquals("f", result.getQueryParameters().get("a").getLast());
+    }
+
+    @Test
+    public void testMalformedParameterEscapesRejected() {
+        for (String request : new String[]{"GET /somepath?a=%zz HTTP/1.1\r\n\r\n", "GET /somepath?a=b%2 HTTP/1.1\r\n\r\n", "GET /somepath;a=%g1 HTTP/1.1\r\n\r\n"}) {
+            try {
+                HttpRequestParser.instance(OptionMap.EMPTY).handle(ByteBuffer.wrap(request.getBytes()), new ParseState(), new HttpServerExchange(null));
+                Assert.fail("Malformed escape not rejected " + request);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        //the escapes are not checked if the parameters are not decoded
+        HttpServerExchange result = new HttpServerExchange(null);
+        HttpRequestParser.instance(OptionMap.create(UndertowOptions.DECODE_URL, false)).handle(ByteBuffer.wrap("GET /somepath?a=%zz HTTP/1.1\r\n\r\n".getBytes()), new ParseState(), result);
+        Assert.assertEquals("%zz", result.getQueryParameters().get("a").getFirst());
+    }
+
     @Test
     public void testSameHttpStringReturned() {
         byte[] in = "GET\thttp://www.somehost.net/somepath\tHTTP/1.1\nHost: \t www.somehost.net\nAccept-Charset:\tsome\n \t  value\n\r\n".getBytes();
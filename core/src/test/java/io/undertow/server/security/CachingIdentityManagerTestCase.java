@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.undertow.server.security;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.Set;
+
+import io.undertow.security.idm.Account;
+import io.undertow.security.idm.Credential;
+import io.undertow.security.idm.IdentityManager;
+import io.undertow.security.idm.PasswordCredential;
+import io.undertow.security.impl.CachingIdentityManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Stuart Douglas
+ */
+public class CachingIdentityManagerTestCase {
+
+    @Test
+    public void testVerificationIsCached() {
+        CountingIdentityManager delegate = new CountingIdentityManager();
+        CachingIdentityManager idm = new CachingIdentityManager(delegate, 10, 60000);
+
+        Assert.assertNotNull(idm.verify("user", new PasswordCredential("password".toCharArray())));
+        Assert.assertNotNull(idm.verify("user", new PasswordCredential("password".toCharArray())));
+        Assert.assertEquals(1, delegate.calls);
+        Assert.assertEquals(1, idm.getHitCount());
+        Assert.assertEquals(1, idm.getMissCount());
+
+        //a different password must always go to the delegate
+        Assert.assertNull(idm.verify("user", new PasswordCredential("wrong".toCharArray())));
+        Assert.assertNull(idm.verify("user", new PasswordCredential("wrong".toCharArray())));
+        Assert.assertEquals(3, delegate.calls);
+
+        //the correct password is still cached
+        Assert.assertNotNull(idm.verify("user", new PasswordCredential("password".toCharArray())));
+        Assert.assertEquals(3, delegate.calls);
+
+        idm.invalidate("user");
+        Assert.assertNotNull(idm.verify("user", new PasswordCredential("password".toCharArray())));
+        Assert.assertEquals(4, delegate.calls);
+
+        idm.invalidateAll();
+        Assert.assertNotNull(idm.verify("user", new PasswordCredential("password".toCharArray())));
+        Assert.assertEquals(5, delegate.calls);
+    }
+
+    @Test
+    public void testEntriesExpire() throws InterruptedException {
+        CountingIdentityManager delegate = new CountingIdentityManager();
+        CachingIdentityManager idm = new CachingIdentityManager(delegate, 10, 10);
+        Assert.assertNotNull(idm.verify("user", new PasswordCredential("password".toCharArray())));
+        Thread.sleep(50);
+        Assert.assertNotNull(idm.verify("user", new PasswordCredential("password".toCharArray())));
+        Assert.assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    public void testInvalidationDuringVerificationIsNotUndone() {
+        final CountingIdentityManager delegate = new CountingIdentityManager();
+        final CachingIdentityManager idm = new CachingIdentityManager(delegate, 10, 60000);
+        //the account is changed while the delegate is still verifying the old credential
+        delegate.duringVerify = new Runnable() {
+            @Override
+            public void run() {
+                idm.invalidate("user");
+            }
+        };
+        Assert.assertNotNull(idm.verify("user", new PasswordCredential("password".toCharArray())));
+        delegate.duringVerify = null;
+        Assert.assertNotNull(idm.verify("user", new PasswordCredential("password".toCharArray())));
+        Assert.assertEquals(2, delegate.calls);
+
+        delegate.duringVerify = new Runnable() {
+            @Override
+            public void run() {
+                idm.invalidateAll();
+            }
+        };
+        idm.invalidate("user");
+        Assert.assertNotNull(idm.verify("user", new PasswordCredential("password".toCharArray())));
+        delegate.duringVerify = null;
+        Assert.assertNotNull(idm.verify("user", new PasswordCredential("password".toCharArray())));
+        Assert.assertEquals(4, delegate.calls);
+
+        //with no invalidation in between the result is cached as normal
+        Assert.assertNotNull(idm.verify("user", new PasswordCredential("password".toCharArray())));
+        Assert.assertEquals(4, delegate.calls);
+    }
+
+    private static final class CountingIdentityManager implements IdentityManager {
+
+        private int calls;
+        private Runnable duringVerify;
+
+        @Override
+        public Account verify(Account account) {
+            return account;
+        }
+
+        @Override
+        public Account verify(final String id, Credential credential) {
+            calls++;
+            if (duringVerify != null) {
+                duringVerify.run();
+            }
+            if (!"password".equals(new String(((PasswordCredential) credential).getPassword()))) {
+                return null;
+            }
+            return new Account() {
+                @Override
+                public Principal getPrincipal() {
+                    return new Principal() {
+                        @Override
+                        public String getName() {
+                            return id;
+                        }
+                    };
+                }
+
+                @Override
+                public Set<String> getRoles() {
+                    return Collections.emptySet();
+                }
+            };
+        }
+
+        @Override
+        public Account verify(Credential credential) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests attachment storage for both indexed and overflow keys.
+ *
+ * @author Stuart Douglas
+ */
+public class AttachableTestCase {
+
+    @Test
+    public void testIndexedAndOverflowKeys() {
+        List<AttachmentKey<String>> keys = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            keys.add(AttachmentKey.<String>createIndexed(String.class));
+            keys.add(AttachmentKey.<String>create(String.class));
+        }
+        //only keys that ask for a slot are given one
+        Assert.assertEquals(-1, keys.get(1).index);
+
+        AbstractAttachable attachable = new AbstractAttachable() {
+        };
+        for (int i = 0; i < keys.size(); ++i) {
+            Assert.assertNull(attachable.getAttachment(keys.get(i)));
+            Assert.assertNull(attachable.putAttachment(keys.get(i), "value" + i));
+        }
+        for (int i = 0; i < keys.size(); ++i) {
+            Assert.assertEquals("value" + i, attachable.getAttachment(keys.get(i)));
+            Assert.assertEquals("value" + i, attachable.putAttachment(keys.get(i), "new" + i));
+            Assert.assertEquals("new" + i, attachable.removeAttachment(keys.get(i)));
+            Assert.assertNull(attachable.getAttachment(keys.get(i)));
+        }
+    }
+
+    @Test
+    public void testAttachmentList() {
+        AttachmentKey<AttachmentList<String>> key = AttachmentKey.createList(String.class);
+        AbstractAttachable attachable = new AbstractAttachable() {
+        };
+        Assert.assertTrue(attachable.getAttachmentList(key).isEmpty());
+        attachable.addToAttachmentList(key, "a");
+        attachable.addToAttachmentList(key, "b");
+        Assert.assertEquals(2, attachable.getAttachmentList(key).size());
+        Assert.assertEquals("b", attachable.getAttachmentList(key).get(1));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.undertow.util;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Stuart Douglas
+ */
+public class ByteRangeTestCase {
+
+    @Test
+    public void testResolveCoalescesRanges() {
+        List<ByteRange.Range> ranges = ByteRange.parse("bytes=50-60,0-9,5-19,-10,95-").resolve(100);
+        Assert.assertEquals(3, ranges.size());
+        assertRange(ranges.get(0), 0, 19);
+        assertRange(ranges.get(1), 50, 60);
+        assertRange(ranges.get(2), 90, 99);
+
+        Assert.assertNull(ByteRange.parse("bytes=100-200").resolve(100));
+    }
+
+    @Test
+    public void testNumberOfRangesLimited() {
+        Assert.assertEquals(ByteRange.MAX_RANGES, ByteRange.parse(ranges(ByteRange.MAX_RANGES)).getRanges());
+        Assert.assertNull(ByteRange.parse(ranges(ByteRange.MAX_RANGES + 1)));
+    }
+
+    @Test
+    public void testMultipartNotLargerThanResource() {
+        List<ByteRange.Range> ranges = ByteRange.parse("bytes=0-0,10-10").resolve(1000);
+        ByteRange.MultipartByteRanges multipart = ByteRange.MultipartByteRanges.create(ranges, "text/plain", 1000);
+        Assert.assertNotNull(multipart);
+        Assert.assertEquals(2, multipart.getParts());
+        Assert.assertTrue(multipart.getContentLength() <= 1000);
+
+        //the framing alone is larger than a small resource
+        ranges = ByteRange.parse("bytes=0-0,10-10").resolve(20);
+        Assert.assertNull(ByteRange.MultipartByteRanges.create(ranges, "text/plain", 20));
+    }
+
+    private static String ranges(int count) {
+        StringBuilder sb = new StringBuilder("bytes=");
+        for (int i = 0; i < count; ++i) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(i * 2).append('-').append(i * 2);
+        }
+        return sb.toString();
+    }
+
+    private static void assertRange(ByteRange.Range range, long start, long end) {
+        Assert.assertEquals(start, range.getStart());
+        Assert.assertEquals(end, range.getEnd());
+    }
+}
@@ -79,6 +79,50 @@ public class DateUtilsTestCase {
 
     }
 
+    @Test
+    public void testParseRfc1036AndAsctimeDates() {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+        calendar.set(1994, Calendar.NOVEMBER, 6, 8, 49, 37);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        Assert.assertEquals(calendar.getTime(), DateUtils.parseDate("Sunday, 06-Nov-94 08:49:37 GMT"));
+        Assert.assertEquals(calendar.getTime(), DateUtils.parseDate("Sun Nov  6 08:49:37 1994"));
+        Assert.assertEquals(calendar.getTime(), DateUtils.parseDate("Sun, 06-Nov-1994 08:49:37 GMT"));
+        Assert.assertNull(DateUtils.parseDate("Sun, 06 Nov 1994 08:49:37"));
+        Assert.assertNull(DateUtils.parseDate("Sun, 06 Nov 1994 24:49:37 GMT"));
+        Assert.assertNull(DateUtils.parseDate("not a date"));
+    }
+
+    @Test
+    public void testFormatDate() {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+        calendar.set(2014, Calendar.FEBRUARY, 2, 4, 3, 9);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        Assert.assertEquals("Sun, 02 Feb 2014 04:03:09 GMT", DateUtils.toDateString(calendar.getTime()));
+        Assert.assertEquals("Sun, 02-Feb-2014 04:03:09 GMT", DateUtils.toOldCookieDateString(calendar.getTime()));
+        Assert.assertEquals(calendar.getTimeInMillis(), DateUtils.parseDateMillis(DateUtils.toDateString(calendar.getTimeInMillis())));
+    }
+
+    @Test
+    public void testFormatDateOutOfRange() {
+        //dates that cannot be written with a four digit year are clamped, rather than failing
+        Assert.assertEquals("Fri, 31 Dec 9999 23:59:59 GMT", DateUtils.toDateString(Long.MAX_VALUE));
+        Assert.assertEquals("Fri, 31-Dec-9999 23:59:59 GMT", DateUtils.toOldCookieDateString(new Date(Long.MAX_VALUE)));
+        Assert.assertEquals("Sat, 01 Jan 0000 00:00:00 GMT", DateUtils.toDateString(Long.MIN_VALUE + 1));
+        Assert.assertTrue(DateUtils.toCommonLogFormat(new Date(Long.MAX_VALUE)).contains("/9999:"));
+    }
+
+    @Test
+    public void testIfModifiedSinceComparesSeconds() {
+        String header = "Mon, 31 Mar 2014 09:24:49 GMT";
+        long time = DateUtils.parseDateMillis(header);
+        Assert.assertFalse(DateUtils.handleIfModifiedSince(header, time + 999));
+        Assert.assertTrue(DateUtils.handleIfModifiedSince(header, time + 1000));
+        Assert.assertTrue(DateUtils.handleIfUnmodifiedSince(header, time + 999));
+        Assert.assertFalse(DateUtils.handleIfUnmodifiedSince(header, time + 1000));
+    }
+
     @Test
     @Ignore("This test can fail if the machine pauses/swaps at the wrong time")
     public void testPerformance() {
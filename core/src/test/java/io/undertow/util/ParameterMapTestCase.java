@@ -0,0 +1,97 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Stuart Douglas
+ */
+public class ParameterMapTestCase {
+
+    @Test
+    public void testSortedIteration() {
+        ParameterMap map = new ParameterMap(1);
+        TreeMap<String, Deque<String>> expected = new TreeMap<>();
+        for (String key : new String[]{"z", "a", "m", "b", "y", "c", "a"}) {
+            map.add(key, key + "1");
+            Deque<String> d = expected.get(key);
+            if (d == null) {
+                expected.put(key, d = new ArrayDeque<>());
+            }
+            d.add(key + "1");
+        }
+        Assert.assertEquals(expected.size(), map.size());
+        Assert.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+        Assert.assertEquals(2, map.get("a").size());
+        Assert.assertNull(map.get("d"));
+        Assert.assertNull(map.get(1));
+    }
+
+    @Test
+    public void testPutRemoveAndIteratorRemove() {
+        ParameterMap map = new ParameterMap();
+        map.put("b", new ArrayDeque<>(Arrays.asList("1")));
+        map.put("a", new ArrayDeque<>(Arrays.asList("2")));
+        map.put("c", new ArrayDeque<>(Arrays.asList("3")));
+        Assert.assertEquals("1", map.remove("b").getFirst());
+        Assert.assertFalse(map.containsKey("b"));
+        Assert.assertEquals(2, map.size());
+
+        Iterator<Map.Entry<String, Deque<String>>> it = map.entrySet().iterator();
+        Map.Entry<String, Deque<String>> entry = it.next();
+        Assert.assertEquals("a", entry.getKey());
+        entry.setValue(new ArrayDeque<>(Arrays.asList("4")));
+        Assert.assertEquals("4", map.get("a").getFirst());
+        it.remove();
+        Assert.assertEquals("c", it.next().getKey());
+        Assert.assertFalse(it.hasNext());
+        Assert.assertEquals(1, map.size());
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testParseParameters() {
+        ParameterMap map = new ParameterMap();
+        URLUtils.parseParameters("a=b&&c&d=e%20f&d=g+h&=i&j=k=l", map, "UTF-8");
+        List<String> keys = new ArrayList<>(map.keySet());
+        Assert.assertEquals(Arrays.asList("", "a", "c", "d", "j"), keys);
+        Assert.assertEquals("b", map.get("a").getFirst());
+        Assert.assertEquals("", map.get("c").getFirst());
+        Assert.assertEquals(Arrays.asList("e f", "g h"), new ArrayList<>(map.get("d")));
+        Assert.assertEquals("i", map.get("").getFirst());
+        Assert.assertEquals("k=l", map.get("j").getFirst());
+
+        map = new ParameterMap();
+        URLUtils.parseParameters("a=e%20f", map, null);
+        Assert.assertEquals("e%20f", map.get("a").getFirst());
+    }
+}
@@ -18,6 +18,7 @@
 
 package io.undertow.servlet;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.Date;
@@ -96,4 +97,12 @@ public interface UndertowServletLogger extends BasicLogger {
     @Message(id = 15012, value = "Failed to generate error page %s for original exception: %s. Generating error page resulted in a %s.")
     void errorGeneratingErrorPage(String originalErrorPage, Object originalException, int code,  @Cause Throwable cause);
 
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 15013, value = "Failed to load startup snapshot %s")
+    void failedToLoadStartupSnapshot(File file, @Cause Exception e);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 15014, value = "Failed to write startup snapshot %s")
+    void failedToWriteStartupSnapshot(File file, @Cause Exception e);
+
 }
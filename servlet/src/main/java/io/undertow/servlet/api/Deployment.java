@@ -93,4 +93,12 @@ public interface Deployment {
 
     DeploymentManager.State getDeploymentState();
 
+    /**
+     * Returns the time spent in each phase of deployment and startup, in the order the phases were run. Phases that
+     * have not run yet are not present.
+     *
+     * @return A map of phase name to time taken in nanoseconds
+     */
+    Map<String, Long> getStartupTimings();
+
 }
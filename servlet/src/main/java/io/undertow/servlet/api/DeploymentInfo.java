@@ -96,6 +96,8 @@ public class DeploymentInfo implements Cloneable {
     private MetricsCollector metricsCollector = null;
     private SessionConfigWrapper sessionConfigWrapper = null;
     private boolean eagerFilterInit = false;
+    private int parallelStartupThreads = 0;
+    private File startupSnapshot;
     private boolean disableCachingForSecuredPages = true;
     private boolean escapeErrorMessage = true;
     private AuthenticationMode authenticationMode = AuthenticationMode.PRO_ACTIVE;
@@ -447,6 +449,39 @@ public class DeploymentInfo implements Cloneable {
         return this;
     }
 
+    public int getParallelStartupThreads() {
+        return parallelStartupThreads;
+    }
+
+    /**
+     * Sets the number of threads used to initialize servlets and filters when the deployment is started. If this is
+     * larger than one load on startup servlets with the same load on startup value, and eagerly initialized filters,
+     * are initialized concurrently. Servlets with a lower value are still fully initialized before servlets with a
+     * higher value are started.
+     *
+     * @param parallelStartupThreads The number of threads, 0 or 1 to initialize everything on the deploying thread
+     */
+    public DeploymentInfo setParallelStartupThreads(int parallelStartupThreads) {
+        this.parallelStartupThreads = parallelStartupThreads;
+        return this;
+    }
+
+    public File getStartupSnapshot() {
+        return startupSnapshot;
+    }
+
+    /**
+     * Sets the file the resolved structure of the deployment is saved to when it is started. If the file exists when
+     * the deployment is started, and the servlets, filters, listeners and mappings of the deployment are unchanged,
+     * the servlet path mappings are rebuilt from the file instead of being resolved again.
+     *
+     * @param startupSnapshot The snapshot file, or null to disable the snapshot
+     */
+    public DeploymentInfo setStartupSnapshot(final File startupSnapshot) {
+        this.startupSnapshot = startupSnapshot;
+        return this;
+    }
+
     public DeploymentInfo addInitParameter(final String name, final String value) {
         initParameters.put(name, value);
         return this;
@@ -1170,6 +1205,8 @@ public class DeploymentInfo implements Cloneable {
         info.metricsCollector = metricsCollector;
         info.sessionConfigWrapper = sessionConfigWrapper;
         info.eagerFilterInit = eagerFilterInit;
+        info.parallelStartupThreads = parallelStartupThreads;
+        info.startupSnapshot = startupSnapshot;
         info.disableCachingForSecuredPages = disableCachingForSecuredPages;
         info.exceptionHandler = exceptionHandler;
         info.escapeErrorMessage = escapeErrorMessage;
@@ -18,7 +18,6 @@
 
 package io.undertow.servlet.api;
 
-import java.lang.reflect.Constructor;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -26,7 +25,7 @@ import java.util.Map;
 import javax.servlet.Filter;
 
 import io.undertow.servlet.UndertowServletMessages;
-import io.undertow.servlet.util.ConstructorInstanceFactory;
+import io.undertow.servlet.util.DefaultClassIntrospector;
 
 /**
  * @author Stuart Douglas
@@ -52,9 +51,7 @@ public class FilterInfo implements Cloneable {
             throw UndertowServletMessages.MESSAGES.filterMustImplementFilter(name, filterClass);
         }
         try {
-            final Constructor<Filter> ctor = (Constructor<Filter>) filterClass.getDeclaredConstructor();
-            ctor.setAccessible(true);
-            this.instanceFactory = new ConstructorInstanceFactory<>(ctor);
+            this.instanceFactory = DefaultClassIntrospector.INSTANCE.createInstanceFactory(filterClass);
             this.name = name;
             this.filterClass = filterClass;
         } catch (NoSuchMethodException e) {
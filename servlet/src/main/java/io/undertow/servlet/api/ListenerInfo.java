@@ -18,12 +18,11 @@
 
 package io.undertow.servlet.api;
 
-import java.lang.reflect.Constructor;
 import java.util.EventListener;
 
 import io.undertow.servlet.UndertowServletMessages;
 import io.undertow.servlet.core.ApplicationListeners;
-import io.undertow.servlet.util.ConstructorInstanceFactory;
+import io.undertow.servlet.util.DefaultClassIntrospector;
 
 /**
  * @author Stuart Douglas
@@ -46,9 +45,7 @@ public class ListenerInfo {
         this.listenerClass = listenerClass;
 
         try {
-            final Constructor<EventListener> ctor = (Constructor<EventListener>) listenerClass.getDeclaredConstructor();
-            ctor.setAccessible(true);
-            this.instanceFactory = new ConstructorInstanceFactory<>(ctor);
+            this.instanceFactory = DefaultClassIntrospector.INSTANCE.createInstanceFactory(listenerClass);
         } catch (NoSuchMethodException e) {
             throw UndertowServletMessages.MESSAGES.componentMustHaveDefaultConstructor("Listener", listenerClass);
         }
@@ -18,7 +18,6 @@
 
 package io.undertow.servlet.api;
 
-import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -32,7 +31,7 @@ import javax.servlet.Servlet;
 
 import io.undertow.server.HandlerWrapper;
 import io.undertow.servlet.UndertowServletMessages;
-import io.undertow.servlet.util.ConstructorInstanceFactory;
+import io.undertow.servlet.util.DefaultClassIntrospector;
 
 /**
  * @author Stuart Douglas
@@ -76,9 +75,7 @@ public class ServletInfo implements Cloneable {
             throw UndertowServletMessages.MESSAGES.servletMustImplementServlet(name, servletClass);
         }
         try {
-            final Constructor<? extends Servlet> ctor = servletClass.getDeclaredConstructor();
-            ctor.setAccessible(true);
-            this.instanceFactory = new ConstructorInstanceFactory(ctor);
+            this.instanceFactory = DefaultClassIntrospector.INSTANCE.createInstanceFactory(servletClass);
             this.name = name;
             this.servletClass = servletClass;
         } catch (NoSuchMethodException e) {
@@ -18,66 +18,106 @@
 
 package io.undertow.servlet.core;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import io.undertow.server.HttpServerExchange;
+import io.undertow.servlet.UndertowServletLogger;
 import io.undertow.servlet.api.ThreadSetupAction;
 
 /**
+ * A thread setup action that runs a list of actions, and tears them down in reverse order.
+ * <p/>
+ * The list is flattened when this action is created, so nested composite actions do not add any extra handles,
+ * and if there are no actions a shared no-op handle is returned. If trace logging is enabled the time taken to
+ * set up and tear down each action is logged.
+ *
  * @author Stuart Douglas
  */
 public class CompositeThreadSetupAction implements ThreadSetupAction {
 
+    private static final Handle NOOP_HANDLE = new Handle() {
+        @Override
+        public void tearDown() {
+        }
+    };
+
     private final ThreadSetupAction[] actions;
 
     public CompositeThreadSetupAction(final List<ThreadSetupAction> actions) {
-        this.actions = actions.toArray(new ThreadSetupAction[actions.size()]);
+        final List<ThreadSetupAction> flattened = new ArrayList<>(actions.size());
+        for (ThreadSetupAction action : actions) {
+            if (action instanceof CompositeThreadSetupAction) {
+                for (ThreadSetupAction nested : ((CompositeThreadSetupAction) action).actions) {
+                    flattened.add(nested);
+                }
+            } else {
+                flattened.add(action);
+            }
+        }
+        this.actions = flattened.toArray(new ThreadSetupAction[flattened.size()]);
     }
 
     @Override
     public Handle setup(final HttpServerExchange exchange) {
-        final Handle[] handles = new Handle[actions.length];
+        if (actions.length == 0) {
+            return NOOP_HANDLE;
+        }
+        final boolean trace = UndertowServletLogger.ROOT_LOGGER.isTraceEnabled();
+        final CompositeHandle handles = new CompositeHandle(actions.length, trace);
         try {
-            for (int i = 0; i < handles.length; ++i) {
-                handles[handles.length - i - 1] = actions[i].setup(exchange); //add them in reverse order
-            }
-            return new Handle() {
-                @Override
-                public void tearDown() {
-                    Throwable problem = null;
-                    for (int i = 0; i < handles.length; ++i) {
-                        Handle handle = handles[i];
-                        if (handle != null) {
-                            try {
-                                handle.tearDown();
-                            } catch (Throwable e) {
-                                problem = e;
-                            }
-                        }
-                    }
-                    if (problem != null) {
-                        throw new RuntimeException(problem);
-                    }
+            for (int i = 0; i < actions.length; ++i) {
+                final long start = trace ? System.nanoTime() : 0;
+                handles.handles[actions.length - i - 1] = actions[i].setup(exchange); //add them in reverse order
+                if (trace) {
+                    UndertowServletLogger.ROOT_LOGGER.tracef("Setup of %s took %sns", actions[i], System.nanoTime() - start);
                 }
-            };
-        } catch (RuntimeException e) {
-            for (final Handle handle : handles) {
-                try {
-                    handle.tearDown();
-                } catch (Throwable ignore) {
+            }
+            return handles;
+        } catch (RuntimeException | Error e) {
+            for (final Handle handle : handles.handles) {
+                if (handle != null) {
+                    try {
+                        handle.tearDown();
+                    } catch (Throwable ignore) {
 
+                    }
                 }
             }
             throw e;
-        } catch (Error e) {
-            for (final Handle handle : handles) {
-                try {
-                    handle.tearDown();
-                } catch (Throwable ignore) {
+        }
+    }
+
+    private static final class CompositeHandle implements Handle {
+
+        private final Handle[] handles;
+        private final boolean trace;
+
+        private CompositeHandle(final int size, final boolean trace) {
+            this.handles = new Handle[size];
+            this.trace = trace;
+        }
 
+        @Override
+        public void tearDown() {
+            Throwable problem = null;
+            for (int i = 0; i < handles.length; ++i) {
+                Handle handle = handles[i];
+                if (handle != null) {
+                    final long start = trace ? System.nanoTime() : 0;
+                    try {
+                        handle.tearDown();
+                    } catch (Throwable e) {
+                        problem = e;
+                    }
+                    if (trace) {
+                        UndertowServletLogger.ROOT_LOGGER.tracef("Tear down of %s took %sns", handle, System.nanoTime() - start);
+                    }
                 }
             }
-            throw e;
+            if (problem != null) {
+                throw new RuntimeException(problem);
+            }
         }
     }
 }
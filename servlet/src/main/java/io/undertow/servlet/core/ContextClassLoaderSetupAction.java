@@ -22,12 +22,30 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.servlet.api.ThreadSetupAction;
 
 /**
+ * Sets the thread context class loader.
+ * <p/>
+ * If the thread already has the correct class loader, which is normally the case for nested invocations, the class
+ * loader is not swapped and a shared handle is returned.
+ *
  * @author Stuart Douglas
  */
 public class ContextClassLoaderSetupAction implements ThreadSetupAction {
 
     private final ClassLoader classLoader;
 
+    /**
+     * Handle used when the class loader was already set, it only resets the class loader if it was
+     * changed during the invocation.
+     */
+    private final Handle unchangedHandle = new Handle() {
+        @Override
+        public void tearDown() {
+            if (SecurityActions.getContextClassLoader() != classLoader) {
+                SecurityActions.setContextClassLoader(classLoader);
+            }
+        }
+    };
+
     public ContextClassLoaderSetupAction(final ClassLoader classLoader) {
         this.classLoader = classLoader;
     }
@@ -35,6 +53,9 @@ public class ContextClassLoaderSetupAction implements ThreadSetupAction {
     @Override
     public Handle setup(final HttpServerExchange exchange) {
         final ClassLoader old = SecurityActions.getContextClassLoader();
+        if (old == classLoader) {
+            return unchangedHandle;
+        }
         SecurityActions.setContextClassLoader(classLoader);
         return new Handle() {
             @Override
@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
@@ -71,6 +72,7 @@ public class DeploymentImpl implements Deployment {
     private volatile SessionManager sessionManager;
     private volatile Charset defaultCharset;
     private volatile List<AuthenticationMechanism> authenticationMechanisms;
+    private final Map<String, Long> startupTimings = new LinkedHashMap<>();
 
     public DeploymentImpl(DeploymentManager deploymentManager, final DeploymentInfo deploymentInfo, ServletContainer servletContainer) {
         this.deploymentManager = deploymentManager;
@@ -220,6 +222,28 @@ public class DeploymentImpl implements Deployment {
         this.defaultCharset = defaultCharset;
     }
 
+    @Override
+    public Map<String, Long> getStartupTimings() {
+        synchronized (startupTimings) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(startupTimings));
+        }
+    }
+
+    /**
+     * Records the time taken by a startup phase
+     *
+     * @param phase The phase name
+     * @param start The value of {@link System#nanoTime()} when the phase started
+     * @return The current time, which can be used as the start of the next phase
+     */
+    long recordStartupPhase(final String phase, final long start) {
+        final long now = System.nanoTime();
+        synchronized (startupTimings) {
+            startupTimings.put(phase, now - start);
+        }
+        return now;
+    }
+
     void destroy(){
         getApplicationListeners().contextDestroyed();
         getApplicationListeners().stop();
@@ -70,6 +70,7 @@ import io.undertow.servlet.api.WebResourceCollection;
 import io.undertow.servlet.handlers.ServletDispatchingHandler;
 import io.undertow.servlet.handlers.ServletHandler;
 import io.undertow.servlet.handlers.ServletInitialHandler;
+import io.undertow.servlet.handlers.ServletPathMatches;
 import io.undertow.servlet.handlers.SessionRestoringHandler;
 import io.undertow.servlet.handlers.security.CachedAuthenticatedSessionHandler;
 import io.undertow.servlet.handlers.security.SSLInformationAssociationHandler;
@@ -100,6 +101,14 @@ import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static javax.servlet.http.HttpServletRequest.BASIC_AUTH;
 import static javax.servlet.http.HttpServletRequest.CLIENT_CERT_AUTH;
@@ -143,9 +152,11 @@ public class DeploymentManagerImpl implements DeploymentManager {
         final DeploymentImpl deployment = new DeploymentImpl(this, deploymentInfo, servletContainer);
         this.deployment = deployment;
 
+        long phase = System.nanoTime();
         final ServletContextImpl servletContext = new ServletContextImpl(servletContainer, deployment);
         deployment.setServletContext(servletContext);
         handleExtensions(deploymentInfo, servletContext);
+        phase = deployment.recordStartupPhase("extensions", phase);
 
         deployment.setDefaultCharset(Charset.forName(deploymentInfo.getDefaultEncoding()));
 
@@ -162,6 +173,7 @@ public class DeploymentManagerImpl implements DeploymentManager {
         setup.addAll(deploymentInfo.getThreadSetupActions());
         final CompositeThreadSetupAction threadSetupAction = new CompositeThreadSetupAction(setup);
         deployment.setThreadSetupAction(threadSetupAction);
+        phase = deployment.recordStartupPhase("sessions", phase);
 
         ThreadSetupAction.Handle handle = threadSetupAction.setup(null);
         try {
@@ -170,9 +182,11 @@ public class DeploymentManagerImpl implements DeploymentManager {
             listeners.start();
 
             deployment.setApplicationListeners(listeners);
+            phase = deployment.recordStartupPhase("listeners", phase);
 
             //now create the servlets and filters that we know about. We can still get more later
             createServletsAndFilters(deployment, deploymentInfo);
+            phase = deployment.recordStartupPhase("servlets-and-filters", phase);
 
             //first run the SCI's
             for (final ServletContainerInitializerInfo sci : deploymentInfo.getServletContainerInitializers()) {
@@ -183,6 +197,7 @@ public class DeploymentManagerImpl implements DeploymentManager {
                     instance.release();
                 }
             }
+            phase = deployment.recordStartupPhase("servlet-container-initializers", phase);
 
             deployment.getSessionManager().registerSessionListener(new SessionListenerBridge(threadSetupAction, listeners, servletContext));
 
@@ -190,6 +205,7 @@ public class DeploymentManagerImpl implements DeploymentManager {
             initializeMimeMappings(deployment, deploymentInfo);
             initializeTempDir(servletContext, deploymentInfo);
             listeners.contextInitialized();
+            phase = deployment.recordStartupPhase("context-initialized", phase);
             //run
 
             HttpHandler wrappedHandlers = ServletDispatchingHandler.INSTANCE;
@@ -217,6 +233,7 @@ public class DeploymentManagerImpl implements DeploymentManager {
             deployment.setServletHandler(servletInitialHandler);
             deployment.getServletPaths().invalidate(); //make sure we have a fresh set of servlet paths
             servletContext.initDone();
+            deployment.recordStartupPhase("handler-chain", phase);
         } catch (Exception e) {
             throw new RuntimeException(e);
         } finally {
@@ -478,6 +495,7 @@ public class DeploymentManagerImpl implements DeploymentManager {
     public HttpHandler start() throws ServletException {
         ThreadSetupAction.Handle handle = deployment.getThreadSetupAction().setup(null);
         try {
+            long phase = System.nanoTime();
             deployment.getSessionManager().start();
 
             //we need to copy before iterating
@@ -486,6 +504,25 @@ public class DeploymentManagerImpl implements DeploymentManager {
             for (Lifecycle object : lifecycles) {
                 object.start();
             }
+            phase = deployment.recordStartupPhase("lifecycle-start", phase);
+
+            //build the path mappings now rather than on the first request
+            final File snapshotFile = deployment.getDeploymentInfo().getStartupSnapshot();
+            if (snapshotFile != null) {
+                final DeploymentSnapshot snapshot = DeploymentSnapshot.read(snapshotFile);
+                if (snapshot != null && snapshot.matches(deployment.getDeploymentInfo())) {
+                    deployment.getServletPaths().restoreSnapshot(snapshot.getServletPaths());
+                    deployment.getServletPaths().getServletHandlerByName(ServletPathMatches.DEFAULT_SERVLET_NAME);
+                    phase = deployment.recordStartupPhase("servlet-paths-from-snapshot", phase);
+                } else {
+                    new DeploymentSnapshot(deployment.getDeploymentInfo(), deployment.getServletPaths().getSnapshot()).write(snapshotFile);
+                    phase = deployment.recordStartupPhase("servlet-paths", phase);
+                }
+            } else {
+                deployment.getServletPaths().getServletHandlerByName(ServletPathMatches.DEFAULT_SERVLET_NAME);
+                phase = deployment.recordStartupPhase("servlet-paths", phase);
+            }
+
             HttpHandler root = deployment.getHandler();
             final TreeMap<Integer, List<ManagedServlet>> loadOnStartup = new TreeMap<>();
             for(Map.Entry<String, ServletHandler> entry: deployment.getServlets().getServletHandlers().entrySet()) {
@@ -502,15 +539,39 @@ public class DeploymentManagerImpl implements DeploymentManager {
                     list.add(servlet);
                 }
             }
-            for(Map.Entry<Integer, List<ManagedServlet>> load : loadOnStartup.entrySet()) {
-                for(ManagedServlet servlet : load.getValue()) {
-                    servlet.createServlet();
+            final int startupThreads = deployment.getDeploymentInfo().getParallelStartupThreads();
+            final ExecutorService executor = startupThreads > 1 ? createStartupExecutor(startupThreads) : null;
+            try {
+                for (Map.Entry<Integer, List<ManagedServlet>> load : loadOnStartup.entrySet()) {
+                    final List<StartupTask> tasks = new ArrayList<>();
+                    for (final ManagedServlet servlet : load.getValue()) {
+                        tasks.add(new StartupTask("servlet", servlet.getServletInfo().getName()) {
+                            @Override
+                            void initialize() throws ServletException {
+                                servlet.createServlet();
+                            }
+                        });
+                    }
+                    runStartupTasks(executor, tasks);
                 }
-            }
-
-            if (deployment.getDeploymentInfo().isEagerFilterInit()){
-                for(ManagedFilter filter: deployment.getFilters().getFilters().values()) {
-                    filter.createFilter();
+                phase = deployment.recordStartupPhase("load-on-startup", phase);
+
+                if (deployment.getDeploymentInfo().isEagerFilterInit()) {
+                    final List<StartupTask> tasks = new ArrayList<>();
+                    for (final ManagedFilter filter : deployment.getFilters().getFilters().values()) {
+                        tasks.add(new StartupTask("filter", filter.getFilterInfo().getName()) {
+                            @Override
+                            void initialize() throws ServletException {
+                                filter.createFilter();
+                            }
+                        });
+                    }
+                    runStartupTasks(executor, tasks);
+                    deployment.recordStartupPhase("eager-filters", phase);
+                }
+            } finally {
+                if (executor != null) {
+                    executor.shutdown();
                 }
             }
 
@@ -521,6 +582,124 @@ public class DeploymentManagerImpl implements DeploymentManager {
         }
     }
 
+    private ExecutorService createStartupExecutor(final int threads) {
+        final String name = deployment.getDeploymentInfo().getDeploymentName();
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "Startup thread " + count.incrementAndGet() + " for " + name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Runs a group of independent startup tasks. If an executor is provided the tasks are run concurrently, and this
+     * method waits for all of them to complete. If a task fails, or the calling thread is interrupted, the tasks that
+     * are still outstanding are cancelled and the executor is shut down. This method then waits for tasks that are
+     * already running to finish, so no initialization is still in progress when the exception is thrown. The
+     * exception from the first failed task in list order is thrown, and failures of later tasks that had already
+     * completed are added as suppressed exceptions.
+     */
+    private void runStartupTasks(final ExecutorService executor, final List<StartupTask> tasks) throws ServletException {
+        if (executor == null || tasks.size() < 2) {
+            for (StartupTask task : tasks) {
+                task.run();
+            }
+            return;
+        }
+        final List<Future<Void>> futures = new ArrayList<>(tasks.size());
+        for (final StartupTask task : tasks) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    ThreadSetupAction.Handle handle = deployment.getThreadSetupAction().setup(null);
+                    try {
+                        task.run();
+                    } finally {
+                        handle.tearDown();
+                    }
+                    return null;
+                }
+            }));
+        }
+        ServletException failure = null;
+        for (int i = 0; i < futures.size(); ++i) {
+            final Future<Void> future = futures.get(i);
+            Throwable cause;
+            try {
+                if (future.isCancelled()) {
+                    continue;
+                }
+                future.get();
+                continue;
+            } catch (ExecutionException e) {
+                cause = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cause = e;
+            }
+            if (failure == null) {
+                failure = cause instanceof ServletException ? (ServletException) cause : new ServletException(cause);
+                cancelStartupTasks(executor, futures);
+            } else {
+                failure.addSuppressed(cause);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Cancels the outstanding startup tasks and waits for the ones that are already running to finish.
+     */
+    private void cancelStartupTasks(final ExecutorService executor, final List<Future<Void>> futures) {
+        for (Future<Void> future : futures) {
+            future.cancel(true);
+        }
+        executor.shutdownNow();
+        boolean interrupted = Thread.interrupted();
+        try {
+            for (;;) {
+                try {
+                    if (executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private abstract static class StartupTask {
+        private final String type;
+        private final String name;
+
+        StartupTask(final String type, final String name) {
+            this.type = type;
+            this.name = name;
+        }
+
+        abstract void initialize() throws ServletException;
+
+        void run() throws ServletException {
+            final long start = System.nanoTime();
+            initialize();
+            if (UndertowServletLogger.ROOT_LOGGER.isDebugEnabled()) {
+                UndertowServletLogger.ROOT_LOGGER.debugf("Initialized %s %s in %sms", type, name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }
+    }
+
     @Override
     public void stop() throws ServletException {
         ThreadSetupAction.Handle handle = deployment.getThreadSetupAction().setup(null);
@@ -0,0 +1,189 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.undertow.servlet.core;
+
+import io.undertow.servlet.UndertowServletLogger;
+import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.servlet.api.FilterInfo;
+import io.undertow.servlet.api.FilterMappingInfo;
+import io.undertow.servlet.api.ListenerInfo;
+import io.undertow.servlet.api.ServletInfo;
+import io.undertow.servlet.handlers.ServletPathMatchesSnapshot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.servlet.DispatcherType;
+
+/**
+ * The resolved structure of a deployment, saved to disk so later starts of the same deployment do not have to resolve
+ * the servlet path matches again.
+ * <p/>
+ * Classes, constructors and handlers cannot be meaningfully serialized, so the snapshot references servlets and
+ * filters by name. It records the names of the servlet, filter and listener classes and all mappings, and is only
+ * used if they are unchanged.
+ *
+ * @author Stuart Douglas
+ */
+final class DeploymentSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The only classes that may appear in a snapshot file. Anyone who can write the file could otherwise have any
+     * serializable class instantiated when the deployment starts.
+     */
+    private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+            DeploymentSnapshot.class.getName(),
+            ServletPathMatchesSnapshot.class.getName(),
+            DispatcherType.class.getName(),
+            Enum.class.getName(),
+            ArrayList.class.getName(),
+            HashMap.class.getName(),
+            EnumMap.class.getName()));
+
+    private final List<String> structure;
+    private final ServletPathMatchesSnapshot servletPaths;
+
+    DeploymentSnapshot(final DeploymentInfo deploymentInfo, final ServletPathMatchesSnapshot servletPaths) {
+        this.structure = structure(deploymentInfo);
+        this.servletPaths = servletPaths;
+    }
+
+    ServletPathMatchesSnapshot getServletPaths() {
+        return servletPaths;
+    }
+
+    /**
+     *
+     * @return <code>true</code> if the snapshot was taken from a deployment with the same structure
+     */
+    boolean matches(final DeploymentInfo deploymentInfo) {
+        return structure.equals(structure(deploymentInfo));
+    }
+
+    /**
+     * Lists everything the servlet path matches depend on, in a form that can be compared with an earlier snapshot
+     */
+    private static List<String> structure(final DeploymentInfo deploymentInfo) {
+        final List<String> ret = new ArrayList<>();
+        for (ServletInfo servlet : new TreeMap<>(deploymentInfo.getServlets()).values()) {
+            ret.add("servlet");
+            ret.add(servlet.getName());
+            ret.add(servlet.getServletClass().getName());
+            ret.add(Boolean.toString(servlet.isRequireWelcomeFileMapping()));
+            ret.add(Integer.toString(servlet.getMappings().size()));
+            ret.addAll(servlet.getMappings());
+        }
+        for (FilterInfo filter : new TreeMap<>(deploymentInfo.getFilters()).values()) {
+            ret.add("filter");
+            ret.add(filter.getName());
+            ret.add(filter.getFilterClass().getName());
+        }
+        for (FilterMappingInfo mapping : deploymentInfo.getFilterMappings()) {
+            ret.add("filter-mapping");
+            ret.add(mapping.getFilterName());
+            ret.add(mapping.getMappingType().name());
+            ret.add(mapping.getMapping());
+            ret.add(mapping.getDispatcher().name());
+        }
+        for (ListenerInfo listener : deploymentInfo.getListeners()) {
+            ret.add("listener");
+            ret.add(listener.getListenerClass().getName());
+        }
+        return ret;
+    }
+
+    /**
+     * Reads a snapshot that was written by an earlier start
+     *
+     * @return The snapshot, or null if it does not exist or cannot be read
+     */
+    static DeploymentSnapshot read(final File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (ObjectInputStream in = new SnapshotInputStream(new FileInputStream(file))) {
+            return (DeploymentSnapshot) in.readObject();
+        } catch (Exception e) {
+            UndertowServletLogger.ROOT_LOGGER.failedToLoadStartupSnapshot(file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot. It is written to a temporary file that then replaces the snapshot file, so deployments that
+     * start concurrently never read a partially written snapshot.
+     */
+    void write(final File file) {
+        File tmp = null;
+        try {
+            final File dir = file.getAbsoluteFile().getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException(dir.getAbsolutePath());
+            }
+            tmp = File.createTempFile(file.getName(), ".tmp", dir);
+            try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(tmp))) {
+                out.writeObject(this);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            UndertowServletLogger.ROOT_LOGGER.failedToWriteStartupSnapshot(file, e);
+            if (tmp != null && !tmp.delete()) {
+                tmp.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Only resolves the classes that make up a snapshot
+     */
+    private static final class SnapshotInputStream extends ObjectInputStream {
+
+        private SnapshotInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            final String name = desc.getName();
+            if (!ALLOWED_CLASSES.contains(name) && !name.startsWith(ServletPathMatchesSnapshot.class.getName() + '$')) {
+                throw new InvalidClassException(name, "not allowed in a startup snapshot");
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
@@ -103,6 +103,9 @@ public class ManagedServlet implements Lifecycle {
             if(config.getMaxFileSize() > 0) {
                 multiPartParserDefinition.setMaxIndividualFileSize(config.getMaxFileSize());
             }
+            if(config.getFileSizeThreshold() > 0) {
+                multiPartParserDefinition.setFileSizeThreshold(config.getFileSizeThreshold());
+            }
             multiPartParserDefinition.setDefaultEncoding(servletContext.getDeployment().getDeploymentInfo().getDefaultEncoding());
 
             formParserFactory = FormParserFactory.builder(false)
@@ -22,6 +22,7 @@ import io.undertow.io.IoCallback;
 import io.undertow.io.Sender;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.handlers.resource.DirectoryUtils;
+import io.undertow.server.handlers.resource.MultipartRangeSender;
 import io.undertow.server.handlers.resource.RangeAwareResource;
 import io.undertow.server.handlers.resource.Resource;
 import io.undertow.server.handlers.resource.ResourceManager;
@@ -51,6 +52,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -272,8 +274,8 @@ public class DefaultServlet extends HttpServlet {
         if (etag != null) {
             resp.setHeader(Headers.ETAG_STRING, etag.toString());
         }
-        ByteRange range = null;
-        long start = -1, end = -1;
+        List<ByteRange.Range> ranges = null;
+        ByteRange.MultipartByteRanges multipart = null;
         try {
             //only set the content length if we are using a stream
             //if we are using a writer who knows what the length will end up being
@@ -290,50 +292,32 @@ public class DefaultServlet extends HttpServlet {
                 }
                 if(resource instanceof RangeAwareResource && ((RangeAwareResource)resource).isRangeSupported()) {
                     //TODO: figure out what to do with the content encoded resource manager
-                    range = ByteRange.parse(req.getHeader(Headers.RANGE_STRING));
-                    if(range != null && range.getRanges() == 1) {
-                        start = range.getStart(0);
-                        end = range.getEnd(0);
-                        if(start == -1 ) {
-                            //suffix range
-                            long toWrite = end;
-                            if(toWrite >= 0) {
-                                if(toWrite > Integer.MAX_VALUE) {
-                                    resp.setContentLengthLong(toWrite);
-                                } else {
-                                    resp.setContentLength((int)toWrite);
-                                }
-                            } else {
-                                //ignore the range request
-                                range = null;
-                            }
-                            start = contentLength - end;
-                            end = contentLength;
-                        } else if(end == -1) {
-                            //prefix range
-                            long toWrite = contentLength - start;
-                            if(toWrite >= 0) {
-                                if(toWrite > Integer.MAX_VALUE) {
-                                    resp.setContentLengthLong(toWrite);
-                                } else {
-                                    resp.setContentLength((int)toWrite);
-                                }
-                            } else {
-                                //ignore the range request
-                                range = null;
-                            }
-                            end = contentLength;
+                    ByteRange range = ByteRange.parse(req.getHeader(Headers.RANGE_STRING));
+                    if(range != null) {
+                        ranges = range.resolve(contentLength);
+                    }
+                    if(ranges != null && ranges.size() > 1) {
+                        multipart = ByteRange.MultipartByteRanges.create(ranges, resp.getContentType(), contentLength);
+                        if(multipart == null) {
+                            //the multipart response would be larger than the resource, send the full resource instead
+                            ranges = null;
+                        }
+                    }
+                    if(ranges != null) {
+                        long toWrite;
+                        resp.setStatus(StatusCodes.PARTIAL_CONTENT);
+                        if(ranges.size() == 1) {
+                            final ByteRange.Range single = ranges.get(0);
+                            toWrite = single.getEnd() - single.getStart() + 1;
+                            resp.setHeader(Headers.CONTENT_RANGE_STRING, ByteRange.contentRange(single, contentLength));
                         } else {
-                            long toWrite = end - start + 1;
-                            if(toWrite > Integer.MAX_VALUE) {
-                                resp.setContentLengthLong(toWrite);
-                            } else {
-                                resp.setContentLength((int)toWrite);
-                            }
+                            toWrite = multipart.getContentLength();
+                            resp.setContentType(multipart.getContentType());
                         }
-                        if(range != null) {
-                            resp.setStatus(StatusCodes.PARTIAL_CONTENT);
-                            resp.setHeader(Headers.CONTENT_RANGE_STRING, range.getStart(0) + "-" + range.getEnd(0) + "/" + contentLength);
+                        if(toWrite > Integer.MAX_VALUE) {
+                            resp.setContentLengthLong(toWrite);
+                        } else {
+                            resp.setContentLength((int)toWrite);
                         }
                     }
                 }
@@ -344,10 +328,12 @@ public class DefaultServlet extends HttpServlet {
         final boolean include = req.getDispatcherType() == DispatcherType.INCLUDE;
         if (!req.getMethod().equals(Methods.HEAD_STRING)) {
             HttpServerExchange exchange = SecurityActions.requireCurrentServletRequestContext().getOriginalRequest().getExchange();
-            if(range == null) {
+            if(ranges == null) {
                 resource.serve(exchange.getResponseSender(), exchange, completionCallback(include));
+            } else if(multipart != null) {
+                MultipartRangeSender.serve((RangeAwareResource) resource, exchange.getResponseSender(), exchange, ranges, multipart, completionCallback(include));
             } else {
-                ((RangeAwareResource)resource).serveRange(exchange.getResponseSender(), exchange, start, end, completionCallback(include));
+                ((RangeAwareResource)resource).serveRange(exchange.getResponseSender(), exchange, ranges.get(0).getStart(), ranges.get(0).getEnd(), completionCallback(include));
             }
         }
     }
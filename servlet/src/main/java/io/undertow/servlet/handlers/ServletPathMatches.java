@@ -62,6 +62,11 @@ public class ServletPathMatches {
 
     private volatile ServletPathMatchesData data;
 
+    /**
+     * The resolved matches the data was built from, guarded by this
+     */
+    private ServletPathMatchesSnapshot snapshot;
+
     public ServletPathMatches(final Deployment deployment) {
         this.deployment = deployment;
         this.welcomePages = deployment.getDeploymentInfo().getWelcomePages().toArray(new String[deployment.getDeploymentInfo().getWelcomePages().size()]);
@@ -109,7 +114,30 @@ public class ServletPathMatches {
 
     }
 
-    public void invalidate() {
+    public synchronized void invalidate() {
+        this.data = null;
+        this.snapshot = null;
+    }
+
+    /**
+     * Returns the resolved matches in serializable form, resolving them if this has not happened yet.
+     *
+     * @return The resolved matches
+     */
+    public synchronized ServletPathMatchesSnapshot getSnapshot() {
+        getData();
+        return snapshot;
+    }
+
+    /**
+     * Uses matches that were resolved earlier instead of resolving them from the deployment. The snapshot must have
+     * been taken from a deployment with the same servlets, filters and mappings. It is discarded when the matches are
+     * invalidated.
+     *
+     * @param snapshot The resolved matches
+     */
+    public synchronized void restoreSnapshot(final ServletPathMatchesSnapshot snapshot) {
+        this.snapshot = snapshot;
         this.data = null;
     }
 
@@ -122,7 +150,10 @@ public class ServletPathMatches {
             if (this.data != null) {
                 return this.data;
             }
-            return this.data = setupServletChains();
+            if (snapshot == null) {
+                snapshot = resolveMatches();
+            }
+            return this.data = createData(snapshot);
         }
     }
 
@@ -156,19 +187,16 @@ public class ServletPathMatches {
     }
 
     /**
-     * Sets up the handlers in the servlet chain. We setup a chain for every path + extension match possibility.
-     * (i.e. if there a m path mappings and n extension mappings we have n*m chains).
-     * <p/>
-     * If a chain consists of only the default servlet then we add it as an async handler, so that resources can be
-     * served up directly without using blocking operations.
+     * Resolves the servlet and filters for every path + extension match possibility.
+     * (i.e. if there a m path mappings and n extension mappings we have n*m chains). Servlets and filters are
+     * referenced by name, the handlers are created from the result by {@link #createData(ServletPathMatchesSnapshot)}.
      * <p/>
      * TODO: this logic is a bit convoluted at the moment, we should look at simplifying it
      */
-    private ServletPathMatchesData setupServletChains() {
+    private ServletPathMatchesSnapshot resolveMatches() {
         //create the default servlet
         ServletHandler defaultServlet = null;
         final ManagedServlets servlets = deployment.getServlets();
-        final ManagedFilters filters = deployment.getFilters();
 
         final Map<String, ServletHandler> extensionServlets = new HashMap<>();
         final Map<String, ServletHandler> pathServlets = new HashMap<>();
@@ -224,11 +252,7 @@ public class ServletPathMatches {
                 }
             }
         }
-        ServletHandler managedDefaultServlet = servlets.getServletHandler(DEFAULT_SERVLET_NAME);
-        if(managedDefaultServlet == null) {
-            //we always create a default servlet, even if it is not going to have any path mappings registered
-            managedDefaultServlet = servlets.addServlet(new ServletInfo(DEFAULT_SERVLET_NAME, DefaultServlet.class));
-        }
+        ServletHandler managedDefaultServlet = getDefaultServlet();
 
         if (defaultServlet == null) {
             //no explicit default servlet was specified, so we register our mapping
@@ -236,7 +260,7 @@ public class ServletPathMatches {
             defaultServlet = managedDefaultServlet;
         }
 
-        final ServletPathMatchesData.Builder builder = ServletPathMatchesData.builder();
+        final ServletPathMatchesSnapshot snapshot = new ServletPathMatchesSnapshot();
 
         //we now loop over every path in the application, and build up the patches based on this path
         //these paths contain both /* and exact matches.
@@ -244,24 +268,24 @@ public class ServletPathMatches {
             //resolve the target servlet, will return null if this is the default servlet
             MatchData targetServletMatch = resolveServletForPath(path, pathServlets, extensionServlets, defaultServlet);
 
-            final Map<DispatcherType, List<ManagedFilter>> noExtension = new EnumMap<>(DispatcherType.class);
-            final Map<String, Map<DispatcherType, List<ManagedFilter>>> extension = new HashMap<>();
+            final Map<DispatcherType, List<String>> noExtension = new EnumMap<>(DispatcherType.class);
+            final Map<String, Map<DispatcherType, List<String>>> extension = new HashMap<>();
             //initalize the extension map. This contains all the filers in the noExtension map, plus
             //any filters that match the extension key
             for (String ext : extensionMatches) {
-                extension.put(ext, new EnumMap<DispatcherType, List<ManagedFilter>>(DispatcherType.class));
+                extension.put(ext, new EnumMap<DispatcherType, List<String>>(DispatcherType.class));
             }
 
             //loop over all the filters, and add them to the appropriate map in the correct order
             for (final FilterMappingInfo filterMapping : deploymentInfo.getFilterMappings()) {
-                ManagedFilter filter = filters.getManagedFilter(filterMapping.getFilterName());
+                String filter = filterMapping.getFilterName();
                 if (filterMapping.getMappingType() == FilterMappingInfo.MappingType.SERVLET) {
                     if (targetServletMatch.handler != null) {
                         if (filterMapping.getMapping().equals(targetServletMatch.handler.getManagedServlet().getServletInfo().getName())) {
                             addToListMap(noExtension, filterMapping.getDispatcher(), filter);
                         }
                     }
-                    for(Map.Entry<String, Map<DispatcherType, List<ManagedFilter>>> entry : extension.entrySet()) {
+                    for(Map.Entry<String, Map<DispatcherType, List<String>>> entry : extension.entrySet()) {
                     ServletHandler pathServlet = targetServletMatch.handler;
                     boolean defaultServletMatch = targetServletMatch.defaultServlet;
                         if (defaultServletMatch && extensionServlets.containsKey(entry.getKey())) {
@@ -276,7 +300,7 @@ public class ServletPathMatches {
                     if (filterMapping.getMapping().isEmpty() || !filterMapping.getMapping().startsWith("*.")) {
                         if (isFilterApplicable(path, filterMapping.getMapping())) {
                             addToListMap(noExtension, filterMapping.getDispatcher(), filter);
-                            for (Map<DispatcherType, List<ManagedFilter>> l : extension.values()) {
+                            for (Map<DispatcherType, List<String>> l : extension.values()) {
                                 addToListMap(l, filterMapping.getDispatcher(), filter);
                             }
                         }
@@ -285,14 +309,14 @@ public class ServletPathMatches {
                     }
                 }
             }
-            //resolve any matches and add them to the builder
+            //resolve any matches and add them to the snapshot
             if (path.endsWith("/*")) {
                 String prefix = path.substring(0, path.length() - 2);
                 //add the default non-extension match
-                builder.addPrefixMatch(prefix, createHandler(deploymentInfo, targetServletMatch.handler, noExtension, targetServletMatch.matchedPath, targetServletMatch.defaultServlet), targetServletMatch.defaultServlet || targetServletMatch.handler.getManagedServlet().getServletInfo().isRequireWelcomeFileMapping());
+                snapshot.addPrefixMatch(prefix, chain(targetServletMatch.handler, noExtension, targetServletMatch.matchedPath, targetServletMatch.defaultServlet), targetServletMatch.defaultServlet || targetServletMatch.handler.getManagedServlet().getServletInfo().isRequireWelcomeFileMapping());
 
                 //build up the chain for each non-extension match
-                for (Map.Entry<String, Map<DispatcherType, List<ManagedFilter>>> entry : extension.entrySet()) {
+                for (Map.Entry<String, Map<DispatcherType, List<String>>> entry : extension.entrySet()) {
                     ServletHandler pathServlet = targetServletMatch.handler;
                     String pathMatch = targetServletMatch.matchedPath;
 
@@ -301,15 +325,11 @@ public class ServletPathMatches {
                         defaultServletMatch = false;
                         pathServlet = extensionServlets.get(entry.getKey());
                     }
-                    HttpHandler handler = pathServlet;
-                    if (!entry.getValue().isEmpty()) {
-                        handler = new FilterHandler(entry.getValue(), deploymentInfo.isAllowNonStandardWrappers(), handler);
-                    }
-                    builder.addExtensionMatch(prefix, entry.getKey(), servletChain(handler, pathServlet.getManagedServlet(), pathMatch, deploymentInfo, defaultServletMatch));
+                    snapshot.addExtensionMatch(prefix, entry.getKey(), chain(pathServlet, entry.getValue(), pathMatch, defaultServletMatch));
                 }
             } else if (path.isEmpty()) {
                 //the context root match
-                builder.addExactMatch("/", createHandler(deploymentInfo, targetServletMatch.handler, noExtension, targetServletMatch.matchedPath, targetServletMatch.defaultServlet));
+                snapshot.addExactMatch("/", chain(targetServletMatch.handler, noExtension, targetServletMatch.matchedPath, targetServletMatch.defaultServlet));
             } else {
                 //we need to check for an extension match, so paths like /exact.txt will have the correct filter applied
                 int lastSegmentIndex = path.lastIndexOf('/');
@@ -322,13 +342,13 @@ public class ServletPathMatches {
                 if (lastSegment.contains(".")) {
                     String ext = lastSegment.substring(lastSegment.lastIndexOf('.') + 1);
                     if (extension.containsKey(ext)) {
-                        Map<DispatcherType, List<ManagedFilter>> extMap = extension.get(ext);
-                        builder.addExactMatch(path, createHandler(deploymentInfo, targetServletMatch.handler, extMap, targetServletMatch.matchedPath, targetServletMatch.defaultServlet));
+                        Map<DispatcherType, List<String>> extMap = extension.get(ext);
+                        snapshot.addExactMatch(path, chain(targetServletMatch.handler, extMap, targetServletMatch.matchedPath, targetServletMatch.defaultServlet));
                     } else {
-                        builder.addExactMatch(path, createHandler(deploymentInfo, targetServletMatch.handler, noExtension, targetServletMatch.matchedPath, targetServletMatch.defaultServlet));
+                        snapshot.addExactMatch(path, chain(targetServletMatch.handler, noExtension, targetServletMatch.matchedPath, targetServletMatch.defaultServlet));
                     }
                 } else {
-                    builder.addExactMatch(path, createHandler(deploymentInfo, targetServletMatch.handler, noExtension, targetServletMatch.matchedPath, targetServletMatch.defaultServlet));
+                    snapshot.addExactMatch(path, chain(targetServletMatch.handler, noExtension, targetServletMatch.matchedPath, targetServletMatch.defaultServlet));
                 }
 
             }
@@ -337,34 +357,76 @@ public class ServletPathMatches {
         //now setup name based mappings
         //these are used for name based dispatch
         for (Map.Entry<String, ServletHandler> entry : servlets.getServletHandlers().entrySet()) {
-            final Map<DispatcherType, List<ManagedFilter>> filtersByDispatcher = new EnumMap<>(DispatcherType.class);
+            final Map<DispatcherType, List<String>> filtersByDispatcher = new EnumMap<>(DispatcherType.class);
             for (final FilterMappingInfo filterMapping : deploymentInfo.getFilterMappings()) {
-                ManagedFilter filter = filters.getManagedFilter(filterMapping.getFilterName());
                 if (filterMapping.getMappingType() == FilterMappingInfo.MappingType.SERVLET) {
                     if (filterMapping.getMapping().equals(entry.getKey())) {
-                        addToListMap(filtersByDispatcher, filterMapping.getDispatcher(), filter);
+                        addToListMap(filtersByDispatcher, filterMapping.getDispatcher(), filterMapping.getFilterName());
                     }
                 }
             }
-            if (filtersByDispatcher.isEmpty()) {
-                builder.addNameMatch(entry.getKey(), servletChain(entry.getValue(), entry.getValue().getManagedServlet(), null, deploymentInfo, false));
-            } else {
-                builder.addNameMatch(entry.getKey(), servletChain(new FilterHandler(filtersByDispatcher, deploymentInfo.isAllowNonStandardWrappers(), entry.getValue()), entry.getValue().getManagedServlet(), null, deploymentInfo, false));
-            }
+            snapshot.addNameMatch(entry.getKey(), chain(entry.getValue(), filtersByDispatcher, null, false));
         }
 
+        return snapshot;
+    }
+
+    private ServletHandler getDefaultServlet() {
+        final ManagedServlets servlets = deployment.getServlets();
+        ServletHandler managedDefaultServlet = servlets.getServletHandler(DEFAULT_SERVLET_NAME);
+        if(managedDefaultServlet == null) {
+            //we always create a default servlet, even if it is not going to have any path mappings registered
+            managedDefaultServlet = servlets.addServlet(new ServletInfo(DEFAULT_SERVLET_NAME, DefaultServlet.class));
+        }
+        return managedDefaultServlet;
+    }
+
+    private static ServletPathMatchesSnapshot.Chain chain(final ServletHandler targetServlet, final Map<DispatcherType, List<String>> filters, final String servletPath, final boolean defaultServlet) {
+        return new ServletPathMatchesSnapshot.Chain(targetServlet.getManagedServlet().getServletInfo().getName(), servletPath, defaultServlet, filters);
+    }
+
+    /**
+     * Sets up the handlers in the servlet chain from the resolved matches.
+     * <p/>
+     * If a chain consists of only the default servlet then we add it as an async handler, so that resources can be
+     * served up directly without using blocking operations.
+     */
+    private ServletPathMatchesData createData(final ServletPathMatchesSnapshot snapshot) {
+        getDefaultServlet();
+        final ServletPathMatchesData.Builder builder = ServletPathMatchesData.builder();
+        for (Map.Entry<String, ServletPathMatchesSnapshot.Chain> entry : snapshot.exactMatches.entrySet()) {
+            builder.addExactMatch(entry.getKey(), createHandler(entry.getValue()));
+        }
+        for (Map.Entry<String, ServletPathMatchesSnapshot.Prefix> entry : snapshot.prefixMatches.entrySet()) {
+            final ServletPathMatchesSnapshot.Prefix prefix = entry.getValue();
+            if (prefix.defaultChain != null) {
+                builder.addPrefixMatch(entry.getKey(), createHandler(prefix.defaultChain), prefix.requireWelcomeFileMatch);
+            }
+            for (Map.Entry<String, ServletPathMatchesSnapshot.Chain> extension : prefix.extensionMatches.entrySet()) {
+                builder.addExtensionMatch(entry.getKey(), extension.getKey(), createHandler(extension.getValue()));
+            }
+        }
+        for (Map.Entry<String, ServletPathMatchesSnapshot.Chain> entry : snapshot.nameMatches.entrySet()) {
+            builder.addNameMatch(entry.getKey(), createHandler(entry.getValue()));
+        }
         return builder.build();
     }
 
-    private ServletChain createHandler(final DeploymentInfo deploymentInfo, final ServletHandler targetServlet, final Map<DispatcherType, List<ManagedFilter>> noExtension, final String servletPath, final boolean defaultServlet) {
-        final ServletChain initialHandler;
-        if (noExtension.isEmpty()) {
-            initialHandler = servletChain(targetServlet, targetServlet.getManagedServlet(), servletPath, deploymentInfo, defaultServlet);
-        } else {
-            FilterHandler handler = new FilterHandler(noExtension, deploymentInfo.isAllowNonStandardWrappers(), targetServlet);
-            initialHandler = servletChain(handler, targetServlet.getManagedServlet(), servletPath, deploymentInfo, defaultServlet);
+    private ServletChain createHandler(final ServletPathMatchesSnapshot.Chain chain) {
+        final DeploymentInfo deploymentInfo = deployment.getDeploymentInfo();
+        final ManagedFilters filters = deployment.getFilters();
+        final ServletHandler targetServlet = deployment.getServlets().getServletHandler(chain.servletName);
+        if (chain.filters.isEmpty()) {
+            return servletChain(targetServlet, targetServlet.getManagedServlet(), chain.servletPath, deploymentInfo, chain.defaultServlet);
+        }
+        final Map<DispatcherType, List<ManagedFilter>> filtersByDispatcher = new EnumMap<>(DispatcherType.class);
+        for (Map.Entry<DispatcherType, List<String>> entry : chain.filters.entrySet()) {
+            for (String filter : entry.getValue()) {
+                addToListMap(filtersByDispatcher, entry.getKey(), filters.getManagedFilter(filter));
+            }
         }
-        return initialHandler;
+        FilterHandler handler = new FilterHandler(filtersByDispatcher, deploymentInfo.isAllowNonStandardWrappers(), targetServlet);
+        return servletChain(handler, targetServlet.getManagedServlet(), chain.servletPath, deploymentInfo, chain.defaultServlet);
     }
 
     private static MatchData resolveServletForPath(final String path, final Map<String, ServletHandler> pathServlets, final Map<String, ServletHandler> extensionServlets, ServletHandler defaultServlet) {
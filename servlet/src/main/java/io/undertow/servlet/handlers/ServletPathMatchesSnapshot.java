@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.undertow.servlet.handlers;
+
+import javax.servlet.DispatcherType;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The resolved servlet path matches of a deployment in serializable form. Servlets and filters are referenced by name,
+ * so the matches can be rebuilt without resolving the mappings again, provided the servlets, filters and mappings of
+ * the deployment have not changed.
+ *
+ * @author Stuart Douglas
+ * @see ServletPathMatches#getSnapshot()
+ * @see ServletPathMatches#restoreSnapshot(ServletPathMatchesSnapshot)
+ */
+public final class ServletPathMatchesSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    final Map<String, Chain> exactMatches = new HashMap<>();
+
+    final Map<String, Prefix> prefixMatches = new HashMap<>();
+
+    final Map<String, Chain> nameMatches = new HashMap<>();
+
+    ServletPathMatchesSnapshot() {
+    }
+
+    void addExactMatch(final String exactMatch, final Chain chain) {
+        exactMatches.put(exactMatch, chain);
+    }
+
+    void addPrefixMatch(final String prefix, final Chain chain, final boolean requireWelcomeFileMatch) {
+        Prefix p = prefix(prefix);
+        p.defaultChain = chain;
+        p.requireWelcomeFileMatch = requireWelcomeFileMatch;
+    }
+
+    void addExtensionMatch(final String prefix, final String extension, final Chain chain) {
+        prefix(prefix).extensionMatches.put(extension, chain);
+    }
+
+    void addNameMatch(final String name, final Chain chain) {
+        nameMatches.put(name, chain);
+    }
+
+    private Prefix prefix(final String prefix) {
+        Prefix p = prefixMatches.get(prefix);
+        if (p == null) {
+            prefixMatches.put(prefix, p = new Prefix());
+        }
+        return p;
+    }
+
+    /**
+     * A servlet, and the names of the filters that are applied before it for each dispatcher type
+     */
+    static final class Chain implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final String servletName;
+        final String servletPath;
+        final boolean defaultServlet;
+        final Map<DispatcherType, List<String>> filters;
+
+        Chain(final String servletName, final String servletPath, final boolean defaultServlet, final Map<DispatcherType, List<String>> filters) {
+            this.servletName = servletName;
+            this.servletPath = servletPath;
+            this.defaultServlet = defaultServlet;
+            this.filters = filters;
+        }
+    }
+
+    static final class Prefix implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final Map<String, Chain> extensionMatches = new HashMap<>();
+        Chain defaultChain;
+        boolean requireWelcomeFileMatch;
+    }
+}
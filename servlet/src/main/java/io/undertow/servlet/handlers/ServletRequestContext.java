@@ -91,7 +91,7 @@ public class ServletRequestContext {
         return CURRENT.get();
     }
 
-    public static final AttachmentKey<ServletRequestContext> ATTACHMENT_KEY = AttachmentKey.create(ServletRequestContext.class);
+    public static final AttachmentKey<ServletRequestContext> ATTACHMENT_KEY = AttachmentKey.createIndexed(ServletRequestContext.class);
 
     private final Deployment deployment;
     private final HttpServletRequestImpl originalRequest;
@@ -34,22 +34,35 @@ import io.undertow.servlet.api.TransportGuaranteeType;
 import io.undertow.servlet.api.WebResourceCollection;
 
 /**
+ * The security constraints for a deployment.
+ * <p/>
+ * The result of merging the constraints for a given path pattern and HTTP method never changes, so all possible
+ * results are computed when the deployment is built. At runtime the path is matched to a pattern and the shared
+ * result for the method is returned, without merging any constraints.
+ *
  * @author Stuart Douglas
  */
 public class SecurityPathMatches {
 
     private final boolean denyUncoveredHttpMethods;
-    private final PathSecurityInformation defaultPathSecurityInformation;
-    private final Map<String, PathSecurityInformation> exactPathRoleInformation;
-    private final Map<String, PathSecurityInformation> prefixPathRoleInformation;
-    private final Map<String, PathSecurityInformation> extensionRoleInformation;
+    private final boolean empty;
+    private final CompiledConstraints defaultConstraints;
+    private final Map<String, CompiledConstraints> exactPathRoleInformation;
+    private final Map<String, CompiledConstraints> prefixPathRoleInformation;
+    private final Map<String, CompiledConstraints> extensionRoleInformation;
 
     private SecurityPathMatches(final boolean denyUncoveredHttpMethods, final PathSecurityInformation defaultPathSecurityInformation, final Map<String, PathSecurityInformation> exactPathRoleInformation, final Map<String, PathSecurityInformation> prefixPathRoleInformation, final Map<String, PathSecurityInformation> extensionRoleInformation) {
         this.denyUncoveredHttpMethods = denyUncoveredHttpMethods;
-        this.defaultPathSecurityInformation = defaultPathSecurityInformation;
-        this.exactPathRoleInformation = exactPathRoleInformation;
-        this.prefixPathRoleInformation = prefixPathRoleInformation;
-        this.extensionRoleInformation = extensionRoleInformation;
+        this.empty = defaultPathSecurityInformation.excludedMethodRoles.isEmpty() &&
+                defaultPathSecurityInformation.perMethodRequiredRoles.isEmpty() &&
+                defaultPathSecurityInformation.defaultRequiredRoles.isEmpty() &&
+                exactPathRoleInformation.isEmpty() &&
+                prefixPathRoleInformation.isEmpty() &&
+                extensionRoleInformation.isEmpty();
+        this.defaultConstraints = compile(defaultPathSecurityInformation, null);
+        this.exactPathRoleInformation = compilePaths(defaultPathSecurityInformation, exactPathRoleInformation);
+        this.prefixPathRoleInformation = compilePaths(defaultPathSecurityInformation, prefixPathRoleInformation);
+        this.extensionRoleInformation = compilePaths(defaultPathSecurityInformation, extensionRoleInformation);
     }
 
     /**
@@ -57,27 +70,18 @@ public class SecurityPathMatches {
      * @return <code>true</code> If no security path information has been defined
      */
     public boolean isEmpty() {
-        return defaultPathSecurityInformation.excludedMethodRoles.isEmpty() &&
-                defaultPathSecurityInformation.perMethodRequiredRoles.isEmpty() &&
-                defaultPathSecurityInformation.defaultRequiredRoles.isEmpty() &&
-                exactPathRoleInformation.isEmpty() &&
-                prefixPathRoleInformation.isEmpty() &&
-                extensionRoleInformation.isEmpty();
+        return empty;
     }
 
     public SecurityPathMatch getSecurityInfo(final String path, final String method) {
-        RuntimeMatch currentMatch = new RuntimeMatch();
-        handleMatch(method, defaultPathSecurityInformation, currentMatch);
-        PathSecurityInformation match = exactPathRoleInformation.get(path);
+        CompiledConstraints match = exactPathRoleInformation.get(path);
         if (match != null) {
-            handleMatch(method, match, currentMatch);
-            return new SecurityPathMatch(currentMatch.type, mergeConstraints(currentMatch));
+            return match.get(method);
         }
 
         match = prefixPathRoleInformation.get(path);
         if (match != null) {
-            handleMatch(method, match, currentMatch);
-            return new SecurityPathMatch(currentMatch.type, mergeConstraints(currentMatch));
+            return match.get(method);
         }
 
         int qsPos = -1;
@@ -89,8 +93,7 @@ public class SecurityPathMatches {
                 final String part = path.substring(0, i);
                 match = exactPathRoleInformation.get(part);
                 if (match != null) {
-                    handleMatch(method, match, currentMatch);
-                    return new SecurityPathMatch(currentMatch.type, mergeConstraints(currentMatch));
+                    return match.get(method);
                 }
                 qsPos = i;
                 extension = false;
@@ -99,8 +102,7 @@ public class SecurityPathMatches {
                 final String part = path.substring(0, i);
                 match = prefixPathRoleInformation.get(part);
                 if (match != null) {
-                    handleMatch(method, match, currentMatch);
-                    return new SecurityPathMatch(currentMatch.type, mergeConstraints(currentMatch));
+                    return match.get(method);
                 }
             } else if (c == '.') {
                 if (!extension) {
@@ -113,15 +115,55 @@ public class SecurityPathMatches {
                     }
                     match = extensionRoleInformation.get(ext);
                     if (match != null) {
-                        handleMatch(method, match, currentMatch);
-                        return new SecurityPathMatch(currentMatch.type, mergeConstraints(currentMatch));
+                        return match.get(method);
                     }
                 }
             }
         }
+        return defaultConstraints.get(method);
+    }
+
+    private Map<String, CompiledConstraints> compilePaths(final PathSecurityInformation defaultInformation, final Map<String, PathSecurityInformation> pathInformation) {
+        final Map<String, CompiledConstraints> ret = new HashMap<>();
+        for (Map.Entry<String, PathSecurityInformation> entry : pathInformation.entrySet()) {
+            ret.put(entry.getKey(), compile(defaultInformation, entry.getValue()));
+        }
+        return ret;
+    }
+
+    /**
+     * Computes the result for every HTTP method that is named by a constraint, and a single result that is
+     * shared by all other methods, as they are all treated the same way.
+     */
+    private CompiledConstraints compile(final PathSecurityInformation defaultInformation, final PathSecurityInformation pathInformation) {
+        final Set<String> methods = new HashSet<>();
+        addMethods(defaultInformation, methods);
+        if (pathInformation != null) {
+            addMethods(pathInformation, methods);
+        }
+        final Map<String, SecurityPathMatch> methodMatches = new HashMap<>();
+        for (String method : methods) {
+            methodMatches.put(method, compileMethod(defaultInformation, pathInformation, method));
+        }
+        return new CompiledConstraints(methodMatches, compileMethod(defaultInformation, pathInformation, null));
+    }
+
+    private SecurityPathMatch compileMethod(final PathSecurityInformation defaultInformation, final PathSecurityInformation pathInformation, final String method) {
+        final RuntimeMatch currentMatch = new RuntimeMatch();
+        handleMatch(method, defaultInformation, currentMatch);
+        if (pathInformation != null) {
+            handleMatch(method, pathInformation, currentMatch);
+        }
         return new SecurityPathMatch(currentMatch.type, mergeConstraints(currentMatch));
     }
 
+    private static void addMethods(final PathSecurityInformation info, final Set<String> methods) {
+        methods.addAll(info.perMethodRequiredRoles.keySet());
+        for (ExcludedMethodRoles excluded : info.excludedMethodRoles) {
+            methods.addAll(excluded.methods);
+        }
+    }
+
     /**
      * merge all constraints, as per 13.8.1 Combining Constraints
      */
@@ -137,9 +179,12 @@ public class SecurityPathMatches {
                 allowedRoles.addAll(match.getRequiredRoles());
             }
         }
-        return new SingleConstraintMatch(SecurityInfo.EmptyRoleSemantic.PERMIT, allowedRoles);
+        return new SingleConstraintMatch(SecurityInfo.EmptyRoleSemantic.PERMIT, Collections.unmodifiableSet(allowedRoles));
     }
 
+    /**
+     * @param method The HTTP method, or <code>null</code> for a method that is not named by any constraint
+     */
     private void handleMatch(final String method, final PathSecurityInformation exact, RuntimeMatch currentMatch) {
         List<SecurityInformation> roles = exact.defaultRequiredRoles;
         for (SecurityInformation role : roles) {
@@ -149,7 +194,7 @@ public class SecurityPathMatches {
                 currentMatch.uncovered = false;
             }
         }
-        List<SecurityInformation> methodInfo = exact.perMethodRequiredRoles.get(method);
+        List<SecurityInformation> methodInfo = method == null ? null : exact.perMethodRequiredRoles.get(method);
         if (methodInfo != null) {
             currentMatch.uncovered = false;
             for (SecurityInformation role : methodInfo) {
@@ -158,7 +203,7 @@ public class SecurityPathMatches {
             }
         }
         for (ExcludedMethodRoles excluded : exact.excludedMethodRoles) {
-            if (!excluded.methods.contains(method)) {
+            if (method == null || !excluded.methods.contains(method)) {
                 currentMatch.uncovered = false;
                 transport(currentMatch, excluded.securityInformation.transportGuaranteeType);
                 currentMatch.constraints.add(new SingleConstraintMatch(excluded.securityInformation.emptyRoleSemantic, excluded.securityInformation.roles));
@@ -283,6 +328,21 @@ public class SecurityPathMatches {
         }
     }
 
+    private static final class CompiledConstraints {
+        private final Map<String, SecurityPathMatch> methodMatches;
+        private final SecurityPathMatch otherMethods;
+
+        private CompiledConstraints(final Map<String, SecurityPathMatch> methodMatches, final SecurityPathMatch otherMethods) {
+            this.methodMatches = methodMatches;
+            this.otherMethods = otherMethods;
+        }
+
+        SecurityPathMatch get(final String method) {
+            final SecurityPathMatch match = methodMatches.get(method);
+            return match == null ? otherMethods : match;
+        }
+    }
+
     private static final class RuntimeMatch {
         TransportGuaranteeType type = TransportGuaranteeType.NONE;
         final List<SingleConstraintMatch> constraints = new ArrayList<>();
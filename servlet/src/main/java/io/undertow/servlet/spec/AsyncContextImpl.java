@@ -70,7 +70,7 @@ import org.xnio.XnioExecutor;
  */
 public class AsyncContextImpl implements AsyncContext {
 
-    public static final AttachmentKey<Boolean> ASYNC_SUPPORTED = AttachmentKey.create(Boolean.class);
+    public static final AttachmentKey<Boolean> ASYNC_SUPPORTED = AttachmentKey.createIndexed(Boolean.class);
 
     private final List<BoundAsyncListener> asyncListeners = new CopyOnWriteArrayList<>();
 
@@ -25,7 +25,6 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
@@ -196,12 +195,12 @@ public final class HttpServletResponseImpl implements HttpServletResponse {
 
     @Override
     public void setDateHeader(final String name, final long date) {
-        setHeader(name, DateUtils.toDateString(new Date(date)));
+        setHeader(name, DateUtils.toDateString(date));
     }
 
     @Override
     public void addDateHeader(final String name, final long date) {
-        addHeader(name, DateUtils.toDateString(new Date(date)));
+        addHeader(name, DateUtils.toDateString(date));
     }
 
     @Override
@@ -18,10 +18,8 @@
 
 package io.undertow.servlet.spec;
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
@@ -59,7 +57,7 @@ public class PartImpl implements Part {
     @Override
     public InputStream getInputStream() throws IOException {
         if (formValue.isFile()) {
-            return new BufferedInputStream(new FileInputStream(formValue.getFile()));
+            return formValue.getFileInputStream();
         } else {
             return new ByteArrayInputStream(formValue.getValue().getBytes());
         }
@@ -83,7 +81,7 @@ public class PartImpl implements Part {
     @Override
     public long getSize() {
         if (formValue.isFile()) {
-            return formValue.getFile().length();
+            return formValue.getFileSize();
         } else {
             return formValue.getValue().length();
         }
@@ -99,7 +97,11 @@ public class PartImpl implements Part {
                 target = new File(config.getLocation(), fileName);
             }
         }
-        if(!formValue.getFile().renameTo(target)) {
+        if (formValue.isFileInMemory()) {
+            try (InputStream in = formValue.getFileInputStream()) {
+                FileUtils.copyFile(in, target);
+            }
+        } else if(!formValue.getFile().renameTo(target)) {
             //maybe different filesystem
             FileUtils.copyFile(formValue.getFile(), target);
         }
@@ -107,6 +109,10 @@ public class PartImpl implements Part {
 
     @Override
     public void delete() throws IOException {
+        if (formValue.isFileInMemory()) {
+            //nothing to delete
+            return;
+        }
         if (!formValue.getFile().delete()) {
             throw UndertowServletMessages.MESSAGES.deleteFailed(formValue.getFile());
         }
@@ -22,17 +22,40 @@ import io.undertow.servlet.api.ClassIntrospecter;
 import io.undertow.servlet.api.InstanceFactory;
 
 /**
+ * Class introspecter that creates instances using the default constructor.
+ * <p/>
+ * The resulting instance factory is cached against the class, so deployments that use the same classes do not need
+ * to look up the constructor again. As the cache is held by the class itself it does not prevent class loaders
+ * from being collected.
+ *
  * @author Stuart Douglas
  */
 public class DefaultClassIntrospector implements ClassIntrospecter {
 
     public static final DefaultClassIntrospector INSTANCE = new DefaultClassIntrospector();
 
+    private static final Object NO_DEFAULT_CONSTRUCTOR = new Object();
+
+    private final ClassValue<Object> factories = new ClassValue<Object>() {
+        @Override
+        protected Object computeValue(final Class<?> type) {
+            try {
+                return new ConstructorInstanceFactory<>(type.getDeclaredConstructor());
+            } catch (NoSuchMethodException e) {
+                return NO_DEFAULT_CONSTRUCTOR;
+            }
+        }
+    };
+
     private DefaultClassIntrospector() {
     }
 
     @Override
     public <T> InstanceFactory<T> createInstanceFactory(final Class<T> clazz) throws NoSuchMethodException {
-        return new ConstructorInstanceFactory<>(clazz.getDeclaredConstructor());
+        final Object factory = factories.get(clazz);
+        if (factory == NO_DEFAULT_CONSTRUCTOR) {
+            throw new NoSuchMethodException(clazz.getName() + ".<init>()");
+        }
+        return (InstanceFactory<T>) factory;
     }
 }
@@ -0,0 +1,323 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.servlet.handlers.security;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.servlet.api.SecurityConstraint;
+import io.undertow.servlet.api.SecurityInfo;
+import io.undertow.servlet.api.SingleConstraintMatch;
+import io.undertow.servlet.api.TransportGuaranteeType;
+import io.undertow.servlet.api.WebResourceCollection;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the precomputed results of {@link SecurityPathMatches} are the same as merging the constraints for
+ * every request, which is what older versions did.
+ *
+ * @author Stuart Douglas
+ */
+public class SecurityPathMatchesTestCase {
+
+    private static final List<String> PATHS = Arrays.asList(
+            "/secured", "/secured/a", "/secured/b.jsp", "/exact", "/exact?a=b", "/exact/a",
+            "/file.jsp", "/dir/file.txt", "/file.txt?a=b.c", "/other", "/");
+
+    /**
+     * PATCH and FOO are not named by any constraint, so they share a single result
+     */
+    private static final List<String> METHODS = Arrays.asList("GET", "POST", "PUT", "DELETE", "TRACE", "PATCH", "FOO");
+
+    @Test
+    public void testPrecomputedMatchesSameAsPerRequestMerge() {
+        runTest(false);
+    }
+
+    @Test
+    public void testPrecomputedMatchesSameAsPerRequestMergeDenyUncoveredMethods() {
+        runTest(true);
+    }
+
+    @Test
+    public void testUnnamedMethodsShareResult() {
+        SecurityPathMatches matches = build(deploymentInfo(false), constraints());
+        for (String path : PATHS) {
+            Assert.assertSame(path, matches.getSecurityInfo(path, "PATCH"), matches.getSecurityInfo(path, "FOO"));
+        }
+    }
+
+    @Test
+    public void testDenyUncoveredMethods() {
+        SecurityPathMatches matches = build(deploymentInfo(true), constraints());
+        //only GET and POST are covered for exact matches
+        Assert.assertEquals(SecurityInfo.EmptyRoleSemantic.PERMIT, matches.getSecurityInfo("/exact", "GET").getMergedConstraint().getEmptyRoleSemantic());
+        SingleConstraintMatch uncovered = matches.getSecurityInfo("/exact", "PATCH").getMergedConstraint();
+        Assert.assertEquals(SecurityInfo.EmptyRoleSemantic.DENY, uncovered.getEmptyRoleSemantic());
+        Assert.assertTrue(uncovered.getRequiredRoles().isEmpty());
+    }
+
+    private void runTest(boolean denyUncoveredHttpMethods) {
+        DeploymentInfo deploymentInfo = deploymentInfo(denyUncoveredHttpMethods);
+        List<SecurityConstraint> constraints = constraints();
+        SecurityPathMatches matches = build(deploymentInfo, constraints);
+        PerRequestMatches expected = new PerRequestMatches(deploymentInfo, constraints);
+        for (String path : PATHS) {
+            for (String method : METHODS) {
+                String message = method + " " + path;
+                SecurityPathMatch expectedMatch = expected.getSecurityInfo(path, method);
+                SecurityPathMatch match = matches.getSecurityInfo(path, method);
+                Assert.assertEquals(message, expectedMatch.getTransportGuaranteeType(), match.getTransportGuaranteeType());
+                Assert.assertEquals(message, expectedMatch.getMergedConstraint().getEmptyRoleSemantic(), match.getMergedConstraint().getEmptyRoleSemantic());
+                Assert.assertEquals(message, expectedMatch.getMergedConstraint().getRequiredRoles(), match.getMergedConstraint().getRequiredRoles());
+            }
+        }
+    }
+
+    private static DeploymentInfo deploymentInfo(boolean denyUncoveredHttpMethods) {
+        return new DeploymentInfo()
+                .addSecurityRoles("user", "admin", "jsp")
+                .setDenyUncoveredHttpMethods(denyUncoveredHttpMethods);
+    }
+
+    private static SecurityPathMatches build(DeploymentInfo deploymentInfo, List<SecurityConstraint> constraints) {
+        SecurityPathMatches.Builder builder = SecurityPathMatches.builder(deploymentInfo);
+        for (SecurityConstraint constraint : constraints) {
+            builder.addSecurityConstraint(constraint);
+        }
+        return builder.build();
+    }
+
+    private static List<SecurityConstraint> constraints() {
+        List<SecurityConstraint> ret = new ArrayList<>();
+        //prefix, with per method constraints and an omission
+        ret.add(new SecurityConstraint()
+                .addWebResourceCollection(new WebResourceCollection().addUrlPattern("/secured/*").addHttpMethods("GET", "POST"))
+                .addRoleAllowed("user")
+                .setTransportGuaranteeType(TransportGuaranteeType.CONFIDENTIAL));
+        ret.add(new SecurityConstraint()
+                .addWebResourceCollection(new WebResourceCollection().addUrlPattern("/secured/*").addHttpMethodOmission("GET"))
+                .addRoleAllowed("admin"));
+        //exact, with a method that is permitted to everyone and one that is denied
+        ret.add(new SecurityConstraint()
+                .addWebResourceCollection(new WebResourceCollection().addUrlPattern("/exact").addHttpMethod("GET"))
+                .setEmptyRoleSemantic(SecurityInfo.EmptyRoleSemantic.PERMIT));
+        ret.add(new SecurityConstraint()
+                .addWebResourceCollection(new WebResourceCollection().addUrlPattern("/exact").addHttpMethod("POST"))
+                .addRoleAllowed("*")
+                .setTransportGuaranteeType(TransportGuaranteeType.INTEGRAL));
+        ret.add(new SecurityConstraint()
+                .addWebResourceCollection(new WebResourceCollection().addUrlPattern("/exact").addHttpMethod("DELETE"))
+                .setEmptyRoleSemantic(SecurityInfo.EmptyRoleSemantic.DENY));
+        //extensions
+        ret.add(new SecurityConstraint()
+                .addWebResourceCollection(new WebResourceCollection().addUrlPattern("*.jsp").addHttpMethodOmissions("POST", "PUT"))
+                .addRoleAllowed("jsp"));
+        ret.add(new SecurityConstraint()
+                .addWebResourceCollection(new WebResourceCollection().addUrlPattern("*.txt"))
+                .addRolesAllowed("user", "jsp"));
+        ret.add(new SecurityConstraint()
+                .addWebResourceCollection(new WebResourceCollection().addUrlPattern("*.txt").addHttpMethod("PUT"))
+                .addRoleAllowed("admin"));
+        //applies to all paths
+        ret.add(new SecurityConstraint()
+                .addWebResourceCollection(new WebResourceCollection().addHttpMethod("TRACE"))
+                .setEmptyRoleSemantic(SecurityInfo.EmptyRoleSemantic.DENY));
+        return ret;
+    }
+
+    /**
+     * The constraints merged for every request, as {@link SecurityPathMatches} did before the results were computed
+     * in advance
+     */
+    private static final class PerRequestMatches {
+
+        private final boolean denyUncoveredHttpMethods;
+        private final PathSecurityInformation defaultPathSecurityInformation = new PathSecurityInformation();
+        private final Map<String, PathSecurityInformation> exactPathRoleInformation = new HashMap<>();
+        private final Map<String, PathSecurityInformation> prefixPathRoleInformation = new HashMap<>();
+        private final Map<String, PathSecurityInformation> extensionRoleInformation = new HashMap<>();
+
+        PerRequestMatches(DeploymentInfo deploymentInfo, List<SecurityConstraint> constraints) {
+            this.denyUncoveredHttpMethods = deploymentInfo.isDenyUncoveredHttpMethods();
+            for (SecurityConstraint securityConstraint : constraints) {
+                final Set<String> roles = new HashSet<>(securityConstraint.getRolesAllowed());
+                if (roles.remove("*")) {
+                    roles.addAll(deploymentInfo.getSecurityRoles());
+                }
+                final SecurityInformation securityInformation = new SecurityInformation(roles, securityConstraint.getTransportGuaranteeType(), securityConstraint.getEmptyRoleSemantic());
+                for (final WebResourceCollection webResources : securityConstraint.getWebResourceCollections()) {
+                    if (webResources.getUrlPatterns().isEmpty()) {
+                        setup(defaultPathSecurityInformation, securityInformation, webResources);
+                    }
+                    for (String pattern : webResources.getUrlPatterns()) {
+                        if (pattern.endsWith("/*") || pattern.endsWith("/")) {
+                            setup(info(prefixPathRoleInformation, pattern.substring(0, pattern.lastIndexOf('/'))), securityInformation, webResources);
+                        } else if (pattern.startsWith("*.")) {
+                            setup(info(extensionRoleInformation, pattern.substring(2)), securityInformation, webResources);
+                        } else {
+                            setup(info(exactPathRoleInformation, pattern), securityInformation, webResources);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static PathSecurityInformation info(Map<String, PathSecurityInformation> map, String key) {
+            PathSecurityInformation info = map.get(key);
+            if (info == null) {
+                map.put(key, info = new PathSecurityInformation());
+            }
+            return info;
+        }
+
+        private static void setup(PathSecurityInformation info, SecurityInformation securityConstraint, WebResourceCollection webResources) {
+            if (webResources.getHttpMethods().isEmpty() && webResources.getHttpMethodOmissions().isEmpty()) {
+                info.defaultRequiredRoles.add(securityConstraint);
+            } else if (!webResources.getHttpMethods().isEmpty()) {
+                for (String method : webResources.getHttpMethods()) {
+                    List<SecurityInformation> securityInformations = info.perMethodRequiredRoles.get(method);
+                    if (securityInformations == null) {
+                        info.perMethodRequiredRoles.put(method, securityInformations = new ArrayList<>());
+                    }
+                    securityInformations.add(securityConstraint);
+                }
+            } else {
+                info.excludedMethodRoles.add(new ExcludedMethodRoles(webResources.getHttpMethodOmissions(), securityConstraint));
+            }
+        }
+
+        SecurityPathMatch getSecurityInfo(final String path, final String method) {
+            RuntimeMatch currentMatch = new RuntimeMatch();
+            handleMatch(method, defaultPathSecurityInformation, currentMatch);
+            PathSecurityInformation match = exactPathRoleInformation.get(path);
+            if (match == null) {
+                match = prefixPathRoleInformation.get(path);
+            }
+            int qsPos = -1;
+            boolean extension = false;
+            for (int i = path.length() - 1; i >= 0 && match == null; --i) {
+                final char c = path.charAt(i);
+                if (c == '?') {
+                    match = exactPathRoleInformation.get(path.substring(0, i));
+                    qsPos = i;
+                    extension = false;
+                } else if (c == '/') {
+                    extension = true;
+                    match = prefixPathRoleInformation.get(path.substring(0, i));
+                } else if (c == '.' && !extension) {
+                    extension = true;
+                    match = extensionRoleInformation.get(path.substring(i + 1, qsPos == -1 ? path.length() : qsPos));
+                }
+            }
+            if (match != null) {
+                handleMatch(method, match, currentMatch);
+            }
+            return new SecurityPathMatch(currentMatch.type, mergeConstraints(currentMatch));
+        }
+
+        private SingleConstraintMatch mergeConstraints(final RuntimeMatch currentMatch) {
+            if (currentMatch.uncovered && denyUncoveredHttpMethods) {
+                return new SingleConstraintMatch(SecurityInfo.EmptyRoleSemantic.DENY, Collections.<String>emptySet());
+            }
+            final Set<String> allowedRoles = new HashSet<>();
+            for (SingleConstraintMatch match : currentMatch.constraints) {
+                if (match.getRequiredRoles().isEmpty()) {
+                    return new SingleConstraintMatch(match.getEmptyRoleSemantic(), Collections.<String>emptySet());
+                } else {
+                    allowedRoles.addAll(match.getRequiredRoles());
+                }
+            }
+            return new SingleConstraintMatch(SecurityInfo.EmptyRoleSemantic.PERMIT, allowedRoles);
+        }
+
+        private static void handleMatch(final String method, final PathSecurityInformation exact, RuntimeMatch currentMatch) {
+            for (SecurityInformation role : exact.defaultRequiredRoles) {
+                transport(currentMatch, role.transportGuaranteeType);
+                currentMatch.constraints.add(new SingleConstraintMatch(role.emptyRoleSemantic, role.roles));
+                if (role.emptyRoleSemantic == SecurityInfo.EmptyRoleSemantic.DENY || !role.roles.isEmpty()) {
+                    currentMatch.uncovered = false;
+                }
+            }
+            List<SecurityInformation> methodInfo = exact.perMethodRequiredRoles.get(method);
+            if (methodInfo != null) {
+                currentMatch.uncovered = false;
+                for (SecurityInformation role : methodInfo) {
+                    transport(currentMatch, role.transportGuaranteeType);
+                    currentMatch.constraints.add(new SingleConstraintMatch(role.emptyRoleSemantic, role.roles));
+                }
+            }
+            for (ExcludedMethodRoles excluded : exact.excludedMethodRoles) {
+                if (!excluded.methods.contains(method)) {
+                    currentMatch.uncovered = false;
+                    transport(currentMatch, excluded.securityInformation.transportGuaranteeType);
+                    currentMatch.constraints.add(new SingleConstraintMatch(excluded.securityInformation.emptyRoleSemantic, excluded.securityInformation.roles));
+                }
+            }
+        }
+
+        private static void transport(RuntimeMatch match, TransportGuaranteeType other) {
+            if (other.ordinal() > match.type.ordinal()) {
+                match.type = other;
+            }
+        }
+    }
+
+    private static class PathSecurityInformation {
+        final List<SecurityInformation> defaultRequiredRoles = new ArrayList<>();
+        final Map<String, List<SecurityInformation>> perMethodRequiredRoles = new HashMap<>();
+        final List<ExcludedMethodRoles> excludedMethodRoles = new ArrayList<>();
+    }
+
+    private static final class ExcludedMethodRoles {
+        final Set<String> methods;
+        final SecurityInformation securityInformation;
+
+        ExcludedMethodRoles(final Set<String> methods, final SecurityInformation securityInformation) {
+            this.methods = methods;
+            this.securityInformation = securityInformation;
+        }
+    }
+
+    private static final class SecurityInformation {
+        final Set<String> roles;
+        final TransportGuaranteeType transportGuaranteeType;
+        final SecurityInfo.EmptyRoleSemantic emptyRoleSemantic;
+
+        SecurityInformation(final Set<String> roles, final TransportGuaranteeType transportGuaranteeType, final SecurityInfo.EmptyRoleSemantic emptyRoleSemantic) {
+            this.emptyRoleSemantic = emptyRoleSemantic;
+            this.roles = new HashSet<>(roles);
+            this.transportGuaranteeType = transportGuaranteeType;
+        }
+    }
+
+    private static final class RuntimeMatch {
+        TransportGuaranteeType type = TransportGuaranteeType.NONE;
+        final List<SingleConstraintMatch> constraints = new ArrayList<>();
+        boolean uncovered = true;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.undertow.servlet.test.lifecycle;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+
+import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.servlet.api.DeploymentManager;
+import io.undertow.servlet.api.ServletContainer;
+import io.undertow.servlet.api.ServletInfo;
+import io.undertow.servlet.test.util.TestClassIntrospector;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Stuart Douglas
+ */
+public class ParallelStartupTestCase {
+
+    static volatile CountDownLatch latch;
+    static volatile boolean lastInitialized;
+    static volatile CountDownLatch blockingStarted;
+    static volatile boolean blockingInterrupted;
+    static volatile boolean blockingFinished;
+
+    @Test
+    public void testServletsWithSameLoadOnStartupInitializedConcurrently() throws ServletException {
+        latch = new CountDownLatch(2);
+        lastInitialized = false;
+        DeploymentManager manager = deploy(
+                new ServletInfo("waiting1", WaitingServlet.class).setLoadOnStartup(1),
+                new ServletInfo("waiting2", WaitingServlet.class).setLoadOnStartup(1),
+                new ServletInfo("last", LastServlet.class).setLoadOnStartup(2));
+        try {
+            manager.start();
+            Assert.assertTrue(lastInitialized);
+            Map<String, Long> timings = manager.getDeployment().getStartupTimings();
+            Assert.assertTrue(timings.containsKey("servlet-container-initializers"));
+            Assert.assertTrue(timings.containsKey("load-on-startup"));
+        } finally {
+            manager.undeploy();
+        }
+    }
+
+    @Test
+    public void testFirstFailureIsReported() throws ServletException {
+        DeploymentManager manager = deploy(
+                new ServletInfo("failing1", FailingServlet.class).setLoadOnStartup(1),
+                new ServletInfo("failing2", FailingServlet.class).setLoadOnStartup(1));
+        try {
+            manager.start();
+            Assert.fail("Deployment should not have started");
+        } catch (ServletException e) {
+            Assert.assertEquals("failing1", e.getMessage());
+            //failing2 is either cancelled or has already failed
+            for (Throwable suppressed : e.getSuppressed()) {
+                Assert.assertEquals("failing2", suppressed.getMessage());
+            }
+        } finally {
+            manager.undeploy();
+        }
+    }
+
+    @Test
+    public void testRunningTasksFinishBeforeFailureIsReported() throws ServletException {
+        blockingStarted = new CountDownLatch(1);
+        blockingInterrupted = false;
+        blockingFinished = false;
+        DeploymentManager manager = deploy(
+                new ServletInfo("failing", FailingAfterBlockingServlet.class).setLoadOnStartup(1),
+                new ServletInfo("blocking", BlockingServlet.class).setLoadOnStartup(1));
+        try {
+            manager.start();
+            Assert.fail("Deployment should not have started");
+        } catch (ServletException e) {
+            Assert.assertEquals("failing", e.getMessage());
+            //the running init() call was cancelled, and had finished by the time the failure was reported
+            Assert.assertTrue(blockingInterrupted);
+            Assert.assertTrue(blockingFinished);
+        } finally {
+            manager.undeploy();
+        }
+    }
+
+    private static DeploymentManager deploy(ServletInfo... servlets) {
+        DeploymentInfo builder = new DeploymentInfo()
+                .setClassLoader(ParallelStartupTestCase.class.getClassLoader())
+                .setContextPath("/servletContext")
+                .setClassIntrospecter(TestClassIntrospector.INSTANCE)
+                .setDeploymentName("servletContext.war")
+                .setParallelStartupThreads(2)
+                .addServlets(servlets);
+        DeploymentManager manager = ServletContainer.Factory.newInstance().addDeployment(builder);
+        manager.deploy();
+        return manager;
+    }
+
+    public static class WaitingServlet extends HttpServlet {
+
+        @Override
+        public void init(ServletConfig config) throws ServletException {
+            super.init(config);
+            latch.countDown();
+            try {
+                if (!latch.await(10, TimeUnit.SECONDS)) {
+                    throw new ServletException("Servlets were not initialized concurrently");
+                }
+            } catch (InterruptedException e) {
+                throw new ServletException(e);
+            }
+        }
+    }
+
+    public static class LastServlet extends HttpServlet {
+
+        @Override
+        public void init(ServletConfig config) throws ServletException {
+            super.init(config);
+            Assert.assertEquals(0, latch.getCount());
+            lastInitialized = true;
+        }
+    }
+
+    public static class BlockingServlet extends HttpServlet {
+
+        @Override
+        public void init(ServletConfig config) throws ServletException {
+            super.init(config);
+            blockingStarted.countDown();
+            try {
+                new CountDownLatch(1).await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                blockingInterrupted = true;
+            } finally {
+                blockingFinished = true;
+            }
+        }
+    }
+
+    public static class FailingAfterBlockingServlet extends HttpServlet {
+
+        @Override
+        public void init(ServletConfig config) throws ServletException {
+            try {
+                blockingStarted.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new ServletException(e);
+            }
+            throw new ServletException(config.getServletName());
+        }
+    }
+
+    public static class FailingServlet extends HttpServlet {
+
+        @Override
+        public void init(ServletConfig config) throws ServletException {
+            throw new ServletException(config.getServletName());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.undertow.servlet.test.lifecycle;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.Map;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+
+import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.servlet.api.DeploymentManager;
+import io.undertow.servlet.api.FilterInfo;
+import io.undertow.servlet.api.ServletContainer;
+import io.undertow.servlet.api.ServletInfo;
+import io.undertow.servlet.handlers.ServletPathMatch;
+import io.undertow.servlet.handlers.ServletPathMatches;
+import io.undertow.servlet.test.util.TestClassIntrospector;
+import io.undertow.util.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Stuart Douglas
+ */
+public class StartupSnapshotTestCase {
+
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("undertow-snapshot").toFile();
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteRecursive(dir);
+    }
+
+    @Test
+    public void testServletPathsRestoredFromSnapshot() throws ServletException {
+        File snapshot = new File(dir, "servletContext.snapshot");
+        Map<String, Long> timings = start(snapshot, "/path/*");
+        Assert.assertTrue(timings.containsKey("servlet-paths"));
+        Assert.assertTrue(snapshot.isFile());
+
+        timings = start(snapshot, "/path/*");
+        Assert.assertTrue(timings.containsKey("servlet-paths-from-snapshot"));
+        Assert.assertFalse(timings.containsKey("servlet-paths"));
+    }
+
+    @Test
+    public void testChangedMappingsIgnoreSnapshot() throws ServletException {
+        File snapshot = new File(dir, "servletContext.snapshot");
+        start(snapshot, "/path/*");
+        Map<String, Long> timings = start(snapshot, "/other/*");
+        Assert.assertTrue(timings.containsKey("servlet-paths"));
+        //the snapshot was replaced, so the next start can use it
+        timings = start(snapshot, "/other/*");
+        Assert.assertTrue(timings.containsKey("servlet-paths-from-snapshot"));
+    }
+
+    @Test
+    public void testUnreadableSnapshotIgnored() throws Exception {
+        File snapshot = new File(dir, "servletContext.snapshot");
+        Files.write(snapshot.toPath(), new byte[]{1, 2, 3});
+        Map<String, Long> timings = start(snapshot, "/path/*");
+        Assert.assertTrue(timings.containsKey("servlet-paths"));
+    }
+
+    @Test
+    public void testSnapshotWithOtherClassesIgnored() throws Exception {
+        File snapshot = new File(dir, "servletContext.snapshot");
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(snapshot))) {
+            out.writeObject(new Payload());
+        }
+        Payload.deserialized = false;
+        Map<String, Long> timings = start(snapshot, "/path/*");
+        Assert.assertTrue(timings.containsKey("servlet-paths"));
+        Assert.assertFalse(Payload.deserialized);
+    }
+
+    /**
+     * Starts a deployment, checks the servlet path matches and undeploys it again
+     */
+    private static Map<String, Long> start(File snapshot, String prefixMapping) throws ServletException {
+        DeploymentInfo builder = new DeploymentInfo()
+                .setClassLoader(StartupSnapshotTestCase.class.getClassLoader())
+                .setContextPath("/servletContext")
+                .setClassIntrospecter(TestClassIntrospector.INSTANCE)
+                .setDeploymentName("servletContext.war")
+                .setStartupSnapshot(snapshot)
+                .addServlets(
+                        new ServletInfo("prefix", PathServlet.class).addMapping(prefixMapping),
+                        new ServletInfo("exact", PathServlet.class).addMapping("/exact"),
+                        new ServletInfo("extension", PathServlet.class).addMapping("*.txt"))
+                .addFilter(new FilterInfo("filter", LifecycleFilter.class))
+                .addFilterUrlMapping("filter", "/exact", DispatcherType.REQUEST)
+                .addFilterServletNameMapping("filter", "extension", DispatcherType.FORWARD);
+        DeploymentManager manager = ServletContainer.Factory.newInstance().addDeployment(builder);
+        manager.deploy();
+        try {
+            manager.start();
+            String prefix = prefixMapping.substring(0, prefixMapping.length() - 2);
+            ServletPathMatches paths = manager.getDeployment().getServletPaths();
+            ServletPathMatch match = paths.getServletHandlerByPath(prefix + "/a");
+            Assert.assertEquals("prefix", match.getServletChain().getManagedServlet().getServletInfo().getName());
+            Assert.assertEquals(prefix, match.getMatched());
+            Assert.assertEquals("/a", match.getRemaining());
+            Assert.assertEquals("exact", paths.getServletHandlerByPath("/exact").getServletChain().getManagedServlet().getServletInfo().getName());
+            Assert.assertEquals("extension", paths.getServletHandlerByPath("/file.txt").getServletChain().getManagedServlet().getServletInfo().getName());
+            Assert.assertEquals(ServletPathMatches.DEFAULT_SERVLET_NAME, paths.getServletHandlerByPath("/missing").getServletChain().getManagedServlet().getServletInfo().getName());
+            Assert.assertEquals("extension", paths.getServletHandlerByName("extension").getManagedServlet().getServletInfo().getName());
+            return manager.getDeployment().getStartupTimings();
+        } finally {
+            manager.stop();
+            manager.undeploy();
+        }
+    }
+
+    public static class PathServlet extends HttpServlet {
+    }
+
+    public static class Payload implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        static volatile boolean deserialized;
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            deserialized = true;
+        }
+    }
+}